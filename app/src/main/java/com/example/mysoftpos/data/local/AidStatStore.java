@@ -0,0 +1,50 @@
+package com.example.mysoftpos.data.local;
+
+import com.example.mysoftpos.data.local.dao.AidStatDao;
+import com.example.mysoftpos.data.local.entity.AidStatEntity;
+import com.example.mysoftpos.nfc.AidSelector;
+import com.example.mysoftpos.nfc.AidStat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** {@link AidSelector} stats in the aid_stats table. */
+public class AidStatStore implements AidSelector.Store {
+
+    private final AidStatDao dao;
+
+    public AidStatStore(AidStatDao dao) {
+        this.dao = dao;
+    }
+
+    @Override
+    public List<AidStat> getAll() {
+        List<AidStat> out = new ArrayList<>();
+        for (AidStatEntity e : dao.getAll()) {
+            AidStat s = new AidStat(e.scope, e.aid);
+            s.hits = e.hits;
+            s.lastUsedAt = e.lastUsedAt;
+            s.bin = e.bin;
+            out.add(s);
+        }
+        return out;
+    }
+
+    @Override
+    public void upsert(AidStat stat) {
+        dao.upsert(toEntity(stat));
+    }
+
+    @Override
+    public void delete(AidStat stat) {
+        dao.delete(toEntity(stat));
+    }
+
+    private static AidStatEntity toEntity(AidStat s) {
+        AidStatEntity e = new AidStatEntity(s.scope, s.aid);
+        e.hits = s.hits;
+        e.lastUsedAt = s.lastUsedAt;
+        e.bin = s.bin;
+        return e;
+    }
+}
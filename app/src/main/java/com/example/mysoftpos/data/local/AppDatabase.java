@@ -19,8 +19,9 @@ import com.example.mysoftpos.data.local.dao.*;
         UserEntity.class,
         MerchantEntity.class,
         TerminalEntity.class,
-        CardEntity.class
-}, version = 18, exportSchema = false)
+        CardEntity.class,
+        AidStatEntity.class
+}, version = 23, exportSchema = false)
 public abstract class AppDatabase extends RoomDatabase {
 
     public abstract TransactionDao transactionDao();
@@ -37,6 +38,8 @@ public abstract class AppDatabase extends RoomDatabase {
 
     public abstract CardDao cardDao();
 
+    public abstract AidStatDao aidStatDao();
+
     // ──────────────────────────────────────────────────────────────────────────
     // MIGRATIONS – Thêm migration mới vào đây mỗi khi thay đổi schema.
     // KHÔNG bao giờ dùng fallbackToDestructiveMigration() trong app production.
@@ -120,6 +123,87 @@ public abstract class AppDatabase extends RoomDatabase {
         }
     };
 
+    /**
+     * Migration 18 → 19:
+     * Incremental backend sync: synced_at (0 = not yet uploaded) plus an index
+     * so each sync only scans unsynced rows instead of the whole history.
+     * Existing rows start unsynced and are uploaded once (backend dedupes by trace).
+     */
+    static final Migration MIGRATION_18_19 = new Migration(18, 19) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE transactions ADD COLUMN synced_at INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("CREATE INDEX IF NOT EXISTS index_transactions_synced_at ON transactions (synced_at)");
+        }
+    };
+
+    /**
+     * 19 → 20: denormalized bin / pan_masked / amount_value for SQL-side history
+     * filters, plus (user_id, timestamp) and (bin, timestamp) indices for
+     * newest-first paging. Existing rows are backfilled from the cards table.
+     */
+    static final Migration MIGRATION_19_20 = new Migration(19, 20) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE transactions ADD COLUMN bin TEXT");
+            db.execSQL("ALTER TABLE transactions ADD COLUMN pan_masked TEXT");
+            db.execSQL("ALTER TABLE transactions ADD COLUMN amount_value INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("UPDATE transactions SET "
+                    + "bin = (SELECT c.bin FROM cards c WHERE c.id = transactions.card_id), "
+                    + "pan_masked = (SELECT c.pan_masked FROM cards c WHERE c.id = transactions.card_id), "
+                    + "amount_value = COALESCE(CAST(amount AS INTEGER), 0)");
+            db.execSQL("DROP INDEX IF EXISTS index_transactions_user_id");
+            db.execSQL("CREATE INDEX IF NOT EXISTS index_transactions_user_id_timestamp "
+                    + "ON transactions (user_id, timestamp)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS index_transactions_bin_timestamp "
+                    + "ON transactions (bin, timestamp)");
+        }
+    };
+
+    /**
+     * 20 → 21: response_code (DE 39), pos_entry_mode (DE 22) and scheme columns,
+     * plus denorm_version. Only the scheme can be filled in SQL (from cards);
+     * the rest needs the hex unpacked, which {@link TransactionBackfillWorker}
+     * does in chunks in the background — every existing row starts at 0.
+     */
+    static final Migration MIGRATION_20_21 = new Migration(20, 21) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE transactions ADD COLUMN response_code TEXT");
+            db.execSQL("ALTER TABLE transactions ADD COLUMN pos_entry_mode TEXT");
+            db.execSQL("ALTER TABLE transactions ADD COLUMN scheme TEXT");
+            db.execSQL("ALTER TABLE transactions ADD COLUMN denorm_version INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("UPDATE transactions SET "
+                    + "scheme = (SELECT c.scheme FROM cards c WHERE c.id = transactions.card_id)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS index_transactions_denorm_version "
+                    + "ON transactions (denorm_version)");
+        }
+    };
+
+    /**
+     * 21 → 22: aid_stats, the per card profile / BIN range / global AID hit
+     * counts behind {@link com.example.mysoftpos.nfc.AidSelector}. Starts empty.
+     */
+    static final Migration MIGRATION_21_22 = new Migration(21, 22) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS aid_stats ("
+                    + "scope TEXT NOT NULL, aid TEXT NOT NULL, hits INTEGER NOT NULL, "
+                    + "last_used_at INTEGER NOT NULL, bin TEXT, PRIMARY KEY(scope, aid))");
+        }
+    };
+
+    /**
+     * 22 → 23: spec_id, the wire spec a row's hex was packed with. Existing
+     * rows stay null and are read with the standard spec.
+     */
+    static final Migration MIGRATION_22_23 = new Migration(22, 23) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE transactions ADD COLUMN spec_id TEXT");
+        }
+    };
+
     // ──────────────────────────────────────────────────────────────────────────
     // Singleton
     // ──────────────────────────────────────────────────────────────────────────
@@ -140,7 +224,9 @@ public abstract class AppDatabase extends RoomDatabase {
                             "mysoftpos_db")
                             // Liệt kê toàn bộ migration để Room nâng cấp schema
                             // mà KHÔNG xoá dữ liệu cũ.
-                            .addMigrations(MIGRATION_13_14, MIGRATION_14_15, MIGRATION_15_16, MIGRATION_16_17, MIGRATION_17_18)
+                            .addMigrations(MIGRATION_13_14, MIGRATION_14_15, MIGRATION_15_16, MIGRATION_16_17, MIGRATION_17_18,
+                                    MIGRATION_18_19, MIGRATION_19_20, MIGRATION_20_21, MIGRATION_21_22,
+                                    MIGRATION_22_23)
                             // WAL (Write-Ahead Logging): cải thiện hiệu năng đọc/ghi
                             // đồng thời, thay thế TRUNCATE.
                             .setJournalMode(RoomDatabase.JournalMode.AUTOMATIC)
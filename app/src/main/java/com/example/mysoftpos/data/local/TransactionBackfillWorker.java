@@ -0,0 +1,132 @@
+package com.example.mysoftpos.data.local;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.mysoftpos.data.local.dao.TransactionDao;
+import com.example.mysoftpos.data.local.entity.TransactionBackfillRow;
+
+import java.util.List;
+
+/**
+ * One-off background job that fills the denormalized columns (DE 3 / 4 / 22 /
+ * 49 / 37 / 39, BIN, masked PAN, scheme) of rows written before they existed,
+ * so history lists never unpack request/response hex while rendering.
+ *
+ * - Rows are processed in id order, {@link #CHUNK_SIZE} per SQLite transaction,
+ *   so the writer lock is never held for long and the UI keeps reading.
+ * - Each row is stamped with {@link TransactionDenormalizer#CURRENT_VERSION},
+ *   and the last processed id is kept in prefs: a run stopped by the system
+ *   (or by process death) resumes where it left off, nothing is parsed twice.
+ * - Once a run finds nothing left, the version is recorded as done and
+ *   {@link #enqueueIfNeeded} stops scheduling the job.
+ */
+public class TransactionBackfillWorker extends Worker {
+
+    private static final String TAG = "TxnBackfill";
+    public static final String UNIQUE_WORK = "mysoftpos_txn_backfill";
+
+    /** Rows per SQLite transaction. */
+    static final int CHUNK_SIZE = 300;
+
+    private static final String PREFS = "txn_backfill";
+    private static final String KEY_DONE_VERSION = "done_version";
+    private static final String KEY_VERSION = "version";
+    private static final String KEY_LAST_ID = "last_id";
+    private static final String KEY_PROCESSED = "processed";
+
+    public TransactionBackfillWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        SharedPreferences prefs = prefs(context);
+        int version = TransactionDenormalizer.CURRENT_VERSION;
+        if (prefs.getInt(KEY_DONE_VERSION, 0) >= version) {
+            return Result.success();
+        }
+
+        // Resume point is only valid for the version it was recorded under
+        boolean resume = prefs.getInt(KEY_VERSION, 0) == version;
+        long afterId = resume ? prefs.getLong(KEY_LAST_ID, 0) : 0;
+        long processed = resume ? prefs.getLong(KEY_PROCESSED, 0) : 0;
+        AppDatabase db = AppDatabase.getInstance(context);
+        TransactionDao dao = db.transactionDao();
+
+        try {
+            while (!isStopped()) {
+                List<TransactionBackfillRow> chunk = dao.getBackfillChunk(version, afterId, CHUNK_SIZE);
+                if (chunk.isEmpty()) {
+                    prefs.edit().putInt(KEY_DONE_VERSION, version).apply();
+                    Log.d(TAG, "Backfill v" + version + " complete, " + processed + " rows");
+                    return Result.success();
+                }
+                // Parse outside the transaction; only the updates hold the write lock
+                TransactionDenormalizer.Fields[] fields = new TransactionDenormalizer.Fields[chunk.size()];
+                for (int i = 0; i < fields.length; i++) {
+                    TransactionBackfillRow row = chunk.get(i);
+                    fields[i] = TransactionDenormalizer.parse(row.requestHex, row.responseHex, row.specId);
+                }
+                db.runInTransaction(() -> {
+                    for (int i = 0; i < fields.length; i++) {
+                        TransactionDenormalizer.Fields f = fields[i];
+                        dao.applyBackfill(chunk.get(i).id, f.processingCode, f.currencyCode, f.posEntryMode,
+                                f.amountValue, f.bin, f.panMasked, f.scheme, f.rrn, f.responseCode, version);
+                    }
+                });
+                afterId = chunk.get(chunk.size() - 1).id;
+                processed += chunk.size();
+                prefs.edit()
+                        .putInt(KEY_VERSION, version)
+                        .putLong(KEY_LAST_ID, afterId)
+                        .putLong(KEY_PROCESSED, processed)
+                        .apply();
+            }
+            return Result.retry(); // stopped: pick up from KEY_LAST_ID next run
+        } catch (Exception e) {
+            Log.e(TAG, "Backfill error after id " + afterId + ": " + e.getMessage(), e);
+            return Result.retry();
+        }
+    }
+
+    // ==================== Scheduling ====================
+
+    /**
+     * Enqueue the backfill unless it already completed for the current
+     * version. Safe to call on every start — KEEP policy, one job at a time.
+     */
+    public static void enqueueIfNeeded(Context context) {
+        if (isComplete(context)) {
+            return;
+        }
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresBatteryNotLow(true)
+                .build();
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(TransactionBackfillWorker.class)
+                .setConstraints(constraints)
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniqueWork(UNIQUE_WORK, ExistingWorkPolicy.KEEP, request);
+    }
+
+    public static boolean isComplete(Context context) {
+        return prefs(context).getInt(KEY_DONE_VERSION, 0) >= TransactionDenormalizer.CURRENT_VERSION;
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+}
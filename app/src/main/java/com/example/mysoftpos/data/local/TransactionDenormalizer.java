@@ -0,0 +1,157 @@
+package com.example.mysoftpos.data.local;
+
+import com.example.mysoftpos.data.local.entity.TransactionEntity;
+import com.example.mysoftpos.iso8583.message.IsoMessageView;
+import com.example.mysoftpos.iso8583.parser.IsoUnpacker;
+import com.example.mysoftpos.iso8583.spec.IsoSpecEngine;
+import com.example.mysoftpos.iso8583.util.HexUtil;
+import com.example.mysoftpos.utils.PanUtils;
+
+/**
+ * Extracts the denormalized transaction columns (DE 3 / 4 / 22 / 49 / 37 / 39,
+ * BIN, masked PAN, scheme) from the stored request/response hex.
+ *
+ * Used off the UI thread only: by the write-behind for new rows and by
+ * {@link TransactionBackfillWorker} for rows written before the columns
+ * existed. List rendering reads the columns and never unpacks hex.
+ *
+ * Pure Java (no Android types), decoded through {@link IsoMessageView} so only
+ * the fields read here are decoded, with the spec the row was packed with
+ * ({@code spec_id}; rows from before it was recorded are read as standard).
+ */
+public final class TransactionDenormalizer {
+
+    /**
+     * Bump when a column is added to {@link Fields}: rows with a lower
+     * {@code denorm_version} are re-processed by the backfill.
+     */
+    public static final int CURRENT_VERSION = 1;
+
+    private TransactionDenormalizer() {
+    }
+
+    /** Values parsed from one transaction; null (or 0) where the message had no such field. */
+    public static final class Fields {
+        public String processingCode;
+        public String currencyCode;
+        public String posEntryMode;
+        public long amountValue;
+        public String bin;
+        public String panMasked;
+        public String scheme;
+        public String rrn;
+        public String responseCode;
+    }
+
+    /** Never throws: a request/response that cannot be unpacked just leaves its fields null. */
+    public static Fields parse(String requestHex, String responseHex, String specId) {
+        IsoSpecEngine spec = IsoSpecEngine.forId(specId);
+        Fields f = new Fields();
+        IsoMessageView req = view(requestHex, spec);
+        if (req != null) {
+            try {
+                readRequest(req, f);
+            } catch (RuntimeException e) {
+                // corrupt field: keep what was read before it
+            }
+        }
+        IsoMessageView resp = view(responseHex, spec);
+        if (resp != null) {
+            try {
+                f.rrn = resp.getField(37);
+                f.responseCode = resp.getField(39);
+            } catch (RuntimeException e) {
+                // corrupt field: keep what was read before it
+            }
+        }
+        return f;
+    }
+
+    private static void readRequest(IsoMessageView req, Fields f) {
+        f.processingCode = req.getField(3);
+        f.currencyCode = req.getField(49);
+        f.posEntryMode = req.getField(22);
+        f.amountValue = parseAmount(req.getField(4));
+        String pan = panOf(req);
+        if (pan != null) {
+            f.bin = PanUtils.getBin(pan);
+            f.panMasked = PanUtils.mask(pan);
+            f.scheme = PanUtils.detectScheme(pan);
+        }
+    }
+
+    /**
+     * Fills the entity's null denormalized columns from its hex and stamps it
+     * {@link #CURRENT_VERSION}. Values already set by the caller win.
+     */
+    public static void fillMissing(TransactionEntity txn) {
+        Fields f = parse(txn.requestHex, txn.responseHex, txn.specId);
+        if (txn.processingCode == null) txn.processingCode = f.processingCode;
+        if (txn.currencyCode == null) txn.currencyCode = f.currencyCode;
+        if (txn.posEntryMode == null) txn.posEntryMode = f.posEntryMode;
+        if (txn.amountValue <= 0) txn.amountValue = f.amountValue;
+        if (txn.bin == null || txn.bin.isEmpty()) txn.bin = f.bin;
+        if (txn.panMasked == null) txn.panMasked = f.panMasked;
+        if (txn.scheme == null) txn.scheme = f.scheme;
+        if (txn.rrn == null || txn.rrn.isEmpty()) txn.rrn = f.rrn;
+        if (txn.responseCode == null) txn.responseCode = f.responseCode;
+        txn.denormVersion = CURRENT_VERSION;
+    }
+
+    /** DE 39 of a stored response packed with {@code specId}, or null. */
+    public static String responseCode(String responseHex, String specId) {
+        IsoMessageView resp = view(responseHex, IsoSpecEngine.forId(specId));
+        try {
+            return resp != null ? resp.getField(39) : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /** DE 4 digits as a number; 0 if missing or not numeric. */
+    public static long parseAmount(String amount) {
+        if (amount == null || amount.isEmpty() || amount.length() > 18) {
+            return 0;
+        }
+        long value = 0;
+        for (int i = 0; i < amount.length(); i++) {
+            char c = amount.charAt(i);
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /** DE 2, or the PAN part of DE 35 (up to the '=' / 'D' separator). */
+    private static String panOf(IsoMessageView msg) {
+        String pan = msg.getField(2);
+        if (pan != null && !pan.isEmpty()) {
+            return pan;
+        }
+        String track2 = msg.getField(35);
+        if (track2 == null) {
+            return null;
+        }
+        for (int i = 0; i < track2.length(); i++) {
+            char c = track2.charAt(i);
+            if (c == '=' || c == 'D' || c == 'd') {
+                return i > 0 ? track2.substring(0, i) : null;
+            }
+        }
+        return track2.isEmpty() ? null : track2;
+    }
+
+    private static IsoMessageView view(String hex, IsoSpecEngine spec) {
+        if (hex == null || hex.isEmpty()) {
+            return null;
+        }
+        try {
+            byte[] payload = HexUtil.hexToBytes(hex);
+            return IsoUnpacker.unpackView(payload, 0, payload.length, spec);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
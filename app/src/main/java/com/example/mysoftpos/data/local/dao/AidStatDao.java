@@ -0,0 +1,22 @@
+package com.example.mysoftpos.data.local.dao;
+
+import androidx.room.Dao;
+import androidx.room.Delete;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import com.example.mysoftpos.data.local.entity.AidStatEntity;
+
+import java.util.List;
+
+@Dao
+public interface AidStatDao {
+    @Query("SELECT * FROM aid_stats")
+    List<AidStatEntity> getAll();
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(AidStatEntity stat);
+
+    @Delete
+    void delete(AidStatEntity stat);
+}
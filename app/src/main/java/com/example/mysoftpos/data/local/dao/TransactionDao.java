@@ -1,6 +1,9 @@
 package com.example.mysoftpos.data.local.dao;
 
+import com.example.mysoftpos.data.local.entity.TransactionBackfillRow;
 import com.example.mysoftpos.data.local.entity.TransactionEntity;
+import com.example.mysoftpos.data.local.entity.TransactionHistoryRow;
+import com.example.mysoftpos.data.local.entity.TransactionSyncRow;
 
 import androidx.room.Dao;
 import androidx.room.Insert;
@@ -16,14 +19,19 @@ public interface TransactionDao {
     @Insert(onConflict = OnConflictStrategy.IGNORE)
     long insert(TransactionEntity transaction);
 
+    /** Bulk insert (write-behind batches); ids are -1 for rows skipped by IGNORE. */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    List<Long> insertAll(List<TransactionEntity> transactions);
+
     @Update
     void update(TransactionEntity transaction);
 
-    @Query("UPDATE transactions SET status = :newStatus WHERE trace_number = :traceNumber")
+    @Query("UPDATE transactions SET status = :newStatus, synced_at = 0 WHERE trace_number = :traceNumber")
     void updateStatus(String traceNumber, String newStatus);
 
-    @Query("UPDATE transactions SET response_hex = :responseHex, status = :status WHERE trace_number = :traceNumber")
-    void updateResponse(String traceNumber, String responseHex, String status);
+    @Query("UPDATE transactions SET response_hex = :responseHex, response_code = :responseCode, "
+            + "status = :status, synced_at = 0 WHERE trace_number = :traceNumber")
+    void updateResponse(String traceNumber, String responseHex, String responseCode, String status);
 
     @Query("UPDATE transactions SET response_hex = :responseHex WHERE trace_number = :traceNumber")
     void updateResponseHex(String traceNumber, String responseHex);
@@ -35,12 +43,96 @@ public interface TransactionDao {
     @Query("SELECT * FROM transactions WHERE trace_number = :traceNumber LIMIT 1")
     TransactionEntity getByTraceNumber(String traceNumber);
 
+    /** Wire spec the row was packed with; null for rows written before it was recorded. */
+    @Query("SELECT spec_id FROM transactions WHERE trace_number = :traceNumber LIMIT 1")
+    String getSpecId(String traceNumber);
+
     @Query("SELECT * FROM transactions ORDER BY timestamp DESC")
     List<TransactionEntity> getAllTransactions();
 
+    /**
+     * Next chunk of completed, not-yet-synced transactions after {@code afterId},
+     * with card/terminal details joined in (one query per chunk, served by the
+     * synced_at index).
+     */
+    @Query("SELECT t.id, t.trace_number, t.amount, t.status, t.timestamp, "
+            + "c.pan_masked, c.scheme, tm.terminal_code "
+            + "FROM transactions t "
+            + "LEFT JOIN cards c ON c.id = t.card_id "
+            + "LEFT JOIN terminals tm ON tm.id = t.terminal_id "
+            + "WHERE t.synced_at = 0 AND t.id > :afterId "
+            + "AND t.status IS NOT NULL AND t.status != 'PENDING' "
+            + "ORDER BY t.id LIMIT :limit")
+    List<TransactionSyncRow> getUnsyncedChunk(long afterId, int limit);
+
+    /**
+     * Mark one uploaded row as synced, unless its status changed after it was
+     * read (the new status must go out in a later sync).
+     */
+    @Query("UPDATE transactions SET synced_at = :syncedAt WHERE id = :id AND status = :status")
+    int markSynced(long id, String status, long syncedAt);
+
     @Query("SELECT * FROM transactions ORDER BY timestamp DESC")
     androidx.lifecycle.LiveData<List<TransactionEntity>> getAllTransactionsLive();
 
+    // ==================== Denormalization backfill ====================
+
+    /** Next chunk of rows denormalized below {@code version} (served by the denorm_version index). */
+    @Query("SELECT id, request_hex, response_hex, spec_id FROM transactions "
+            + "WHERE denorm_version < :version AND id > :afterId ORDER BY id LIMIT :limit")
+    List<TransactionBackfillRow> getBackfillChunk(int version, long afterId, int limit);
+
+    /**
+     * Fill one row's denormalized columns from its parsed hex. Columns that
+     * already hold a value (written at insert time or by a migration) are kept.
+     */
+    @Query("UPDATE transactions SET "
+            + "processing_code = COALESCE(processing_code, :processingCode), "
+            + "currency_code = COALESCE(currency_code, :currencyCode), "
+            + "pos_entry_mode = COALESCE(pos_entry_mode, :posEntryMode), "
+            + "amount_value = CASE WHEN amount_value > 0 THEN amount_value ELSE :amountValue END, "
+            + "bin = COALESCE(NULLIF(bin, ''), :bin), "
+            + "pan_masked = COALESCE(pan_masked, :panMasked), "
+            + "scheme = COALESCE(scheme, :scheme), "
+            + "rrn = COALESCE(NULLIF(rrn, ''), :rrn), "
+            + "response_code = COALESCE(response_code, :responseCode), "
+            + "denorm_version = :version "
+            + "WHERE id = :id")
+    void applyBackfill(long id, String processingCode, String currencyCode, String posEntryMode,
+            long amountValue, String bin, String panMasked, String scheme, String rrn,
+            String responseCode, int version);
+
+    @Query("SELECT COUNT(*) FROM transactions WHERE denorm_version < :version")
+    int countBackfillPending(int version);
+
+    // ==================== History (slim rows, filtered in SQL) ====================
+
+    /** Newest purchases with an amount for one user (served by the user_id/timestamp index). */
+    @Query("SELECT " + HISTORY_COLUMNS + " FROM transactions "
+            + "WHERE user_id = :userId AND " + PURCHASE_FILTER
+            + " ORDER BY timestamp DESC, id DESC LIMIT :limit")
+    androidx.lifecycle.LiveData<List<TransactionHistoryRow>> getRecentPurchasesLive(long userId, int limit);
+
+    /**
+     * One page of purchases whose BIN is in [binFrom, binTo), newest first,
+     * strictly older than the keyset cursor (beforeTimestamp, beforeId). Pass
+     * Long.MAX_VALUE for both to get the first page.
+     */
+    @Query("SELECT " + HISTORY_COLUMNS + " FROM transactions "
+            + "WHERE bin >= :binFrom AND bin < :binTo AND " + PURCHASE_FILTER
+            + " AND (timestamp < :beforeTimestamp OR (timestamp = :beforeTimestamp AND id < :beforeId))"
+            + " ORDER BY timestamp DESC, id DESC LIMIT :limit")
+    List<TransactionHistoryRow> getPurchasesByBinPage(String binFrom, String binTo,
+            long beforeTimestamp, long beforeId, int limit);
+
+    @Query("SELECT COUNT(*) FROM transactions WHERE bin >= :binFrom AND bin < :binTo AND " + PURCHASE_FILTER)
+    int countPurchasesByBin(String binFrom, String binTo);
+
+    String HISTORY_COLUMNS = "id, trace_number, amount, amount_value, currency_code, status, timestamp, rrn, pan_masked";
+
+    /** DE 3 "00xxxx" (purchase) with a non-zero amount. */
+    String PURCHASE_FILTER = "processing_code LIKE '00%' AND amount_value > 0";
+
     @Query("SELECT t.* FROM transactions t INNER JOIN users u ON t.user_id = u.id WHERE u.username_hash = :usernameHash ORDER BY t.timestamp DESC")
     androidx.lifecycle.LiveData<List<TransactionEntity>> getTransactionsByUsernameHashLive(String usernameHash);
 
@@ -0,0 +1,40 @@
+package com.example.mysoftpos.data.local.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+
+/**
+ * Stored form of {@link com.example.mysoftpos.nfc.AidStat}, see
+ * {@link com.example.mysoftpos.data.local.AidStatStore}.
+ */
+@Entity(tableName = "aid_stats", primaryKeys = { "scope", "aid" })
+public class AidStatEntity {
+    @NonNull
+    @ColumnInfo(name = "scope")
+    public String scope = "";
+
+    @NonNull
+    @ColumnInfo(name = "aid")
+    public String aid = "";
+
+    @ColumnInfo(name = "hits")
+    public int hits;
+
+    @ColumnInfo(name = "last_used_at")
+    public long lastUsedAt;
+
+    // BIN of the last card read in this scope (card-profile rows only)
+    @ColumnInfo(name = "bin")
+    public String bin;
+
+    public AidStatEntity() {
+    }
+
+    @Ignore
+    public AidStatEntity(@NonNull String scope, @NonNull String aid) {
+        this.scope = scope;
+        this.aid = aid;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.mysoftpos.data.local.entity;
+
+import androidx.room.ColumnInfo;
+
+/**
+ * The raw ISO payloads of one transaction, read in chunks by the
+ * denormalization backfill (the other columns are never loaded).
+ */
+public class TransactionBackfillRow {
+
+    @ColumnInfo(name = "id")
+    public long id;
+
+    @ColumnInfo(name = "request_hex")
+    public String requestHex;
+
+    @ColumnInfo(name = "response_hex")
+    public String responseHex;
+
+    @ColumnInfo(name = "spec_id")
+    public String specId;
+}
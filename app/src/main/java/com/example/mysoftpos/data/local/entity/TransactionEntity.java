@@ -11,9 +11,12 @@ import androidx.room.PrimaryKey;
         @ForeignKey(entity = CardEntity.class, parentColumns = "id", childColumns = "card_id", onDelete = ForeignKey.SET_NULL)
 }, indices = {
         @Index(value = "trace_number", unique = true),
-        @Index("user_id"),
+        @Index({"user_id", "timestamp"}),
         @Index("terminal_id"),
-        @Index("card_id")
+        @Index("card_id"),
+        @Index("synced_at"),
+        @Index({"bin", "timestamp"}),
+        @Index("denorm_version")
 })
 public class TransactionEntity {
 
@@ -69,12 +72,59 @@ public class TransactionEntity {
     @ColumnInfo(name = "rrn")
     public String rrn;
 
+    /**
+     * Card BIN / masked PAN, copied from the card at insert time so history can
+     * be filtered by scheme prefix without a join or unpacking requestHex.
+     */
+    @ColumnInfo(name = "bin")
+    public String bin;
+
+    @ColumnInfo(name = "pan_masked")
+    public String panMasked;
+
+    /** DE 4 as a number (minor units), for SQL amount filters; 0 = no amount. */
+    @ColumnInfo(name = "amount_value", defaultValue = "0")
+    public long amountValue;
+
+    /** DE 39 from the response; null while PENDING. */
+    @ColumnInfo(name = "response_code")
+    public String responseCode;
+
+    /** DE 22 POS Entry Mode (e.g. "071" contactless chip, "011" manual). */
+    @ColumnInfo(name = "pos_entry_mode")
+    public String posEntryMode;
+
+    /** Card scheme ("Napas", "Visa", ...), as on the card row. */
+    @ColumnInfo(name = "scheme")
+    public String scheme;
+
+    /**
+     * Id of the {@code IsoSpecEngine} request/response hex were packed with;
+     * null for rows written before it was recorded (standard spec).
+     */
+    @ColumnInfo(name = "spec_id")
+    public String specId;
+
+    /**
+     * {@code TransactionDenormalizer.CURRENT_VERSION} the columns above were
+     * filled with; rows below it are picked up by the background backfill.
+     */
+    @ColumnInfo(name = "denorm_version", defaultValue = "0")
+    public int denormVersion;
+
     @ColumnInfo(name = "terminal_id")
     public Long terminalId;
 
     @ColumnInfo(name = "card_id")
     public Long cardId;
 
+    /**
+     * Time of the last successful upload to the backend; 0 = not yet synced.
+     * Reset to 0 whenever the status changes so the new state is re-uploaded.
+     */
+    @ColumnInfo(name = "synced_at", defaultValue = "0")
+    public long syncedAt;
+
     public TransactionEntity() {
     }
 
@@ -0,0 +1,37 @@
+package com.example.mysoftpos.data.local.entity;
+
+import androidx.room.ColumnInfo;
+
+/**
+ * Slim projection for history lists: only the columns a row displays, without
+ * the request/response hex, so a page of history stays a few KB.
+ */
+public class TransactionHistoryRow {
+
+    @ColumnInfo(name = "id")
+    public long id;
+
+    @ColumnInfo(name = "trace_number")
+    public String traceNumber;
+
+    @ColumnInfo(name = "amount")
+    public String amount;
+
+    @ColumnInfo(name = "amount_value")
+    public long amountValue;
+
+    @ColumnInfo(name = "currency_code")
+    public String currencyCode;
+
+    @ColumnInfo(name = "status")
+    public String status;
+
+    @ColumnInfo(name = "timestamp")
+    public long timestamp;
+
+    @ColumnInfo(name = "rrn")
+    public String rrn;
+
+    @ColumnInfo(name = "pan_masked")
+    public String panMasked;
+}
@@ -0,0 +1,34 @@
+package com.example.mysoftpos.data.local.entity;
+
+import androidx.room.ColumnInfo;
+
+/**
+ * Flat projection of a transaction plus its card/terminal details, read by the
+ * backend sync in one JOIN instead of a {@link TransactionWithDetails} per row.
+ */
+public class TransactionSyncRow {
+
+    @ColumnInfo(name = "id")
+    public long id;
+
+    @ColumnInfo(name = "trace_number")
+    public String traceNumber;
+
+    @ColumnInfo(name = "amount")
+    public String amount;
+
+    @ColumnInfo(name = "status")
+    public String status;
+
+    @ColumnInfo(name = "timestamp")
+    public long timestamp;
+
+    @ColumnInfo(name = "pan_masked")
+    public String panMasked;
+
+    @ColumnInfo(name = "scheme")
+    public String scheme;
+
+    @ColumnInfo(name = "terminal_code")
+    public String terminalCode;
+}
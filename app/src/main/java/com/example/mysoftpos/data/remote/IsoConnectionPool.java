@@ -0,0 +1,427 @@
+package com.example.mysoftpos.data.remote;
+
+import android.util.Log;
+
+import com.example.mysoftpos.iso8583.message.IsoMessage;
+import com.example.mysoftpos.iso8583.spec.IsoField;
+import com.example.mysoftpos.iso8583.spec.IsoSpecEngine;
+import com.example.mysoftpos.iso8583.util.StandardIsoPacker;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persistent, multiplexed connections to the ISO host.
+ *
+ * Keeps up to {@link #setMaxConnectionsPerHost(int)} sockets open per
+ * host:port and lets concurrent transactions share them. Responses are matched
+ * back to callers by response MTI + STAN (DE 11) + RRN (DE 37), so requests
+ * may complete out of order.
+ *
+ * Idle connections are probed with a 0800/0810 network echo (DE 70 = 301);
+ * a connection that fails its echo is closed and a fresh one is opened in the
+ * background so the next transaction does not pay the TCP handshake.
+ *
+ * Used by {@link IsoNetworkClient} when persistent mode is enabled — callers
+ * keep using {@link IsoNetworkClient#sendAndReceive(String, int, byte[])}.
+ */
+public class IsoConnectionPool {
+
+    private static final String TAG = "IsoConnectionPool";
+
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 2;
+    private static final int DEFAULT_MAX_IN_FLIGHT_PER_CONNECTION = 32;
+    private static final long DEFAULT_KEEP_ALIVE_INTERVAL_MS = 30_000L;
+    private static final long DEFAULT_MAX_IDLE_MS = 5 * 60_000L;
+    private static final int ECHO_TIMEOUT_MS = 10_000;
+    private static final int RECONNECT_TIMEOUT_MS = 10_000;
+
+    private static final DateTimeFormatter FMT_DE7 =
+            DateTimeFormatter.ofPattern("MMddHHmmss", Locale.US);
+
+    private final Map<String, HostPool> hosts = new ConcurrentHashMap<>();
+    /**
+     * STANs for keep-alive echoes. Kept apart from the terminal's transaction
+     * counter so idle echoes leave no gaps in the DE 11 sequence; echoes are
+     * matched as 0810, so a STAN shared with a transaction cannot collide.
+     */
+    private final AtomicInteger echoStan = new AtomicInteger((int) (System.nanoTime() % 900_000) + 1);
+
+    private int maxConnectionsPerHost = DEFAULT_MAX_CONNECTIONS_PER_HOST;
+    private int maxInFlightPerConnection = DEFAULT_MAX_IN_FLIGHT_PER_CONNECTION;
+    private long keepAliveIntervalMs = DEFAULT_KEEP_ALIVE_INTERVAL_MS;
+    private long maxIdleMs = DEFAULT_MAX_IDLE_MS;
+
+    private ScheduledExecutorService keepAlive;
+    private IsoTimerWheel timer; // acquired by the first sendAsync, released on shutdown
+
+    public IsoConnectionPool() {
+    }
+
+    public IsoConnectionPool setMaxConnectionsPerHost(int max) {
+        this.maxConnectionsPerHost = Math.max(1, max);
+        return this;
+    }
+
+    /** Soft cap: above it a new socket is opened, if the host limit allows. */
+    public IsoConnectionPool setMaxInFlightPerConnection(int max) {
+        this.maxInFlightPerConnection = Math.max(1, max);
+        return this;
+    }
+
+    public IsoConnectionPool setKeepAliveInterval(long ms) {
+        this.keepAliveIntervalMs = ms;
+        return this;
+    }
+
+    /** Connections unused for longer than this are closed instead of echoed. */
+    public IsoConnectionPool setMaxIdle(long ms) {
+        this.maxIdleMs = ms;
+        return this;
+    }
+
+    /**
+     * Send a packed request on a pooled connection and wait for its matching response.
+     *
+     * @param spec spec the request was packed with; the response is decoded with it
+     * @throws SocketTimeoutException if no matching response arrives within readTimeoutMs
+     * @throws IOException            on connect/write failure or if the connection drops
+     */
+    public byte[] sendAndReceive(String host, int port, byte[] request, IsoSpecEngine spec,
+            int connectTimeoutMs, int readTimeoutMs) throws IOException {
+        Submitted s = submit(host, port, request, spec, connectTimeoutMs);
+        return await(s.conn, s.key, s.future, readTimeoutMs);
+    }
+
+    /**
+     * Asynchronous variant: the returned future completes with the matching
+     * response, or fails with {@link SocketTimeoutException} once readTimeoutMs
+     * elapses (enforced by {@link IsoTimerWheel}, no thread waits).
+     *
+     * The connect (only when a new socket is needed) and the write still run
+     * on the caller's thread.
+     */
+    public CompletableFuture<byte[]> sendAsync(String host, int port, byte[] request, IsoSpecEngine spec,
+            int connectTimeoutMs, int readTimeoutMs) {
+        Submitted s;
+        try {
+            s = submit(host, port, request, spec, connectTimeoutMs);
+        } catch (IOException e) {
+            CompletableFuture<byte[]> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        IsoTimerWheel.Timeout deadline = timer().schedule(() -> {
+            s.conn.cancel(s.key);
+            s.future.completeExceptionally(new SocketTimeoutException(
+                    "No response for " + s.key.id + " within " + readTimeoutMs + "ms"));
+        }, readTimeoutMs);
+        s.future.whenComplete((r, e) -> {
+            deadline.cancel();
+            if (s.future.isCancelled()) {
+                s.conn.cancel(s.key);
+            }
+        });
+        return s.future;
+    }
+
+    /** A request written to a pooled connection, awaiting its response. */
+    private static final class Submitted {
+        final IsoPooledConnection conn;
+        final IsoMatchKey key;
+        final CompletableFuture<byte[]> future;
+
+        Submitted(IsoPooledConnection conn, IsoMatchKey key, CompletableFuture<byte[]> future) {
+            this.conn = conn;
+            this.key = key;
+            this.future = future;
+        }
+    }
+
+    private Submitted submit(String host, int port, byte[] request, IsoSpecEngine spec, int connectTimeoutMs)
+            throws IOException {
+        IsoMatchKey key;
+        try {
+            key = IsoMatchKey.fromRequest(request, spec);
+        } catch (Exception e) {
+            throw new IOException("Cannot correlate request: " + e.getMessage(), e);
+        }
+
+        ensureKeepAlive();
+        HostPool pool = hostPool(host, port);
+        pool.lastUsedMs = System.currentTimeMillis();
+
+        // A connection the host has already closed is usually noticed by its
+        // reader before we write, and then nothing is sent: retry that once on
+        // a fresh connection. Any other write failure may have put bytes on the
+        // wire, so it is only retried for network management (08xx) messages;
+        // a financial request surfaces it to the reversal/timeout flow instead
+        // of risking a double debit.
+        IOException lastError = null;
+        for (int attempt = 0; attempt < 2; attempt++) {
+            IsoPooledConnection conn = pool.acquire(key, connectTimeoutMs);
+            try {
+                return new Submitted(conn, key, conn.send(key, request));
+            } catch (IsoPooledConnection.NotSentException e) {
+                if (!conn.isOpen()) {
+                    pool.remove(conn);
+                }
+                lastError = e;
+                Log.w(TAG, "Request not sent on pooled connection, retrying: " + e.getMessage());
+            } catch (IOException e) {
+                pool.remove(conn);
+                if (!key.isNetworkManagement()) {
+                    throw e;
+                }
+                lastError = e;
+                Log.w(TAG, "Write failed on pooled connection, retrying " + key.id + ": " + e.getMessage());
+            }
+        }
+        throw lastError;
+    }
+
+    private byte[] await(IsoPooledConnection conn, IsoMatchKey key,
+            CompletableFuture<byte[]> future, int readTimeoutMs) throws IOException {
+        try {
+            return future.get(readTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            conn.cancel(key);
+            throw new SocketTimeoutException("No response for " + key.id + " within " + readTimeoutMs + "ms");
+        } catch (InterruptedException e) {
+            conn.cancel(key);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for " + key.id);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /** Close every pooled socket, stop the keep-alive timer and release the timer wheel. */
+    public synchronized void shutdown() {
+        if (keepAlive != null) {
+            keepAlive.shutdownNow();
+            keepAlive = null;
+        }
+        if (timer != null) {
+            timer.release();
+            timer = null;
+        }
+        for (HostPool pool : hosts.values()) {
+            pool.closeAll();
+        }
+        hosts.clear();
+    }
+
+    private synchronized IsoTimerWheel timer() {
+        if (timer == null) {
+            timer = IsoTimerWheel.acquire();
+        }
+        return timer;
+    }
+
+    private HostPool hostPool(String host, int port) {
+        return hosts.computeIfAbsent(host + ":" + port, k -> new HostPool(host, port));
+    }
+
+    private synchronized void ensureKeepAlive() {
+        if (keepAlive != null || keepAliveIntervalMs <= 0) {
+            return;
+        }
+        keepAlive = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "iso-pool-keepalive");
+            t.setDaemon(true);
+            return t;
+        });
+        keepAlive.scheduleWithFixedDelay(this::keepAliveTick,
+                keepAliveIntervalMs, keepAliveIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void keepAliveTick() {
+        long now = System.currentTimeMillis();
+        for (HostPool pool : hosts.values()) {
+            try {
+                pool.maintain(now);
+            } catch (Exception e) {
+                Log.e(TAG, "Keep-alive failed for " + pool.host + ":" + pool.port, e);
+            }
+        }
+    }
+
+    private byte[] buildEcho() throws Exception {
+        String stan = String.format(Locale.ROOT, "%06d", echoStan.getAndUpdate(v -> v >= 999999 ? 1 : v + 1));
+        IsoMessage echo = new IsoMessage("0800");
+        echo.setField(IsoField.TRANSMISSION_DATETIME_7, FMT_DE7.format(LocalDateTime.now()));
+        echo.setField(IsoField.STAN_11, stan);
+        echo.setField(IsoField.NETWORK_MGMT_INFO_CODE_70, "301");
+        return StandardIsoPacker.pack(echo);
+    }
+
+    /** Connections for one host:port. */
+    private final class HostPool {
+        final String host;
+        final int port;
+        final List<IsoPooledConnection> connections = new ArrayList<>();
+        /** Slots reserved for connects in progress; guarded by this. */
+        int opening;
+        boolean closed;
+        volatile long lastUsedMs;
+
+        HostPool(String host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+
+        /**
+         * Least-loaded open connection that does not already carry this key;
+         * opens a new one while under the per-host limit and all are busy.
+         *
+         * The slot for a new connection is reserved under the lock but the
+         * TCP connect runs outside it, so a slow handshake does not stall
+         * callers that can use an existing connection. Callers that have no
+         * usable connection wait for the pending one.
+         */
+        IsoPooledConnection acquire(IsoMatchKey key, int connectTimeoutMs) throws IOException {
+            synchronized (this) {
+                while (true) {
+                    if (closed) {
+                        throw new IOException("Connection pool for " + host + ":" + port + " was shut down");
+                    }
+                    connections.removeIf(c -> !c.isOpen());
+
+                    IsoPooledConnection best = null;
+                    for (IsoPooledConnection c : connections) {
+                        if (c.hasInFlight(key)) {
+                            continue;
+                        }
+                        if (best == null || c.inFlight() < best.inFlight()) {
+                            best = c;
+                        }
+                    }
+
+                    boolean saturated = best == null || best.inFlight() >= maxInFlightPerConnection;
+                    if (saturated && connections.size() + opening < maxConnectionsPerHost) {
+                        opening++;
+                        break;
+                    }
+                    if (best != null) {
+                        return best;
+                    }
+                    if (opening == 0) {
+                        throw new IOException("Request " + key.id + " already in flight on every connection");
+                    }
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted waiting for a connection to " + host + ":" + port);
+                    }
+                }
+            }
+            return openReserved(connectTimeoutMs);
+        }
+
+        /** Connects on a slot reserved with {@code opening++}, then publishes the connection. */
+        private IsoPooledConnection openReserved(int connectTimeoutMs) throws IOException {
+            IsoPooledConnection c = null;
+            boolean published = false;
+            try {
+                c = IsoPooledConnection.open(host, port, connectTimeoutMs);
+            } finally {
+                synchronized (this) {
+                    opening--;
+                    if (c != null && !closed) {
+                        connections.add(c);
+                        published = true;
+                    }
+                    notifyAll();
+                }
+            }
+            if (!published) {
+                c.close(null);
+                throw new IOException("Connection pool for " + host + ":" + port + " was shut down");
+            }
+            return c;
+        }
+
+        synchronized void remove(IsoPooledConnection conn) {
+            connections.remove(conn);
+        }
+
+        void maintain(long now) {
+            List<IsoPooledConnection> snapshot;
+            synchronized (this) {
+                connections.removeIf(c -> !c.isOpen());
+                snapshot = new ArrayList<>(connections);
+            }
+
+            for (IsoPooledConnection c : snapshot) {
+                if (c.inFlight() > 0) {
+                    continue;
+                }
+                long idle = now - c.getLastActivityMs();
+                if (now - lastUsedMs > maxIdleMs) {
+                    c.close(null);
+                    remove(c);
+                } else if (idle >= keepAliveIntervalMs) {
+                    echo(c);
+                }
+            }
+
+            // Automatic reconnect: keep one warm socket while the host is in use
+            boolean reconnect = false;
+            synchronized (this) {
+                if (connections.isEmpty() && opening == 0 && now - lastUsedMs <= maxIdleMs) {
+                    opening++;
+                    reconnect = true;
+                }
+            }
+            if (reconnect) {
+                try {
+                    openReserved(RECONNECT_TIMEOUT_MS);
+                } catch (IOException e) {
+                    Log.w(TAG, "Reconnect to " + host + ":" + port + " failed: " + e.getMessage());
+                }
+            }
+        }
+
+        private void echo(IsoPooledConnection c) {
+            try {
+                byte[] echo = buildEcho();
+                IsoMatchKey key = IsoMatchKey.fromRequest(echo, IsoSpecEngine.standard());
+                c.send(key, echo).get(ECHO_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                Log.d(TAG, "Echo OK " + host + ":" + port);
+            } catch (Exception e) {
+                Log.w(TAG, "Echo failed on " + host + ":" + port + ", closing: " + e);
+                c.close(e instanceof IOException ? (IOException) e : null);
+                remove(c);
+            }
+        }
+
+        synchronized void closeAll() {
+            closed = true;
+            for (IsoPooledConnection c : connections) {
+                c.close(null);
+            }
+            connections.clear();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.mysoftpos.data.remote;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * TCP framing for the ISO host link.
+ *
+ * TX: 4-byte ASCII decimal length header + body (e.g. "0187" + 187 bytes).
+ * RX: adaptive — accepts either the 4-byte ASCII header or a 2-byte binary
+ * big-endian header, sniffed from the first byte.
+ *
+ * Shared by the one-shot socket path and the persistent connection pool so
+ * both speak exactly the same wire format.
+ */
+final class IsoFrameCodec {
+
+    /** Upper bound on body length — guards against OOM on corrupted headers. */
+    static final int MAX_BODY_LENGTH = 65535;
+
+    private IsoFrameCodec() {
+    }
+
+    /** Header + body in one buffer so the request leaves in a single TCP write. */
+    static byte[] frame(byte[] body) {
+        int len = body.length;
+        if (len > 9999) {
+            throw new IllegalArgumentException("Body too long for ASCII header: " + len);
+        }
+        byte[] out = new byte[4 + len];
+        out[0] = (byte) ('0' + (len / 1000) % 10);
+        out[1] = (byte) ('0' + (len / 100) % 10);
+        out[2] = (byte) ('0' + (len / 10) % 10);
+        out[3] = (byte) ('0' + len % 10);
+        System.arraycopy(body, 0, out, 4, len);
+        return out;
+    }
+
+    /** Read one framed message body (header stripped). Blocks until complete. */
+    static byte[] readFrame(InputStream in) throws IOException {
+        // Read first 2 bytes to sniff header type
+        byte[] pfx = new byte[2];
+        readFully(in, pfx, 0, 2);
+
+        int bodyLength;
+        if (isBinaryHeader(pfx[0])) {
+            // 2-BYTE BINARY HEADER
+            bodyLength = ((pfx[0] & 0xFF) << 8) | (pfx[1] & 0xFF);
+        } else {
+            // 4-BYTE ASCII HEADER — read remaining 2 bytes
+            byte[] suffix = new byte[2];
+            readFully(in, suffix, 0, 2);
+            bodyLength = parseAsciiLength(pfx[0], pfx[1], suffix[0], suffix[1]);
+        }
+
+        checkBodyLength(bodyLength);
+
+        byte[] body = new byte[bodyLength];
+        readFully(in, body, 0, bodyLength);
+        return body;
+    }
+
+    /** Binary header starts with 0x00 or the high byte of a length (< '0'). */
+    static boolean isBinaryHeader(byte first) {
+        return first == 0x00 || (first & 0xFF) < 0x30;
+    }
+
+    static int parseAsciiLength(byte b0, byte b1, byte b2, byte b3) throws IOException {
+        int len = 0;
+        byte[] digits = { b0, b1, b2, b3 };
+        for (byte d : digits) {
+            int v = d - '0';
+            if (v < 0 || v > 9) {
+                throw new IOException("Unknown Header Format. Hex: "
+                        + String.format("%02X%02X%02X%02X", b0, b1, b2, b3));
+            }
+            len = len * 10 + v;
+        }
+        return len;
+    }
+
+    static void checkBodyLength(int bodyLength) throws IOException {
+        if (bodyLength <= 0 || bodyLength > MAX_BODY_LENGTH) {
+            throw new IOException("Invalid body length: " + bodyLength);
+        }
+    }
+
+    /** Read exactly 'len' bytes or throw IOException */
+    static void readFully(InputStream in, byte[] buf, int off, int len) throws IOException {
+        int totalRead = 0;
+        while (totalRead < len) {
+            int c = in.read(buf, off + totalRead, len - totalRead);
+            if (c == -1) {
+                throw new IOException("Connection closed after reading " + totalRead + "/" + len + " bytes");
+            }
+            totalRead += c;
+        }
+    }
+}
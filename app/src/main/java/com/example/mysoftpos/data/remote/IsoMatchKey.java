@@ -0,0 +1,79 @@
+package com.example.mysoftpos.data.remote;
+
+import com.example.mysoftpos.iso8583.message.IsoMessageView;
+import com.example.mysoftpos.iso8583.parser.IsoUnpacker;
+import com.example.mysoftpos.iso8583.spec.IsoField;
+import com.example.mysoftpos.iso8583.spec.IsoSpecEngine;
+
+/**
+ * Correlation key for multiplexed requests: response MTI + STAN (DE 11) + RRN (DE 37).
+ *
+ * A request is keyed by the MTI its response will carry (0200 → 0210,
+ * 0420 → 0430, 0800 → 0810) so a late 0430 can never complete a waiting 0210.
+ *
+ * Both sides are unpacked with the spec the request was packed with
+ * ({@link #spec}): a response is decoded with the spec of the request it may
+ * answer, never guessed.
+ */
+final class IsoMatchKey {
+
+    final String id;
+    final String responseMti;
+    final String stan;
+    final String rrn;
+    final IsoSpecEngine spec;
+
+    private IsoMatchKey(String responseMti, String stan, String rrn, IsoSpecEngine spec) {
+        this.responseMti = responseMti;
+        this.spec = spec;
+        this.stan = stan;
+        this.rrn = rrn;
+        this.id = responseMti + ":" + stan + ":" + rrn;
+    }
+
+    /** Key the response to the given request, packed with {@code spec}, is expected to carry. */
+    static IsoMatchKey fromRequest(byte[] packedRequest, IsoSpecEngine spec) throws Exception {
+        IsoMessageView msg = IsoUnpacker.unpackView(packedRequest, 0, packedRequest.length, spec);
+        String stan = msg.getField(IsoField.STAN_11);
+        if (stan == null) {
+            throw new IllegalArgumentException("Request has no DE 11 — cannot multiplex");
+        }
+        return new IsoMatchKey(toResponseMti(msg.getMti()), stan, trim(msg.getField(IsoField.RRN_37)), spec);
+    }
+
+    /** Key carried by a received response decoded with {@code spec}, or null if it does not parse. */
+    static IsoMatchKey fromResponse(byte[] body, IsoSpecEngine spec) {
+        try {
+            IsoMessageView msg = IsoUnpacker.unpackView(body, 0, body.length, spec);
+            String stan = msg.getField(IsoField.STAN_11);
+            if (stan == null) {
+                return null;
+            }
+            return new IsoMatchKey(msg.getMti(), stan, trim(msg.getField(IsoField.RRN_37)), spec);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /** 08xx network management: safe to send twice. */
+    boolean isNetworkManagement() {
+        return responseMti.startsWith("08");
+    }
+
+    /** Fallback match when the host omits or rewrites DE 37. */
+    boolean matchesStan(IsoMatchKey other) {
+        return responseMti.equals(other.responseMti) && stan.equals(other.stan);
+    }
+
+    static String toResponseMti(String requestMti) {
+        char fn = requestMti.charAt(2);
+        if (fn == '0' || fn == '2') {
+            return requestMti.substring(0, 2) + (char) (fn + 1) + requestMti.charAt(3);
+        }
+        return requestMti;
+    }
+
+    private static String trim(String s) {
+        return s == null ? "" : s.trim();
+    }
+}
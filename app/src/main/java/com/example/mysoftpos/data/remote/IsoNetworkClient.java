@@ -1,8 +1,14 @@
 package com.example.mysoftpos.data.remote;
 
 import android.util.Log;
+
+import com.example.mysoftpos.iso8583.spec.IsoSpecEngine;
+import com.example.mysoftpos.utils.logging.IsoJournal;
+import com.example.mysoftpos.utils.metrics.IsoTimings;
+
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -10,7 +16,10 @@ import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
 import java.nio.charset.StandardCharsets;
-import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class IsoNetworkClient {
 
@@ -20,12 +29,72 @@ public class IsoNetworkClient {
     private static final int DEFAULT_CONNECT_TIMEOUT_MS = 10000; // 10s to establish TCP
     private static final int DEFAULT_READ_TIMEOUT_MS = 30000; // 30s to wait for Napas response
 
+    // A pre-connected socket left idle longer than this may already be dropped by the host
+    private static final long PREPARED_MAX_IDLE_NANOS = TimeUnit.SECONDS.toNanos(20);
+
     private int connectTimeoutMs = DEFAULT_CONNECT_TIMEOUT_MS;
     private int readTimeoutMs = DEFAULT_READ_TIMEOUT_MS;
 
+    // Persistent mode: share long-lived sockets instead of one socket per transaction
+    private volatile IsoConnectionPool connectionPool;
+
+    // Every exchange is appended to the binary trace journal when set
+    private volatile IsoJournal journal;
+
+    // Async mode: selector-driven transport, created on first sendAsync()
+    private static final int DEFAULT_IO_THREADS = 2;
+    private IsoNioTransport nioTransport;
+
     public IsoNetworkClient() {
     }
 
+    /**
+     * Route {@link #sendAndReceive} through a persistent, multiplexed pool
+     * (null = classic one-socket-per-transaction mode).
+     */
+    public IsoNetworkClient setConnectionPool(IsoConnectionPool pool) {
+        IsoConnectionPool previous = this.connectionPool;
+        this.connectionPool = pool;
+        if (previous != null && previous != pool) {
+            previous.shutdown();
+        }
+        if (pool != null) {
+            // sendAsync() now goes through the pool: stop the idle NIO threads
+            shutdownNioTransport();
+        }
+        return this;
+    }
+
+    /**
+     * Close the pool and stop the NIO transport, with their I/O and timer
+     * threads. A later send starts a fresh transport (or uses a newly set pool).
+     */
+    public void shutdown() {
+        IsoConnectionPool pool = connectionPool;
+        connectionPool = null;
+        if (pool != null) {
+            pool.shutdown();
+        }
+        shutdownNioTransport();
+    }
+
+    private synchronized void shutdownNioTransport() {
+        if (nioTransport != null) {
+            nioTransport.shutdown();
+            nioTransport = null;
+        }
+    }
+
+    /** Journal every request/response frame (null = off). */
+    public IsoNetworkClient setJournal(IsoJournal journal) {
+        this.journal = journal;
+        return this;
+    }
+
+    public boolean isPersistent() {
+        return connectionPool != null;
+    }
+
     /** Configure timeouts (e.g., shorter for reversal, longer for slow networks) */
     public IsoNetworkClient setConnectTimeout(int ms) {
         this.connectTimeoutMs = ms;
@@ -37,123 +106,356 @@ public class IsoNetworkClient {
         return this;
     }
 
-    public byte[] sendAndReceive(String host, int port, byte[] requestData) throws IOException {
-        long startTime = System.currentTimeMillis();
-        Log.d(TAG, "Connecting to " + host + ":" + port);
-
-        try (Socket socket = new Socket()) {
-            // === TCP Socket Optimizations ===
-            socket.setTcpNoDelay(true); // Disable Nagle's: send immediately, don't buffer small packets
-            socket.setKeepAlive(true); // Detect dead connections on slow networks
-            socket.setSendBufferSize(4096); // ISO msgs are small (~300 bytes), 4KB is enough
-            socket.setReceiveBufferSize(4096);
+    /**
+     * Non-blocking send: no thread waits for the host. Uses the persistent pool
+     * when enabled, otherwise the NIO transport (one channel per exchange).
+     *
+     * The future fails with {@link SocketTimeoutException} on connect/read
+     * timeout, so callers can keep their reversal handling unchanged.
+     */
+    public CompletableFuture<byte[]> sendAsync(String host, int port, byte[] requestData) {
+        return sendAsync(host, port, requestData, IsoSpecEngine.standard());
+    }
 
-            // Separate connect vs read timeout
-            socket.connect(new InetSocketAddress(host, port), connectTimeoutMs);
-            socket.setSoTimeout(readTimeoutMs);
+    /**
+     * Same as {@link #sendAsync(String, int, byte[])} for a request packed
+     * with {@code spec}; the pool decodes the response with it to find the waiter.
+     */
+    public CompletableFuture<byte[]> sendAsync(String host, int port, byte[] requestData,
+            IsoSpecEngine spec) {
+        IsoJournal j = journal;
+        if (j == null) {
+            return sendAsyncUnjournaled(host, port, requestData, spec);
+        }
+        long sentAt = System.currentTimeMillis();
+        long start = System.nanoTime();
+        return sendAsyncUnjournaled(host, port, requestData, spec).whenComplete((response, error) ->
+                j.record(requestData, response, sentAt, System.nanoTime() - start));
+    }
 
-            long connectTime = System.currentTimeMillis() - startTime;
-            Log.d(TAG, "Connected in " + connectTime + "ms");
+    private CompletableFuture<byte[]> sendAsyncUnjournaled(String host, int port, byte[] requestData,
+            IsoSpecEngine spec) {
+        IsoConnectionPool pool = connectionPool;
+        if (pool != null) {
+            return pool.sendAsync(host, port, requestData, spec, connectTimeoutMs, readTimeoutMs);
+        }
+        try {
+            return getNioTransport().send(host, port, requestData, connectTimeoutMs, readTimeoutMs);
+        } catch (IOException e) {
+            CompletableFuture<byte[]> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
 
-            // === SEND: Header + Body in single write (avoid 2 TCP packets) ===
-            int bodyLen = requestData.length;
-            String lengthStr = String.format(Locale.US, "%04d", bodyLen);
-            byte[] header = lengthStr.getBytes(StandardCharsets.US_ASCII);
+    private synchronized IsoNioTransport getNioTransport() throws IOException {
+        if (nioTransport == null) {
+            nioTransport = new IsoNioTransport(DEFAULT_IO_THREADS);
+        }
+        return nioTransport;
+    }
 
-            // Combine header + body into one buffer → single TCP packet
-            byte[] combined = new byte[header.length + requestData.length];
-            System.arraycopy(header, 0, combined, 0, header.length);
-            System.arraycopy(requestData, 0, combined, header.length, requestData.length);
+    /**
+     * Start the TCP connect now, on {@code executor}, so it overlaps with work
+     * that still has to happen before the request exists (the NFC card read).
+     * In persistent mode there is nothing to prepare; the handle just routes
+     * to the pool.
+     */
+    public PreparedConnection prepareConnection(String host, int port, Executor executor) {
+        if (connectionPool != null) {
+            return new PreparedConnection(host, port, null);
+        }
+        PreparedConnection prepared = new PreparedConnection(host, port, new Socket());
+        executor.execute(() -> {
+            try {
+                connect(prepared.socket, host, port);
+                prepared.connected.complete(null);
+            } catch (IOException e) {
+                Log.w(TAG, "Early connect to " + host + ":" + port + " failed: " + e.getMessage());
+                prepared.connected.completeExceptionally(e);
+            }
+        });
+        return prepared;
+    }
 
-            Log.d(TAG, String.format("TX Header: [%s] Body: %d bytes", lengthStr, bodyLen));
+    /**
+     * Same as {@link #sendAndReceive(String, int, byte[], IsoTimings)} but
+     * over a connection from {@link #prepareConnection}. Falls back to a fresh
+     * connect when the early one failed, went stale, was closed by the host
+     * or was already used.
+     * {@code timings.connectNanos} is the time spent waiting for the early
+     * connect, usually zero.
+     */
+    public byte[] sendAndReceive(PreparedConnection prepared, byte[] requestData, IsoTimings timings)
+            throws IOException {
+        return sendAndReceive(prepared, requestData, IsoSpecEngine.standard(), timings);
+    }
 
-            OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 4096);
-            out.write(combined); // Single write = single TCP packet
-            out.flush();
+    public byte[] sendAndReceive(PreparedConnection prepared, byte[] requestData, IsoSpecEngine spec,
+            IsoTimings timings) throws IOException {
+        IsoJournal j = journal;
+        if (j == null) {
+            return exchange(prepared, requestData, spec, timings);
+        }
+        long sentAt = System.currentTimeMillis();
+        long start = System.nanoTime();
+        byte[] response = null;
+        try {
+            response = exchange(prepared, requestData, spec, timings);
+            return response;
+        } finally {
+            j.record(requestData, response, sentAt, System.nanoTime() - start);
+        }
+    }
 
-            long sendTime = System.currentTimeMillis() - startTime;
-            Log.d(TAG, "Data sent in " + sendTime + "ms");
+    public byte[] sendAndReceive(String host, int port, byte[] requestData) throws IOException {
+        return sendAndReceive(host, port, requestData, null);
+    }
 
-            // === RECEIVE: Buffered stream for efficient reads ===
-            InputStream in = new BufferedInputStream(socket.getInputStream(), 4096);
-            byte[] response = readAdaptiveResponse(in);
+    /**
+     * Blocking round trip that also fills {@code timings} (nullable) with the
+     * connect, write, first-byte and body-read phases. In persistent mode only
+     * the total is known; the connection is shared and already open.
+     */
+    public byte[] sendAndReceive(String host, int port, byte[] requestData, IsoTimings timings)
+            throws IOException {
+        return sendAndReceive(host, port, requestData, IsoSpecEngine.standard(), timings);
+    }
 
-            long totalTime = System.currentTimeMillis() - startTime;
-            Log.d(TAG, "Total round-trip: " + totalTime + "ms (connect=" + connectTime
-                    + "ms, response=" + (totalTime - sendTime) + "ms)");
+    /**
+     * Round trip for a request packed with {@code spec}. In persistent mode the
+     * pool matches the response to this request by decoding it with the same spec.
+     */
+    public byte[] sendAndReceive(String host, int port, byte[] requestData, IsoSpecEngine spec,
+            IsoTimings timings) throws IOException {
+        IsoJournal j = journal;
+        if (j == null) {
+            return exchange(host, port, requestData, spec, timings);
+        }
+        long sentAt = System.currentTimeMillis();
+        long start = System.nanoTime();
+        byte[] response = null;
+        try {
+            response = exchange(host, port, requestData, spec, timings);
+            return response;
+        } finally {
+            j.record(requestData, response, sentAt, System.nanoTime() - start);
+        }
+    }
 
+    private byte[] exchange(String host, int port, byte[] requestData, IsoSpecEngine spec,
+            IsoTimings timings) throws IOException {
+        IsoConnectionPool pool = connectionPool;
+        if (pool != null) {
+            long poolStart = System.nanoTime();
+            byte[] response = pool.sendAndReceive(host, port, requestData, spec,
+                    connectTimeoutMs, readTimeoutMs);
+            if (timings != null) {
+                timings.totalNanos = System.nanoTime() - poolStart;
+            }
             return response;
+        }
+
+        long startTime = System.nanoTime();
+        Log.d(TAG, "Connecting to " + host + ":" + port);
+
+        try (Socket socket = new Socket()) {
+            connect(socket, host, port);
+            long connected = System.nanoTime();
+            Log.d(TAG, "Connected in " + millis(connected - startTime) + "ms");
+            return roundTrip(socket, requestData, timings, startTime, connected);
 
         } catch (SocketTimeoutException e) {
-            long elapsed = System.currentTimeMillis() - startTime;
-            Log.e(TAG, "Timeout after " + elapsed + "ms", e);
+            Log.e(TAG, "Timeout after " + millis(System.nanoTime() - startTime) + "ms", e);
             throw e;
         } catch (IOException e) {
-            long elapsed = System.currentTimeMillis() - startTime;
-            Log.e(TAG, "Network Error after " + elapsed + "ms", e);
+            Log.e(TAG, "Network Error after " + millis(System.nanoTime() - startTime) + "ms", e);
             throw e;
         }
     }
 
-    private byte[] readAdaptiveResponse(InputStream in) throws IOException {
-        // Read first 2 bytes to sniff header type
-        byte[] pfx = new byte[2];
-        readFully(in, pfx, 0, 2);
+    private byte[] exchange(PreparedConnection prepared, byte[] requestData, IsoSpecEngine spec,
+            IsoTimings timings) throws IOException {
+        long startTime = System.nanoTime();
+        Socket early = prepared.take(connectTimeoutMs);
+        if (early == null) {
+            return exchange(prepared.host, prepared.port, requestData, spec, timings);
+        }
 
-        int bodyLength;
+        try (Socket socket = early) {
+            long connected = System.nanoTime();
+            Log.d(TAG, "Reusing early connection (waited " + millis(connected - startTime) + "ms)");
+            return roundTrip(socket, requestData, timings, startTime, connected);
 
-        // CHECK: BINARY HEADER? (Starts with 0x00 or high byte of length)
-        if (pfx[0] == 0x00 || (pfx[0] & 0xFF) < 0x30) {
-            // 2-BYTE BINARY HEADER
-            bodyLength = ((pfx[0] & 0xFF) << 8) | (pfx[1] & 0xFF);
-            Log.d(TAG, String.format("RX Header (Binary): [%02X %02X] Len=%d", pfx[0], pfx[1], bodyLength));
-        } else {
-            // 4-BYTE ASCII HEADER — read remaining 2 bytes
-            byte[] suffix = new byte[2];
-            readFully(in, suffix, 0, 2);
+        } catch (SocketTimeoutException e) {
+            Log.e(TAG, "Timeout after " + millis(System.nanoTime() - startTime) + "ms", e);
+            throw e;
+        } catch (IOException e) {
+            Log.e(TAG, "Network Error after " + millis(System.nanoTime() - startTime) + "ms", e);
+            throw e;
+        }
+    }
 
-            String headerStr = new String(new byte[] { pfx[0], pfx[1], suffix[0], suffix[1] },
-                    StandardCharsets.US_ASCII);
-            try {
-                bodyLength = Integer.parseInt(headerStr);
-            } catch (NumberFormatException e) {
-                throw new IOException("Unknown Header Format. Hex: " + bytesToHex(pfx) + bytesToHex(suffix));
-            }
-            Log.d(TAG, String.format("RX Header (ASCII): [%s] Len=%d", headerStr, bodyLength));
+    private void connect(Socket socket, String host, int port) throws IOException {
+        // === TCP Socket Optimizations ===
+        socket.setTcpNoDelay(true); // Disable Nagle's: send immediately, don't buffer small packets
+        socket.setKeepAlive(true); // Detect dead connections on slow networks
+        socket.setSendBufferSize(4096); // ISO msgs are small (~300 bytes), 4KB is enough
+        socket.setReceiveBufferSize(4096);
+
+        // Separate connect vs read timeout
+        socket.connect(new InetSocketAddress(host, port), connectTimeoutMs);
+        socket.setSoTimeout(readTimeoutMs);
+    }
+
+    /** Write one framed request on a connected socket and read the framed response. */
+    private static byte[] roundTrip(Socket socket, byte[] requestData, IsoTimings timings,
+            long startTime, long connected) throws IOException {
+        if (timings != null) {
+            timings.connectNanos = connected - startTime;
+        }
+
+        // === SEND: Header + Body in single write (avoid 2 TCP packets) ===
+        byte[] combined = IsoFrameCodec.frame(requestData);
+
+        Log.d(TAG, String.format("TX Header: [%s] Body: %d bytes",
+                new String(combined, 0, 4, StandardCharsets.US_ASCII), requestData.length));
+
+        OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 4096);
+        out.write(combined); // Single write = single TCP packet
+        out.flush();
+
+        long sent = System.nanoTime();
+        if (timings != null) {
+            timings.writeNanos = sent - connected;
+        }
+
+        // === RECEIVE: Buffered stream for efficient reads ===
+        InputStream in = new BufferedInputStream(socket.getInputStream(), 4096);
+        // Peek one byte so host think time (first byte) is separated from the body read
+        in.mark(1);
+        if (in.read() < 0) {
+            throw new IOException("Connection closed before response");
         }
+        in.reset();
+        long firstByte = System.nanoTime();
+
+        byte[] response = IsoFrameCodec.readFrame(in);
+        long end = System.nanoTime();
+        Log.d(TAG, "RX Body: " + response.length + " bytes");
 
-        // Validate body length to prevent OOM on corrupted data
-        if (bodyLength <= 0 || bodyLength > 65535) {
-            throw new IOException("Invalid body length: " + bodyLength);
+        if (timings != null) {
+            timings.firstByteNanos = firstByte - sent;
+            timings.bodyReadNanos = end - firstByte;
+            timings.totalNanos = end - startTime;
         }
+        Log.d(TAG, "Total round-trip: " + millis(end - startTime) + "ms (connect="
+                + millis(connected - startTime) + "ms, response=" + millis(end - sent) + "ms)");
 
-        // Read body
-        byte[] body = new byte[bodyLength];
-        readFully(in, body, 0, bodyLength);
+        return response;
+    }
 
-        Log.d(TAG, "RX Body: " + bodyLength + " bytes");
-        return body;
+    private static long millis(long nanos) {
+        return nanos / 1_000_000;
     }
 
-    /** Read exactly 'len' bytes or throw IOException */
-    private void readFully(InputStream in, byte[] buf, int off, int len) throws IOException {
-        int totalRead = 0;
-        while (totalRead < len) {
-            int c = in.read(buf, off + totalRead, len - totalRead);
-            if (c == -1) {
-                throw new IOException("Connection closed after reading " + totalRead + "/" + len + " bytes");
+    /**
+     * A TCP connect started ahead of the request, see {@link #prepareConnection}.
+     * Used by at most one exchange; {@link #close()} it when the transaction
+     * is abandoned instead.
+     */
+    public static final class PreparedConnection implements Closeable {
+        final String host;
+        final int port;
+        final Socket socket; // null in persistent mode
+        final CompletableFuture<Void> connected = new CompletableFuture<>();
+        private final long createdAt = System.nanoTime();
+        private final AtomicBoolean taken = new AtomicBoolean();
+
+        PreparedConnection(String host, int port, Socket socket) {
+            this.host = host;
+            this.port = port;
+            this.socket = socket;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        /**
+         * The connected socket, waiting up to {@code waitMs} for the connect to
+         * finish; null when it cannot be used and the caller should connect anew.
+         */
+        Socket take(long waitMs) {
+            if (socket == null || !taken.compareAndSet(false, true)) {
+                return null;
+            }
+            if (System.nanoTime() - createdAt > PREPARED_MAX_IDLE_NANOS) {
+                closeQuietly(socket);
+                return null;
+            }
+            try {
+                connected.get(waitMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                closeQuietly(socket);
+                return null;
+            } catch (Exception e) {
+                closeQuietly(socket);
+                return null;
+            }
+            if (socket.isClosed() || !socket.isConnected()) {
+                return null;
+            }
+            // Nothing is written yet, so a socket the host already dropped can
+            // simply be replaced by a fresh connect
+            if (!isAlive(socket)) {
+                Log.w(TAG, "Early connection to " + host + ":" + port + " was closed by the host");
+                closeQuietly(socket);
+                return null;
+            }
+            return socket;
+        }
+
+        /**
+         * Probes an idle socket with a 1ms read: a live one times out, one the
+         * host has closed reads EOF or fails. Unsolicited bytes would break the
+         * framing, so they count as dead too.
+         */
+        private static boolean isAlive(Socket s) {
+            try {
+                int timeout = s.getSoTimeout();
+                s.setSoTimeout(1);
+                try {
+                    s.getInputStream().read();
+                    return false;
+                } catch (SocketTimeoutException e) {
+                    return true;
+                } finally {
+                    s.setSoTimeout(timeout);
+                }
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        /** Drops the connection (aborting a connect still in progress) unless already used. */
+        @Override
+        public void close() {
+            if (socket != null && taken.compareAndSet(false, true)) {
+                closeQuietly(socket);
             }
-            totalRead += c;
         }
-    }
 
-    private String bytesToHex(byte[] bytes) {
-        if (bytes == null)
-            return "";
-        StringBuilder sb = new StringBuilder(bytes.length * 2);
-        for (byte b : bytes) {
-            sb.append(String.format("%02X", b));
+        private static void closeQuietly(Socket s) {
+            try {
+                s.close();
+            } catch (IOException ignored) {
+            }
         }
-        return sb.toString();
     }
 }
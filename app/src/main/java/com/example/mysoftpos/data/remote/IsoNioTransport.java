@@ -0,0 +1,290 @@
+package com.example.mysoftpos.data.remote;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking (java.nio selector) transport for the ISO host link.
+ *
+ * A small fixed set of I/O threads, each owning one {@link Selector}, drives
+ * any number of outstanding exchanges. Every exchange is one connect → write
+ * framed request → read one framed response → close, exactly like the
+ * blocking path in {@link IsoNetworkClient}, but no thread is parked while
+ * waiting for the host. Connect and read deadlines are enforced by
+ * {@link IsoTimerWheel} instead of {@code SO_TIMEOUT}.
+ *
+ * Futures are completed on an I/O thread: dependent stages must not block
+ * (use the {@code *Async} variants for heavy work).
+ */
+public class IsoNioTransport {
+
+    private static final String TAG = "IsoNioTransport";
+
+    private final IoLoop[] loops;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final IsoTimerWheel timer;
+    private volatile boolean shutdown;
+
+    public IsoNioTransport(int ioThreads) throws IOException {
+        this.loops = new IoLoop[Math.max(1, ioThreads)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new IoLoop(i);
+        }
+        this.timer = IsoTimerWheel.acquire();
+    }
+
+    /**
+     * Send one framed request and complete with the response body.
+     *
+     * The future fails with {@link SocketTimeoutException} when the connect or
+     * read deadline expires, or with {@link IOException} on any socket error.
+     * Cancelling the future closes the channel.
+     */
+    public CompletableFuture<byte[]> send(String host, int port, byte[] requestData,
+            int connectTimeoutMs, int readTimeoutMs) {
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        if (shutdown) {
+            future.completeExceptionally(new IOException("Transport shut down"));
+            return future;
+        }
+
+        // Resolve on the caller's thread: DNS must never block a selector
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        if (address.isUnresolved()) {
+            future.completeExceptionally(new IOException("Unresolved host: " + host));
+            return future;
+        }
+
+        IoLoop loop = loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+        Exchange ex = new Exchange(loop, address, IsoFrameCodec.frame(requestData),
+                connectTimeoutMs, readTimeoutMs, future);
+        inFlight.incrementAndGet();
+        future.whenComplete((r, e) -> {
+            inFlight.decrementAndGet();
+            if (future.isCancelled()) {
+                loop.execute(() -> ex.fail(null));
+            }
+        });
+        loop.execute(ex::start);
+        return future;
+    }
+
+    /** Number of exchanges that have not completed yet. */
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    /** Fail in-flight exchanges, stop the I/O threads and release the timer wheel. */
+    public synchronized void shutdown() {
+        if (shutdown) {
+            return;
+        }
+        shutdown = true;
+        for (IoLoop loop : loops) {
+            loop.close();
+        }
+        timer.release();
+    }
+
+    /** One selector + one thread. All channel state is touched only on this thread. */
+    private final class IoLoop implements Runnable {
+        private final Selector selector;
+        private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        IoLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            Thread t = new Thread(this, "iso-nio-" + index);
+            t.setDaemon(true);
+            t.start();
+        }
+
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (selector.isOpen()) {
+                    selector.select();
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        ((Exchange) key.attachment()).onReady(key);
+                    }
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                Log.d(TAG, "I/O loop stopped: " + e.getMessage());
+            }
+        }
+
+        void close() {
+            execute(() -> {
+                for (SelectionKey key : selector.keys()) {
+                    ((Exchange) key.attachment()).fail(new IOException("Transport shut down"));
+                }
+                try {
+                    selector.close();
+                } catch (IOException ignored) {
+                }
+            });
+        }
+    }
+
+    /** State machine for one request/response exchange. */
+    private final class Exchange {
+        private final IoLoop loop;
+        private final InetSocketAddress address;
+        private final ByteBuffer out;
+        private final int connectTimeoutMs;
+        private final int readTimeoutMs;
+        private final CompletableFuture<byte[]> future;
+
+        private final ByteBuffer header = ByteBuffer.allocate(4);
+        private ByteBuffer body;
+        private SocketChannel channel;
+        private IsoTimerWheel.Timeout deadline;
+        private boolean done;
+
+        Exchange(IoLoop loop, InetSocketAddress address, byte[] framed,
+                int connectTimeoutMs, int readTimeoutMs, CompletableFuture<byte[]> future) {
+            this.loop = loop;
+            this.address = address;
+            this.out = ByteBuffer.wrap(framed);
+            this.connectTimeoutMs = connectTimeoutMs;
+            this.readTimeoutMs = readTimeoutMs;
+            this.future = future;
+            // Sniff 2 bytes first: binary headers are 2 bytes, ASCII headers 4
+            header.limit(2);
+        }
+
+        void start() {
+            if (done) {
+                return;
+            }
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+                arm(connectTimeoutMs, "connect");
+                if (channel.connect(address)) {
+                    channel.register(loop.selector, SelectionKey.OP_WRITE, this);
+                } else {
+                    channel.register(loop.selector, SelectionKey.OP_CONNECT, this);
+                }
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        void onReady(SelectionKey key) {
+            try {
+                if (key.isConnectable() && channel.finishConnect()) {
+                    key.interestOps(SelectionKey.OP_WRITE);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    channel.write(out);
+                    if (!out.hasRemaining()) {
+                        key.interestOps(SelectionKey.OP_READ);
+                        arm(readTimeoutMs, "response");
+                    }
+                }
+                if (key.isValid() && key.isReadable()) {
+                    read();
+                }
+            } catch (IOException e) {
+                fail(e);
+            } catch (CancelledKeyException ignored) {
+                // Exchange already failed/closed
+            }
+        }
+
+        private void read() throws IOException {
+            if (body == null) {
+                if (channel.read(header) < 0) {
+                    throw new IOException("Connection closed after reading " + header.position() + " header bytes");
+                }
+                if (header.hasRemaining()) {
+                    return;
+                }
+                byte[] h = header.array();
+                int bodyLength;
+                if (header.limit() == 2 && IsoFrameCodec.isBinaryHeader(h[0])) {
+                    bodyLength = ((h[0] & 0xFF) << 8) | (h[1] & 0xFF);
+                } else if (header.limit() == 2) {
+                    header.limit(4);
+                    read();
+                    return;
+                } else {
+                    bodyLength = IsoFrameCodec.parseAsciiLength(h[0], h[1], h[2], h[3]);
+                }
+                IsoFrameCodec.checkBodyLength(bodyLength);
+                body = ByteBuffer.allocate(bodyLength);
+            }
+
+            if (channel.read(body) < 0) {
+                throw new IOException("Connection closed after reading " + body.position()
+                        + "/" + body.capacity() + " bytes");
+            }
+            if (!body.hasRemaining()) {
+                finish();
+                future.complete(body.array());
+            }
+        }
+
+        private void arm(int timeoutMs, String phase) {
+            if (deadline != null) {
+                deadline.cancel();
+            }
+            deadline = timer.schedule(() -> loop.execute(() -> fail(new SocketTimeoutException(
+                    "Timeout waiting for " + phase + " from " + address + " after " + timeoutMs + "ms"))),
+                    timeoutMs);
+        }
+
+        /** @param cause null when the caller cancelled */
+        void fail(IOException cause) {
+            if (done) {
+                return;
+            }
+            finish();
+            if (cause != null) {
+                future.completeExceptionally(cause);
+            }
+        }
+
+        private void finish() {
+            done = true;
+            if (deadline != null) {
+                deadline.cancel();
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}
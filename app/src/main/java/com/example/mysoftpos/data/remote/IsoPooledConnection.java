@@ -0,0 +1,237 @@
+package com.example.mysoftpos.data.remote;
+
+import android.util.Log;
+
+import com.example.mysoftpos.iso8583.spec.IsoSpecEngine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One long-lived socket to the ISO host, shared by many concurrent requests.
+ *
+ * Writes are serialized on the output stream; a dedicated reader thread
+ * decodes every inbound frame and completes the waiting caller whose
+ * {@link IsoMatchKey} matches (response MTI + STAN + RRN).
+ */
+final class IsoPooledConnection {
+
+    private static final String TAG = "IsoPooledConnection";
+
+    private final String host;
+    private final int port;
+    private final Socket socket;
+    private final OutputStream out;
+    private final InputStream in;
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+
+    private volatile boolean closed;
+    private volatile long lastActivityMs;
+
+    private static final class Pending {
+        final IsoMatchKey key;
+        final CompletableFuture<byte[]> future = new CompletableFuture<>();
+
+        Pending(IsoMatchKey key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * The request was refused before any byte of it reached the socket (the
+     * connection was already closed, or the key is in flight here). Unlike any
+     * other send failure, it is safe to retry on another connection.
+     */
+    static final class NotSentException extends IOException {
+        NotSentException(String message) {
+            super(message);
+        }
+    }
+
+    private IsoPooledConnection(String host, int port, Socket socket) throws IOException {
+        this.host = host;
+        this.port = port;
+        this.socket = socket;
+        this.out = new BufferedOutputStream(socket.getOutputStream(), 4096);
+        this.in = new BufferedInputStream(socket.getInputStream(), 4096);
+        this.lastActivityMs = System.currentTimeMillis();
+    }
+
+    static IsoPooledConnection open(String host, int port, int connectTimeoutMs) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            socket.setSendBufferSize(4096);
+            socket.setReceiveBufferSize(4096);
+            socket.connect(new InetSocketAddress(host, port), connectTimeoutMs);
+            // Reader blocks indefinitely; per-request deadlines are enforced by callers
+            socket.setSoTimeout(0);
+        } catch (IOException e) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+            throw e;
+        }
+
+        IsoPooledConnection conn = new IsoPooledConnection(host, port, socket);
+        Thread reader = new Thread(conn::readLoop, "iso-pool-rx-" + host + ":" + port);
+        reader.setDaemon(true);
+        reader.start();
+        Log.d(TAG, "Opened pooled connection to " + host + ":" + port);
+        return conn;
+    }
+
+    /**
+     * Register the request and write it. The returned future completes with the
+     * matching response body, or exceptionally when the connection dies.
+     *
+     * @throws NotSentException if nothing was written
+     * @throws IOException       if the write fails part-way or after the kernel
+     *                           took the bytes: the host may have the request
+     *                           (nothing registered stays pending)
+     */
+    CompletableFuture<byte[]> send(IsoMatchKey key, byte[] body) throws IOException {
+        if (!isOpen()) {
+            throw new NotSentException("Connection closed");
+        }
+        Pending p = new Pending(key);
+        if (pending.putIfAbsent(key.id, p) != null) {
+            throw new NotSentException("Duplicate in-flight request " + key.id);
+        }
+        try {
+            byte[] framed = IsoFrameCodec.frame(body);
+            synchronized (writeLock) {
+                if (!isOpen()) {
+                    pending.remove(key.id);
+                    throw new NotSentException("Connection closed");
+                }
+                out.write(framed);
+                out.flush();
+            }
+            lastActivityMs = System.currentTimeMillis();
+        } catch (IOException e) {
+            pending.remove(key.id);
+            close(e);
+            throw e;
+        }
+        return p.future;
+    }
+
+    /** Drop a request whose caller gave up (timeout); a late response is discarded. */
+    void cancel(IsoMatchKey key) {
+        pending.remove(key.id);
+    }
+
+    int inFlight() {
+        return pending.size();
+    }
+
+    boolean hasInFlight(IsoMatchKey key) {
+        return pending.containsKey(key.id);
+    }
+
+    boolean isOpen() {
+        return !closed && !socket.isClosed();
+    }
+
+    long getLastActivityMs() {
+        return lastActivityMs;
+    }
+
+    private void readLoop() {
+        try {
+            while (!closed) {
+                byte[] body = IsoFrameCodec.readFrame(in);
+                lastActivityMs = System.currentTimeMillis();
+                dispatch(body);
+            }
+        } catch (IOException e) {
+            close(e);
+        }
+    }
+
+    /**
+     * Decodes the response with the spec of the requests waiting here (one
+     * spec per host in practice; several only if schemes with different specs
+     * share a host:port) and completes the matching waiter.
+     */
+    private void dispatch(byte[] body) {
+        IsoMatchKey respKey = null;
+        Pending p = null;
+        for (IsoSpecEngine spec : pendingSpecs()) {
+            IsoMatchKey key = IsoMatchKey.fromResponse(body, spec);
+            if (key == null) {
+                continue;
+            }
+            respKey = key;
+            p = pending.remove(key.id);
+            if (p == null) {
+                // Host may omit or rewrite DE 37 — fall back to MTI + STAN
+                p = removeByStan(key);
+            }
+            if (p != null) {
+                break;
+            }
+        }
+        if (p == null) {
+            Log.w(TAG, "No waiter for response " + (respKey != null ? respKey.id : "(" + body.length + " bytes)")
+                    + " (late, unsolicited or unparseable)");
+            return;
+        }
+        p.future.complete(body);
+    }
+
+    private List<IsoSpecEngine> pendingSpecs() {
+        List<IsoSpecEngine> specs = new ArrayList<>(1);
+        for (Pending p : pending.values()) {
+            if (!specs.contains(p.key.spec)) {
+                specs.add(p.key.spec);
+            }
+        }
+        return specs;
+    }
+
+    private Pending removeByStan(IsoMatchKey respKey) {
+        Iterator<Pending> it = pending.values().iterator();
+        while (it.hasNext()) {
+            Pending p = it.next();
+            if (p.key.matchesStan(respKey)) {
+                it.remove();
+                return p;
+            }
+        }
+        return null;
+    }
+
+    void close(IOException cause) {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+        IOException failure = cause != null ? cause : new IOException("Connection closed");
+        for (Pending p : pending.values()) {
+            p.future.completeExceptionally(failure);
+        }
+        pending.clear();
+        Log.d(TAG, "Closed pooled connection to " + host + ":" + port
+                + (cause != null ? " (" + cause.getMessage() + ")" : ""));
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.mysoftpos.data.remote;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hashed timer wheel for per-request deadlines on the ISO host link.
+ *
+ * Scheduling and cancelling are O(1) and lock-free for callers; a single
+ * daemon thread advances the wheel every tick. Precision is one tick (10ms by
+ * default) — plenty for 10–30s ISO timeouts, and far cheaper than one
+ * {@code SO_TIMEOUT}-blocked thread or one ScheduledFuture per request.
+ *
+ * Expired tasks run on the wheel thread and must be short and non-blocking
+ * (typically: hand the failure to an I/O loop and return).
+ */
+final class IsoTimerWheel {
+
+    private static final String TAG = "IsoTimerWheel";
+
+    private static final long DEFAULT_TICK_MS = 10;
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+
+    // Process-wide wheel, guarded by IsoTimerWheel.class; its thread stops with the last user
+    private static IsoTimerWheel shared;
+    private static int users;
+
+    private final long tickMs;
+    private final int mask;
+    private final ArrayList<Timeout>[] buckets;
+    private final ConcurrentLinkedQueue<Timeout> additions = new ConcurrentLinkedQueue<>();
+    private final long startNanos;
+    private final Thread worker;
+    private long tick;
+
+    /** Handle returned by {@link #schedule}; cancel as soon as the request completes. */
+    static final class Timeout {
+        private final Runnable task;
+        private final AtomicBoolean done = new AtomicBoolean();
+        private final long deadlineTick;
+        private long remainingRounds;
+
+        private Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /** @return true if the task had not fired yet and now never will */
+        boolean cancel() {
+            return done.compareAndSet(false, true);
+        }
+
+        boolean isCancelledOrFired() {
+            return done.get();
+        }
+    }
+
+    /**
+     * The process-wide wheel shared by the NIO transport and the connection
+     * pool, started on first use. Pair every call with {@link #release()}.
+     */
+    static synchronized IsoTimerWheel acquire() {
+        if (shared == null) {
+            shared = new IsoTimerWheel(DEFAULT_TICK_MS, DEFAULT_WHEEL_SIZE);
+        }
+        users++;
+        return shared;
+    }
+
+    /**
+     * Give back a wheel from {@link #acquire()}. The last release stops its
+     * thread; timeouts still pending on it never fire, so owners fail their
+     * in-flight work themselves when they shut down.
+     */
+    void release() {
+        synchronized (IsoTimerWheel.class) {
+            if (shared != this || --users > 0) {
+                return;
+            }
+            shared = null;
+        }
+        stop();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    IsoTimerWheel(long tickMs, int wheelSize) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize must be a power of two: " + wheelSize);
+        }
+        this.tickMs = tickMs;
+        this.mask = wheelSize - 1;
+        this.buckets = new ArrayList[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ArrayList<>();
+        }
+        this.startNanos = System.nanoTime();
+
+        worker = new Thread(this::run, "iso-timer-wheel");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /** Stop the wheel thread; pending timeouts are dropped. */
+    void stop() {
+        worker.interrupt();
+    }
+
+    /** Run {@code task} once after {@code delayMs}, unless cancelled first. */
+    Timeout schedule(Runnable task, long delayMs) {
+        long ticks = Math.max(1, (delayMs + tickMs - 1) / tickMs);
+        Timeout t = new Timeout(task, currentTick() + ticks);
+        additions.add(t);
+        return t;
+    }
+
+    private long currentTick() {
+        return (System.nanoTime() - startNanos) / (tickMs * 1_000_000L);
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            long sleepMs = (tick + 1) * tickMs - (System.nanoTime() - startNanos) / 1_000_000L;
+            if (sleepMs > 0) {
+                try {
+                    Thread.sleep(sleepMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            tick++;
+            transferAdditions();
+            expire(buckets[(int) (tick & mask)]);
+        }
+    }
+
+    private void transferAdditions() {
+        Timeout t;
+        while ((t = additions.poll()) != null) {
+            if (t.isCancelledOrFired()) {
+                continue;
+            }
+            long target = Math.max(t.deadlineTick, tick);
+            t.remainingRounds = (target - tick) / buckets.length;
+            buckets[(int) (target & mask)].add(t);
+        }
+    }
+
+    private void expire(ArrayList<Timeout> bucket) {
+        int i = 0;
+        while (i < bucket.size()) {
+            Timeout t = bucket.get(i);
+            boolean remove;
+            if (t.isCancelledOrFired()) {
+                remove = true;
+            } else if (t.remainingRounds > 0) {
+                t.remainingRounds--;
+                remove = false;
+            } else {
+                remove = true;
+                if (t.done.compareAndSet(false, true)) {
+                    try {
+                        t.task.run();
+                    } catch (RuntimeException e) {
+                        Log.e(TAG, "Timeout task failed", e);
+                    }
+                }
+            }
+
+            if (remove) {
+                // Swap-remove: order within a bucket does not matter
+                int last = bucket.size() - 1;
+                bucket.set(i, bucket.get(last));
+                bucket.remove(last);
+            } else {
+                i++;
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.mysoftpos.data.remote;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Debounces per-transaction sync triggers into a single unique WorkManager job.
+ *
+ * Callers report each saved transaction with {@link #notifyTransaction()}.
+ * A sync is requested once {@link #DEFAULT_MAX_BATCH} transactions have
+ * accumulated or {@link #DEFAULT_MAX_DELAY_MS} after the first one, whichever
+ * comes first. Since {@link SyncWorker} uploads everything unsynced, one run
+ * covers the whole window. A 500-transaction batch therefore enqueues about
+ * ten jobs instead of 500.
+ *
+ * The work is unique ({@link #UNIQUE_SYNC_WORK}, APPEND_OR_REPLACE). A flush
+ * while a sync is already running is chained after it, so rows saved during
+ * that upload are not missed.
+ */
+public final class SyncScheduler {
+
+    private static final String TAG = "SyncScheduler";
+    public static final String UNIQUE_SYNC_WORK = "mysoftpos_txn_sync";
+
+    public static final int DEFAULT_MAX_BATCH = 50;
+    public static final long DEFAULT_MAX_DELAY_MS = 5_000;
+
+    private static volatile SyncScheduler instance;
+
+    private final Runnable flushAction;
+    private final ScheduledExecutorService timer;
+    private final Object lock = new Object();
+
+    private volatile int maxBatch;
+    private volatile long maxDelayMs;
+
+    // Guarded by lock
+    private int pending;
+    private ScheduledFuture<?> pendingFlush;
+
+    // Metrics
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+
+    public static SyncScheduler getInstance(Context context) {
+        if (instance == null) {
+            synchronized (SyncScheduler.class) {
+                if (instance == null) {
+                    Context app = context.getApplicationContext();
+                    instance = new SyncScheduler(DEFAULT_MAX_BATCH, DEFAULT_MAX_DELAY_MS,
+                            () -> enqueueSyncWork(app));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /** @param flushAction requests the sync; the app instance enqueues {@link SyncWorker} */
+    public SyncScheduler(int maxBatch, long maxDelayMs, Runnable flushAction) {
+        this.flushAction = flushAction;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sync-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+        configure(maxBatch, maxDelayMs);
+    }
+
+    /**
+     * Adjust the flush thresholds. Takes effect from the next window.
+     *
+     * @param maxBatch   transactions that trigger an immediate flush
+     * @param maxDelayMs longest a transaction waits before its flush
+     */
+    public void configure(int maxBatch, long maxDelayMs) {
+        if (maxBatch <= 0 || maxDelayMs < 0) {
+            throw new IllegalArgumentException("maxBatch must be > 0 and maxDelayMs >= 0");
+        }
+        this.maxBatch = maxBatch;
+        this.maxDelayMs = maxDelayMs;
+    }
+
+    /** Record one saved transaction that needs to reach the backend. */
+    public void notifyTransaction() {
+        queued.incrementAndGet();
+        boolean flushNow = false;
+        synchronized (lock) {
+            pending++;
+            if (pending >= maxBatch) {
+                flushNow = true;
+            } else if (pendingFlush == null) {
+                pendingFlush = timer.schedule(this::flush, maxDelayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (flushNow) {
+            flush();
+        }
+    }
+
+    /** Request a sync now for whatever is pending (no-op if nothing is). */
+    public void flush() {
+        int count;
+        synchronized (lock) {
+            count = pending;
+            pending = 0;
+            if (pendingFlush != null) {
+                pendingFlush.cancel(false);
+                pendingFlush = null;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        flushed.addAndGet(count);
+        flushes.incrementAndGet();
+        try {
+            flushAction.run();
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Failed to enqueue sync for " + count + " transactions", e);
+        }
+    }
+
+    // ==================== Metrics ====================
+
+    /** Transactions reported via {@link #notifyTransaction()} since start. */
+    public long getQueuedCount() {
+        return queued.get();
+    }
+
+    /** Transactions covered by a flush since start. */
+    public long getFlushedCount() {
+        return flushed.get();
+    }
+
+    /** Sync jobs requested since start. */
+    public long getFlushCount() {
+        return flushes.get();
+    }
+
+    /** Transactions waiting for the next flush. */
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending;
+        }
+    }
+
+    private static void enqueueSyncWork(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(SyncWorker.class)
+                .setConstraints(constraints)
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniqueWork(
+                UNIQUE_SYNC_WORK,
+                ExistingWorkPolicy.APPEND_OR_REPLACE,
+                request);
+    }
+}
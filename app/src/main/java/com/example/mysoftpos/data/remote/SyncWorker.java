@@ -13,18 +13,10 @@ import androidx.work.WorkManager;
 import androidx.work.Worker;
 import androidx.work.WorkerParameters;
 
-import com.example.mysoftpos.data.local.AppDatabase;
-import com.example.mysoftpos.data.local.entity.TransactionEntity;
 import com.example.mysoftpos.data.remote.api.ApiClient;
-import com.example.mysoftpos.data.remote.api.ApiService;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
-import retrofit2.Response;
-
 /**
  * WorkManager-based reliable background sync for transactions.
  *
@@ -55,67 +47,12 @@ public class SyncWorker extends Worker {
         }
 
         try {
-            AppDatabase db = AppDatabase.getInstance(context);
-            List<TransactionEntity> allTxns = db.transactionDao().getAllTransactions();
-
-            if (allTxns == null || allTxns.isEmpty()) {
-                Log.d(TAG, "No transactions to sync");
-                return Result.success();
-            }
-
-            List<ApiService.TxnItem> items = new ArrayList<>();
-            for (TransactionEntity txn : allTxns) {
-                if (txn.status == null || "PENDING".equals(txn.status)) continue;
-
-                ApiService.TxnItem item = new ApiService.TxnItem();
-                item.traceNumber = txn.traceNumber;
-                item.amount = txn.amount;
-                item.status = txn.status;
-                item.deviceId = android.os.Build.MODEL;
-                item.txnTimestamp = txn.timestamp;
-
-                try {
-                    com.example.mysoftpos.data.local.entity.TransactionWithDetails details =
-                            db.transactionDao().getTransactionWithDetailsByIdSync(txn.id);
-                    if (details != null && details.card != null) {
-                        item.maskedPan = details.card.panMasked;
-                        item.cardScheme = details.card.scheme;
-                    }
-                    if (details != null && details.terminal != null) {
-                        item.terminalCode = details.terminal.terminalCode;
-                    }
-                } catch (Exception e) {
-                    Log.w(TAG, "Failed to get transaction details: " + e.getMessage());
-                }
-
-                if (item.terminalCode == null || item.terminalCode.isEmpty()) {
-                    item.terminalCode = "AUTO0001";
-                }
-                items.add(item);
-            }
-
-            if (items.isEmpty()) {
-                return Result.success();
-            }
-
-            // Synchronous Retrofit call (Worker runs on background thread already)
-            String token = ApiClient.bearerToken(context);
-            ApiService.TransactionSyncRequest request = new ApiService.TransactionSyncRequest(items);
-
-            Response<Map<String, Integer>> response =
-                    ApiClient.getService(context).syncTransactions(token, request).execute();
-
-            if (response.isSuccessful() && response.body() != null) {
-                Integer count = response.body().get("syncedCount");
-                Log.i(TAG, "Synced " + count + " transactions to backend");
-                return Result.success();
-            } else {
-                Log.w(TAG, "Sync failed: HTTP " + response.code());
-                return Result.retry(); // WorkManager will retry with backoff
-            }
+            // Incremental: only rows not yet uploaded, chunked, details joined
+            new TransactionSyncManager(context).syncPendingSync();
+            return Result.success();
         } catch (Exception e) {
             Log.e(TAG, "Sync error: " + e.getMessage(), e);
-            return Result.retry();
+            return Result.retry(); // WorkManager will retry with backoff
         }
     }
 
@@ -4,26 +4,34 @@ import android.content.Context;
 import android.util.Log;
 
 import com.example.mysoftpos.data.local.AppDatabase;
-import com.example.mysoftpos.data.local.entity.TransactionEntity;
+import com.example.mysoftpos.data.local.entity.TransactionSyncRow;
 import com.example.mysoftpos.data.remote.api.ApiClient;
 import com.example.mysoftpos.data.remote.api.ApiService;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
-import retrofit2.Call;
-import retrofit2.Callback;
 import retrofit2.Response;
 
 /**
  * Syncs local transactions to the backend API.
  * Call {@link #syncUnsynced()} after each transaction completes,
  * or periodically.
+ *
+ * Sync is incremental: only rows with {@code synced_at = 0} are read, in
+ * chunks of {@link #CHUNK_SIZE} with card/terminal details joined in, and each
+ * chunk is marked synced in one transaction once the backend accepts it. Cost
+ * scales with new data, not total history.
  */
 public class TransactionSyncManager {
 
     private static final String TAG = "TxnSyncManager";
+
+    /** Transactions per upload request. */
+    static final int CHUNK_SIZE = 500;
+
     private final Context context;
 
     public TransactionSyncManager(Context context) {
@@ -31,7 +39,7 @@ public class TransactionSyncManager {
     }
 
     /**
-     * Collects all local transactions and attempts to push them to the backend.
+     * Pushes unsynced transactions to the backend on a background thread.
      * The backend ignores duplicates (by traceNumber), so it's safe to call repeatedly.
      */
     public void syncUnsynced() {
@@ -42,80 +50,80 @@ public class TransactionSyncManager {
 
         new Thread(() -> {
             try {
-                AppDatabase db = AppDatabase.getInstance(context);
-                List<TransactionEntity> allTxns = db.transactionDao().getAllTransactions();
+                syncPendingSync();
+            } catch (Exception e) {
+                Log.e(TAG, "Sync error: " + e.getMessage(), e);
+            }
+        }).start();
+    }
 
-                if (allTxns == null || allTxns.isEmpty()) {
-                    Log.d(TAG, "No transactions to sync");
-                    return;
-                }
+    /**
+     * Uploads every unsynced, completed transaction chunk by chunk on the
+     * calling thread (must not be the main thread).
+     *
+     * @return number of transactions accepted by the backend
+     * @throws IOException on network failure or a non-2xx response; chunks
+     *                     uploaded before the failure stay marked as synced
+     */
+    public int syncPendingSync() throws IOException {
+        AppDatabase db = AppDatabase.getInstance(context);
+        String token = ApiClient.bearerToken(context);
+        int total = 0;
+        long afterId = 0;
+
+        while (true) {
+            List<TransactionSyncRow> rows = db.transactionDao().getUnsyncedChunk(afterId, CHUNK_SIZE);
+            if (rows.isEmpty()) {
+                break;
+            }
 
-                List<ApiService.TxnItem> items = new ArrayList<>();
-                for (TransactionEntity txn : allTxns) {
-                    // Skip transactions without a final status
-                    if (txn.status == null || "PENDING".equals(txn.status)) continue;
-
-                    ApiService.TxnItem item = new ApiService.TxnItem();
-                    item.traceNumber = txn.traceNumber;
-                    item.amount = txn.amount;
-                    item.status = txn.status;
-                    item.deviceId = android.os.Build.MODEL;
-                    item.txnTimestamp = txn.timestamp;
-
-                    // Get card and terminal info from transaction details
-                    try {
-                        com.example.mysoftpos.data.local.entity.TransactionWithDetails details =
-                                db.transactionDao().getTransactionWithDetailsByIdSync(txn.id);
-                        if (details != null && details.card != null) {
-                            item.maskedPan = details.card.panMasked;
-                            item.cardScheme = details.card.scheme;
-                        }
-                        if (details != null && details.terminal != null) {
-                            item.terminalCode = details.terminal.terminalCode;
-                        }
-                    } catch (Exception e) {
-                        Log.w(TAG, "Failed to get transaction details: " + e.getMessage());
-                    }
-
-                    // Fallback terminal code
-                    if (item.terminalCode == null || item.terminalCode.isEmpty()) {
-                        item.terminalCode = "AUTO0001";
-                    }
-
-                    items.add(item);
-                }
+            List<ApiService.TxnItem> items = new ArrayList<>(rows.size());
+            for (TransactionSyncRow row : rows) {
+                items.add(toItem(row));
+            }
 
-                if (items.isEmpty()) {
-                    Log.d(TAG, "No completed transactions to sync");
-                    return;
-                }
+            Response<Map<String, Integer>> response = ApiClient.getService(context)
+                    .syncTransactions(token, new ApiService.TransactionSyncRequest(items))
+                    .execute();
+            if (!response.isSuccessful() || response.body() == null) {
+                throw new IOException("Sync failed: HTTP " + response.code());
+            }
 
-                String token = ApiClient.bearerToken(context);
-                ApiService.TransactionSyncRequest request = new ApiService.TransactionSyncRequest(items);
-
-                ApiClient.getService(context).syncTransactions(token, request)
-                        .enqueue(new Callback<Map<String, Integer>>() {
-                            @Override
-                            public void onResponse(Call<Map<String, Integer>> call,
-                                    Response<Map<String, Integer>> response) {
-                                if (response.isSuccessful() && response.body() != null) {
-                                    Integer count = response.body().get("syncedCount");
-                                    Log.i(TAG, "Synced " + count + " transactions to backend");
-                                } else {
-                                    Log.w(TAG, "Sync failed: HTTP " + response.code());
-                                }
-                            }
-
-                            @Override
-                            public void onFailure(Call<Map<String, Integer>> call, Throwable t) {
-                                Log.w(TAG, "Sync network error: " + t.getMessage());
-                            }
-                        });
+            long now = System.currentTimeMillis();
+            db.runInTransaction(() -> {
+                for (TransactionSyncRow row : rows) {
+                    db.transactionDao().markSynced(row.id, row.status, now);
+                }
+            });
 
-            } catch (Exception e) {
-                Log.e(TAG, "Sync error: " + e.getMessage(), e);
+            total += rows.size();
+            afterId = rows.get(rows.size() - 1).id;
+            if (rows.size() < CHUNK_SIZE) {
+                break;
             }
-        }).start();
+        }
+
+        if (total > 0) {
+            Log.i(TAG, "Synced " + total + " transactions to backend");
+        } else {
+            Log.d(TAG, "No transactions to sync");
+        }
+        return total;
     }
-}
 
+    private static ApiService.TxnItem toItem(TransactionSyncRow row) {
+        ApiService.TxnItem item = new ApiService.TxnItem();
+        item.traceNumber = row.traceNumber;
+        item.amount = row.amount;
+        item.status = row.status;
+        item.deviceId = android.os.Build.MODEL;
+        item.txnTimestamp = row.timestamp;
+        item.maskedPan = row.panMasked;
+        item.cardScheme = row.scheme;
+        // Fallback terminal code
+        item.terminalCode = row.terminalCode == null || row.terminalCode.isEmpty()
+                ? "AUTO0001"
+                : row.terminalCode;
+        return item;
+    }
+}
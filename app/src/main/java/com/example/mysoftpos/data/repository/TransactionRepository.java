@@ -14,8 +14,21 @@ public interface TransactionRepository {
 
     com.example.mysoftpos.data.local.entity.TransactionWithDetails getTransactionWithDetailsByIdSync(long id);
 
+    /** Queue a record for write-behind persistence; returns immediately. */
     void saveTransaction(com.example.mysoftpos.domain.model.TransactionRecord record);
 
+    /**
+     * Flush barrier: blocks until every record saved before this call is
+     * committed, or the timeout elapses. Never call on the main thread.
+     *
+     * @return true if everything was flushed, false on timeout or if a record
+     *         could not be written
+     */
+    boolean flushPendingWrites(long timeoutMs);
+
+    /** Records the write-behind gave up on (logged by trace number), since start. */
+    int droppedTransactionWrites();
+
     void updateTransactionStatus(String traceNumber, String status);
 
     void updateTransactionResponse(String traceNumber, String responseHex, String status);
@@ -0,0 +1,323 @@
+package com.example.mysoftpos.data.repository;
+
+import android.util.Log;
+
+import com.example.mysoftpos.data.local.AppDatabase;
+import com.example.mysoftpos.data.local.TransactionDenormalizer;
+import com.example.mysoftpos.data.local.entity.CardEntity;
+import com.example.mysoftpos.data.local.entity.MerchantEntity;
+import com.example.mysoftpos.data.local.entity.TerminalEntity;
+import com.example.mysoftpos.data.local.entity.TransactionEntity;
+import com.example.mysoftpos.data.local.entity.UserEntity;
+import com.example.mysoftpos.domain.model.TransactionRecord;
+import com.example.mysoftpos.utils.security.PasswordUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Write-behind queue for transaction records.
+ *
+ * {@link #enqueue} returns immediately; records arriving within
+ * {@link #WINDOW_MS} (or up to {@link #MAX_BATCH} at once) are written by a
+ * single writer thread inside one SQLite transaction, with one bulk insert
+ * for the transactions. Merchant / terminal / card / user ids are cached
+ * after the first look-up, so a steady-state batch is just the insert.
+ *
+ * Status/response updates go through the same thread ({@link #execute}), so
+ * they can never overtake the insert they refer to.
+ *
+ * A batch that fails twice is written row by row, so one bad record costs
+ * only itself. Rows that still fail are logged by trace number and counted
+ * in {@link #droppedCount()}.
+ */
+final class TransactionWriteBehind {
+
+    private static final String TAG = "TxnWriteBehind";
+
+    /** Coalescing window after the first queued record. */
+    static final long WINDOW_MS = 20;
+    /** Flush immediately once this many records are queued; also the max per SQLite transaction. */
+    static final int MAX_BATCH = 256;
+
+    private final AppDatabase db;
+    private final ScheduledExecutorService writer;
+    private final ConcurrentLinkedQueue<TransactionRecord> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final AtomicInteger dropped = new AtomicInteger();
+
+    // Look-up caches — touched only on the writer thread
+    private final Map<String, Long> merchantIds = new HashMap<>();
+    private final Map<String, Long> terminalIds = new HashMap<>();
+    private final Map<String, Long> cardIds = new HashMap<>();
+    private final Map<String, Long> userIds = new HashMap<>();
+
+    TransactionWriteBehind(AppDatabase db) {
+        this.db = db;
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "txn-writer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    void enqueue(TransactionRecord record) {
+        queue.add(record);
+        if (queued.incrementAndGet() >= MAX_BATCH) {
+            writer.execute(this::drain);
+        } else if (drainScheduled.compareAndSet(false, true)) {
+            writer.schedule(this::drain, WINDOW_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Run {@code task} on the writer thread after everything queued so far is persisted. */
+    void execute(Runnable task) {
+        writer.execute(() -> {
+            drain();
+            task.run();
+        });
+    }
+
+    /**
+     * Flush barrier: blocks until every record enqueued before this call is
+     * committed. Must not be called on the main thread.
+     *
+     * @return false if the timeout elapsed first or a record could not be written
+     */
+    boolean flush(long timeoutMs) {
+        try {
+            int droppedBefore = dropped.get();
+            writer.submit(this::drain).get(timeoutMs, TimeUnit.MILLISECONDS);
+            return dropped.get() == droppedBefore;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Flush failed", e.getCause());
+            return false;
+        }
+    }
+
+    /** Records accepted but not yet committed. */
+    int pendingCount() {
+        return queued.get();
+    }
+
+    /** Records that could not be written even one at a time, since start. */
+    int droppedCount() {
+        return dropped.get();
+    }
+
+    // ── Writer thread ──
+
+    private void drain() {
+        drainScheduled.set(false);
+        List<TransactionRecord> batch = new ArrayList<>(Math.min(queued.get(), MAX_BATCH));
+        TransactionRecord r;
+        while (true) {
+            batch.clear();
+            while (batch.size() < MAX_BATCH && (r = queue.poll()) != null) {
+                batch.add(r);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            persist(batch);
+            queued.addAndGet(-batch.size());
+        }
+    }
+
+    private void persist(List<TransactionRecord> batch) {
+        try {
+            writeBatch(batch);
+        } catch (RuntimeException e) {
+            // A cached id may be stale (row deleted since it was cached): retry cold
+            Log.w(TAG, "Batch of " + batch.size() + " failed, retrying without caches: " + e.getMessage());
+            clearCaches();
+            try {
+                writeBatch(batch);
+            } catch (RuntimeException again) {
+                Log.w(TAG, "Batch of " + batch.size() + " failed again, writing rows one by one", again);
+                persistEach(batch);
+            }
+        }
+    }
+
+    /** Last resort: isolates the failing rows so the rest of the batch is kept. */
+    private void persistEach(List<TransactionRecord> batch) {
+        for (TransactionRecord record : batch) {
+            try {
+                writeBatch(Collections.singletonList(record));
+            } catch (RuntimeException e) {
+                dropped.incrementAndGet();
+                Log.e(TAG, "Dropping transaction " + record.traceNumber + " (" + record.status + ")", e);
+            }
+        }
+    }
+
+    private void writeBatch(List<TransactionRecord> batch) {
+        db.runInTransaction(() -> {
+            List<TransactionEntity> rows = new ArrayList<>(batch.size());
+            for (TransactionRecord record : batch) {
+                rows.add(toEntity(record));
+            }
+            List<Long> ids = db.transactionDao().insertAll(rows);
+            for (int i = 0; i < ids.size(); i++) {
+                if (ids.get(i) <= 0) {
+                    Log.w(TAG, "Transaction " + rows.get(i).traceNumber
+                            + " already exists, skipping insert");
+                }
+            }
+        });
+    }
+
+    private TransactionEntity toEntity(TransactionRecord record) {
+        long terminalId = terminalId(record, merchantId(record));
+        long cardId = cardId(record);
+        Long userId = userId(record);
+
+        TransactionEntity txn = new TransactionEntity();
+        txn.traceNumber = record.traceNumber;
+        txn.amount = record.amount;
+        txn.status = record.status;
+        txn.requestHex = record.reqHex;
+        txn.responseHex = record.respHex;
+        txn.timestamp = record.timestamp;
+        txn.terminalId = terminalId > 0 ? terminalId : null;
+        txn.cardId = cardId > 0 ? cardId : null;
+        txn.userId = userId;
+        txn.ownerUsername = record.username;
+        txn.processingCode = record.processingCode;
+        txn.currencyCode = record.currencyCode;
+        txn.rrn = record.rrn;
+        txn.bin = record.bin;
+        txn.panMasked = record.panMasked;
+        txn.amountValue = TransactionDenormalizer.parseAmount(record.amount);
+        txn.scheme = record.scheme;
+        txn.specId = record.specId;
+        // DE 22 / DE 39 (and anything the record left empty) from the hex, here
+        // on the writer thread, so the row never needs the backfill
+        TransactionDenormalizer.fillMissing(txn);
+        return txn;
+    }
+
+    // Merchant / terminal / card: IGNORE insert returns -1 if the row already exists
+
+    private long merchantId(TransactionRecord record) {
+        Long cached = merchantIds.get(record.merchantCode);
+        if (cached != null) {
+            return cached;
+        }
+        MerchantEntity merchant = db.merchantDao().getByCode(record.merchantCode);
+        long id;
+        if (merchant != null) {
+            id = merchant.id;
+        } else {
+            id = db.merchantDao().insert(new MerchantEntity(record.merchantCode, record.merchantName));
+            if (id <= 0) {
+                merchant = db.merchantDao().getByCode(record.merchantCode);
+                id = merchant != null ? merchant.id : 0;
+            }
+        }
+        if (id > 0 && record.merchantCode != null) {
+            merchantIds.put(record.merchantCode, id);
+        }
+        return id;
+    }
+
+    private long terminalId(TransactionRecord record, long merchantId) {
+        Long cached = terminalIds.get(record.terminalCode);
+        if (cached != null) {
+            return cached;
+        }
+        TerminalEntity terminal = db.terminalDao().getByCode(record.terminalCode);
+        long id;
+        if (terminal != null) {
+            id = terminal.id;
+        } else {
+            id = db.terminalDao().insert(new TerminalEntity(record.terminalCode, merchantId));
+            if (id <= 0) {
+                terminal = db.terminalDao().getByCode(record.terminalCode);
+                id = terminal != null ? terminal.id : 0;
+            }
+        }
+        if (id > 0 && record.terminalCode != null) {
+            terminalIds.put(record.terminalCode, id);
+        }
+        return id;
+    }
+
+    private long cardId(TransactionRecord record) {
+        Long cached = cardIds.get(record.panMasked);
+        if (cached != null) {
+            return cached;
+        }
+        CardEntity card = db.cardDao().getByPanMasked(record.panMasked);
+        long id;
+        if (card != null) {
+            id = card.id;
+        } else {
+            id = db.cardDao().insert(new CardEntity(record.panMasked, record.bin, record.last4, record.scheme));
+            if (id <= 0) {
+                card = db.cardDao().getByPanMasked(record.panMasked);
+                id = card != null ? card.id : 0;
+            }
+        }
+        if (id > 0 && record.panMasked != null) {
+            cardIds.put(record.panMasked, id);
+        }
+        return id;
+    }
+
+    /**
+     * The userId passed from the login chain if available, otherwise a
+     * username look-up (admin test suite compatibility). Misses are not
+     * cached — the user may be created later.
+     */
+    private Long userId(TransactionRecord record) {
+        if (record.userId > 0) {
+            return record.userId;
+        }
+        String username = record.username;
+        if (username == null || username.isEmpty()) {
+            return null;
+        }
+        Long cached = userIds.get(username);
+        if (cached != null) {
+            return cached;
+        }
+        UserEntity user = db.userDao().findByPhone(username);
+        if (user == null) {
+            user = db.userDao().findByEmail(username);
+        }
+        if (user == null) {
+            user = db.userDao().getByUsernameHashSync(PasswordUtils.hashSHA256(username));
+        }
+        if (user == null) {
+            return null;
+        }
+        userIds.put(username, user.id);
+        return user.id;
+    }
+
+    private void clearCaches() {
+        merchantIds.clear();
+        terminalIds.clear();
+        cardIds.clear();
+        userIds.clear();
+    }
+}
@@ -17,8 +17,15 @@ public class ServiceLocator {
 
     private ServiceLocator(Context context) {
         this.application = (android.app.Application) context.getApplicationContext();
+        com.example.mysoftpos.iso8583.log.IsoLog.setSink(new com.example.mysoftpos.utils.logging.AndroidLogSink());
         this.dispatcherProvider = new DefaultDispatcherProvider();
         this.appDatabase = AppDatabase.getInstance(context);
+        // Host specs shipped as JSON assets; until they are in, forId() falls back to the standard spec
+        dispatcherProvider.io().execute(() -> com.example.mysoftpos.iso8583.spec.IsoSpecJsonLoader.loadAssets(
+                application, com.example.mysoftpos.iso8583.spec.IsoSpecJsonLoader.ASSET_DIR));
+        // Opening the STAN reservation file fsyncs it: keep that off the main thread
+        dispatcherProvider.io().execute(() -> com.example.mysoftpos.utils.config.ConfigManager
+                .getInstance(application).preloadStanAllocator());
     }
 
     public android.app.Application getApplication() {
@@ -48,10 +55,18 @@ public class ServiceLocator {
     private com.example.mysoftpos.domain.service.TransactionExecutor transactionExecutor;
     private com.example.mysoftpos.testsuite.storage.SchemeRepository schemeRepository;
     private com.example.mysoftpos.data.repository.UserRepository userRepository;
+    private com.example.mysoftpos.testsuite.perf.TestRunScheduler testRunScheduler;
+    private com.example.mysoftpos.nfc.AidSelector aidSelector;
 
     public com.example.mysoftpos.data.remote.IsoNetworkClient getIsoNetworkClient() {
         if (isoNetworkClient == null) {
-            isoNetworkClient = new com.example.mysoftpos.data.remote.IsoNetworkClient();
+            isoNetworkClient = new com.example.mysoftpos.data.remote.IsoNetworkClient()
+                    .setJournal(com.example.mysoftpos.utils.logging.IsoJournal.getInstance(application));
+            com.example.mysoftpos.utils.config.ConfigManager config =
+                    com.example.mysoftpos.utils.config.ConfigManager.getInstance(application);
+            if (config.isPersistentConnectionEnabled()) {
+                isoNetworkClient.setConnectionPool(new com.example.mysoftpos.data.remote.IsoConnectionPool());
+            }
         }
         return isoNetworkClient;
     }
@@ -63,6 +78,30 @@ public class ServiceLocator {
         return transactionExecutor;
     }
 
+    /** Shared by the batch and multi-thread runners so their limits add up, not multiply. */
+    public synchronized com.example.mysoftpos.testsuite.perf.TestRunScheduler getTestRunScheduler() {
+        if (testRunScheduler == null) {
+            com.example.mysoftpos.utils.config.ConfigManager config =
+                    com.example.mysoftpos.utils.config.ConfigManager.getInstance(application);
+            testRunScheduler = new com.example.mysoftpos.testsuite.perf.TestRunScheduler(
+                    Math.max(1, config.getRunnerMaxConcurrency()),
+                    Math.max(1, config.getRunnerMaxPerHost()),
+                    Math.max(1, config.getRunnerQueueCapacity()));
+        }
+        return testRunScheduler;
+    }
+
+    /** Learned AID order for NFC reads; the stats table loads in the background. */
+    public synchronized com.example.mysoftpos.nfc.AidSelector getAidSelector() {
+        if (aidSelector == null) {
+            aidSelector = new com.example.mysoftpos.nfc.AidSelector(
+                    new com.example.mysoftpos.data.local.AidStatStore(appDatabase.aidStatDao()),
+                    dispatcherProvider.io());
+            dispatcherProvider.io().execute(aidSelector::warmUp);
+        }
+        return aidSelector;
+    }
+
     /** Singleton SchemeRepository — avoids repeated file I/O on each call (M-4). */
     public com.example.mysoftpos.testsuite.storage.SchemeRepository getSchemeRepository() {
         if (schemeRepository == null) {
@@ -27,6 +27,7 @@ public class TransactionRecord {
     public final String processingCode;
     public final String currencyCode;
     public final String rrn;
+    public final String specId;
 
     private TransactionRecord(Builder builder) {
         this.traceNumber = builder.traceNumber;
@@ -50,6 +51,7 @@ public class TransactionRecord {
         this.processingCode = builder.processingCode;
         this.currencyCode = builder.currencyCode;
         this.rrn = builder.rrn;
+        this.specId = builder.specId;
     }
 
     public static class Builder {
@@ -74,6 +76,7 @@ public class TransactionRecord {
         private String processingCode;
         private String currencyCode;
         private String rrn;
+        private String specId;
 
         public Builder() {
         }
@@ -183,6 +186,12 @@ public class TransactionRecord {
             return this;
         }
 
+        /** Id of the {@code IsoSpecEngine} the request was packed with. */
+        public Builder setSpecId(String specId) {
+            this.specId = specId;
+            return this;
+        }
+
         public TransactionRecord build() {
             return new TransactionRecord(this);
         }
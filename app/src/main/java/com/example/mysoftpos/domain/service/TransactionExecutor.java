@@ -6,11 +6,21 @@ import com.example.mysoftpos.domain.model.CardInputData;
 import com.example.mysoftpos.iso8583.TransactionContext;
 import com.example.mysoftpos.iso8583.builder.Iso8583Builder;
 import com.example.mysoftpos.iso8583.message.IsoMessage;
+import com.example.mysoftpos.iso8583.spec.IsoSpecEngine;
 import com.example.mysoftpos.iso8583.util.PinBlockGenerator;
 import com.example.mysoftpos.iso8583.util.StandardIsoPacker;
 import com.example.mysoftpos.utils.PanUtils;
 import com.example.mysoftpos.utils.config.ConfigManager;
 import com.example.mysoftpos.utils.logging.FileLogger;
+import com.example.mysoftpos.utils.metrics.IsoLatencyMetrics;
+import com.example.mysoftpos.utils.metrics.IsoTimings;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Centralized transaction execution: build ISO → pack → send → receive → unpack
@@ -25,8 +35,27 @@ public class TransactionExecutor {
 
     private final IsoNetworkClient isoNetworkClient;
 
+    private static final int COMPLETION_THREADS = 2;
+
+    // Runs executeAsync() completions (unpack, file log, metrics) off the network threads
+    private final Executor completionExecutor;
+
     public TransactionExecutor(IsoNetworkClient isoNetworkClient) {
+        this(isoNetworkClient, newCompletionExecutor());
+    }
+
+    public TransactionExecutor(IsoNetworkClient isoNetworkClient, Executor completionExecutor) {
         this.isoNetworkClient = isoNetworkClient;
+        this.completionExecutor = completionExecutor;
+    }
+
+    private static Executor newCompletionExecutor() {
+        AtomicInteger n = new AtomicInteger();
+        return Executors.newFixedThreadPool(COMPLETION_THREADS, r -> {
+            Thread t = new Thread(r, "txn-complete-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
     }
 
     public interface LogCallback {
@@ -173,6 +202,70 @@ public class TransactionExecutor {
         if (logTag == null)
             logTag = "";
 
+        Request req = buildAndPack(appContext, ctx, card, txnType, logger, logTag, fieldConfigJson);
+
+        // Use injected client
+        byte[] responseBytes;
+        IsoMessage respMsg;
+        try {
+            responseBytes = isoNetworkClient.sendAndReceive(ctx.ip, ctx.port, req.packed, req.spec, req.timings);
+            respMsg = unpack(req, responseBytes);
+        } catch (Exception e) {
+            recordFailure(req, ctx, e);
+            throw e;
+        }
+
+        return finish(appContext, ctx, req, responseBytes, respMsg, logger, logTag);
+    }
+
+    /**
+     * Non-blocking {@link #execute}: builds and packs on the calling thread,
+     * then sends with {@link IsoNetworkClient#sendAsync} so no thread waits
+     * for the host. Unpacking, file logging and metrics run on the completion
+     * executor, never on the network I/O threads.
+     *
+     * The future fails with the network/parse exception (a
+     * {@link SocketTimeoutException} on timeout), wrapped in a
+     * {@link CompletionException}.
+     */
+    public CompletableFuture<TransactionResult> executeAsync(Context appContext, TransactionContext ctx,
+            CardInputData card, String txnType,
+            LogCallback logger, String logTag) {
+        final LogCallback log = logger != null ? logger : NOOP;
+        final String tag = logTag != null ? logTag : "";
+
+        Request req;
+        try {
+            req = buildAndPack(appContext, ctx, card, txnType, log, tag, null);
+        } catch (Exception e) {
+            CompletableFuture<TransactionResult> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+
+        long sendStart = System.nanoTime();
+        return isoNetworkClient.sendAsync(ctx.ip, ctx.port, req.packed, req.spec)
+                .handleAsync((responseBytes, error) -> {
+                    req.timings.totalNanos = System.nanoTime() - sendStart;
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    if (cause == null) {
+                        try {
+                            IsoMessage respMsg = unpack(req, responseBytes);
+                            return finish(appContext, ctx, req, responseBytes, respMsg, log, tag);
+                        } catch (Exception e) {
+                            cause = e;
+                        }
+                    }
+                    recordFailure(req, ctx, cause);
+                    throw new CompletionException(cause);
+                }, completionExecutor);
+    }
+
+    /** Build, apply overrides, log and pack: everything before the send. */
+    private Request buildAndPack(Context appContext, TransactionContext ctx,
+            CardInputData card, String txnType,
+            LogCallback logger, String logTag, String fieldConfigJson) throws Exception {
         // 1. Build Message
         IsoMessage msg;
         if ("BALANCE".equals(txnType)) {
@@ -191,55 +284,77 @@ public class TransactionExecutor {
                     int fieldNum = Integer.parseInt(key);
                     msg.setField(fieldNum, json.getString(key));
                 }
-                if (logger != null) {
-                    logger.log("Applied " + json.length() + " custom field override(s)");
-                }
+                logger.log("Applied " + json.length() + " custom field override(s)");
             } catch (Exception e) {
-                if (logger != null) {
-                    logger.log("Warning: Failed to apply custom fields: " + e.getMessage());
-                }
+                logger.log("Warning: Failed to apply custom fields: " + e.getMessage());
             }
         }
 
-        if (logger != null) {
-            logger.log("Built " + msg.getMti() + " | STAN=" + ctx.stan11);
-            logger.log("--- ISO REQUEST DETAIL ---\n" + StandardIsoPacker.logIsoMessage(msg)
-                    + "--------------------------");
-        }
+        // Rendered once, shared by the on-screen log and the file log
+        String reqDetail = StandardIsoPacker.logIsoMessage(msg);
+        logger.log("Built " + msg.getMti() + " | STAN=" + ctx.stan11);
+        logger.log("--- ISO REQUEST DETAIL ---\n" + reqDetail
+                + "--------------------------");
 
         // 2. Pack
-        byte[] packed = StandardIsoPacker.pack(msg);
-        String reqHex = StandardIsoPacker.bytesToHex(packed);
+        Request req = new Request(msg, IsoSpecEngine.forId(ctx.specId));
+        long packStart = System.nanoTime();
+        req.packed = StandardIsoPacker.pack(msg, req.spec);
+        req.timings.packNanos = System.nanoTime() - packStart;
 
-        FileLogger.logTestSuitePacket(appContext, logTag + " SEND", packed);
-        FileLogger.logTestSuiteString(appContext, logTag + " SEND DETAIL",
-                StandardIsoPacker.logIsoMessage(msg));
+        FileLogger.logTestSuitePacket(appContext, logTag + " SEND", req.packed);
+        FileLogger.logTestSuiteString(appContext, logTag + " SEND DETAIL", reqDetail);
 
         // 3. Send
-        if (logger != null) {
-            logger.log("Sending to " + ctx.ip + ":" + ctx.port + "...");
-        }
+        logger.log("Sending to " + ctx.ip + ":" + ctx.port + "...");
+        return req;
+    }
 
-        // Use injected client
-        byte[] responseBytes = isoNetworkClient.sendAndReceive(ctx.ip, ctx.port, packed);
+    // 4. Unpack
+    private static IsoMessage unpack(Request req, byte[] responseBytes) throws Exception {
+        long unpackStart = System.nanoTime();
+        IsoMessage respMsg = new StandardIsoPacker().unpack(responseBytes, req.spec);
+        req.timings.unpackNanos = System.nanoTime() - unpackStart;
+        return respMsg;
+    }
 
+    private TransactionResult finish(Context appContext, TransactionContext ctx, Request req,
+            byte[] responseBytes, IsoMessage respMsg, LogCallback logger, String logTag) {
         FileLogger.logTestSuitePacket(appContext, logTag + " RECV", responseBytes);
-
-        // 4. Unpack
-        IsoMessage respMsg = new StandardIsoPacker().unpack(responseBytes);
         String respHex = StandardIsoPacker.bytesToHex(responseBytes);
 
-        FileLogger.logTestSuiteString(appContext, logTag + " RECV DETAIL",
-                StandardIsoPacker.logIsoMessage(respMsg));
+        String respDetail = StandardIsoPacker.logIsoMessage(respMsg);
+        FileLogger.logTestSuiteString(appContext, logTag + " RECV DETAIL", respDetail);
 
-        if (logger != null) {
-            logger.log("--- ISO RESPONSE DETAIL ---\n" + StandardIsoPacker.logIsoMessage(respMsg)
-                    + "---------------------------");
-        }
+        logger.log("--- ISO RESPONSE DETAIL ---\n" + respDetail
+                + "---------------------------");
 
         // 5. Result
         String rc = respMsg.getField(39);
+        IsoLatencyMetrics.getInstance().record(metricsKey(req.msg, ctx, rc), req.timings);
+
+        return new TransactionResult(ctx.stan11, rc, StandardIsoPacker.bytesToHex(req.packed), respHex);
+    }
+
+    private static void recordFailure(Request req, TransactionContext ctx, Throwable error) {
+        IsoLatencyMetrics.getInstance().recordFailure(metricsKey(req.msg, ctx, null), req.timings,
+                error instanceof SocketTimeoutException);
+    }
+
+    /** One packed request and its timings, carried from the send to the response. */
+    private static final class Request {
+        final IsoMessage msg;
+        final IsoSpecEngine spec;
+        final IsoTimings timings = new IsoTimings();
+        byte[] packed;
+
+        Request(IsoMessage msg, IsoSpecEngine spec) {
+            this.msg = msg;
+            this.spec = spec;
+        }
+    }
 
-        return new TransactionResult(ctx.stan11, rc, reqHex, respHex);
+    private static IsoLatencyMetrics.Key metricsKey(IsoMessage msg, TransactionContext ctx, String rc) {
+        return new IsoLatencyMetrics.Key(msg.getMti(), ctx.scheme, msg.getField(3), rc);
     }
 }
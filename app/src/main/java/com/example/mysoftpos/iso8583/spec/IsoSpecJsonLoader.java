@@ -0,0 +1,146 @@
+package com.example.mysoftpos.iso8583.spec;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * Loads an {@link IsoSpecEngine} from JSON (typically an asset such as
+ * {@code iso_spec_bcd.json}) so a host variant can be added without code.
+ *
+ * A spec is a set of overrides on a base spec:
+ * <pre>
+ * {
+ *   "id": "host-bcd",
+ *   "version": 2,
+ *   "base": "napas-ascii",
+ *   "bcdNumerics": true,
+ *   "binaryLengthPrefix": true,
+ *   "fields": {
+ *     "62": { "wire": "LLVAR", "length": 10,
+ *             "format": "ANS", "min": 1, "max": 10,
+ *             "errorCode": "NPS-062", "description": "Service Code Error" },
+ *     "33": { "remove": true }
+ *   }
+ * }
+ * </pre>
+ * {@code wire} is one of {@link IsoSpecEngine.Wire}; {@code format} one of
+ * {@link IsoSpecEngine.Format}. The rule part is optional.
+ *
+ * Specs shipped in {@link #ASSET_DIR} are registered at startup by
+ * {@code ServiceLocator} and can then be picked per scheme.
+ */
+public final class IsoSpecJsonLoader {
+
+    private static final String TAG = "IsoSpecJsonLoader";
+
+    /** Asset folder scanned at startup; every {@code *.json} in it is one spec. */
+    public static final String ASSET_DIR = "iso_specs";
+
+    private IsoSpecJsonLoader() {}
+
+    /**
+     * Load and register every {@code *.json} spec in {@code assetDir}. A file
+     * that fails to parse is logged and skipped; the others still load.
+     *
+     * @return number of specs registered
+     */
+    public static int loadAssets(Context context, String assetDir) {
+        String[] names;
+        try {
+            names = context.getAssets().list(assetDir);
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot list " + assetDir, e);
+            return 0;
+        }
+        if (names == null) {
+            return 0;
+        }
+        // Name order, so a spec can use one from an earlier file as its base
+        Arrays.sort(names);
+        int loaded = 0;
+        for (String name : names) {
+            if (!name.endsWith(".json")) {
+                continue;
+            }
+            try {
+                IsoSpecEngine spec = loadAsset(context, assetDir + "/" + name);
+                Log.d(TAG, "Registered ISO spec " + spec.getId() + " from " + name);
+                loaded++;
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Skipping ISO spec " + name, e);
+            }
+        }
+        return loaded;
+    }
+
+    /** Parse, build and {@link IsoSpecEngine#register register} a spec from an asset. */
+    public static IsoSpecEngine loadAsset(Context context, String assetName) throws IOException {
+        try (InputStream is = context.getAssets().open(assetName)) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            int n;
+            while ((n = is.read(buf)) > 0) {
+                bos.write(buf, 0, n);
+            }
+            IsoSpecEngine spec = parse(new String(bos.toByteArray(), StandardCharsets.UTF_8));
+            IsoSpecEngine.register(spec);
+            return spec;
+        } catch (JSONException e) {
+            throw new IOException("Invalid ISO spec " + assetName + ": " + e.getMessage(), e);
+        }
+    }
+
+    public static IsoSpecEngine parse(String json) throws JSONException {
+        JSONObject root = new JSONObject(json);
+        String id = root.getString("id");
+        String baseId = root.optString("base", IsoSpecEngine.STANDARD_ID);
+        if (!IsoSpecEngine.isRegistered(baseId)) {
+            // forId() would quietly fall back to the standard spec; a spec file must name a real base
+            throw new JSONException("Unknown base spec: " + baseId);
+        }
+        IsoSpecEngine base = IsoSpecEngine.forId(baseId);
+
+        IsoSpecEngine.Builder b = IsoSpecEngine.builder(base)
+                .id(id)
+                .version(root.optInt("version", 1))
+                .bcdNumerics(root.optBoolean("bcdNumerics", base.isBcdNumerics()))
+                .binaryLengthPrefix(root.optBoolean("binaryLengthPrefix", base.isBinaryLengthPrefix()));
+
+        JSONObject fields = root.optJSONObject("fields");
+        if (fields != null) {
+            Iterator<String> keys = fields.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                int field = Integer.parseInt(key);
+                JSONObject f = fields.getJSONObject(key);
+
+                if (f.optBoolean("remove", false)) {
+                    b.remove(field);
+                    continue;
+                }
+                if (f.has("wire")) {
+                    b.field(field, IsoSpecEngine.Wire.valueOf(f.getString("wire").toUpperCase(Locale.ROOT)),
+                            f.getInt("length"));
+                }
+                if (f.has("format")) {
+                    b.rule(field,
+                            IsoSpecEngine.Format.valueOf(f.getString("format").toUpperCase(Locale.ROOT)),
+                            f.getInt("min"), f.getInt("max"),
+                            f.optString("errorCode", ""), f.optString("description", ""));
+                }
+            }
+        }
+        return b.build();
+    }
+}
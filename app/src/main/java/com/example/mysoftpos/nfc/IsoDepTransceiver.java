@@ -89,6 +89,28 @@ public class IsoDepTransceiver implements CardTransceiver {
         }
     }
 
+    @Override
+    public boolean isCardLost(IOException e) {
+        return e instanceof TagLostException || CardTransceiver.super.isCardLost(e);
+    }
+
+    /** ATS historical bytes (type A) or ATTRIB response (type B), as hex. */
+    @Override
+    public String getCardProfile() {
+        if (isoDep == null) {
+            return null;
+        }
+        byte[] ats = isoDep.getHistoricalBytes();
+        if (ats != null && ats.length > 0) {
+            return "hb:" + bytesToHex(ats);
+        }
+        byte[] hiLayer = isoDep.getHiLayerResponse();
+        if (hiLayer != null && hiLayer.length > 0) {
+            return "hl:" + bytesToHex(hiLayer);
+        }
+        return null;
+    }
+
     private String bytesToHex(byte[] bytes) {
         StringBuilder sb = new StringBuilder();
         for (byte b : bytes) {
@@ -22,34 +22,50 @@ import com.example.mysoftpos.iso8583.message.IsoMessage;
 import com.example.mysoftpos.iso8583.util.StandardIsoPacker;
 import com.example.mysoftpos.iso8583.TransactionContext;
 import com.example.mysoftpos.testsuite.model.TestScenario;
+import com.example.mysoftpos.testsuite.perf.TestRunScheduler;
 import com.example.mysoftpos.testsuite.storage.SchemeRepository;
 import com.example.mysoftpos.ui.BaseActivity;
 import com.example.mysoftpos.utils.IntentKeys;
 import com.example.mysoftpos.utils.logging.ResponseCodeHelper;
+import com.example.mysoftpos.utils.metrics.IsoLatencyMetrics;
 import com.example.mysoftpos.di.ServiceLocator;
 import com.google.android.material.button.MaterialButton;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 public class BatchRunnerActivity extends BaseActivity {
 
-    // CachedThreadPool: creates new threads as needed, ideal for parallel I/O
-    private final ExecutorService executor = Executors.newCachedThreadPool();
+    // Builds and queues cases; the sends run on the shared TestRunScheduler
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    /** Coalesce per-case UI updates: large batches finish hundreds of cases per second. */
+    private static final long UI_REFRESH_MS = 100;
+
+    /** Max wait for write-behind history inserts at the end of a run. */
+    private static final long FLUSH_TIMEOUT_MS = 10_000;
     private TransactionExecutor transactionExecutor;
+    private TestRunScheduler testRunScheduler;
+    private volatile TestRunScheduler.Run currentRun;
     private com.example.mysoftpos.data.repository.TransactionRepository transactionRepository;
 
     private RecyclerView recyclerView;
     private ProgressBar progressBar;
     private TextView tvProgress;
+    private TextView tvLatency;
     private MaterialButton btnRunAll;
     private ResultAdapter adapter;
 
     private final List<CaseResult> results = new ArrayList<>();
     private String scheme;
     private boolean isRunning = false;
+    private final BitSet changedRows = new BitSet();
+    private boolean refreshPosted; // guarded by changedRows
     private final java.util.concurrent.atomic.AtomicInteger completedCount = new java.util.concurrent.atomic.AtomicInteger(
             0);
 
@@ -60,10 +76,12 @@ public class BatchRunnerActivity extends BaseActivity {
 
         transactionExecutor = ServiceLocator.getInstance(getApplication()).getTransactionExecutor();
         transactionRepository = ServiceLocator.getInstance(getApplication()).getTransactionRepository();
+        testRunScheduler = ServiceLocator.getInstance(getApplication()).getTestRunScheduler();
 
         recyclerView = findViewById(R.id.recyclerViewResults);
         progressBar = findViewById(R.id.progressBar);
         tvProgress = findViewById(R.id.tvProgress);
+        tvLatency = findViewById(R.id.tvLatency);
         btnRunAll = findViewById(R.id.btnRunAll);
         scheme = getIntent().getStringExtra(IntentKeys.SCHEME);
 
@@ -95,7 +113,13 @@ public class BatchRunnerActivity extends BaseActivity {
         tvTitle.setText("Batch Runner (" + results.size() + " cases)");
 
         btnRunAll.setText("Run All (" + results.size() + ")");
-        btnRunAll.setOnClickListener(v -> runAll());
+        btnRunAll.setOnClickListener(v -> {
+            if (isRunning) {
+                stopRun();
+            } else {
+                runAll();
+            }
+        });
 
         findViewById(R.id.btnBack).setOnClickListener(v -> finish());
     }
@@ -104,9 +128,10 @@ public class BatchRunnerActivity extends BaseActivity {
         if (isRunning)
             return;
         isRunning = true;
-        btnRunAll.setEnabled(false);
-        btnRunAll.setText("Preparing...");
+        btnRunAll.setText("Stop");
         completedCount.set(0);
+        IsoLatencyMetrics.getInstance().reset();
+        tvLatency.setVisibility(View.GONE);
 
         // Reset all to PENDING
         for (CaseResult r : results) {
@@ -117,89 +142,105 @@ public class BatchRunnerActivity extends BaseActivity {
         adapter.notifyDataSetChanged();
 
         int total = results.size();
+        progressBar.setProgress(0);
+        tvProgress.setText("0/" + total);
+
+        TestRunScheduler.Run run = testRunScheduler.newRun();
+        currentRun = run;
 
-        // Phase 1: Pre-build ALL contexts & cards on a single thread
-        // This avoids SharedPreferences lock contention from ConfigManager.getAndIncrementTrace()
+        // Build each case and queue it on the shared scheduler. submit() blocks while the
+        // scheduler's queue is full, so only a bounded number of requests exist at a time
+        // and at most maxConcurrency of them are on the wire. Sends are non-blocking:
+        // no worker thread waits for the host.
         executor.execute(() -> {
-            // Pre-build arrays
-            TransactionContext[] contexts = new TransactionContext[total];
-            CardInputData[] cards = new CardInputData[total];
-            String[] txnTypes = new String[total];
-
-            for (int i = 0; i < total; i++) {
-                CaseResult cr = results.get(i);
-                TestScenario scenario = cr.scenario;
-                try {
-                    txnTypes[i] = scenario.getTxnType() != null ? scenario.getTxnType() : "PURCHASE";
-                    String de22 = scenario.getField(22);
-                    String pan = scenario.getField(2);
-                    String expiry = scenario.getField(14);
-                    String track2 = scenario.getField(35);
-                    String amount = scenario.getField(4);
-                    String pinBlock = null;
-                    if ("PIN_BLOCK_PRESENT".equals(scenario.getField(52))) {
-                        pinBlock = scenario.getUserPin() != null ? scenario.getUserPin() : "123456";
-                    } else if (scenario.getUserPin() != null) {
-                        pinBlock = scenario.getUserPin();
+            boolean historySaved = false;
+            try {
+                for (int i = 0; i < total; i++) {
+                    final int index = i;
+                    final PreparedCase prepared = prepare(results.get(index));
+                    if (prepared == null) {
+                        // Failed during build
+                        completedCount.incrementAndGet();
+                        markChanged(index);
+                        continue;
                     }
-
-                    contexts[i] = TransactionExecutor.buildContext(
-                            getApplication(), txnTypes[i], amount, null, null);
-                    applySchemeConnection(contexts[i], scheme);
-
-                    cards[i] = TransactionExecutor.prepareCard(
-                            getApplication(), de22, pan, expiry, track2, pinBlock,
-                            contexts[i], msg -> {});
-                } catch (Exception e) {
-                    cr.status = CaseStatus.FAIL;
-                    cr.rc = "BUILD_ERR";
-                    cr.detail = "Build error: " + e.getMessage();
-                }
-            }
-
-            // Phase 2: Fire ALL network calls simultaneously
-            runOnUiThread(() -> {
-                btnRunAll.setText("Sending " + total + " transactions...");
-                for (CaseResult r : results) {
-                    if (r.status != CaseStatus.FAIL) {
-                        r.status = CaseStatus.RUNNING;
+                    String host = prepared.ctx.ip + ":" + prepared.ctx.port;
+                    if (!run.submitAsync(host, () -> runCase(index, prepared))) {
+                        break; // cancelled
                     }
                 }
-                adapter.notifyDataSetChanged();
-                progressBar.setProgress(0);
-            });
 
-            // Use a CountDownLatch so we know when all finish
-            java.util.concurrent.CountDownLatch latch = new java.util.concurrent.CountDownLatch(total);
-
-            for (int i = 0; i < total; i++) {
-                final int index = i;
-                final CaseResult cr = results.get(index);
-
-                if (cr.status == CaseStatus.FAIL) {
-                    // Already failed during build
-                    int done = completedCount.incrementAndGet();
-                    runOnUiThread(() -> {
-                        adapter.notifyItemChanged(index);
-                        progressBar.setProgress(done);
-                        tvProgress.setText(done + "/" + total);
-                    });
-                    latch.countDown();
-                    continue;
-                }
+                // Flush barrier: Done is only shown once every case has completed and
+                // its history row is committed (or the flush timed out, which is reported)
+                run.await(Long.MAX_VALUE);
+                historySaved = transactionRepository.flushPendingWrites(FLUSH_TIMEOUT_MS);
+                // Rows are committed: upload the tail now instead of waiting out the window
+                com.example.mysoftpos.data.remote.SyncScheduler.getInstance(this).flush();
+            } catch (InterruptedException e) {
+                run.cancel();
+                Thread.currentThread().interrupt();
+            } finally {
+                boolean saved = historySaved;
+                runOnUiThread(() -> onRunFinished(run, saved));
+            }
+        });
+    }
 
-                final TransactionContext ctx = contexts[index];
-                final CardInputData card = cards[index];
-                final String txnType = txnTypes[index];
+    private void stopRun() {
+        TestRunScheduler.Run run = currentRun;
+        if (run != null) {
+            run.cancel();
+            btnRunAll.setEnabled(false);
+            btnRunAll.setText("Stopping...");
+        }
+    }
 
-                executor.execute(() -> {
-                    try {
-                        StringBuilder sb = new StringBuilder();
-                        TransactionExecutor.LogCallback logger = msg -> sb.append(msg).append("\n");
+    /** Builds the request for one case; null (and the case marked FAIL) on error. */
+    private PreparedCase prepare(CaseResult cr) {
+        TestScenario scenario = cr.scenario;
+        try {
+            String txnType = scenario.getTxnType() != null ? scenario.getTxnType() : "PURCHASE";
+            String de22 = scenario.getField(22);
+            String pan = scenario.getField(2);
+            String expiry = scenario.getField(14);
+            String track2 = scenario.getField(35);
+            String amount = scenario.getField(4);
+            String pinBlock = null;
+            if ("PIN_BLOCK_PRESENT".equals(scenario.getField(52))) {
+                pinBlock = scenario.getUserPin() != null ? scenario.getUserPin() : "123456";
+            } else if (scenario.getUserPin() != null) {
+                pinBlock = scenario.getUserPin();
+            }
 
-                        TransactionResult result = transactionExecutor.execute(
-                                getApplication(), ctx, card, txnType, logger, "");
+            TransactionContext ctx = TransactionExecutor.buildContext(
+                    getApplication(), txnType, amount, null, null);
+            applySchemeConnection(ctx, scheme);
 
+            CardInputData card = TransactionExecutor.prepareCard(
+                    getApplication(), de22, pan, expiry, track2, pinBlock,
+                    ctx, msg -> {});
+            return new PreparedCase(ctx, card, txnType);
+        } catch (Exception e) {
+            cr.status = CaseStatus.FAIL;
+            cr.rc = "BUILD_ERR";
+            cr.detail = "Build error: " + e.getMessage();
+            return null;
+        }
+    }
+
+    /** Starts one case on a scheduler worker; the slot is held until the response (or error) is in. */
+    private CompletableFuture<?> runCase(int index, PreparedCase p) {
+        CaseResult cr = results.get(index);
+        cr.status = CaseStatus.RUNNING;
+        markChanged(index);
+        StringBuilder sb = new StringBuilder();
+        TransactionExecutor.LogCallback logger = msg -> sb.append(msg).append("\n");
+
+        return transactionExecutor.executeAsync(getApplication(), p.ctx, p.card, p.txnType, logger, "")
+                .handle((result, error) -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    if (cause == null) {
                         cr.rc = result.rc;
                         String reason = ResponseCodeHelper.getMessage(result.rc);
                         if (result.approved) {
@@ -211,37 +252,93 @@ public class BatchRunnerActivity extends BaseActivity {
                         }
 
                         // Save to DB for history
-                        saveTransactionToDb(ctx, card, result);
-                    } catch (java.net.SocketTimeoutException e) {
+                        saveTransactionToDb(p.ctx, p.card, result);
+                    } else if (cause instanceof java.net.SocketTimeoutException) {
                         cr.status = CaseStatus.FAIL;
                         cr.rc = "TIMEOUT";
                         cr.detail = "Error: Timeout waiting for response.";
-                    } catch (Exception e) {
+                    } else {
                         cr.status = CaseStatus.FAIL;
                         cr.rc = "ERROR";
-                        cr.detail = "Error: " + e.getMessage();
+                        cr.detail = "Error: " + cause.getMessage();
                     }
-
-                    int done = completedCount.incrementAndGet();
-                    runOnUiThread(() -> {
-                        adapter.notifyItemChanged(index);
-                        progressBar.setProgress(done);
-                        tvProgress.setText(done + "/" + total);
-
-                        if (done == total) {
-                            isRunning = false;
-                            btnRunAll.setEnabled(true);
-                            long passed = results.stream().filter(r -> r.status == CaseStatus.PASS).count();
-                            long failed = results.stream().filter(r -> r.status == CaseStatus.FAIL).count();
-                            btnRunAll.setText("Done: " + passed + " Pass, " + failed + " Fail — Run Again?");
-                        }
-                    });
-                    latch.countDown();
+                    completedCount.incrementAndGet();
+                    markChanged(index);
+                    return null;
                 });
+    }
+
+    /** Queues a row redraw; rows and progress are refreshed at most every {@link #UI_REFRESH_MS}. */
+    private void markChanged(int index) {
+        synchronized (changedRows) {
+            changedRows.set(index);
+            if (refreshPosted) {
+                return;
             }
-        });
+            refreshPosted = true;
+        }
+        recyclerView.postDelayed(this::refreshRows, UI_REFRESH_MS);
     }
 
+    private void refreshRows() {
+        BitSet rows;
+        synchronized (changedRows) {
+            rows = (BitSet) changedRows.clone();
+            changedRows.clear();
+            refreshPosted = false;
+        }
+        for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1)) {
+            adapter.notifyItemChanged(i);
+        }
+        int done = completedCount.get();
+        progressBar.setProgress(done);
+        tvProgress.setText(done + "/" + results.size());
+    }
+
+    /** Called on the UI thread after the run has drained and the history flush returned. */
+    private void onRunFinished(TestRunScheduler.Run run, boolean historySaved) {
+        if (run.isCancelled()) {
+            for (CaseResult r : results) {
+                if (r.status == CaseStatus.PENDING || r.status == CaseStatus.RUNNING) {
+                    r.status = CaseStatus.FAIL;
+                    r.rc = "CANCELLED";
+                    r.detail = "Cancelled before sending.";
+                }
+            }
+        }
+        adapter.notifyDataSetChanged();
+        refreshRows();
+        currentRun = null;
+        isRunning = false;
+        btnRunAll.setEnabled(true);
+        long passed = results.stream().filter(r -> r.status == CaseStatus.PASS).count();
+        long failed = results.stream().filter(r -> r.status == CaseStatus.FAIL).count();
+        btnRunAll.setText("Done: " + passed + " Pass, " + failed + " Fail — Run Again?");
+        if (!historySaved && !run.isCancelled()) {
+            int dropped = transactionRepository.droppedTransactionWrites();
+            Toast.makeText(this, dropped > 0
+                    ? dropped + " history rows could not be saved (see log)"
+                    : "History is still being saved", Toast.LENGTH_LONG).show();
+        }
+        showLatency();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        stopRun();
+        executor.shutdown();
+    }
+
+    /** Round-trip percentiles of the run just finished (all MTIs / response codes). */
+    private void showLatency() {
+        IsoLatencyMetrics.SeriesSnapshot latency = IsoLatencyMetrics.getInstance().aggregate();
+        if (latency.count() == 0 && latency.errors == 0 && latency.timeouts == 0) {
+            return;
+        }
+        tvLatency.setText(latency.formatSummary().trim());
+        tvLatency.setVisibility(View.VISIBLE);
+    }
 
     private void applySchemeConnection(TransactionContext ctx, String schemeName) {
         if (schemeName == null)
@@ -249,6 +346,8 @@ public class BatchRunnerActivity extends BaseActivity {
         SchemeRepository repo = new SchemeRepository(this);
         com.example.mysoftpos.testsuite.model.Scheme s = repo.getByName(schemeName);
         if (s == null) return;
+        ctx.scheme = s.getName();
+        ctx.specId = s.getSpecId();
         if (s.getServerIp() != null && !s.getServerIp().isEmpty()) {
             ctx.ip = s.getServerIp();
             ctx.port = s.getServerPort();
@@ -294,10 +393,11 @@ public class BatchRunnerActivity extends BaseActivity {
                             .setUsername("TEST_SUITE_BATCH")
                             .setProcessingCode(ctx.processingCode3)
                             .setCurrencyCode(ctx.currency49)
+                            .setSpecId(com.example.mysoftpos.iso8583.spec.IsoSpecEngine.forId(ctx.specId).getId())
                             .build();
             transactionRepository.saveTransaction(record);
-            // Sync to backend via WorkManager
-            com.example.mysoftpos.data.remote.SyncWorker.enqueueOneTime(this);
+            // Debounced backend sync (one unique WorkManager job per window)
+            com.example.mysoftpos.data.remote.SyncScheduler.getInstance(this).notifyTransaction();
         } catch (Exception e) {
             android.util.Log.e("BatchRunner", "Save to DB failed", e);
         }
@@ -305,6 +405,18 @@ public class BatchRunnerActivity extends BaseActivity {
 
     // --- Data Models ---
 
+    static class PreparedCase {
+        final TransactionContext ctx;
+        final CardInputData card;
+        final String txnType;
+
+        PreparedCase(TransactionContext ctx, CardInputData card, String txnType) {
+            this.ctx = ctx;
+            this.card = card;
+            this.txnType = txnType;
+        }
+    }
+
     enum CaseStatus {
         PENDING, RUNNING, PASS, FAIL
     }
@@ -47,5 +47,12 @@ public class ChannelSelectActivity extends BaseActivity {
             i.putExtra(IntentKeys.SCHEME, scheme);
             startActivity(i);
         });
+
+        // Load test against this scheme's host
+        findViewById(R.id.btnLoadTest).setOnClickListener(v -> {
+            Intent i = new Intent(this, PerformanceSelectActivity.class);
+            i.putExtra(IntentKeys.SCHEME, scheme);
+            startActivity(i);
+        });
     }
 }
@@ -15,16 +15,19 @@ import com.example.mysoftpos.ui.BaseActivity;
 import com.example.mysoftpos.utils.PanUtils;
 import com.example.mysoftpos.utils.logging.ResponseCodeHelper;
 import com.example.mysoftpos.testsuite.model.Scheme;
-import com.example.mysoftpos.testsuite.storage.SchemeRepository;
+import com.example.mysoftpos.testsuite.perf.TestRunScheduler;
+import com.example.mysoftpos.utils.metrics.IsoLatencyMetrics;
 
 import java.util.ArrayList;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Runs multiple test scenarios concurrently using a thread pool.
- * Each scenario runs in its own thread via TransactionExecutor.
+ * Runs multiple test scenarios concurrently via TransactionExecutor on the shared
+ * {@link TestRunScheduler} (bounded concurrency, per-host limits, cancelled on exit).
+ * Sends are non-blocking ({@link TransactionExecutor#executeAsync}), so the
+ * scheduler's workers never wait on the host.
  */
 public class MultiThreadRunnerActivity extends BaseActivity {
 
@@ -34,8 +37,20 @@ public class MultiThreadRunnerActivity extends BaseActivity {
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
     private TransactionExecutor transactionExecutor;
     private com.example.mysoftpos.data.repository.TransactionRepository transactionRepository;
+
+    /** Max wait for write-behind history inserts at the end of a run. */
+    private static final long FLUSH_TIMEOUT_MS = 10_000;
     private String schemeName;
 
+    /** Coalesce log/status updates: each transaction logs a dozen lines. */
+    private static final long UI_REFRESH_MS = 100;
+    private final StringBuilder pendingLog = new StringBuilder();
+    private boolean uiFlushPosted; // guarded by pendingLog
+    private volatile String pendingStatus;
+
+    private TestRunScheduler testRunScheduler;
+    private volatile TestRunScheduler.Run currentRun;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -49,6 +64,8 @@ public class MultiThreadRunnerActivity extends BaseActivity {
                 .getTransactionExecutor();
         transactionRepository = com.example.mysoftpos.di.ServiceLocator.getInstance(getApplicationContext())
                 .getTransactionRepository();
+        testRunScheduler = com.example.mysoftpos.di.ServiceLocator.getInstance(getApplicationContext())
+                .getTestRunScheduler();
 
         findViewById(R.id.btnBack).setOnClickListener(v -> finish());
 
@@ -64,136 +81,198 @@ public class MultiThreadRunnerActivity extends BaseActivity {
             return;
         }
 
-        int threadCount = scenarios.size();
-        tvStatus.setText("Preparing " + threadCount + " tests...");
+        int caseCount = scenarios.size();
+        tvStatus.setText("Preparing " + caseCount + " tests...");
         appendLog("=== Multi-thread Runner ===\n");
-        appendLog("Total tests: " + threadCount + "\n");
-        appendLog("Mode: Concurrent (Thread Pool)\n\n");
+        appendLog("Total tests: " + caseCount + "\n");
+        appendLog("Mode: Concurrent (max " + testRunScheduler.getMaxConcurrency() + " in flight, "
+                + testRunScheduler.getMaxPerHost() + " per host)\n\n");
 
-        ExecutorService pool = Executors.newCachedThreadPool();
         AtomicInteger completed = new AtomicInteger(0);
         AtomicInteger passed = new AtomicInteger(0);
         AtomicInteger failed = new AtomicInteger(0);
+        IsoLatencyMetrics.getInstance().reset();
+        TestRunScheduler.Run run = testRunScheduler.newRun();
+        currentRun = run;
 
-        // Phase 1: Pre-build ALL contexts on a single background thread
-        // to avoid ConfigManager.getAndIncrementTrace() synchronized lock
+        // Build each case and queue it on the shared scheduler. submit() blocks while the
+        // scheduler's queue is full, so a large run never pre-builds every request up front.
         new Thread(() -> {
-            TransactionContext[] contexts = new TransactionContext[threadCount];
-            CardInputData[] cards = new CardInputData[threadCount];
-            String[] types = new String[threadCount];
-            String[] tags = new String[threadCount];
+            Scheme scheme = null;
+            if (schemeName != null && !schemeName.isEmpty()) {
+                try {
+                    scheme = com.example.mysoftpos.di.ServiceLocator.getInstance(getApplicationContext())
+                            .getSchemeRepository().getByName(schemeName);
+                } catch (Exception ignored) {}
+            }
 
-            for (int i = 0; i < threadCount; i++) {
-                TestScenario scenario = scenarios.get(i);
-                types[i] = scenario.getTxnType() != null ? scenario.getTxnType() : txnType;
-                tags[i] = "[T" + (i + 1) + " " + types[i] + " " + scenario.getField(22) + "]";
+            try {
+                for (int i = 0; i < caseCount; i++) {
+                    TestScenario scenario = scenarios.get(i);
+                    String type = scenario.getTxnType() != null ? scenario.getTxnType() : txnType;
+                    String tag = "[T" + (i + 1) + " " + type + " " + scenario.getField(22) + "]";
 
-                try {
-                    TransactionExecutor.LogCallback noop = msg -> {};
-                    String amount = scenario.getField(4);
-                    contexts[i] = TransactionExecutor.buildContext(getApplicationContext(), types[i], amount, null, null);
-
-                    if (schemeName != null && !schemeName.isEmpty()) {
-                        try {
-                            SchemeRepository repo = new SchemeRepository(getApplicationContext());
-                            Scheme scheme = repo.getByName(schemeName);
-                            if (scheme != null) {
-                                if (scheme.hasConnectionConfig()) {
-                                    contexts[i].ip = scheme.getServerIp();
-                                    contexts[i].port = scheme.getServerPort();
-                                }
-                                applySchemeToContext(contexts[i], scheme);
+                    TransactionContext ctx = null;
+                    CardInputData card = null;
+                    try {
+                        TransactionExecutor.LogCallback noop = msg -> {};
+                        String amount = scenario.getField(4);
+                        ctx = TransactionExecutor.buildContext(getApplicationContext(), type, amount, null, null);
+
+                        if (scheme != null) {
+                            if (scheme.hasConnectionConfig()) {
+                                ctx.ip = scheme.getServerIp();
+                                ctx.port = scheme.getServerPort();
                             }
-                        } catch (Exception ignored) {}
+                            applySchemeToContext(ctx, scheme);
+                            ctx.specId = scheme.getSpecId();
+                            ctx.scheme = scheme.getName();
+                        }
+
+                        String de22 = scenario.getField(22);
+                        card = TransactionExecutor.prepareCard(
+                                getApplicationContext(), de22,
+                                scenario.getField(2), scenario.getField(14),
+                                scenario.getField(35), scenario.getUserPin(),
+                                ctx, noop);
+                    } catch (Exception e) {
+                        appendLog(tag + " Build error: " + e.getMessage() + "\n");
                     }
 
-                    String de22 = scenario.getField(22);
-                    cards[i] = TransactionExecutor.prepareCard(
-                            getApplicationContext(), de22,
-                            scenario.getField(2), scenario.getField(14),
-                            scenario.getField(35), scenario.getUserPin(),
-                            contexts[i], noop);
-                } catch (Exception e) {
-                    appendLog(tags[i] + " Build error: " + e.getMessage() + "\n");
-                }
-            }
+                    if (ctx == null || card == null) {
+                        failed.incrementAndGet();
+                        completed.incrementAndGet();
+                        appendLog(tag + " *** SKIPPED (build error) ***\n");
+                        continue;
+                    }
 
-            // Phase 2: Fire ALL network calls simultaneously
-            mainHandler.post(() -> tvStatus.setText("Sending " + threadCount + " transactions..."));
-
-            for (int i = 0; i < threadCount; i++) {
-                final int idx = i;
-                final String tag = tags[i];
-                final TransactionContext ctx = contexts[i];
-                final CardInputData card = cards[i];
-                final String typeToRun = types[i];
-
-                if (ctx == null || card == null) {
-                    failed.incrementAndGet();
-                    int done = completed.incrementAndGet();
-                    appendLog(tag + " *** SKIPPED (build error) ***\n");
-                    if (done == threadCount) {
-                        appendLog("\n=== ALL TESTS COMPLETE ===\n");
-                        appendLog("Pass: " + passed.get() + " / Fail: " + failed.get() + "\n");
-                        pool.shutdown();
+                    final TransactionContext runCtx = ctx;
+                    final CardInputData runCard = card;
+                    boolean queued = run.submitAsync(ctx.ip + ":" + ctx.port, () ->
+                            runCase(tag, runCtx, runCard, type).thenAccept(approved -> {
+                                if (approved) {
+                                    passed.incrementAndGet();
+                                } else {
+                                    failed.incrementAndGet();
+                                }
+                                int done = completed.incrementAndGet();
+                                setStatus("Completed " + done + "/" + caseCount
+                                        + " (Pass: " + passed.get() + " / Fail: " + failed.get() + ")");
+                            }));
+                    if (!queued) {
+                        break; // cancelled
                     }
-                    mainHandler.post(() -> tvStatus.setText("Completed " + done + "/" + threadCount));
-                    continue;
                 }
 
-                pool.execute(() -> {
-                    appendLog(tag + " Starting...\n");
-                    try {
-                        TransactionExecutor.LogCallback logger = msg -> appendLog(tag + " " + msg + "\n");
+                // Flush barrier: history is committed before reporting completion
+                run.await(Long.MAX_VALUE);
+                if (!transactionRepository.flushPendingWrites(FLUSH_TIMEOUT_MS)) {
+                    appendLog("History not fully saved: " + transactionRepository.droppedTransactionWrites()
+                            + " rows dropped so far, or the flush timed out after " + FLUSH_TIMEOUT_MS + "ms\n");
+                }
+                com.example.mysoftpos.data.remote.SyncScheduler.getInstance(this).flush();
+            } catch (InterruptedException e) {
+                run.cancel();
+                Thread.currentThread().interrupt();
+            }
 
-                        TransactionResult result = transactionExecutor.execute(
-                                getApplicationContext(), ctx, card, typeToRun, logger, tag);
+            if (run.isCancelled()) {
+                appendLog("\n=== RUN CANCELLED ===\n");
+                appendLog("Not sent: " + (caseCount - completed.get()) + "\n");
+            } else {
+                appendLog("\n=== ALL TESTS COMPLETE ===\n");
+            }
+            appendLog("Pass: " + passed.get() + " / Fail: " + failed.get() + "\n");
+            appendLog("\n--- Latency ---\n"
+                    + IsoLatencyMetrics.getInstance().aggregate().formatSummary());
+        }, "multi-runner-producer").start();
+    }
 
-                        appendLog(tag + " Packed Hex (" + result.reqHex.length() / 2 + " bytes):\n" + result.reqHex + "\n");
-                        appendLog(tag + " Response Hex:\n" + result.respHex + "\n");
+    /** Starts one transaction on a scheduler worker; completes with true if approved. */
+    private CompletableFuture<Boolean> runCase(String tag, TransactionContext ctx, CardInputData card,
+            String typeToRun) {
+        appendLog(tag + " Starting...\n");
+        TransactionExecutor.LogCallback logger = msg -> appendLog(tag + " " + msg + "\n");
 
-                        String reason = ResponseCodeHelper.getMessage(result.rc);
-                        if (result.approved) {
-                            passed.incrementAndGet();
-                            appendLog(tag + " *** STATUS: PASS ***\n");
-                            appendLog(tag + " RC: " + result.rc + " (" + reason + ")\n");
+        return transactionExecutor.executeAsync(getApplicationContext(), ctx, card, typeToRun, logger, tag)
+                .handle((result, error) -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    if (cause != null) {
+                        appendLog(tag + " *** STATUS: FAIL ***\n");
+                        if (cause instanceof java.net.SocketTimeoutException) {
+                            appendLog(tag + " Error: Timeout waiting for response.\n");
                         } else {
-                            failed.incrementAndGet();
-                            appendLog(tag + " *** STATUS: FAIL ***\n");
-                            appendLog(tag + " RC: " + result.rc + " - Reason: " + reason + "\n");
+                            appendLog(tag + " Error: " + cause.getMessage() + "\n");
                         }
-
-                        // Save to DB for history
-                        saveTransactionToDb(ctx, card, result);
-                    } catch (java.net.SocketTimeoutException e) {
-                        failed.incrementAndGet();
-                        appendLog(tag + " *** STATUS: FAIL ***\n");
-                        appendLog(tag + " Error: Timeout waiting for response.\n");
-                    } catch (Exception e) {
-                        failed.incrementAndGet();
-                        appendLog(tag + " *** STATUS: FAIL ***\n");
-                        appendLog(tag + " Error: " + e.getMessage() + "\n");
+                        return false;
                     }
 
-                    int done = completed.incrementAndGet();
-                    mainHandler.post(() -> tvStatus.setText("Completed " + done + "/" + threadCount
-                            + " (Pass: " + passed.get() + " / Fail: " + failed.get() + ")"));
+                    appendLog(tag + " Packed Hex (" + result.reqHex.length() / 2 + " bytes):\n" + result.reqHex + "\n");
+                    appendLog(tag + " Response Hex:\n" + result.respHex + "\n");
 
-                    if (done == threadCount) {
-                        appendLog("\n=== ALL TESTS COMPLETE ===\n");
-                        appendLog("Pass: " + passed.get() + " / Fail: " + failed.get() + "\n");
-                        pool.shutdown();
+                    String reason = ResponseCodeHelper.getMessage(result.rc);
+                    if (result.approved) {
+                        appendLog(tag + " *** STATUS: PASS ***\n");
+                        appendLog(tag + " RC: " + result.rc + " (" + reason + ")\n");
+                    } else {
+                        appendLog(tag + " *** STATUS: FAIL ***\n");
+                        appendLog(tag + " RC: " + result.rc + " - Reason: " + reason + "\n");
                     }
+
+                    // Save to DB for history
+                    saveTransactionToDb(ctx, card, result);
+                    return result.approved;
                 });
-            }
-        }).start();
     }
 
+    /** Buffers log text; the view is updated at most every {@link #UI_REFRESH_MS}. */
     private void appendLog(String text) {
-        mainHandler.post(() -> {
+        synchronized (pendingLog) {
+            pendingLog.append(text);
+        }
+        requestUiFlush();
+    }
+
+    private void setStatus(String status) {
+        pendingStatus = status;
+        requestUiFlush();
+    }
+
+    private void requestUiFlush() {
+        synchronized (pendingLog) {
+            if (uiFlushPosted) {
+                return;
+            }
+            uiFlushPosted = true;
+        }
+        mainHandler.postDelayed(this::flushUi, UI_REFRESH_MS);
+    }
+
+    private void flushUi() {
+        String text;
+        synchronized (pendingLog) {
+            text = pendingLog.toString();
+            pendingLog.setLength(0);
+            uiFlushPosted = false;
+        }
+        String status = pendingStatus;
+        if (status != null) {
+            tvStatus.setText(status);
+        }
+        if (!text.isEmpty()) {
             tvLog.append(text);
             scrollLog.post(() -> scrollLog.fullScroll(ScrollView.FOCUS_DOWN));
-        });
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        TestRunScheduler.Run run = currentRun;
+        if (run != null) {
+            run.cancel();
+        }
     }
 
     private void saveTransactionToDb(TransactionContext ctx, CardInputData card,
@@ -218,10 +297,11 @@ public class MultiThreadRunnerActivity extends BaseActivity {
                             .setUsername("TEST_SUITE_MULTI")
                             .setProcessingCode(ctx.processingCode3)
                             .setCurrencyCode(ctx.currency49)
+                            .setSpecId(com.example.mysoftpos.iso8583.spec.IsoSpecEngine.forId(ctx.specId).getId())
                             .build();
             transactionRepository.saveTransaction(record);
-            // Sync to backend via WorkManager
-            com.example.mysoftpos.data.remote.SyncWorker.enqueueOneTime(this);
+            // Debounced backend sync (one unique WorkManager job per window)
+            com.example.mysoftpos.data.remote.SyncScheduler.getInstance(this).notifyTransaction();
         } catch (Exception e) {
             android.util.Log.e("MultiThreadRunner", "Save to DB failed", e);
         }
@@ -1,15 +1,279 @@
 package com.example.mysoftpos.testsuite;
 
+import android.content.Context;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.EditText;
+import android.widget.RadioGroup;
+import android.widget.ScrollView;
+import android.widget.TextView;
+import android.widget.Toast;
 
+import com.example.mysoftpos.R;
+import com.example.mysoftpos.domain.model.CardInputData;
+import com.example.mysoftpos.domain.service.TransactionExecutor;
+import com.example.mysoftpos.iso8583.TransactionContext;
+import com.example.mysoftpos.testsuite.model.Scheme;
+import com.example.mysoftpos.testsuite.model.TestScenario;
+import com.example.mysoftpos.testsuite.perf.LoadGenerator;
+import com.example.mysoftpos.testsuite.perf.LoadProfile;
+import com.example.mysoftpos.testsuite.perf.LoadStats;
 import com.example.mysoftpos.ui.BaseActivity;
+import com.google.android.material.button.MaterialButton;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Load test runner: drives {@link TransactionExecutor} through a
+ * {@link LoadGenerator} at a target TPS (open loop) or with N virtual
+ * terminals (closed loop), for a duration and/or transaction count, with
+ * ramp-up/ramp-down. Throughput and latency are reported every second.
+ *
+ * The scenario mix is the selected scenarios ({@link com.example.mysoftpos.utils.IntentKeys#SELECTED_SCENARIOS}
+ * or {@link com.example.mysoftpos.utils.IntentKeys#SCENARIOS}), falling back to the built-in
+ * cases for the scheme. Load-test transactions are not written to history.
+ */
 public class PerformanceSelectActivity extends BaseActivity {
 
+    private static final String LOG_TAG = "LOAD";
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private RadioGroup rgModel;
+    private com.google.android.material.textfield.TextInputLayout tilLevel;
+    private EditText etLevel, etMaxTxns, etDuration, etThinkTime, etRampUp, etRampDown;
+    private TextView tvStatus, tvLog;
+    private ScrollView scrollLog;
+    private MaterialButton btnStart;
+
+    private List<TestScenario> scenarios;
+    private String schemeName;
+    private TransactionExecutor transactionExecutor;
+    private LoadGenerator<TestScenario> generator;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        // Placeholder — performance testing not yet implemented
-        finish();
+        setContentView(R.layout.activity_performance_select);
+
+        rgModel = findViewById(R.id.rgModel);
+        tilLevel = findViewById(R.id.tilLevel);
+        etLevel = findViewById(R.id.etLevel);
+        etMaxTxns = findViewById(R.id.etMaxTxns);
+        etDuration = findViewById(R.id.etDuration);
+        etThinkTime = findViewById(R.id.etThinkTime);
+        etRampUp = findViewById(R.id.etRampUp);
+        etRampDown = findViewById(R.id.etRampDown);
+        tvStatus = findViewById(R.id.tvStatus);
+        tvLog = findViewById(R.id.tvLog);
+        scrollLog = findViewById(R.id.scrollLog);
+        btnStart = findViewById(R.id.btnStart);
+        TextView tvScenarioCount = findViewById(R.id.tvScenarioCount);
+
+        findViewById(R.id.btnBack).setOnClickListener(v -> finish());
+
+        transactionExecutor = com.example.mysoftpos.di.ServiceLocator.getInstance(getApplicationContext())
+                .getTransactionExecutor();
+        schemeName = getIntent().getStringExtra(com.example.mysoftpos.utils.IntentKeys.SCHEME);
+        scenarios = loadScenarios();
+        tvScenarioCount.setText(scenarios.size() + " scenarios");
+
+        rgModel.setOnCheckedChangeListener((group, checkedId) -> {
+            boolean open = checkedId == R.id.rbOpenLoop;
+            tilLevel.setHint(open ? "Target TPS" : "Virtual terminals");
+        });
+
+        btnStart.setOnClickListener(v -> {
+            if (generator != null) {
+                generator.stop();
+                btnStart.setEnabled(false);
+                btnStart.setText("Stopping...");
+            } else {
+                startRun();
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<TestScenario> loadScenarios() {
+        ArrayList<TestScenario> selected = (ArrayList<TestScenario>) getIntent()
+                .getSerializableExtra(com.example.mysoftpos.utils.IntentKeys.SELECTED_SCENARIOS);
+        if (selected == null) {
+            selected = (ArrayList<TestScenario>) getIntent()
+                    .getSerializableExtra(com.example.mysoftpos.utils.IntentKeys.SCENARIOS);
+        }
+        if (selected != null && !selected.isEmpty()) {
+            return selected;
+        }
+        return TestDataProvider.generateScenarios(this, schemeName != null ? schemeName : "Napas");
+    }
+
+    private void startRun() {
+        LoadProfile profile;
+        try {
+            profile = buildProfile();
+        } catch (IllegalArgumentException e) {
+            Toast.makeText(this, e.getMessage(), Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (scenarios.isEmpty()) {
+            Toast.makeText(this, "No test cases selected", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        Context app = getApplicationContext();
+        Scheme scheme = null;
+        if (schemeName != null && !schemeName.isEmpty()) {
+            scheme = com.example.mysoftpos.di.ServiceLocator.getInstance(app).getSchemeRepository()
+                    .getByName(schemeName);
+        }
+        final Scheme runScheme = scheme;
+
+        generator = LoadGenerator.async(profile, scenarios, sc -> runScenario(app, sc, runScheme));
+
+        tvLog.setText("");
+        appendLog("=== Load Test ===\n");
+        appendLog("Model: " + (profile.model == LoadProfile.Model.OPEN
+                ? "open loop, " + profile.targetTps + " TPS"
+                : "closed loop, " + profile.virtualTerminals + " terminals") + "\n");
+        appendLog("Mix: " + scenarios.size() + " scenarios, round-robin\n\n");
+        setInputsEnabled(false);
+        btnStart.setText("Stop");
+
+        generator.start(new LoadGenerator.Listener() {
+            @Override
+            public void onProgress(LoadStats stats) {
+                mainHandler.post(() -> {
+                    tvStatus.setText(formatStatus(stats));
+                    appendLog(stats.format() + "\n");
+                });
+            }
+
+            @Override
+            public void onFinished(LoadStats stats) {
+                mainHandler.post(() -> {
+                    tvStatus.setText(formatStatus(stats));
+                    appendLog("\n=== LOAD TEST COMPLETE ===\n" + stats.format() + "\n");
+                    generator = null;
+                    setInputsEnabled(true);
+                    btnStart.setEnabled(true);
+                    btnStart.setText("Start Load Test");
+                });
+            }
+        });
+    }
+
+    private LoadProfile buildProfile() {
+        boolean open = rgModel.getCheckedRadioButtonId() == R.id.rbOpenLoop;
+        double level = readDouble(etLevel);
+        LoadProfile.Builder b = open
+                ? LoadProfile.openLoop(level)
+                : LoadProfile.closedLoop((int) level);
+        return b.durationMs(readLong(etDuration) * 1000)
+                .maxTransactions(readLong(etMaxTxns))
+                .rampUpMs(readLong(etRampUp) * 1000)
+                .rampDownMs(readLong(etRampDown) * 1000)
+                .thinkTimeMs(readLong(etThinkTime))
+                .build();
+    }
+
+    /** One load-test transaction: fresh context (STAN) per call, no history write, non-blocking send. */
+    private CompletableFuture<Boolean> runScenario(Context app, TestScenario scenario, Scheme scheme) {
+        String txnType = scenario.getTxnType() != null ? scenario.getTxnType() : "PURCHASE";
+        TransactionContext ctx = TransactionExecutor.buildContext(app, txnType, scenario.getField(4),
+                scenario.getField(49), scenario.getField(19));
+        if (scheme != null) {
+            if (scheme.hasConnectionConfig()) {
+                ctx.ip = scheme.getServerIp();
+                ctx.port = scheme.getServerPort();
+            }
+            applySchemeToContext(ctx, scheme);
+            ctx.specId = scheme.getSpecId();
+            ctx.scheme = scheme.getName();
+        }
+        CardInputData card = TransactionExecutor.prepareCard(app, scenario.getField(22),
+                scenario.getField(2), scenario.getField(14), scenario.getField(35),
+                scenario.getUserPin(), ctx, null);
+        if (card.getPan() == null) {
+            throw new IllegalStateException("Scenario has no PAN: " + scenario.getDescription());
+        }
+        return transactionExecutor.executeAsync(app, ctx, card, txnType, null, LOG_TAG)
+                .thenApply(result -> result.approved);
+    }
+
+    private String formatStatus(LoadStats s) {
+        return String.format(java.util.Locale.US,
+                "%s %.0fs | %.1f TPS (avg %.1f)\nOK %d  DEC %d  ERR %d  DROP %d  in-flight %d\np50 %.0f  p95 %.0f  p99 %.0f  max %.0f ms",
+                s.finished ? "Done" : "Running", s.elapsedMs / 1000.0, s.currentTps, s.averageTps,
+                s.approved, s.declined, s.errors, s.dropped, s.inFlight,
+                s.p50Ms, s.p95Ms, s.p99Ms, s.maxMs);
+    }
+
+    private void setInputsEnabled(boolean enabled) {
+        for (int i = 0; i < rgModel.getChildCount(); i++) {
+            rgModel.getChildAt(i).setEnabled(enabled);
+        }
+        etLevel.setEnabled(enabled);
+        etMaxTxns.setEnabled(enabled);
+        etDuration.setEnabled(enabled);
+        etThinkTime.setEnabled(enabled);
+        etRampUp.setEnabled(enabled);
+        etRampDown.setEnabled(enabled);
+    }
+
+    private static long readLong(EditText et) {
+        String s = et.getText().toString().trim();
+        if (s.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(s);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number: " + s);
+        }
+    }
+
+    private static double readDouble(EditText et) {
+        String s = et.getText().toString().trim();
+        try {
+            return s.isEmpty() ? 0 : Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number: " + s);
+        }
+    }
+
+    private void appendLog(String text) {
+        tvLog.append(text);
+        scrollLog.post(() -> scrollLog.fullScroll(ScrollView.FOCUS_DOWN));
+    }
+
+    private void applySchemeToContext(TransactionContext ctx, Scheme scheme) {
+        String tid = scheme.getTerminalId();
+        if (tid != null && !tid.isEmpty()) ctx.terminalId41 = tid;
+        String mid = scheme.getMerchantId();
+        if (mid != null && !mid.isEmpty()) ctx.merchantId42 = mid;
+        String mcc = scheme.getMcc();
+        if (mcc != null && !mcc.isEmpty()) ctx.mcc18 = mcc;
+        String acq = scheme.getAcquirerId();
+        if (acq != null && !acq.isEmpty()) ctx.acquirerId32 = acq;
+        String currency = scheme.getCurrencyCode();
+        if (currency != null && !currency.isEmpty()) ctx.currency49 = currency;
+        String country = scheme.getCountryCode();
+        if (country != null && !country.isEmpty()) ctx.country19 = country;
+        String posCond = scheme.getPosConditionCode();
+        if (posCond != null && !posCond.isEmpty()) ctx.posCondition25 = posCond;
+        String de43 = scheme.buildMerchantNameLocation();
+        if (!de43.isEmpty()) ctx.merchantNameLocation43 = de43;
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (generator != null) {
+            generator.stop();
+        }
     }
 }
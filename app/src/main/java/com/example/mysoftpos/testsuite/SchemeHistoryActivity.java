@@ -13,16 +13,18 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
-import android.widget.Toast;
 
 import com.example.mysoftpos.R;
 import com.example.mysoftpos.data.local.AppDatabase;
-import com.example.mysoftpos.data.local.entity.TransactionEntity;
+import com.example.mysoftpos.data.local.dao.TransactionDao;
+import com.example.mysoftpos.data.local.entity.TransactionHistoryRow;
+import com.example.mysoftpos.di.ServiceLocator;
 import com.example.mysoftpos.testsuite.model.Scheme;
 import com.example.mysoftpos.testsuite.storage.SchemeRepository;
 import com.example.mysoftpos.ui.dashboard.TransactionDetailActivity;
 import com.example.mysoftpos.ui.BaseActivity;
 import com.example.mysoftpos.utils.IntentKeys;
+import com.example.mysoftpos.utils.threading.DispatcherProvider;
 
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
@@ -34,19 +36,34 @@ import java.util.Locale;
 
 /**
  * Shows transaction history for a specific scheme.
- * Transactions are matched by card BIN prefix (from cards table) against
- * scheme.prefix.
+ * Transactions are matched by their denormalized BIN against scheme.prefix in
+ * SQL, and loaded newest-first in keyset pages of {@link #PAGE_SIZE}.
  * Void uses the scheme's own server IP/port.
  */
 public class SchemeHistoryActivity extends BaseActivity {
 
+    /** Rows per keyset page; the next page loads when the list nears its end. */
+    private static final int PAGE_SIZE = 50;
+    private static final int PREFETCH_DISTANCE = 10;
+
     private String schemeName;
-    private String schemePrefix;
-    private final List<TransactionEntity> transactions = new ArrayList<>();
+    private final List<TransactionHistoryRow> transactions = new ArrayList<>();
     private TxnAdapter adapter;
     private TextView tvEmpty, tvCount;
     private SwipeRefreshLayout swipeRefreshLayout;
 
+    private TransactionDao dao;
+    private DispatcherProvider dispatchers;
+    // [binFrom, binTo): every 6-digit BIN that starts with the scheme prefix
+    private String binFrom, binTo;
+
+    // Keyset cursor and paging state (main thread only)
+    private long cursorTimestamp = Long.MAX_VALUE;
+    private long cursorId = Long.MAX_VALUE;
+    private boolean loading;
+    private boolean endReached;
+    private int generation; // bumped on reload so late pages of an old list are dropped
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -61,7 +78,11 @@ public class SchemeHistoryActivity extends BaseActivity {
         // Look up scheme prefix
         SchemeRepository schemeRepo = new SchemeRepository(this);
         Scheme scheme = schemeRepo.getByName(schemeName);
-        schemePrefix = (scheme != null && scheme.getPrefix() != null) ? scheme.getPrefix() : "";
+        String schemePrefix = (scheme != null && scheme.getPrefix() != null) ? scheme.getPrefix() : "";
+        setBinRange(schemePrefix);
+
+        dao = AppDatabase.getInstance(this).transactionDao();
+        dispatchers = ServiceLocator.getInstance(this).getDispatcherProvider();
 
         TextView tvTitle = findViewById(R.id.tvTitle);
         TextView tvSubtitle = findViewById(R.id.tvSubtitle);
@@ -74,88 +95,113 @@ public class SchemeHistoryActivity extends BaseActivity {
         findViewById(R.id.btnBack).setOnClickListener(v -> finish());
 
         RecyclerView rv = findViewById(R.id.rvTransactions);
-        rv.setLayoutManager(new LinearLayoutManager(this));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        rv.setLayoutManager(layoutManager);
         adapter = new TxnAdapter();
         rv.setAdapter(adapter);
+        rv.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0 && layoutManager.findLastVisibleItemPosition()
+                        >= transactions.size() - PREFETCH_DISTANCE) {
+                    loadNextPage();
+                }
+            }
+        });
 
         swipeRefreshLayout = findViewById(R.id.swipeRefreshLayout);
         if (swipeRefreshLayout != null) {
             swipeRefreshLayout.setColorSchemeColors(Color.parseColor("#0A2463")); // neoprimary dark
-            swipeRefreshLayout.setOnRefreshListener(() -> {
-                // In a real app, this might trigger a network fetch for a specific scheme
-                // Here, we just mimic a refresh delay and let the LiveData update it naturally
-                swipeRefreshLayout.postDelayed(() -> {
-                    if (swipeRefreshLayout.isRefreshing()) {
-                        swipeRefreshLayout.setRefreshing(false);
-                        Toast.makeText(SchemeHistoryActivity.this, R.string.history_refreshed, Toast.LENGTH_SHORT)
-                                .show();
-                    }
-                }, 1000);
-            });
+            swipeRefreshLayout.setOnRefreshListener(this::reload);
         }
+    }
 
-        // Observe ALL transactions, filter by BIN prefix in-memory
-        AppDatabase.getInstance(this).transactionDao()
-                .getAllTransactionsLive()
-                .observe(this, allTxns -> {
-                    transactions.clear();
-                    try {
-                        if (allTxns != null && !schemePrefix.isEmpty()) {
-                            for (TransactionEntity t : allTxns) {
-                                // Skip zero-amount (balance inquiry)
-                                if (t.amount == null || "0".equals(t.amount) || "000000000000".equals(t.amount)) {
-                                    continue;
-                                }
-                                // Only show Purchase transactions (DE 3 starts with 00)
-                                if (!isPurchaseTransaction(t)) {
-                                    continue;
-                                }
-                                // Match by extracting PAN from requestHex DE 2
-                                if (matchesScheme(t)) {
-                                    transactions.add(t);
-                                }
-                            }
-                        }
-                    } catch (Exception e) {
-                        android.util.Log.e("SchemeHistory", "Error filtering transactions", e);
-                    }
-                    adapter.notifyDataSetChanged();
-                    tvEmpty.setVisibility(transactions.isEmpty() ? View.VISIBLE : View.GONE);
-                    tvCount.setText(transactions.size() + " transactions");
-                });
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // Statuses may have changed (e.g. a void from the detail screen)
+        if (dao != null) {
+            reload();
+        }
     }
 
-    /** Check if transaction is a Purchase (DE 3 starts with 00) */
-    private boolean isPurchaseTransaction(TransactionEntity txn) {
-        try {
-            if (txn.requestHex == null)
-                return false;
-            com.example.mysoftpos.iso8583.message.IsoMessage req = new com.example.mysoftpos.iso8583.util.StandardIsoPacker()
-                    .unpack(com.example.mysoftpos.iso8583.util.StandardIsoPacker
-                            .hexToBytes(txn.requestHex));
-            if (req.hasField(3)) {
-                return req.getField(3).startsWith("00");
-            }
-        } catch (Exception ignored) {
+    /** Prefix "9704" → ["9704", "9705"). Prefixes longer than a BIN are cut to 6 digits. */
+    private void setBinRange(String prefix) {
+        if (prefix.length() > 6) {
+            prefix = prefix.substring(0, 6);
+        }
+        if (prefix.isEmpty()) {
+            binFrom = binTo = ""; // empty range: no scheme prefix, no history
+            return;
         }
-        return false;
+        char last = prefix.charAt(prefix.length() - 1);
+        binFrom = prefix;
+        binTo = prefix.substring(0, prefix.length() - 1) + (char) (last + 1);
+    }
+
+    private void reload() {
+        generation++;
+        cursorTimestamp = Long.MAX_VALUE;
+        cursorId = Long.MAX_VALUE;
+        endReached = false;
+        loading = false;
+        transactions.clear();
+        adapter.notifyDataSetChanged();
+
+        int gen = generation;
+        String from = binFrom, to = binTo;
+        dispatchers.io().execute(() -> {
+            int total = dao.countPurchasesByBin(from, to);
+            dispatchers.ui().execute(() -> {
+                if (gen == generation) {
+                    tvCount.setText(total + " transactions");
+                }
+            });
+        });
+        loadNextPage();
     }
 
-    /** Check if transaction's PAN starts with scheme prefix */
-    private boolean matchesScheme(TransactionEntity txn) {
-        try {
-            if (txn.requestHex == null)
-                return false;
-            com.example.mysoftpos.iso8583.message.IsoMessage req = new com.example.mysoftpos.iso8583.util.StandardIsoPacker()
-                    .unpack(com.example.mysoftpos.iso8583.util.StandardIsoPacker
-                            .hexToBytes(txn.requestHex));
-            if (req.hasField(2)) {
-                String pan = req.getField(2);
-                return pan.startsWith(schemePrefix);
+    private void loadNextPage() {
+        if (loading || endReached) {
+            return;
+        }
+        loading = true;
+        int gen = generation;
+        String from = binFrom, to = binTo;
+        long beforeTs = cursorTimestamp, beforeId = cursorId;
+        dispatchers.io().execute(() -> {
+            List<TransactionHistoryRow> page;
+            try {
+                page = dao.getPurchasesByBinPage(from, to, beforeTs, beforeId, PAGE_SIZE);
+            } catch (Exception e) {
+                android.util.Log.e("SchemeHistory", "Error loading history page", e);
+                page = new ArrayList<>();
             }
-        } catch (Exception ignored) {
+            List<TransactionHistoryRow> result = page;
+            dispatchers.ui().execute(() -> onPageLoaded(gen, result));
+        });
+    }
+
+    private void onPageLoaded(int gen, List<TransactionHistoryRow> page) {
+        if (gen != generation) {
+            return;
+        }
+        loading = false;
+        if (page.size() < PAGE_SIZE) {
+            endReached = true;
+        }
+        if (!page.isEmpty()) {
+            TransactionHistoryRow last = page.get(page.size() - 1);
+            cursorTimestamp = last.timestamp;
+            cursorId = last.id;
+            int start = transactions.size();
+            transactions.addAll(page);
+            adapter.notifyItemRangeInserted(start, page.size());
+        }
+        tvEmpty.setVisibility(transactions.isEmpty() ? View.VISIBLE : View.GONE);
+        if (swipeRefreshLayout != null && swipeRefreshLayout.isRefreshing()) {
+            swipeRefreshLayout.setRefreshing(false);
         }
-        return false;
     }
 
     // ── Adapter ──
@@ -182,7 +228,7 @@ public class SchemeHistoryActivity extends BaseActivity {
 
         @Override
         public void onBindViewHolder(@NonNull VH h, int position) {
-            TransactionEntity txn = transactions.get(position);
+            TransactionHistoryRow txn = transactions.get(position);
 
             h.tvTrace.setText("Trace: " + (txn.traceNumber != null ? txn.traceNumber : "---"));
             h.tvDateTime.setText(dateFmt.format(new Date(txn.timestamp)));
@@ -207,50 +253,18 @@ public class SchemeHistoryActivity extends BaseActivity {
             dot.setColor(color);
             h.statusDot.setBackground(dot);
 
-            // Amount — parse DE 4 from request hex, divide by 100 for VND
-            String amountDisplay = "---";
-            try {
-                if (txn.requestHex != null) {
-                    com.example.mysoftpos.iso8583.message.IsoMessage reqMsg = new com.example.mysoftpos.iso8583.util.StandardIsoPacker()
-                            .unpack(com.example.mysoftpos.iso8583.util.StandardIsoPacker
-                                    .hexToBytes(txn.requestHex));
-                    if (reqMsg.hasField(4)) {
-                        long rawAmt = Long.parseLong(reqMsg.getField(4));
-                        // DE 49 currency: 704=VND (minor=00, divide by 100), 840=USD (keep as cents)
-                        String currency = reqMsg.hasField(49) ? reqMsg.getField(49).trim() : "704";
-                        if ("704".equals(currency)) {
-                            rawAmt = rawAmt / 100;
-                        }
-                        amountDisplay = amountFmt.format(rawAmt) + ("704".equals(currency) ? " VND" : " USD");
-                    }
-                }
-            } catch (Exception e) {
-                // Fallback: try amount field directly
-                try {
-                    long amt = Long.parseLong(txn.amount);
-                    amountDisplay = amountFmt.format(amt) + " VND";
-                } catch (Exception ignored) {
-                }
-            }
-            h.tvAmount.setText(amountDisplay);
+            // Amount — denormalized DE 4 / DE 49 (704=VND: minor=00, divide by 100; 840=USD: keep cents)
+            String currency = txn.currencyCode != null ? txn.currencyCode.trim() : "704";
+            long rawAmt = "704".equals(currency) ? txn.amountValue / 100 : txn.amountValue;
+            h.tvAmount.setText(amountFmt.format(rawAmt) + ("704".equals(currency) ? " VND" : " USD"));
 
-            // Card (masked PAN from request DE 2)
+            // Card (masked PAN stored at insert time)
             String cardText = "---";
-            try {
-                if (txn.requestHex != null) {
-                    com.example.mysoftpos.iso8583.message.IsoMessage req = new com.example.mysoftpos.iso8583.util.StandardIsoPacker()
-                            .unpack(com.example.mysoftpos.iso8583.util.StandardIsoPacker
-                                    .hexToBytes(txn.requestHex));
-                    if (req.hasField(2)) {
-                        String pan = req.getField(2);
-                        if (pan.length() > 8) {
-                            cardText = pan.substring(0, 6) + "****" + pan.substring(pan.length() - 4);
-                        } else {
-                            cardText = pan;
-                        }
-                    }
-                }
-            } catch (Exception ignored) {
+            String masked = txn.panMasked;
+            if (masked != null && masked.length() > 10) {
+                cardText = masked.substring(0, 6) + "****" + masked.substring(masked.length() - 4);
+            } else if (masked != null && !masked.isEmpty()) {
+                cardText = masked;
             }
             h.tvCard.setText(cardText);
 
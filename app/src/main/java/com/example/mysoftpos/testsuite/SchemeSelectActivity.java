@@ -5,6 +5,7 @@ import android.graphics.Color;
 import android.graphics.drawable.GradientDrawable;
 import android.os.Bundle;
 import android.text.Editable;
+import android.text.TextUtils;
 import android.text.TextWatcher;
 import android.view.View;
 import android.widget.EditText;
@@ -19,12 +20,14 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.mysoftpos.R;
+import com.example.mysoftpos.iso8583.spec.IsoSpecEngine;
 import com.example.mysoftpos.testsuite.adapter.SchemeAdapter;
 import com.example.mysoftpos.testsuite.model.Scheme;
 import com.example.mysoftpos.testsuite.storage.SchemeRepository;
 import com.example.mysoftpos.ui.BaseActivity;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
+import com.google.android.material.textfield.TextInputLayout;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -99,6 +102,8 @@ public class SchemeSelectActivity extends BaseActivity implements SchemeAdapter.
         EditText etServerIp = dialogView.findViewById(R.id.etServerIp);
         EditText etServerPort = dialogView.findViewById(R.id.etServerPort);
         EditText etTimeout = dialogView.findViewById(R.id.etTimeout);
+        EditText etSpecId = dialogView.findViewById(R.id.etSpecId);
+        TextInputLayout tilSpecId = dialogView.findViewById(R.id.tilSpecId);
         LinearLayout colorPicker = dialogView.findViewById(R.id.colorPicker);
         MaterialButton btnDelete = dialogView.findViewById(R.id.btnDelete);
         MaterialButton btnTestConn = dialogView.findViewById(R.id.btnTestConnection);
@@ -118,6 +123,8 @@ public class SchemeSelectActivity extends BaseActivity implements SchemeAdapter.
         TextView tvPreviewLetter = dialogView.findViewById(R.id.tvPreviewLetter);
         TextView tvPreviewName = dialogView.findViewById(R.id.tvPreviewName);
 
+        tilSpecId.setHelperText("Available: " + TextUtils.join(", ", IsoSpecEngine.registeredIds()));
+
         tvTitle.setText(isEdit ? "Edit Scheme" : "Add Scheme");
         tvSubtitle.setText(isEdit ? "Modify card network settings" : "Configure a new card network");
 
@@ -173,6 +180,9 @@ public class SchemeSelectActivity extends BaseActivity implements SchemeAdapter.
             if (existing.getTimeout() > 0) {
                 etTimeout.setText(String.valueOf(existing.getTimeout()));
             }
+            if (existing.getSpecId() != null && !existing.getSpecId().isEmpty()) {
+                etSpecId.setText(existing.getSpecId());
+            }
             // Terminal / Merchant
             if (existing.getTerminalId() != null && !existing.getTerminalId().isEmpty())
                 etTerminalId.setText(existing.getTerminalId());
@@ -257,7 +267,7 @@ public class SchemeSelectActivity extends BaseActivity implements SchemeAdapter.
                 String error = validateAndApply(existing, etServerIp, etServerPort, etTimeout,
                         etTerminalId, etMerchantId, etMcc, etPosCondition,
                         etAcquirerId, etCurrencyCode, etCountryCode,
-                        etMerchantName, etMerchantLocation, etMerchantCountry);
+                        etMerchantName, etMerchantLocation, etMerchantCountry, etSpecId);
                 if (error != null) {
                     Toast.makeText(this, error, Toast.LENGTH_SHORT).show();
                     return;
@@ -268,7 +278,7 @@ public class SchemeSelectActivity extends BaseActivity implements SchemeAdapter.
                 String error = validateAndApply(newScheme, etServerIp, etServerPort, etTimeout,
                         etTerminalId, etMerchantId, etMcc, etPosCondition,
                         etAcquirerId, etCurrencyCode, etCountryCode,
-                        etMerchantName, etMerchantLocation, etMerchantCountry);
+                        etMerchantName, etMerchantLocation, etMerchantCountry, etSpecId);
                 if (error != null) {
                     Toast.makeText(this, error, Toast.LENGTH_SHORT).show();
                     return;
@@ -292,7 +302,7 @@ public class SchemeSelectActivity extends BaseActivity implements SchemeAdapter.
             EditText etIp, EditText etPort, EditText etTimeout,
             EditText etTid, EditText etMid, EditText etMcc, EditText etPosCond,
             EditText etAcq, EditText etCurrency, EditText etCountry,
-            EditText etMName, EditText etMLoc, EditText etMCountry) {
+            EditText etMName, EditText etMLoc, EditText etMCountry, EditText etSpecId) {
 
         // ═══ Connection ═══
         String ip = etIp.getText().toString().trim();
@@ -347,6 +357,15 @@ public class SchemeSelectActivity extends BaseActivity implements SchemeAdapter.
             return "Cần nhập Port khi đã nhập IP";
         }
 
+        // ISO spec: must be registered, or the scheme would silently pack with the standard spec
+        String specId = etSpecId.getText().toString().trim();
+        if (!IsoSpecEngine.isRegistered(specId)) {
+            etSpecId.setError("Không có spec này");
+            etSpecId.requestFocus();
+            return "ISO spec không tồn tại: " + specId;
+        }
+        scheme.setSpecId(specId);
+
         // ═══ Terminal / Merchant — auto-format to ISO 8583 ═══
         String tid = etTid.getText().toString().trim().toUpperCase();
         String mid = etMid.getText().toString().trim().toUpperCase();
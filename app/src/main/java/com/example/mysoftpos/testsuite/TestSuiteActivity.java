@@ -1,6 +1,7 @@
 package com.example.mysoftpos.testsuite;
 
-import com.example.mysoftpos.iso8583.spec.NapasFieldSpecConfig;
+import com.example.mysoftpos.iso8583.spec.IsoField;
+import com.example.mysoftpos.iso8583.spec.IsoSpecEngine;
 
 import android.content.Intent;
 import android.os.Bundle;
@@ -822,8 +823,7 @@ public class TestSuiteActivity extends BaseActivity {
 
             // DE 22
             String de22 = etDe22.getText().toString().trim();
-            NapasFieldSpecConfig.FieldSpec de22Spec = NapasFieldSpecConfig.get(22);
-            if (de22Spec != null && de22Spec.pattern != null && !de22Spec.pattern.matcher(de22).matches()) {
+            if (!IsoSpecEngine.standard().isValid(IsoField.POS_ENTRY_MODE_22, de22)) {
                 Toast.makeText(this, "Invalid entry mode: " + de22, Toast.LENGTH_SHORT).show();
                 valid = false;
             }
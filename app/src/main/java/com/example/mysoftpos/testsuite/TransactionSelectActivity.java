@@ -104,6 +104,11 @@ public class TransactionSelectActivity extends BaseActivity {
         });
 
         btnRunSelected.setOnClickListener(v -> runAllSelected());
+        // Long-press: use the selection as the scenario mix of a load test
+        btnRunSelected.setOnLongClickListener(v -> {
+            loadTestSelected();
+            return true;
+        });
 
         // Find subtitle TextViews for badge display
         View purchaseCard = findViewById(R.id.btnPurchase);
@@ -184,4 +189,15 @@ public class TransactionSelectActivity extends BaseActivity {
         i.putExtra(IntentKeys.SCHEME, scheme);
         startActivity(i);
     }
+
+    private void loadTestSelected() {
+        ArrayList<TestScenario> all = new ArrayList<>();
+        all.addAll(purchaseSelected);
+        all.addAll(balanceSelected);
+
+        Intent i = new Intent(this, PerformanceSelectActivity.class);
+        i.putExtra(IntentKeys.SELECTED_SCENARIOS, all);
+        i.putExtra(IntentKeys.SCHEME, scheme);
+        startActivity(i);
+    }
 }
@@ -28,6 +28,9 @@ public class Scheme implements Serializable {
     private String merchantCountry;  // DE 43 - country part (e.g. "VNM")
     private String posConditionCode; // DE 25
 
+    // Wire format (IsoSpecEngine id; empty = standard Napas ASCII)
+    private String specId;
+
     public Scheme() {
         this.id = UUID.randomUUID().toString();
         this.serverIp = "";
@@ -43,6 +46,7 @@ public class Scheme implements Serializable {
         this.merchantLocation = "";
         this.merchantCountry = "";
         this.posConditionCode = "00";
+        this.specId = "";
     }
 
     public Scheme(String name, String prefix, String iconLetter, String color, boolean builtIn) {
@@ -65,6 +69,7 @@ public class Scheme implements Serializable {
         this.merchantLocation = "";
         this.merchantCountry = "";
         this.posConditionCode = "00";
+        this.specId = "";
     }
 
     // ── Identity ──
@@ -173,6 +178,10 @@ public class Scheme implements Serializable {
     public String getPosConditionCode() { return posConditionCode; }
     public void setPosConditionCode(String posConditionCode) { this.posConditionCode = posConditionCode; }
 
+    // ── Wire format ──
+    public String getSpecId() { return specId; }
+    public void setSpecId(String specId) { this.specId = specId; }
+
 
     /** Returns true if this scheme has a valid IP:port configured */
     public boolean hasConnectionConfig() {
@@ -0,0 +1,330 @@
+package com.example.mysoftpos.testsuite.perf;
+
+import com.example.mysoftpos.utils.metrics.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load-test engine: drives a {@link Driver} (normally {@code TransactionExecutor})
+ * according to a {@link LoadProfile} and reports {@link LoadStats} every
+ * {@link LoadProfile#reportIntervalMs} while running.
+ *
+ * Scenarios are taken round-robin from {@code mix}, so each scenario's share of
+ * the load matches its share of the list (repeat an entry to weight it).
+ *
+ * Open-loop latency is measured from the scheduled arrival time, not the actual
+ * send time, so a backed-up host shows up as latency instead of being hidden by
+ * a slower send rate (no coordinated omission).
+ *
+ * With an {@link AsyncDriver} ({@link #async}) no thread waits on a
+ * transaction: in-flight work is bounded by permits and the closed-loop
+ * terminals are timer-driven chains, so hundreds of outstanding requests cost
+ * no threads. A blocking {@link Driver} gets one pooled thread per in-flight
+ * transaction.
+ *
+ * @param <S> scenario type
+ */
+public final class LoadGenerator<S> {
+
+    /** Executes one transaction; returns true if approved, throws on network/parse failure. */
+    public interface Driver<S> {
+        boolean execute(S scenario) throws Exception;
+    }
+
+    /**
+     * Starts one transaction without blocking; the stage completes with true
+     * if approved, or exceptionally on network/parse failure.
+     */
+    public interface AsyncDriver<S> {
+        CompletionStage<Boolean> execute(S scenario) throws Exception;
+    }
+
+    public interface Listener {
+        void onProgress(LoadStats stats);
+
+        void onFinished(LoadStats stats);
+    }
+
+    private final LoadProfile profile;
+    private final List<S> mix;
+    private final AsyncDriver<S> driver;    // null for blocking drivers
+    private final Driver<S> blockingDriver; // null for async drivers
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong issued = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong approved = new AtomicLong();
+    private final AtomicLong declined = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger activeTerminals = new AtomicInteger();
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    private volatile boolean stopped;
+    private volatile long startNanos;
+    private long lastReportNanos;
+    private long lastReportCompleted;
+    private Thread coordinator;
+    private ScheduledExecutorService timers;
+    private ExecutorService blockingWorkers;
+
+    public LoadGenerator(LoadProfile profile, List<S> mix, Driver<S> driver) {
+        this(profile, mix, null, driver);
+    }
+
+    private LoadGenerator(LoadProfile profile, List<S> mix, AsyncDriver<S> driver, Driver<S> blockingDriver) {
+        if (mix == null || mix.isEmpty()) {
+            throw new IllegalArgumentException("Scenario mix is empty");
+        }
+        this.profile = profile;
+        this.mix = new ArrayList<>(mix);
+        this.driver = driver;
+        this.blockingDriver = blockingDriver;
+    }
+
+    /** Generator for a non-blocking driver (normally {@code TransactionExecutor.executeAsync}). */
+    public static <S> LoadGenerator<S> async(LoadProfile profile, List<S> mix, AsyncDriver<S> driver) {
+        if (driver == null) {
+            throw new IllegalArgumentException("Driver is null");
+        }
+        return new LoadGenerator<>(profile, mix, driver, null);
+    }
+
+    /** Starts the run on background threads and returns immediately. */
+    public synchronized void start(Listener listener) {
+        if (coordinator != null) {
+            throw new IllegalStateException("Already started");
+        }
+        coordinator = new Thread(() -> run(listener), "load-coordinator");
+        coordinator.start();
+    }
+
+    /** Stops issuing new transactions; in-flight ones are allowed to finish. */
+    public void stop() {
+        stopped = true;
+        Thread c = coordinator;
+        if (c != null) {
+            LockSupport.unpark(c);
+        }
+    }
+
+    public boolean awaitFinished(long timeoutMs) throws InterruptedException {
+        return done.await(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void run(Listener listener) {
+        startNanos = System.nanoTime();
+        lastReportNanos = startNanos;
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "load-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+        reporter.scheduleAtFixedRate(() -> listener.onProgress(snapshot(false)),
+                profile.reportIntervalMs, profile.reportIntervalMs, TimeUnit.MILLISECONDS);
+        timers = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "load-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        if (blockingDriver != null) {
+            // Bounded by the in-flight permits / terminal count, never by the pool
+            blockingWorkers = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+                    30, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+                        Thread t = new Thread(r, "load-worker");
+                        t.setDaemon(true);
+                        return t;
+                    });
+        }
+        try {
+            if (profile.model == LoadProfile.Model.OPEN) {
+                runOpenLoop();
+            } else {
+                runClosedLoop();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            reporter.shutdownNow();
+            timers.shutdownNow();
+            if (blockingWorkers != null) {
+                blockingWorkers.shutdown();
+            }
+            try {
+                listener.onFinished(snapshot(true));
+            } finally {
+                done.countDown();
+            }
+        }
+    }
+
+    // ── Open loop: fixed arrival schedule, bounded in-flight ──
+
+    private void runOpenLoop() throws InterruptedException {
+        Semaphore permits = new Semaphore(profile.maxConcurrency);
+        for (long k = 0; !stopped; k++) {
+            if (profile.maxTransactions > 0 && k >= profile.maxTransactions) {
+                break;
+            }
+            double at = profile.arrivalTimeSec(k);
+            if (at < 0) {
+                break;
+            }
+            long due = startNanos + (long) (at * 1e9);
+            long wait;
+            while (!stopped && (wait = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (stopped) {
+                break;
+            }
+            if (!permits.tryAcquire()) {
+                dropped.incrementAndGet();
+                continue;
+            }
+            S scenario = mix.get((int) (k % mix.size()));
+            runOne(scenario, due).whenComplete((v, e) -> permits.release());
+        }
+        // Drain: every permit back means nothing is in flight
+        permits.acquire(profile.maxConcurrency);
+    }
+
+    // ── Closed loop: N terminals, send → wait → think → send ──
+
+    private void runClosedLoop() throws InterruptedException {
+        int n = profile.virtualTerminals;
+        AtomicLong ticket = new AtomicLong();
+        CountDownLatch terminalsDone = new CountDownLatch(n);
+        for (int i = 0; i < n; i++) {
+            Terminal t = new Terminal(i, ticket, terminalsDone);
+            timers.schedule(t::begin, profile.terminalStartMs(i), TimeUnit.MILLISECONDS);
+        }
+        terminalsDone.await();
+    }
+
+    /**
+     * One virtual terminal as a chain of timer callbacks: each completion
+     * schedules the next send after the think time, so a waiting terminal
+     * holds no thread.
+     */
+    private final class Terminal {
+        private final AtomicLong ticket;
+        private final CountDownLatch done;
+        private final boolean timed;
+        private final long stopAt;
+
+        Terminal(int index, AtomicLong ticket, CountDownLatch done) {
+            this.ticket = ticket;
+            this.done = done;
+            long stopMs = profile.terminalStopMs(index);
+            this.timed = stopMs != Long.MAX_VALUE;
+            this.stopAt = timed ? startNanos + TimeUnit.MILLISECONDS.toNanos(stopMs) : 0;
+        }
+
+        void begin() {
+            if (stopped) {
+                done.countDown();
+                return;
+            }
+            activeTerminals.incrementAndGet();
+            next();
+        }
+
+        private void next() {
+            if (stopped || (timed && System.nanoTime() - stopAt >= 0)) {
+                end();
+                return;
+            }
+            long k = ticket.getAndIncrement();
+            if (profile.maxTransactions > 0 && k >= profile.maxTransactions) {
+                end();
+                return;
+            }
+            runOne(mix.get((int) (k % mix.size())), System.nanoTime()).whenComplete((v, e) -> {
+                try {
+                    // Always hop through the timer: a driver that completes inline must not recurse
+                    timers.schedule(this::next, Math.max(0, profile.thinkTimeMs), TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException stoppedAlready) {
+                    end();
+                }
+            });
+        }
+
+        private void end() {
+            activeTerminals.decrementAndGet();
+            done.countDown();
+        }
+    }
+
+    private CompletableFuture<Void> runOne(S scenario, long intendedStartNanos) {
+        issued.incrementAndGet();
+        inFlight.incrementAndGet();
+        CompletionStage<Boolean> stage;
+        try {
+            stage = blockingDriver != null
+                    ? CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return blockingDriver.execute(scenario);
+                        } catch (Exception e) {
+                            throw new CompletionException(e);
+                        }
+                    }, blockingWorkers)
+                    : driver.execute(scenario);
+        } catch (Exception e) {
+            CompletableFuture<Boolean> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            stage = failed;
+        }
+        return stage.handle((ok, error) -> {
+            if (error != null) {
+                errors.incrementAndGet();
+            } else if (Boolean.TRUE.equals(ok)) {
+                approved.incrementAndGet();
+            } else {
+                declined.incrementAndGet();
+            }
+            latency.recordNanos(System.nanoTime() - intendedStartNanos);
+            inFlight.decrementAndGet();
+            completed.incrementAndGet();
+            return (Void) null;
+        }).toCompletableFuture();
+    }
+
+    /** Current counters; safe to call from any thread while running. */
+    public LoadStats snapshot() {
+        return snapshot(false);
+    }
+
+    private synchronized LoadStats snapshot(boolean finished) {
+        long now = System.nanoTime();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(now - startNanos);
+        long doneCount = completed.get();
+        double intervalSec = (now - lastReportNanos) / 1e9;
+        double currentTps = intervalSec > 0 ? (doneCount - lastReportCompleted) / intervalSec : 0;
+        lastReportNanos = now;
+        lastReportCompleted = doneCount;
+
+        double target = profile.model == LoadProfile.Model.OPEN
+                ? (finished ? 0 : profile.rateAt(elapsedMs))
+                : activeTerminals.get();
+        return new LoadStats(elapsedMs, issued.get(), doneCount, approved.get(), declined.get(),
+                errors.get(), dropped.get(), inFlight.get(), currentTps, target, latency.snapshot(), finished);
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.mysoftpos.testsuite.perf;
+
+/**
+ * Immutable description of a load test: the load model, its target level,
+ * the stop condition and the ramp phases.
+ *
+ * - {@link Model#OPEN}: transactions arrive at {@code targetTps} regardless
+ *   of how fast the host answers (arrival-rate model). Ramps are linear in
+ *   rate, and arrival times follow the integrated rate curve exactly.
+ * - {@link Model#CLOSED}: {@code virtualTerminals} terminals each send, wait
+ *   for the answer, optionally think, and send again. Ramp-up staggers the
+ *   terminal start times; ramp-down staggers their stop times.
+ *
+ * A run ends at {@code durationMs} or after {@code maxTransactions}, whichever
+ * comes first (0 = no limit; at least one must be set). Ramp-down only
+ * applies to duration-bound runs.
+ */
+public final class LoadProfile {
+
+    public enum Model { OPEN, CLOSED }
+
+    public final Model model;
+    public final double targetTps;
+    public final int virtualTerminals;
+    public final int maxConcurrency;
+    public final long durationMs;
+    public final long maxTransactions;
+    public final long rampUpMs;
+    public final long rampDownMs;
+    public final long thinkTimeMs;
+    public final long reportIntervalMs;
+
+    private LoadProfile(Builder b) {
+        this.model = b.model;
+        this.targetTps = b.targetTps;
+        this.virtualTerminals = b.virtualTerminals;
+        this.maxConcurrency = b.maxConcurrency;
+        this.durationMs = b.durationMs;
+        this.maxTransactions = b.maxTransactions;
+        this.rampUpMs = b.rampUpMs;
+        this.rampDownMs = b.durationMs > 0 ? b.rampDownMs : 0;
+        this.thinkTimeMs = b.thinkTimeMs;
+        this.reportIntervalMs = b.reportIntervalMs;
+    }
+
+    /** Target arrival rate (open loop) at {@code elapsedMs} into the run. */
+    public double rateAt(long elapsedMs) {
+        if (durationMs > 0 && elapsedMs >= durationMs) {
+            return 0;
+        }
+        double rate = targetTps;
+        if (rampUpMs > 0 && elapsedMs < rampUpMs) {
+            rate = targetTps * elapsedMs / rampUpMs;
+        }
+        long downStart = durationMs - rampDownMs;
+        if (rampDownMs > 0 && elapsedMs > downStart) {
+            rate = Math.min(rate, targetTps * (durationMs - elapsedMs) / rampDownMs);
+        }
+        return rate;
+    }
+
+    /**
+     * Scheduled time (seconds from start) of the {@code k}-th arrival (k from 0)
+     * in the open-loop model, or -1 if it falls after the end of the run.
+     *
+     * Solves N(t) = k, where N is the integral of {@link #rateAt}: quadratic in
+     * the ramps, linear in the steady phase. The schedule is fixed up front, so
+     * a slow host cannot slow down the offered load.
+     */
+    public double arrivalTimeSec(long k) {
+        double r = targetTps;
+        double up = rampUpMs / 1000.0;
+        double upArrivals = r * up / 2;
+        double t;
+        if (k < upArrivals) {
+            t = Math.sqrt(2 * up * k / r);
+        } else {
+            t = up + (k - upArrivals) / r;
+        }
+        if (durationMs <= 0) {
+            return t;
+        }
+        double end = durationMs / 1000.0;
+        double down = rampDownMs / 1000.0;
+        double downStart = end - down;
+        if (t <= downStart) {
+            return t;
+        }
+        if (down <= 0) {
+            return -1;
+        }
+        // Inside ramp-down: N(s) = N0 + r (s - s² / 2down), s = t - downStart
+        double n0 = upArrivals + (downStart - up) * r;
+        double left = (k - n0) / (r * down / 2);
+        if (left >= 1) {
+            return -1;
+        }
+        return downStart + down * (1 - Math.sqrt(1 - left));
+    }
+
+    /** Start delay of closed-loop terminal {@code i} (0-based). */
+    public long terminalStartMs(int i) {
+        return virtualTerminals > 0 ? rampUpMs * i / virtualTerminals : 0;
+    }
+
+    /** Stop time of closed-loop terminal {@code i}, or {@code Long.MAX_VALUE} without a duration. */
+    public long terminalStopMs(int i) {
+        if (durationMs <= 0) {
+            return Long.MAX_VALUE;
+        }
+        return durationMs - rampDownMs * (virtualTerminals - 1 - i) / Math.max(virtualTerminals, 1);
+    }
+
+    public static Builder openLoop(double targetTps) {
+        return new Builder(Model.OPEN).targetTps(targetTps);
+    }
+
+    public static Builder closedLoop(int virtualTerminals) {
+        return new Builder(Model.CLOSED).virtualTerminals(virtualTerminals);
+    }
+
+    public static class Builder {
+        private final Model model;
+        private double targetTps;
+        private int virtualTerminals;
+        private int maxConcurrency = 64;
+        private long durationMs;
+        private long maxTransactions;
+        private long rampUpMs;
+        private long rampDownMs;
+        private long thinkTimeMs;
+        private long reportIntervalMs = 1000;
+
+        private Builder(Model model) {
+            this.model = model;
+        }
+
+        public Builder targetTps(double tps) {
+            this.targetTps = tps;
+            return this;
+        }
+
+        public Builder virtualTerminals(int n) {
+            this.virtualTerminals = n;
+            return this;
+        }
+
+        /** Open loop: arrivals beyond this many in-flight transactions are dropped and counted. */
+        public Builder maxConcurrency(int n) {
+            this.maxConcurrency = n;
+            return this;
+        }
+
+        public Builder durationMs(long ms) {
+            this.durationMs = ms;
+            return this;
+        }
+
+        public Builder maxTransactions(long n) {
+            this.maxTransactions = n;
+            return this;
+        }
+
+        public Builder rampUpMs(long ms) {
+            this.rampUpMs = ms;
+            return this;
+        }
+
+        public Builder rampDownMs(long ms) {
+            this.rampDownMs = ms;
+            return this;
+        }
+
+        /** Closed loop: pause between a terminal's response and its next request. */
+        public Builder thinkTimeMs(long ms) {
+            this.thinkTimeMs = ms;
+            return this;
+        }
+
+        public Builder reportIntervalMs(long ms) {
+            this.reportIntervalMs = ms;
+            return this;
+        }
+
+        public LoadProfile build() {
+            if (model == Model.OPEN && !(targetTps > 0)) {
+                throw new IllegalArgumentException("targetTps must be > 0");
+            }
+            if (model == Model.OPEN && maxConcurrency <= 0) {
+                throw new IllegalArgumentException("maxConcurrency must be > 0");
+            }
+            if (model == Model.CLOSED && virtualTerminals <= 0) {
+                throw new IllegalArgumentException("virtualTerminals must be > 0");
+            }
+            if (durationMs <= 0 && maxTransactions <= 0) {
+                throw new IllegalArgumentException("Set a duration or a transaction count");
+            }
+            if (rampUpMs < 0 || rampDownMs < 0 || thinkTimeMs < 0 || reportIntervalMs <= 0) {
+                throw new IllegalArgumentException("Negative ramp/think time or non-positive report interval");
+            }
+            if (durationMs > 0 && rampUpMs + rampDownMs > durationMs) {
+                throw new IllegalArgumentException("Ramp-up + ramp-down exceed the duration");
+            }
+            return new LoadProfile(this);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.mysoftpos.testsuite.perf;
+
+import com.example.mysoftpos.utils.metrics.LatencyHistogram;
+
+import java.util.Locale;
+
+/** Point-in-time snapshot of a load run, delivered to {@link LoadGenerator.Listener}. */
+public final class LoadStats {
+
+    public final long elapsedMs;
+    /** Transactions started. */
+    public final long issued;
+    public final long completed;
+    public final long approved;
+    public final long declined;
+    /** Network/parse failures (no response code). */
+    public final long errors;
+    /** Open loop: arrivals skipped because {@code maxConcurrency} was reached. */
+    public final long dropped;
+    public final int inFlight;
+    /** Completions per second since the previous snapshot. */
+    public final double currentTps;
+    /** Completions per second since the start. */
+    public final double averageTps;
+    /** Open loop: offered rate now; closed loop: active terminals. */
+    public final double targetLevel;
+    public final double p50Ms;
+    public final double p95Ms;
+    public final double p99Ms;
+    public final double maxMs;
+    public final boolean finished;
+
+    LoadStats(long elapsedMs, long issued, long completed, long approved, long declined, long errors,
+            long dropped, int inFlight, double currentTps, double targetLevel, LatencyHistogram.Snapshot latency,
+            boolean finished) {
+        this.elapsedMs = elapsedMs;
+        this.issued = issued;
+        this.completed = completed;
+        this.approved = approved;
+        this.declined = declined;
+        this.errors = errors;
+        this.dropped = dropped;
+        this.inFlight = inFlight;
+        this.currentTps = currentTps;
+        this.averageTps = elapsedMs > 0 ? completed * 1000.0 / elapsedMs : 0;
+        this.targetLevel = targetLevel;
+        this.p50Ms = latency.percentileMs(50);
+        this.p95Ms = latency.percentileMs(95);
+        this.p99Ms = latency.percentileMs(99);
+        this.maxMs = latency.maxMs();
+        this.finished = finished;
+    }
+
+    /** One-line summary for the runner log. */
+    public String format() {
+        return String.format(Locale.US,
+                "t=%5.1fs sent=%d done=%d ok=%d dec=%d err=%d drop=%d inflight=%d | %.1f tps (avg %.1f, target %.1f)"
+                        + " | p50=%.0fms p95=%.0fms p99=%.0fms max=%.0fms",
+                elapsedMs / 1000.0, issued, completed, approved, declined, errors, dropped, inFlight,
+                currentTps, averageTps, targetLevel, p50Ms, p95Ms, p99Ms, maxMs);
+    }
+}
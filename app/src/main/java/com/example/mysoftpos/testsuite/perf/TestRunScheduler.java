@@ -0,0 +1,342 @@
+package com.example.mysoftpos.testsuite.perf;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Shared executor for test-suite runs (batch and multi-thread runners).
+ *
+ * - At most {@code maxConcurrency} transactions run at once, on a fixed set of
+ *   worker threads (no thread per transaction).
+ * - At most {@code maxPerHost} of them target the same host:port. Hosts at
+ *   their limit are skipped, so other hosts' work is not held up behind them.
+ * - At most {@code queueCapacity} tasks wait to run. {@link Run#submit} blocks
+ *   the producer when the queue is full (back-pressure), so a 1,000-case batch
+ *   never holds more than a queue's worth of pre-built requests.
+ * - {@link Run#cancel()} drops a run's queued tasks. Tasks already on the
+ *   wire are allowed to finish (blocking socket I/O is not interruptible).
+ * - {@link Run#submitAsync} tasks hold their slot until the returned future
+ *   completes, not while a worker thread waits: the worker only starts the
+ *   request and moves on, so the limits count requests on the wire.
+ *
+ * Hosts are served round-robin, and each run is a separate {@link Run} so one
+ * screen can cancel its work without touching another's.
+ */
+public final class TestRunScheduler {
+
+    public static final int DEFAULT_MAX_CONCURRENCY = 16;
+    public static final int DEFAULT_MAX_PER_HOST = 8;
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    private final int maxConcurrency;
+    private final int maxPerHost;
+    private final int queueCapacity;
+    private final ThreadPoolExecutor workers;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    // Guarded by lock. Insertion order = round-robin order; a served host moves to the back.
+    private final Map<String, HostQueue> hosts = new LinkedHashMap<>();
+    private int running;
+    private int queued;
+
+    public TestRunScheduler(int maxConcurrency, int maxPerHost, int queueCapacity) {
+        if (maxConcurrency <= 0 || maxPerHost <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Scheduler limits must be > 0");
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.maxPerHost = maxPerHost;
+        this.queueCapacity = queueCapacity;
+        AtomicInteger n = new AtomicInteger();
+        // dispatch() never hands over more than maxConcurrency tasks, so the
+        // pool's own queue stays empty in practice
+        this.workers = new ThreadPoolExecutor(maxConcurrency, maxConcurrency,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "test-run-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.workers.allowCoreThreadTimeOut(true);
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public int getMaxPerHost() {
+        return maxPerHost;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /** Starts a new, independently cancellable group of tasks. */
+    public Run newRun() {
+        return new Run();
+    }
+
+    /** Transactions currently executing, across all runs. */
+    public int getRunningCount() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Tasks waiting for a worker, across all runs. */
+    public int getQueuedCount() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Hands queued tasks to workers while both limits allow. Caller holds lock. */
+    private void dispatch() {
+        while (running < maxConcurrency && queued > 0) {
+            Task next = null;
+            Iterator<Map.Entry<String, HostQueue>> it = hosts.entrySet().iterator();
+            HostQueue served = null;
+            while (it.hasNext()) {
+                HostQueue hq = it.next().getValue();
+                if (hq.inFlight < maxPerHost && !hq.pending.isEmpty()) {
+                    next = hq.pending.poll();
+                    served = hq;
+                    it.remove();
+                    break;
+                }
+            }
+            if (next == null) {
+                return; // every host with work is at its limit
+            }
+            hosts.put(served.key, served);
+            served.inFlight++;
+            running++;
+            queued--;
+            notFull.signalAll();
+            final Task task = next;
+            final HostQueue host = served;
+            workers.execute(() -> execute(task, host));
+        }
+    }
+
+    private void execute(Task task, HostQueue host) {
+        if (task.async == null) {
+            try {
+                task.body.run();
+            } finally {
+                release(task, host);
+            }
+            return;
+        }
+        CompletionStage<?> pending = null;
+        try {
+            pending = task.async.get();
+        } finally {
+            if (pending == null) {
+                release(task, host);
+            } else {
+                pending.whenComplete((result, error) -> release(task, host));
+            }
+        }
+    }
+
+    private void release(Task task, HostQueue host) {
+        lock.lock();
+        try {
+            host.inFlight--;
+            running--;
+            if (host.inFlight == 0 && host.pending.isEmpty()) {
+                hosts.remove(host.key);
+            }
+            task.run.finished(false);
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class HostQueue {
+        final String key;
+        final ArrayDeque<Task> pending = new ArrayDeque<>();
+        int inFlight;
+
+        HostQueue(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final class Task {
+        final Run run;
+        final Runnable body;
+        final Supplier<? extends CompletionStage<?>> async;
+
+        Task(Run run, Runnable body, Supplier<? extends CompletionStage<?>> async) {
+            this.run = run;
+            this.body = body;
+            this.async = async;
+        }
+    }
+
+    /** One screen's worth of work: submit, await and cancel together. */
+    public final class Run {
+
+        private final Condition idle = lock.newCondition();
+        // Guarded by lock
+        private int outstanding;
+        private int cancelledCount;
+        private boolean cancelled;
+
+        private Run() {
+        }
+
+        /**
+         * Queues {@code task} against {@code host} ("ip:port"), blocking while
+         * the scheduler's queue is full.
+         *
+         * @return false if the run was cancelled before the task was queued
+         */
+        public boolean submit(String host, Runnable task) throws InterruptedException {
+            return enqueue(host, task, null);
+        }
+
+        /**
+         * Like {@link #submit}, for a non-blocking task: {@code task} starts the
+         * request on a worker and returns its future, and the slot is held until
+         * that future completes. A null future releases the slot at once.
+         *
+         * @return false if the run was cancelled before the task was queued
+         */
+        public boolean submitAsync(String host, Supplier<? extends CompletionStage<?>> task)
+                throws InterruptedException {
+            return enqueue(host, null, task);
+        }
+
+        private boolean enqueue(String host, Runnable body, Supplier<? extends CompletionStage<?>> async)
+                throws InterruptedException {
+            String key = host != null ? host : "";
+            lock.lockInterruptibly();
+            try {
+                while (queued >= queueCapacity && !cancelled) {
+                    notFull.await();
+                }
+                if (cancelled) {
+                    return false;
+                }
+                HostQueue hq = hosts.get(key);
+                if (hq == null) {
+                    hq = new HostQueue(key);
+                    hosts.put(key, hq);
+                }
+                hq.pending.add(new Task(this, body, async));
+                queued++;
+                outstanding++;
+                dispatch();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Drops this run's queued tasks and rejects further submits. Running
+         * tasks complete normally.
+         *
+         * @return number of queued tasks dropped
+         */
+        public int cancel() {
+            lock.lock();
+            try {
+                cancelled = true;
+                int dropped = 0;
+                Iterator<HostQueue> hostIt = hosts.values().iterator();
+                while (hostIt.hasNext()) {
+                    HostQueue hq = hostIt.next();
+                    Iterator<Task> it = hq.pending.iterator();
+                    while (it.hasNext()) {
+                        if (it.next().run == this) {
+                            it.remove();
+                            dropped++;
+                        }
+                    }
+                    if (hq.inFlight == 0 && hq.pending.isEmpty()) {
+                        hostIt.remove();
+                    }
+                }
+                queued -= dropped;
+                for (int i = 0; i < dropped; i++) {
+                    finished(true);
+                }
+                notFull.signalAll();
+                return dropped;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean isCancelled() {
+            lock.lock();
+            try {
+                return cancelled;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** Tasks dropped by {@link #cancel()}. */
+        public int getCancelledCount() {
+            lock.lock();
+            try {
+                return cancelledCount;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Waits until every submitted task has run or been cancelled.
+         *
+         * @return false on timeout
+         */
+        public boolean await(long timeoutMs) throws InterruptedException {
+            long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            lock.lock();
+            try {
+                while (outstanding > 0) {
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    remaining = idle.awaitNanos(remaining);
+                }
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** Caller holds lock. */
+        private void finished(boolean wasCancelled) {
+            if (wasCancelled) {
+                cancelledCount++;
+            }
+            if (--outstanding == 0) {
+                idle.signalAll();
+            }
+        }
+    }
+}
@@ -285,6 +285,8 @@ public class SchemeRepository {
             obj.put("merchantLocation", s.getMerchantLocation());
             obj.put("merchantCountry", s.getMerchantCountry());
             obj.put("posConditionCode", s.getPosConditionCode());
+            // Wire format
+            obj.put("specId", s.getSpecId());
         } catch (JSONException e) {
             Log.e(TAG, "Error serializing scheme: " + e.getMessage());
         }
@@ -314,6 +316,8 @@ public class SchemeRepository {
         s.setMerchantLocation(obj.optString("merchantLocation", ""));
         s.setMerchantCountry(obj.optString("merchantCountry", ""));
         s.setPosConditionCode(obj.optString("posConditionCode", "00"));
+        // Wire format
+        s.setSpecId(obj.optString("specId", ""));
         return s;
     }
 
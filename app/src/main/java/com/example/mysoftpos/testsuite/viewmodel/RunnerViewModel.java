@@ -13,6 +13,7 @@ import com.example.mysoftpos.domain.service.TransactionResult;
 import com.example.mysoftpos.iso8583.TransactionContext;
 import com.example.mysoftpos.iso8583.builder.Iso8583Builder;
 import com.example.mysoftpos.iso8583.message.IsoMessage;
+import com.example.mysoftpos.iso8583.spec.IsoSpecEngine;
 import com.example.mysoftpos.iso8583.util.StandardIsoPacker;
 import com.example.mysoftpos.utils.PanUtils;
 import com.example.mysoftpos.utils.logging.ResponseCodeHelper;
@@ -76,7 +77,7 @@ public class RunnerViewModel extends AndroidViewModel {
                 sb.append("Server: ").append(ctx.ip).append(":").append(ctx.port).append("\n");
                 sb.append(StandardIsoPacker.logIsoMessage(msg));
 
-                byte[] packed = StandardIsoPacker.pack(msg);
+                byte[] packed = StandardIsoPacker.pack(msg, IsoSpecEngine.forId(ctx.specId));
                 String reqHex = StandardIsoPacker.bytesToHex(packed);
                 sb.append("\nPacked Hex (").append(reqHex.length() / 2).append(" bytes):\n");
                 sb.append(reqHex).append("\n");
@@ -169,6 +170,10 @@ public class RunnerViewModel extends AndroidViewModel {
                 ctx.port = scheme.getServerPort();
             }
 
+            // Wire format
+            ctx.specId = scheme.getSpecId();
+            ctx.scheme = scheme.getName();
+
             // Terminal / Merchant — override only if configured in scheme
             String tid = scheme.getTerminalId();
             if (tid != null && !tid.isEmpty()) ctx.terminalId41 = tid;
@@ -222,11 +227,12 @@ public class RunnerViewModel extends AndroidViewModel {
                     .setUsername("TEST_SUITE_USER")
                     .setProcessingCode(ctx.processingCode3)
                     .setCurrencyCode(ctx.currency49)
+                    .setSpecId(IsoSpecEngine.forId(ctx.specId).getId())
                     .build();
             repository.saveTransaction(record);
 
-            // Sync to backend via WorkManager
-            com.example.mysoftpos.data.remote.SyncWorker.enqueueOneTime(getApplication());
+            // Debounced backend sync (one unique WorkManager job per window)
+            com.example.mysoftpos.data.remote.SyncScheduler.getInstance(getApplication()).notifyTransaction();
 
             logMessage.postValue("Transaction saved to History (Trace: " + ctx.stan11 + ")");
         } catch (Exception e) {
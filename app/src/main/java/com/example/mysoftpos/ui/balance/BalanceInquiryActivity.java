@@ -28,6 +28,11 @@ public class BalanceInquiryActivity extends BaseCardEntryActivity {
         return R.id.btnSubmit;
     }
 
+    @Override
+    protected void onCardTapped() {
+        viewModel.prepareTransaction("0", "704", TxnType.BALANCE_INQUIRY);
+    }
+
     @Override
     protected void onCardDataReady(CardInputData card) {
         String username = getIntent().getStringExtra(com.example.mysoftpos.utils.IntentKeys.USERNAME);
@@ -19,6 +19,7 @@ import com.example.mysoftpos.R;
 import com.example.mysoftpos.di.ServiceLocator;
 import com.example.mysoftpos.domain.model.CardInputData;
 import com.example.mysoftpos.domain.usecase.ReadCardDataUseCase;
+import com.example.mysoftpos.nfc.AidSelector;
 import com.example.mysoftpos.nfc.IsoDepTransceiver;
 import com.example.mysoftpos.nfc.NfcStateManager;
 import com.example.mysoftpos.ui.BaseActivity;
@@ -39,6 +40,8 @@ import com.google.android.material.tabs.TabLayout;
  * - {@link #onTransactionResult(boolean, String, String, String)} — handle
  * result
  * - {@link #onCreateExtra(Bundle)} — additional onCreate setup (optional)
+ * - {@link #onCardTapped()} — start transaction work while the card is read
+ * (optional)
  */
 public abstract class BaseCardEntryActivity extends BaseActivity implements NfcAdapter.ReaderCallback {
 
@@ -85,6 +88,14 @@ public abstract class BaseCardEntryActivity extends BaseActivity implements NfcA
 
     protected abstract void onTransactionResult(boolean success, String message, String isoResponse, String isoRequest);
 
+    /**
+     * Called on the NFC thread when a card is tapped, before it is read.
+     * Subclasses start the pipelined transaction here
+     * ({@link PurchaseViewModel#prepareTransaction}).
+     */
+    protected void onCardTapped() {
+    }
+
     /** Override for additional onCreate logic. Called after base setup. */
     protected void onCreateExtra(Bundle savedInstanceState) {
     }
@@ -265,18 +276,29 @@ public abstract class BaseCardEntryActivity extends BaseActivity implements NfcA
             return;
         }
 
+        // Connect and pre-build the request while the card is being read
+        try {
+            onCardTapped();
+        } catch (Exception e) {
+            // Not fatal: processTransaction builds everything after the read instead
+            Log.w(TAG, "Transaction pre-build failed", e);
+        }
+
+        AidSelector aidSelector = ServiceLocator.getInstance(this).getAidSelector();
+
         // Use managed IO thread pool instead of raw new Thread() (M-3)
         com.example.mysoftpos.di.ServiceLocator.getInstance(this)
                 .getDispatcherProvider().io().execute(() -> {
                     CardInputData cardData = null;
                     try {
                         transceiver.connect();
-                        ReadCardDataUseCase useCase = new ReadCardDataUseCase(transceiver);
+                        ReadCardDataUseCase useCase = new ReadCardDataUseCase(transceiver, aidSelector);
                         cardData = useCase.execute();
                         lastNfcPan = cardData.getPan();
                     } catch (Throwable e) {
                         // Catch Throwable, not just Exception — prevents app crash
                         Log.e(TAG, "NFC read failed", e);
+                        viewModel.cancelPreparedTransaction();
                         final String errMsg = e.getMessage() != null ? e.getMessage() : "Lỗi đọc thẻ";
                         runOnUiThread(() -> {
                             if (isDestroyed() || isFinishing())
@@ -17,7 +17,7 @@ import android.widget.Toast;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 import com.example.mysoftpos.data.local.AppDatabase;
-import com.example.mysoftpos.data.local.entity.TransactionEntity;
+import com.example.mysoftpos.data.local.entity.TransactionHistoryRow;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -53,6 +53,10 @@ public class MainDashboardActivity extends BaseActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main_dashboard);
 
+        // Rows saved before the denormalized columns existed are filled once in
+        // the background (no-op once complete), so the lists below never unpack hex
+        com.example.mysoftpos.data.local.TransactionBackfillWorker.enqueueIfNeeded(getApplicationContext());
+
         // Get user info
         String userRoleArg = getIntent().getStringExtra(com.example.mysoftpos.utils.IntentKeys.USER_ROLE);
         String usernameArg = getIntent().getStringExtra(com.example.mysoftpos.utils.IntentKeys.USERNAME);
@@ -250,7 +254,8 @@ public class MainDashboardActivity extends BaseActivity {
         if (userId <= 0)
             return;
 
-        db.transactionDao().getTransactionsByUserIdLive(userId).observe(
+        // Purchase/amount filter, slim projection and LIMIT all run in SQL
+        db.transactionDao().getRecentPurchasesLive(userId, HISTORY_EXPANDED_LIMIT).observe(
                 this, this::updateHistoryList);
     }
 
@@ -280,45 +285,14 @@ public class MainDashboardActivity extends BaseActivity {
 
     // --- History Logic Refactored for Expansion --- //
     private boolean isHistoryExpanded = false;
-    private List<TransactionEntity> currentTransactions;
-
-    private void updateHistoryList(List<TransactionEntity> transactions) {
-        // Filter: Show only Purchases using the denormalized processing_code column.
-        // No ISO hex unpacking needed — zero CPU overhead per row.
-        java.util.List<TransactionEntity> filtered = new java.util.ArrayList<>();
-        if (transactions != null) {
-            for (TransactionEntity t : transactions) {
-                if (t.amount != null && !t.amount.equals("0") && isPurchaseTransaction(t)) {
-                    filtered.add(t);
-                }
-            }
-        }
-        currentTransactions = filtered;
-        renderHistoryList();
-    }
+    private List<TransactionHistoryRow> currentTransactions;
 
-    /**
-     * Check if transaction is a Purchase using the denormalized processing_code
-     * column.
-     * Falls back to hex unpacking only for legacy rows that were saved before
-     * migration 18.
-     */
-    private boolean isPurchaseTransaction(TransactionEntity txn) {
-        // Fast path: use denormalized column (migration 17→18)
-        if (txn.processingCode != null) {
-            return txn.processingCode.startsWith("00");
-        }
-        // Legacy fallback: unpack hex for rows created before the migration
-        try {
-            if (txn.requestHex == null)
-                return false;
-            com.example.mysoftpos.iso8583.message.IsoMessage req = new com.example.mysoftpos.iso8583.util.StandardIsoPacker()
-                    .unpack(com.example.mysoftpos.iso8583.util.StandardIsoPacker
-                            .hexToBytes(txn.requestHex));
-            return req.hasField(3) && req.getField(3).startsWith("00");
-        } catch (Exception ignored) {
-        }
-        return false;
+    /** Rows shown once "see more" is tapped; also the query LIMIT. */
+    private static final int HISTORY_EXPANDED_LIMIT = 50;
+
+    private void updateHistoryList(List<TransactionHistoryRow> transactions) {
+        currentTransactions = transactions;
+        renderHistoryList();
     }
 
     private void renderHistoryList() {
@@ -335,14 +309,14 @@ public class MainDashboardActivity extends BaseActivity {
         }
 
         // Limit items based on expansion state (1 vs 50)
-        int limit = isHistoryExpanded ? 50 : 1;
+        int limit = isHistoryExpanded ? HISTORY_EXPANDED_LIMIT : 1;
 
         int count = 0;
         java.text.DecimalFormatSymbols symbols = new java.text.DecimalFormatSymbols(Locale.getDefault());
         symbols.setGroupingSeparator(',');
         java.text.DecimalFormat currencyFmt = new java.text.DecimalFormat("#,###", symbols);
 
-        for (TransactionEntity txn : currentTransactions) {
+        for (TransactionHistoryRow txn : currentTransactions) {
             if (count >= limit)
                 break;
 
@@ -428,23 +402,7 @@ public class MainDashboardActivity extends BaseActivity {
             tvAmount.setGravity(Gravity.END);
 
             // RRN — read from denormalized column (no hex unpacking!)
-            // Legacy fallback for rows created before migration 18
-            String rrn = "";
-            if (txn.rrn != null && !txn.rrn.isEmpty()) {
-                rrn = txn.rrn;
-            } else {
-                try {
-                    if (txn.responseHex != null) {
-                        com.example.mysoftpos.iso8583.message.IsoMessage resp = new com.example.mysoftpos.iso8583.util.StandardIsoPacker()
-                                .unpack(com.example.mysoftpos.iso8583.util.StandardIsoPacker
-                                        .hexToBytes(txn.responseHex));
-                        if (resp.hasField(37)) {
-                            rrn = resp.getField(37).trim();
-                        }
-                    }
-                } catch (Exception ignored) {
-                }
-            }
+            String rrn = txn.rrn != null ? txn.rrn.trim() : "";
 
             // RRN display (no label prefix)
             TextView tvRrn = new TextView(this);
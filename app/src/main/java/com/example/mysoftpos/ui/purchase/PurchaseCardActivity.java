@@ -61,6 +61,11 @@ public class PurchaseCardActivity extends BaseCardEntryActivity {
         }
     }
 
+    @Override
+    protected void onCardTapped() {
+        viewModel.prepareTransaction(amount, currencyCode, txnType);
+    }
+
     @Override
     protected void onCardDataReady(CardInputData card) {
         String username = getIntent().getStringExtra(com.example.mysoftpos.utils.IntentKeys.USERNAME);
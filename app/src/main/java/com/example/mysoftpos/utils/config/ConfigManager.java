@@ -5,6 +5,8 @@ import android.content.SharedPreferences;
 import android.util.Log;
 
 import org.json.JSONObject;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Locale;
@@ -25,15 +27,27 @@ public class ConfigManager {
     private static final String KEY_TID = "terminal_id";
     private static final String KEY_MID = "merchant_id";
     private static final String KEY_ENCRYPT_PIN = "encrypt_pin";
+    private static final String KEY_PERSISTENT_CONN = "persistent_connection";
+    private static final String KEY_PIPELINED_TXN = "pipelined_transaction";
+    private static final String KEY_RUNNER_CONCURRENCY = "runner_max_concurrency";
+    private static final String KEY_RUNNER_PER_HOST = "runner_max_per_host";
 
     private static final int DEFAULT_TRACE_START = 111300;
+    private static final String STAN_FILE = "stan.block";
 
     private final SharedPreferences prefs;
+    private final File filesDir;
+    private final Object stanLock = new Object();
+    /** Opened on the first STAN request; null until then, or for good if opening failed. */
+    private volatile StanAllocator stanAllocator;
+    private volatile boolean stanFallback;
     private static ConfigManager instance;
 
     // Cached values from JSON
     private String serverIp, serverId;
     private int serverPort, timeoutMs;
+    private boolean persistentConnection, pipelinedTransaction;
+    private int runnerConcurrency, runnerPerHost, runnerQueueCapacity;
     private String terminalId, merchantId, merchantType;
     private String bankName, location, countryCode;
     private String acquirerId, forwardingInst, currencyCode, posConditionCode;
@@ -43,9 +57,49 @@ public class ConfigManager {
 
     private ConfigManager(Context context) {
         this.prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        this.filesDir = context.getFilesDir();
         loadConfig(context);
     }
 
+    /**
+     * Resumes from the reservation file, or from the legacy prefs counter on
+     * first run. Opening fsyncs the file, so it is deferred to the first STAN
+     * request (a background thread in practice, see {@link #preloadStanAllocator()}).
+     * If the file cannot be opened, STANs keep coming from the legacy prefs
+     * counter for the rest of the process; the allocator writes each reserved
+     * ceiling back to that counter, so it resumes above every STAN issued.
+     */
+    private StanAllocator stanAllocator() {
+        StanAllocator allocator = stanAllocator;
+        if (allocator != null || stanFallback) {
+            return allocator;
+        }
+        synchronized (stanLock) {
+            if (stanAllocator == null && !stanFallback) {
+                int legacyNext = prefs.getInt(KEY_TRACE, DEFAULT_TRACE_START);
+                if (legacyNext < DEFAULT_TRACE_START)
+                    legacyNext = DEFAULT_TRACE_START;
+                try {
+                    StanAllocator opened = new StanAllocator(new File(filesDir, STAN_FILE),
+                            StanAllocator.DEFAULT_BLOCK_SIZE, legacyNext);
+                    // Keep the prefs counter above every issued STAN, so the
+                    // fallback below never reissues one (once per block)
+                    opened.setReservationListener(next -> prefs.edit().putInt(KEY_TRACE, next).commit());
+                    stanAllocator = opened;
+                } catch (IOException | RuntimeException e) {
+                    Log.e(TAG, "Cannot open STAN reservation file, using prefs counter", e);
+                    stanFallback = true;
+                }
+            }
+            return stanAllocator;
+        }
+    }
+
+    /** Opens the STAN allocator now; call off the main thread to keep the fsync off it. */
+    public void preloadStanAllocator() {
+        stanAllocator();
+    }
+
     public static synchronized ConfigManager getInstance(Context context) {
         if (instance == null) {
             instance = new ConfigManager(context.getApplicationContext());
@@ -66,8 +120,16 @@ public class ConfigManager {
                 serverPort = server.optInt("port", 8583);
                 timeoutMs = server.optInt("timeout_ms", 30000);
                 serverId = server.optString("server_id", "01");
+                persistentConnection = server.optBoolean("persistent_connection", false);
+                pipelinedTransaction = server.optBoolean("pipelined_transaction", true);
             }
 
+            // Test-suite runner limits
+            JSONObject runner = config.optJSONObject("test_runner");
+            runnerConcurrency = runner != null ? runner.optInt("max_concurrency", 16) : 16;
+            runnerPerHost = runner != null ? runner.optInt("max_per_host", 8) : 8;
+            runnerQueueCapacity = runner != null ? runner.optInt("queue_capacity", 64) : 64;
+
             // Terminal
             JSONObject terminal = config.optJSONObject("terminal");
             if (terminal != null) {
@@ -131,6 +193,11 @@ public class ConfigManager {
         serverPort = 8583;
         timeoutMs = 30000;
         serverId = "01";
+        persistentConnection = false;
+        pipelinedTransaction = true;
+        runnerConcurrency = 16;
+        runnerPerHost = 8;
+        runnerQueueCapacity = 64;
         terminalId = "AUTO0001";
         merchantId = "MYSOFTPOSSHOP01";
         merchantType = "5411";
@@ -152,7 +219,18 @@ public class ConfigManager {
     }
 
     // ==================== TRACE NUMBER ====================
-    public synchronized String getAndIncrementTrace() {
+    /**
+     * Next STAN (DE 11). Lock-free once the allocator is open; safe to call
+     * from many runner threads. Wraps 999999 → 000001 and never reuses a value
+     * across a crash.
+     */
+    public String getAndIncrementTrace() {
+        StanAllocator allocator = stanAllocator();
+        return allocator != null ? allocator.next() : nextLegacyTrace();
+    }
+
+    /** Pre-allocator counter in SharedPreferences; only used when the reservation file cannot be opened. */
+    private synchronized String nextLegacyTrace() {
         int trace = prefs.getInt(KEY_TRACE, DEFAULT_TRACE_START);
         if (trace < DEFAULT_TRACE_START)
             trace = DEFAULT_TRACE_START;
@@ -220,6 +298,48 @@ public class ConfigManager {
         return serverId;
     }
 
+    /** Keep pooled, multiplexed sockets to the host instead of one socket per transaction. */
+    public boolean isPersistentConnectionEnabled() {
+        return prefs.getBoolean(KEY_PERSISTENT_CONN, persistentConnection);
+    }
+
+    public void setPersistentConnectionEnabled(boolean enabled) {
+        prefs.edit().putBoolean(KEY_PERSISTENT_CONN, enabled).apply();
+    }
+
+    /** Connect and pre-build the request while the card is still being read. */
+    public boolean isPipelinedTransactionEnabled() {
+        return prefs.getBoolean(KEY_PIPELINED_TXN, pipelinedTransaction);
+    }
+
+    public void setPipelinedTransactionEnabled(boolean enabled) {
+        prefs.edit().putBoolean(KEY_PIPELINED_TXN, enabled).apply();
+    }
+
+    // ==================== TEST RUNNER ====================
+    /** Max transactions in flight at once for batch / multi-thread runs. */
+    public int getRunnerMaxConcurrency() {
+        return prefs.getInt(KEY_RUNNER_CONCURRENCY, runnerConcurrency);
+    }
+
+    public void setRunnerMaxConcurrency(int n) {
+        prefs.edit().putInt(KEY_RUNNER_CONCURRENCY, n).apply();
+    }
+
+    /** Max transactions in flight to a single host:port. */
+    public int getRunnerMaxPerHost() {
+        return prefs.getInt(KEY_RUNNER_PER_HOST, runnerPerHost);
+    }
+
+    public void setRunnerMaxPerHost(int n) {
+        prefs.edit().putInt(KEY_RUNNER_PER_HOST, n).apply();
+    }
+
+    /** Pre-built transactions allowed to wait for a slot before the producer blocks. */
+    public int getRunnerQueueCapacity() {
+        return runnerQueueCapacity;
+    }
+
     // ==================== TERMINAL ====================
     public String getTerminalId() {
         return prefs.getString(KEY_TID, terminalId);
@@ -0,0 +1,161 @@
+package com.example.mysoftpos.utils.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Lock-free, crash-safe STAN (DE 11) allocator.
+ *
+ * STANs are drawn from a monotonically increasing sequence held in an
+ * {@link AtomicLong}; the 6-digit value is {@code (seq - 1) % 999999 + 1}, so
+ * the 999999 → 000001 wrap needs no extra coordination. The hot path is a
+ * single {@code incrementAndGet}.
+ *
+ * Durability is by block reservation: before any STAN of a block is handed
+ * out, the block's ceiling is written and fsync'd to a small file. After a
+ * crash the allocator resumes above the last durable ceiling, so a STAN is
+ * never reused (at most one block is skipped). Only the thread that crosses
+ * a block boundary touches the disk; everyone else stays lock-free.
+ *
+ * The file has two 16-byte slots ({@code ceiling}, {@code ~ceiling}) written
+ * alternately, so a torn write always leaves the previous ceiling readable.
+ *
+ * A {@link #setReservationListener listener} can mirror each ceiling
+ * elsewhere, so a fallback counter never restarts below a STAN already issued.
+ */
+public final class StanAllocator {
+
+    public static final int MAX_STAN = 999999;
+    public static final int DEFAULT_BLOCK_SIZE = 1000;
+
+    private static final int SLOT_SIZE = 16;
+
+    private final AtomicLong seq;
+    private final int blockSize;
+    private final FileChannel channel;
+    private final Object reserveLock = new Object();
+
+    /** Highest sequence number covered by a durable reservation. */
+    private volatile long reservedUntil;
+    private int nextSlot;
+    private IntConsumer reservationListener; // guarded by reserveLock
+
+    /**
+     * @param file        reservation file (created if missing)
+     * @param blockSize   STANs reserved per fsync
+     * @param initialNext STAN to start from when {@code file} has no reservation yet (1..999999)
+     */
+    public StanAllocator(File file, int blockSize, int initialNext) throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be > 0");
+        }
+        if (initialNext < 1 || initialNext > MAX_STAN) {
+            initialNext = 1;
+        }
+        this.blockSize = blockSize;
+        this.channel = new RandomAccessFile(file, "rw").getChannel();
+
+        long ceiling = readCeiling();
+        long start = ceiling > 0 ? ceiling : initialNext - 1;
+        this.seq = new AtomicLong(start);
+        this.reservedUntil = start;
+    }
+
+    /** Next STAN, zero-padded to 6 digits. */
+    public String next() {
+        return pad6(nextInt());
+    }
+
+    /** Next STAN in 1..999999. */
+    public int nextInt() {
+        long s = seq.incrementAndGet();
+        if (s > reservedUntil) {
+            reserve(s);
+        }
+        return (int) ((s - 1) % MAX_STAN) + 1;
+    }
+
+    /** Blocks until {@code s} is covered by a durable reservation. */
+    private void reserve(long s) {
+        synchronized (reserveLock) {
+            while (s > reservedUntil) {
+                long ceiling = reservedUntil + blockSize;
+                try {
+                    writeCeiling(ceiling);
+                } catch (IOException e) {
+                    // Handing out an unreserved STAN could reuse it after a crash
+                    throw new UncheckedIOException("STAN reservation failed", e);
+                }
+                reservedUntil = ceiling;
+                notifyReserved();
+            }
+        }
+    }
+
+    /**
+     * Called with the first STAN above the durable reservation: now with the
+     * current one, then after each new block is reserved (on the reserving
+     * thread). No STAN at or above that value has been issued.
+     */
+    public void setReservationListener(IntConsumer listener) {
+        synchronized (reserveLock) {
+            this.reservationListener = listener;
+            notifyReserved();
+        }
+    }
+
+    private void notifyReserved() {
+        if (reservationListener != null) {
+            reservationListener.accept((int) (reservedUntil % MAX_STAN) + 1);
+        }
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private long readCeiling() throws IOException {
+        long best = 0;
+        ByteBuffer buf = ByteBuffer.allocate(SLOT_SIZE);
+        for (int slot = 0; slot < 2; slot++) {
+            buf.clear();
+            if (channel.read(buf, (long) slot * SLOT_SIZE) < SLOT_SIZE) {
+                continue;
+            }
+            buf.flip();
+            long value = buf.getLong();
+            long check = buf.getLong();
+            if (value > 0 && check == ~value && value > best) {
+                best = value;
+                nextSlot = 1 - slot;
+            }
+        }
+        return best;
+    }
+
+    private void writeCeiling(long ceiling) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(SLOT_SIZE);
+        buf.putLong(ceiling).putLong(~ceiling).flip();
+        long pos = (long) nextSlot * SLOT_SIZE;
+        while (buf.hasRemaining()) {
+            pos += channel.write(buf, pos);
+        }
+        channel.force(false);
+        nextSlot = 1 - nextSlot;
+    }
+
+    static String pad6(int v) {
+        char[] c = new char[6];
+        for (int i = 5; i >= 0; i--) {
+            c[i] = (char) ('0' + v % 10);
+            v /= 10;
+        }
+        return new String(c);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.mysoftpos.utils.logging;
+
+import android.util.Log;
+
+import com.example.mysoftpos.iso8583.log.IsoLog;
+
+/** Routes the core codec's {@link IsoLog} output to logcat. */
+public final class AndroidLogSink implements IsoLog.Sink {
+
+    @Override
+    public void debug(String tag, String msg) {
+        Log.d(tag, msg);
+    }
+
+    @Override
+    public void warn(String tag, String msg, Throwable tr) {
+        Log.w(tag, msg, tr);
+    }
+
+    @Override
+    public void error(String tag, String msg, Throwable tr) {
+        Log.e(tag, msg, tr);
+    }
+}
@@ -0,0 +1,555 @@
+package com.example.mysoftpos.utils.logging;
+
+import com.example.mysoftpos.iso8583.util.StandardIsoPacker;
+import com.example.mysoftpos.utils.security.PanScrubber;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Asynchronous, PAN-scrubbing file log writer behind {@link FileLogger}.
+ *
+ * - Callers only claim a slot in a bounded lock-free ring (multi-producer,
+ *   single-consumer) and store references: no I/O, no formatting, no masking
+ *   on the calling thread. When the ring is full the {@link OverflowPolicy}
+ *   decides between dropping the entry (counted, and reported in the log) and
+ *   blocking the caller until there is room.
+ * - One daemon writer thread formats, masks (PA-DSS 1.1.4) and appends
+ *   entries. Each prefix keeps its file channel open with a 64 KB buffer
+ *   that is written out whenever the ring runs empty.
+ * - Files are {@code <prefix>yyyyMMdd.txt}. A file that grows past
+ *   {@code maxFileBytes} is rolled to {@code <prefix>yyyyMMdd.N.txt.gz}; on a
+ *   date change the previous day's file is compressed as well.
+ * - {@link #flush(long)} waits until everything logged before the call is
+ *   written and forced to disk (crash paths, tests).
+ */
+public final class AsyncLogWriter {
+
+    private static final String TAG = "AsyncLogWriter";
+
+    public enum OverflowPolicy {
+        /** Discard the entry and count it; the caller never waits. */
+        DROP,
+        /** Wait for the writer to make room; nothing is lost. */
+        BLOCK
+    }
+
+    public static final int DEFAULT_CAPACITY = 4096;
+    public static final long DEFAULT_MAX_FILE_BYTES = 4L * 1024 * 1024;
+    private static final int BUFFER_BYTES = 64 * 1024;
+    /** Idle wake-up; bounds the delay of a missed unpark. */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private static final DateTimeFormatter FMT_DATE = DateTimeFormatter.ofPattern("yyyyMMdd", Locale.US);
+
+    private final File dir;
+    private final long maxFileBytes;
+    private final OverflowPolicy policy;
+    private final Clock clock;
+
+    // Ring: slot i is free for producer position p when sequences[i] == p,
+    // and holds a published entry for the consumer at p when sequences[i] == p + 1.
+    private final Slot[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head; // writer thread only
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean sleeping;
+    private volatile boolean closed;
+
+    // Flush barrier: written under flushLock, read freely by the writer
+    private final Object flushLock = new Object();
+    private volatile long flushRequested;
+    private volatile long flushedThrough;
+
+    // Writer thread only
+    private final Map<String, Sink> sinks = new HashMap<>();
+    private final PanScrubber scrubber = new PanScrubber();
+    private long droppedReported;
+
+    private AsyncLogWriter(Builder b) {
+        this.dir = b.dir;
+        this.maxFileBytes = b.maxFileBytes;
+        this.policy = b.policy;
+        this.clock = b.clock;
+        int capacity = Integer.highestOneBit(Math.max(2, b.capacity) - 1) << 1;
+        this.slots = new Slot[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+            sequences.set(i, i);
+        }
+        this.mask = capacity - 1;
+        this.writer = new Thread(this::runWriter, "file-logger");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public static Builder builder(File dir) {
+        return new Builder(dir);
+    }
+
+    /** Queue a text entry; masking happens on the writer thread. */
+    public boolean log(String prefix, String type, String content) {
+        return offer(prefix, type, content, null);
+    }
+
+    /**
+     * Queue a raw ISO packet, written as masked hex. The array is not copied —
+     * do not modify it after the call.
+     */
+    public boolean logPacket(String prefix, String type, byte[] packet) {
+        return offer(prefix, type, null, packet);
+    }
+
+    /** Entries discarded because the ring was full (DROP policy). */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /** Entries appended to a file so far. */
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    private boolean offer(String prefix, String type, String text, byte[] packet) {
+        if (closed) {
+            return false;
+        }
+        long now = clock.millis();
+        long pos = tail.get();
+        int idx;
+        while (true) {
+            idx = (int) (pos & mask);
+            long diff = sequences.get(idx) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    break;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                // Full: the writer has not yet released this slot
+                if (policy == OverflowPolicy.DROP || closed) {
+                    dropped.incrementAndGet();
+                    return false;
+                }
+                LockSupport.unpark(writer);
+                LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                pos = tail.get();
+            } else {
+                pos = tail.get();
+            }
+        }
+        Slot s = slots[idx];
+        s.prefix = prefix;
+        s.type = type;
+        s.text = text;
+        s.packet = packet;
+        s.timeMillis = now;
+        sequences.set(idx, pos + 1);
+        if (sleeping) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    /**
+     * Blocks until every entry queued before this call is written and forced
+     * to disk. Must not be called on the writer thread.
+     *
+     * @return false if the timeout elapsed first
+     */
+    public boolean flush(long timeoutMs) {
+        long target = tail.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        synchronized (flushLock) {
+            if (flushRequested < target) {
+                flushRequested = target;
+            }
+            LockSupport.unpark(writer);
+            while (flushedThrough < target) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !writer.isAlive()) {
+                    return false;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(flushLock, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /** Flushes, stops the writer and closes the files; later entries are rejected. */
+    public void close(long timeoutMs) {
+        flush(timeoutMs);
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ── Writer thread ──
+
+    private void runWriter() {
+        try {
+            while (true) {
+                // Bounded batches, so a flush is answered even under constant load
+                int n = drain(slots.length);
+                long request = flushRequested;
+                if (request > flushedThrough && head >= request) {
+                    writeBuffers(true);
+                    synchronized (flushLock) {
+                        flushedThrough = head;
+                        flushLock.notifyAll();
+                    }
+                }
+                if (n == 0) {
+                    writeBuffers(false);
+                    if (closed) {
+                        break;
+                    }
+                    sleeping = true;
+                    // Re-check after announcing: a producer that missed the flag published before it
+                    if (!isPublished(head) && flushRequested <= flushedThrough) {
+                        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    }
+                    sleeping = false;
+                }
+            }
+        } finally {
+            for (Sink sink : sinks.values()) {
+                sink.close();
+            }
+            sinks.clear();
+            synchronized (flushLock) {
+                flushLock.notifyAll();
+            }
+        }
+    }
+
+    private boolean isPublished(long pos) {
+        return sequences.get((int) (pos & mask)) == pos + 1;
+    }
+
+    /** Writes up to {@code max} published entries; returns how many. */
+    private int drain(int max) {
+        int n = 0;
+        while (n < max && isPublished(head)) {
+            int idx = (int) (head & mask);
+            Slot s = slots[idx];
+            String prefix = s.prefix;
+            String type = s.type;
+            String text = s.text;
+            byte[] packet = s.packet;
+            long time = s.timeMillis;
+            s.prefix = null;
+            s.type = null;
+            s.text = null;
+            s.packet = null;
+            sequences.set(idx, head + slots.length);
+            head++;
+            n++;
+            write(prefix, type, text, packet, time);
+        }
+        return n;
+    }
+
+    /** Push buffered bytes to the OS; {@code force} also syncs them to disk. */
+    private void writeBuffers(boolean force) {
+        for (Sink sink : sinks.values()) {
+            sink.drainBuffer(force);
+        }
+    }
+
+    private void write(String prefix, String type, String text, byte[] packet, long timeMillis) {
+        LocalDateTime now = LocalDateTime.ofInstant(Instant.ofEpochMilli(timeMillis), clock.getZone());
+        long lost = dropped.get() - droppedReported;
+        String content;
+        try {
+            // PA-DSS 1.1.4 / 2.2: NEVER log full PAN — mask before writing
+            content = packet != null
+                    ? scrubber.scrubHex(StandardIsoPacker.bytesToHex(packet))
+                    : scrubber.scrubText(text);
+        } catch (RuntimeException e) {
+            content = "<unloggable: " + e.getClass().getSimpleName() + ">";
+        }
+        StringBuilder line = new StringBuilder(48 + (content != null ? content.length() : 4));
+        if (lost > 0) {
+            droppedReported += lost;
+            appendEntry(line, now, "LOGGER", lost + " entries dropped (queue full)");
+        }
+        appendEntry(line, now, type, content);
+        Sink sink = sinks.get(prefix);
+        if (sink == null) {
+            sink = new Sink(prefix);
+            sinks.put(prefix, sink);
+        }
+        if (sink.write(now.toLocalDate(), line.toString().getBytes(StandardCharsets.UTF_8))) {
+            written.incrementAndGet();
+        }
+    }
+
+    /** "[HH:mm:ss.SSS] [type] content\n" without a formatter. */
+    private static void appendEntry(StringBuilder sb, LocalDateTime t, String type, String content) {
+        sb.append('[');
+        pad(sb, t.getHour(), 2).append(':');
+        pad(sb, t.getMinute(), 2).append(':');
+        pad(sb, t.getSecond(), 2).append('.');
+        pad(sb, t.getNano() / 1_000_000, 3);
+        sb.append("] [").append(type).append("] ").append(content).append('\n');
+    }
+
+    private static StringBuilder pad(StringBuilder sb, int value, int width) {
+        String s = Integer.toString(value);
+        for (int i = s.length(); i < width; i++) {
+            sb.append('0');
+        }
+        return sb.append(s);
+    }
+
+    private static final class Slot {
+        String prefix;
+        String type;
+        String text;
+        byte[] packet;
+        long timeMillis;
+    }
+
+    /** One open log file per prefix; writer thread only. */
+    private final class Sink {
+        final String prefix;
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        LocalDate date;
+        File file;
+        FileChannel channel;
+        long size;
+
+        Sink(String prefix) {
+            this.prefix = prefix;
+        }
+
+        boolean write(LocalDate day, byte[] bytes) {
+            try {
+                if (channel == null || !day.equals(date)) {
+                    open(day);
+                }
+                if (size + buffer.position() > 0 && size + buffer.position() + bytes.length > maxFileBytes) {
+                    roll();
+                }
+                if (bytes.length > buffer.remaining()) {
+                    writeBuffer();
+                }
+                if (bytes.length > buffer.capacity()) {
+                    writeFully(ByteBuffer.wrap(bytes));
+                } else {
+                    buffer.put(bytes);
+                }
+                return true;
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to write log " + prefix, e);
+                close();
+                return false;
+            }
+        }
+
+        /** Switch to {@code day}'s file; older plain files of this prefix are compressed. */
+        private void open(LocalDate day) throws IOException {
+            close();
+            if (!dir.exists() && !dir.mkdirs()) {
+                throw new IOException("Failed to create log directory " + dir);
+            }
+            date = day;
+            file = new File(dir, prefix + FMT_DATE.format(day) + ".txt");
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            size = channel.size();
+            compressStale();
+        }
+
+        private void compressStale() {
+            File[] stale = dir.listFiles((d, name) -> name.startsWith(prefix) && name.endsWith(".txt")
+                    && !name.equals(file.getName()) && isDateName(name.substring(prefix.length())));
+            if (stale == null) {
+                return;
+            }
+            for (File f : stale) {
+                gzip(f, new File(dir, f.getName() + ".gz"));
+            }
+        }
+
+        /** Move the full file aside as the next numbered .gz segment and start a fresh one. */
+        private void roll() throws IOException {
+            writeBuffer();
+            channel.close();
+            channel = null;
+            String base = prefix + FMT_DATE.format(date);
+            int n = 1;
+            File target;
+            while ((target = new File(dir, base + "." + n + ".txt.gz")).exists()) {
+                n++;
+            }
+            gzip(file, target);
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            size = channel.size();
+        }
+
+        void drainBuffer(boolean force) {
+            if (channel == null) {
+                return;
+            }
+            try {
+                writeBuffer();
+                if (force) {
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to flush log " + prefix, e);
+                close();
+            }
+        }
+
+        private void writeBuffer() throws IOException {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+
+        private void writeFully(ByteBuffer src) throws IOException {
+            while (src.hasRemaining()) {
+                size += channel.write(src);
+            }
+        }
+
+        void close() {
+            if (channel == null) {
+                buffer.clear();
+                return;
+            }
+            try {
+                writeBuffer();
+                channel.close();
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to close log " + prefix, e);
+            }
+            buffer.clear();
+            channel = null;
+        }
+    }
+
+    private static boolean isDateName(String rest) {
+        // "yyyyMMdd.txt" exactly; numbered segments are already compressed
+        if (rest.length() != 12) {
+            return false;
+        }
+        for (int i = 0; i < 8; i++) {
+            char c = rest.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Compress {@code src} into {@code dst} and delete {@code src}; kept as is on failure. */
+    private static void gzip(File src, File dst) {
+        byte[] chunk = new byte[16 * 1024];
+        try (InputStream in = new FileInputStream(src);
+                OutputStream out = new GZIPOutputStream(new FileOutputStream(dst))) {
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                out.write(chunk, 0, n);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to compress " + src.getName(), e);
+            dst.delete();
+            return;
+        }
+        if (!src.delete()) {
+            Log.w(TAG, "Compressed but could not delete " + src.getName());
+        }
+    }
+
+    public static final class Builder {
+        private final File dir;
+        private int capacity = DEFAULT_CAPACITY;
+        private long maxFileBytes = DEFAULT_MAX_FILE_BYTES;
+        private OverflowPolicy policy = OverflowPolicy.DROP;
+        private Clock clock = Clock.systemDefaultZone();
+
+        private Builder(File dir) {
+            this.dir = dir;
+        }
+
+        /** Ring size in entries, rounded up to a power of two. */
+        public Builder capacity(int entries) {
+            this.capacity = entries;
+            return this;
+        }
+
+        public Builder maxFileBytes(long bytes) {
+            this.maxFileBytes = bytes;
+            return this;
+        }
+
+        public Builder overflowPolicy(OverflowPolicy policy) {
+            this.policy = policy;
+            return this;
+        }
+
+        /** Source of entry timestamps and of the file date (tests). */
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public AsyncLogWriter build() {
+            if (dir == null) {
+                throw new IllegalArgumentException("Log directory is null");
+            }
+            if (capacity <= 0 || maxFileBytes <= 0) {
+                throw new IllegalArgumentException("capacity and maxFileBytes must be > 0");
+            }
+            return new AsyncLogWriter(this);
+        }
+    }
+}
@@ -1,85 +1,105 @@
 package com.example.mysoftpos.utils.logging;
 
-import com.example.mysoftpos.iso8583.util.StandardIsoPacker;
-import com.example.mysoftpos.utils.security.PanMasker;
-
 import android.content.Context;
 import android.util.Log;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Locale;
 
 /**
  * PA-DSS 1.x / 4.x: Secure ISO Packet Logger.
  * All log output is automatically scrubbed of PAN data.
  * Writes to App-Specific Storage only.
+ *
+ * Calls only queue the entry: hex conversion, PAN masking and file I/O run on
+ * the {@link AsyncLogWriter} thread, so logging adds no I/O latency to the
+ * transaction path. Under a burst that fills the queue, entries are dropped
+ * (and the count is logged) rather than stalling transactions.
+ * {@link #flush(long)} writes everything out, e.g. before a crash.
  */
 public class FileLogger {
 
     private static final String TAG = "FileLogger";
     private static final String DIR_NAME = "iso_logs";
 
-    private static final DateTimeFormatter FMT_DATE = DateTimeFormatter.ofPattern("yyyyMMdd", Locale.US);
-    private static final DateTimeFormatter FMT_TIME = DateTimeFormatter.ofPattern("HH:mm:ss.SSS", Locale.US);
+    private static final String PREFIX_ISO = "iso_log_";
+    private static final String PREFIX_TEST_SUITE = "test_suite_log_";
+
+    /** Crash handler: how long to wait for queued entries before the process dies. */
+    private static final long CRASH_FLUSH_TIMEOUT_MS = 1_000;
+
+    private static volatile AsyncLogWriter writer;
 
     // PA-DSS 1.1.4: Log packet with PAN masking
     public static void logPacket(Context context, String type, byte[] data) {
-        if (context == null || data == null)
+        if (data == null)
             return;
-        // PA-DSS 2.2: Mask any PAN in hex data before logging
-        String hex = PanMasker.maskHex(StandardIsoPacker.bytesToHex(data));
-        logString(context, type, hex);
+        AsyncLogWriter w = writer(context);
+        if (w != null)
+            w.logPacket(PREFIX_ISO, type, data);
     }
 
     public static void logTestSuitePacket(Context context, String type, byte[] data) {
-        if (context == null || data == null)
+        if (data == null)
             return;
-        String hex = PanMasker.maskHex(StandardIsoPacker.bytesToHex(data));
-        logWithPrefix(context, "test_suite_log_", type, hex);
+        AsyncLogWriter w = writer(context);
+        if (w != null)
+            w.logPacket(PREFIX_TEST_SUITE, type, data);
     }
 
     public static void logTestSuiteString(Context context, String type, String content) {
-        logWithPrefix(context, "test_suite_log_", type, content);
+        logWithPrefix(context, PREFIX_TEST_SUITE, type, content);
     }
 
     public static void logString(Context context, String type, String content) {
-        logWithPrefix(context, "iso_log_", type, content);
+        logWithPrefix(context, PREFIX_ISO, type, content);
+    }
+
+    /**
+     * Blocks until every entry logged so far is on disk. Not for the main
+     * thread outside crash handling.
+     *
+     * @return false on timeout (or if nothing was ever logged)
+     */
+    public static boolean flush(long timeoutMs) {
+        AsyncLogWriter w = writer;
+        return w != null && w.flush(timeoutMs);
     }
 
     private static void logWithPrefix(Context context, String prefix, String type, String content) {
-        if (context == null)
-            return;
+        AsyncLogWriter w = writer(context);
+        if (w != null)
+            w.log(prefix, type, content);
+    }
 
-        try {
-            File dir = new File(context.getExternalFilesDir(null), DIR_NAME);
-            if (!dir.exists() && !dir.mkdirs()) {
-                Log.e(TAG, "Failed to create log directory");
-                return;
+    private static AsyncLogWriter writer(Context context) {
+        AsyncLogWriter w = writer;
+        if (w != null || context == null)
+            return w;
+        synchronized (FileLogger.class) {
+            if (writer == null) {
+                File base = context.getExternalFilesDir(null);
+                if (base == null) {
+                    Log.e(TAG, "External files dir unavailable, not logging");
+                    return null;
+                }
+                writer = AsyncLogWriter.builder(new File(base, DIR_NAME)).build();
+                installCrashFlush();
             }
+            return writer;
+        }
+    }
 
-            LocalDateTime now = LocalDateTime.now();
-            String dateStr = FMT_DATE.format(now);
-            File file = new File(dir, prefix + dateStr + ".txt");
-
-            String timestamp = FMT_TIME.format(now);
-
-            // PA-DSS 1.1.4: NEVER log full PAN — mask before writing
-            String safeContent = PanMasker.mask(content);
-
-            String logEntry = String.format(Locale.US, "[%s] [%s] %s\n",
-                    timestamp, type, safeContent);
-
-            try (FileOutputStream fos = new FileOutputStream(file, true);
-                    OutputStreamWriter writer = new OutputStreamWriter(fos)) {
-                writer.write(logEntry);
+    /** Flush queued entries when the app crashes, then defer to the previous handler. */
+    private static void installCrashFlush() {
+        Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> {
+            AsyncLogWriter w = writer;
+            if (w != null) {
+                w.log(PREFIX_ISO, "CRASH", thread.getName() + ": " + e);
+                w.flush(CRASH_FLUSH_TIMEOUT_MS);
             }
-
-        } catch (IOException e) {
-            Log.e(TAG, "Failed to write log", e);
-        }
+            if (previous != null) {
+                previous.uncaughtException(thread, e);
+            }
+        });
     }
 }
@@ -0,0 +1,443 @@
+package com.example.mysoftpos.utils.logging;
+
+import com.example.mysoftpos.iso8583.message.IsoMessageView;
+import com.example.mysoftpos.iso8583.parser.IsoUnpacker;
+import com.example.mysoftpos.iso8583.spec.IsoSpecEngine;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only binary journal of every ISO request/response frame, for
+ * support look-ups by STAN or RRN over the last {@code retentionDays} days.
+ *
+ * - {@link #record} only queues the frames; a single "iso-journal" thread
+ *   parses MTI / STAN / RRN / RC, redacts cardholder data and appends to a
+ *   memory-mapped {@link IsoJournalSegment}. If the queue is full the
+ *   exchange is dropped (counted) rather than delaying the transaction.
+ * - A segment is sealed with a sorted STAN/RRN index when it fills up or the
+ *   date changes. A segment left unsealed by a crash gets its index rebuilt
+ *   at the next start, and segments older than the retention are deleted.
+ * - {@link #findByStan} / {@link #findByRrn} binary-search the indexes, so a
+ *   look-up reads a few KB per segment instead of scanning the text logs.
+ *
+ * PA-DSS: the stored frames never hold a full PAN, track data or PIN block —
+ * DE 2 keeps first 6 / last 4, DE 35 / 36 / 45 keep the first 6 characters,
+ * DE 52 is blanked and the PAN / track / name tags inside DE 55 are zeroed.
+ */
+public final class IsoJournal {
+
+    private static final String TAG = "IsoJournal";
+    private static final String DIR_NAME = "iso_journal";
+
+    public static final int DEFAULT_SEGMENT_BYTES = 4 * 1024 * 1024;
+    public static final int DEFAULT_RETENTION_DAYS = 7;
+    private static final int QUEUE_CAPACITY = 2048;
+
+    private static volatile IsoJournal instance;
+
+    private final File dir;
+    private final int segmentBytes;
+    private final int retentionDays;
+    private final Clock clock;
+    private final ThreadPoolExecutor writer;
+    private final AtomicLong dropped = new AtomicLong();
+
+    // Guarded by lock: the writer appends, look-ups read the active segment
+    private final Object lock = new Object();
+    private IsoJournalSegment active;
+
+    public static IsoJournal getInstance(Context context) {
+        if (instance == null) {
+            synchronized (IsoJournal.class) {
+                if (instance == null) {
+                    File dir = new File(context.getApplicationContext().getFilesDir(), DIR_NAME);
+                    instance = new IsoJournal(dir, DEFAULT_SEGMENT_BYTES, DEFAULT_RETENTION_DAYS,
+                            Clock.systemDefaultZone());
+                }
+            }
+        }
+        return instance;
+    }
+
+    public IsoJournal(File dir, int segmentBytes, int retentionDays, Clock clock) {
+        if (segmentBytes < 64 * 1024 || retentionDays <= 0) {
+            throw new IllegalArgumentException("segmentBytes must be >= 64 KB, retentionDays > 0");
+        }
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.retentionDays = retentionDays;
+        this.clock = clock;
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(QUEUE_CAPACITY), r -> {
+                    Thread t = new Thread(r, "iso-journal");
+                    t.setDaemon(true);
+                    return t;
+                }, (r, executor) -> dropped.incrementAndGet());
+        writer.execute(this::recover);
+    }
+
+    /**
+     * Journal one exchange. {@code response} is null when none arrived
+     * (timeout, network error). The arrays are not copied — do not modify them
+     * after the call.
+     */
+    public void record(byte[] request, byte[] response, long sentAtMillis, long latencyNanos) {
+        if (request == null) {
+            return;
+        }
+        writer.execute(() -> append(request, response, sentAtMillis, latencyNanos));
+    }
+
+    /** Exchanges not journaled because the queue was full. */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Waits until everything recorded before the call is in the segment and
+     * forced to storage.
+     *
+     * @return false on timeout
+     */
+    public boolean flush(long timeoutMs) {
+        try {
+            writer.submit(() -> {
+                synchronized (lock) {
+                    if (active != null) {
+                        active.force();
+                    }
+                }
+            }).get(timeoutMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException | ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /** Seals the active segment and stops the writer (tests / shutdown). */
+    public void close(long timeoutMs) {
+        writer.execute(() -> {
+            synchronized (lock) {
+                sealActive();
+            }
+        });
+        writer.shutdown();
+        try {
+            writer.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Frames with DE 11 = {@code stan} from the last {@code days} days, oldest first. */
+    public List<IsoJournalRecord> findByStan(String stan, int days) {
+        int key = IsoJournalSegment.stanKey(stan != null ? stan.trim() : null);
+        if (key < 0) {
+            return Collections.emptyList();
+        }
+        return find(key, null, days);
+    }
+
+    /** Frames with DE 37 = {@code rrn} from the last {@code days} days, oldest first. */
+    public List<IsoJournalRecord> findByRrn(String rrn, int days) {
+        if (rrn == null || rrn.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        return find(-1, IsoJournalSegment.ascii(rrn.trim(), IsoJournalSegment.RRN_LEN), days);
+    }
+
+    private List<IsoJournalRecord> find(int stan, byte[] rrn, int days) {
+        LocalDate from = today().minusDays(Math.max(1, days) - 1);
+        List<IsoJournalRecord> out = new ArrayList<>();
+        File activeFile = null;
+        synchronized (lock) {
+            if (active != null && !active.date.isBefore(from)) {
+                out.addAll(active.findActive(stan, rrn));
+            }
+            if (active != null) {
+                activeFile = active.file;
+            }
+        }
+        for (IsoJournalSegment seg : listSegments()) {
+            if (seg.date.isBefore(from) || seg.file.equals(activeFile) || !seg.indexFile.exists()) {
+                continue;
+            }
+            try {
+                out.addAll(seg.findSealed(stan, rrn));
+            } catch (IOException e) {
+                Log.w(TAG, "Skipping unreadable segment " + seg.file.getName() + ": " + e.getMessage());
+            }
+        }
+        out.sort(Comparator.comparingLong((IsoJournalRecord r) -> r.timeMillis)
+                .thenComparing(r -> r.direction));
+        return out;
+    }
+
+    // ── Writer thread ──
+
+    private void recover() {
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.e(TAG, "Failed to create " + dir);
+            return;
+        }
+        LocalDate oldest = today().minusDays(retentionDays - 1);
+        for (IsoJournalSegment seg : listSegments()) {
+            if (seg.date.isBefore(oldest)) {
+                seg.file.delete();
+                seg.indexFile.delete();
+            } else if (!seg.indexFile.exists()) {
+                try {
+                    seg.recoverIndex();
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to recover " + seg.file.getName(), e);
+                }
+            }
+        }
+    }
+
+    private void append(byte[] request, byte[] response, long sentAtMillis, long latencyNanos) {
+        long latencyMicros = latencyNanos >= 0 ? latencyNanos / 1000 : -1;
+        Frame req = Frame.parse(request);
+        synchronized (lock) {
+            // A request with no answer carries the time spent waiting
+            write(sentAtMillis, 0, response == null ? latencyMicros : -1, req);
+            if (response != null) {
+                Frame resp = Frame.parse(response);
+                write(sentAtMillis + latencyMicros / 1000, 1, latencyMicros, resp);
+            }
+        }
+    }
+
+    /** Caller holds lock. */
+    private void write(long timeMillis, int direction, long latencyMicros, Frame f) {
+        LocalDate day = Instant.ofEpochMilli(timeMillis).atZone(clock.getZone()).toLocalDate();
+        if (IsoJournalSegment.recordLength(f.payload) + IsoJournalSegment.DATA_START > segmentBytes) {
+            dropped.incrementAndGet();
+            return;
+        }
+        try {
+            if (active != null && !active.date.equals(day)) {
+                sealActive();
+                recover(); // day changed: apply retention
+            }
+            if (active == null) {
+                active = IsoJournalSegment.create(dir, day, nextSeq(day), segmentBytes);
+            }
+            if (!active.append(timeMillis, direction, latencyMicros, f.mti, f.stan, f.rrn, f.rc, f.payload)) {
+                sealActive();
+                active = IsoJournalSegment.create(dir, day, nextSeq(day), segmentBytes);
+                active.append(timeMillis, direction, latencyMicros, f.mti, f.stan, f.rrn, f.rc, f.payload);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Journal write failed", e);
+            dropped.incrementAndGet();
+        }
+    }
+
+    /** Caller holds lock. */
+    private void sealActive() {
+        if (active == null) {
+            return;
+        }
+        try {
+            active.seal();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to seal " + active.file.getName(), e);
+        }
+        active = null;
+    }
+
+    private int nextSeq(LocalDate day) {
+        int max = 0;
+        for (IsoJournalSegment seg : listSegments()) {
+            if (seg.date.equals(day)) {
+                max = Math.max(max, seg.seq);
+            }
+        }
+        return max + 1;
+    }
+
+    private List<IsoJournalSegment> listSegments() {
+        String[] names = dir.list();
+        List<IsoJournalSegment> out = new ArrayList<>();
+        if (names == null) {
+            return out;
+        }
+        Arrays.sort(names);
+        for (String name : names) {
+            IsoJournalSegment seg = IsoJournalSegment.parseName(dir, name);
+            if (seg != null) {
+                out.add(seg);
+            }
+        }
+        return out;
+    }
+
+    private LocalDate today() {
+        return LocalDate.now(clock);
+    }
+
+    /** Header fields and the redacted copy of one frame. */
+    private static final class Frame {
+        String mti = "";
+        String stan = "";
+        String rrn = "";
+        String rc = "";
+        byte[] payload;
+
+        /**
+         * The transport does not know which spec packed the frame: try each
+         * registered spec. If none unpacks, the payload is not stored (it
+         * could hold a PAN we cannot locate).
+         */
+        static Frame parse(byte[] frame) {
+            Frame f = new Frame();
+            try {
+                IsoMessageView v = IsoUnpacker.unpackViewAnySpec(frame, 0, frame.length);
+                f.mti = v.getMti();
+                f.stan = orEmpty(v.getField(11));
+                f.rrn = orEmpty(v.getField(37));
+                f.rc = orEmpty(v.getField(39));
+                byte[] copy = frame.clone();
+                redact(v, v.getSpec(), copy);
+                f.payload = copy;
+            } catch (RuntimeException e) {
+                f = new Frame();
+                f.payload = new byte[0];
+            }
+            return f;
+        }
+    }
+
+    private static void redact(IsoMessageView v, IsoSpecEngine spec, byte[] buf) {
+        mask(v, spec, buf, 2, 6, 4);
+        mask(v, spec, buf, 35, 6, 0);
+        mask(v, spec, buf, 36, 6, 0);
+        mask(v, spec, buf, 45, 6, 0);
+        mask(v, spec, buf, 52, 0, 0);
+        int off = v.rawOffset(55);
+        if (off >= 0) {
+            if (isAscii(spec.encoding(55))) {
+                Arrays.fill(buf, off, off + v.rawLength(55), (byte) '*');
+            } else {
+                scrubEmv(buf, off, off + v.rawLength(55));
+            }
+        }
+    }
+
+    /** Hide a field except its first {@code keepHead} / last {@code keepTail} characters. */
+    private static void mask(IsoMessageView v, IsoSpecEngine spec, byte[] buf, int field,
+            int keepHead, int keepTail) {
+        int off = v.rawOffset(field);
+        if (off < 0) {
+            return;
+        }
+        int len = v.rawLength(field);
+        if (isAscii(spec.encoding(field))) {
+            if (keepHead + keepTail >= len) {
+                keepHead = 0;
+                keepTail = 0;
+            }
+            Arrays.fill(buf, off + keepHead, off + len - keepTail, (byte) '*');
+        } else {
+            // Packed: two digits per byte
+            int head = (keepHead + 1) / 2;
+            int tail = keepTail / 2;
+            if (head + tail >= len) {
+                head = 0;
+                tail = 0;
+            }
+            Arrays.fill(buf, off + head, off + len - tail, (byte) 0);
+        }
+    }
+
+    private static boolean isAscii(byte encoding) {
+        return encoding != IsoSpecEngine.ENC_BINARY && encoding != IsoSpecEngine.ENC_LLLVAR_HEX
+                && encoding != IsoSpecEngine.ENC_NUMERIC_BCD;
+    }
+
+    /** Zero the values of PAN / track / cardholder-name tags in BER-TLV ICC data. */
+    private static void scrubEmv(byte[] buf, int p, int end) {
+        while (p < end) {
+            int b = buf[p++] & 0xFF;
+            if (b == 0x00 || b == 0xFF) {
+                continue; // padding between objects
+            }
+            boolean constructed = (b & 0x20) != 0;
+            int tag = b;
+            if ((b & 0x1F) == 0x1F) {
+                do {
+                    if (p >= end) {
+                        return;
+                    }
+                    b = buf[p++] & 0xFF;
+                    tag = (tag << 8) | b;
+                } while ((b & 0x80) != 0 && tag <= 0xFFFFFF);
+            }
+            if (p >= end) {
+                return;
+            }
+            int len = buf[p++] & 0xFF;
+            if (len == 0x81) {
+                if (p >= end) {
+                    return;
+                }
+                len = buf[p++] & 0xFF;
+            } else if (len == 0x82) {
+                if (p + 1 >= end) {
+                    return;
+                }
+                len = ((buf[p] & 0xFF) << 8) | (buf[p + 1] & 0xFF);
+                p += 2;
+            } else if (len > 0x80) {
+                return;
+            }
+            if (len > end - p) {
+                Arrays.fill(buf, p, end, (byte) 0); // truncated: hide the rest
+                return;
+            }
+            if (constructed) {
+                continue; // walk into the template
+            }
+            switch (tag) {
+                case 0x5A:   // PAN
+                case 0x56:   // Track 1 equivalent
+                case 0x57:   // Track 2 equivalent
+                case 0x5F20: // Cardholder name
+                case 0x9F1F: // Track 1 discretionary
+                case 0x9F20: // Track 2 discretionary
+                case 0x9F6B: // Track 2 data (contactless)
+                    Arrays.fill(buf, p, p + len, (byte) 0);
+                    break;
+                default:
+                    break;
+            }
+            p += len;
+        }
+    }
+
+    private static String orEmpty(String s) {
+        return s != null ? s.trim() : "";
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.mysoftpos.utils.logging;
+
+import com.example.mysoftpos.iso8583.util.HexUtil;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * One frame read back from the {@link IsoJournal}. The payload is the frame
+ * as journaled: cardholder data (DE 2 / 35 / 45 / 52, EMV PAN and track tags)
+ * is already redacted.
+ */
+public final class IsoJournalRecord {
+
+    public enum Direction { REQUEST, RESPONSE }
+
+    private static final DateTimeFormatter FMT = DateTimeFormatter
+            .ofPattern("yyyy-MM-dd HH:mm:ss.SSS", Locale.US).withZone(ZoneId.systemDefault());
+
+    public final long timeMillis;
+    public final Direction direction;
+    /** Round trip for a response (or a request that got none); -1 if not measured. */
+    public final long latencyMicros;
+    public final String mti;
+    public final String stan;
+    public final String rrn;
+    /** DE 39; empty for requests. */
+    public final String responseCode;
+    private final byte[] payload;
+
+    IsoJournalRecord(long timeMillis, Direction direction, long latencyMicros, String mti,
+            String stan, String rrn, String responseCode, byte[] payload) {
+        this.timeMillis = timeMillis;
+        this.direction = direction;
+        this.latencyMicros = latencyMicros;
+        this.mti = mti;
+        this.stan = stan;
+        this.rrn = rrn;
+        this.responseCode = responseCode;
+        this.payload = payload;
+    }
+
+    /** Redacted frame; a copy. */
+    public byte[] getPayload() {
+        return payload.clone();
+    }
+
+    public String getPayloadHex() {
+        return HexUtil.bytesToHex(payload);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(96);
+        sb.append(FMT.format(Instant.ofEpochMilli(timeMillis)))
+                .append(direction == Direction.REQUEST ? " >> " : " << ")
+                .append(mti).append(" STAN=").append(stan);
+        if (!rrn.isEmpty()) {
+            sb.append(" RRN=").append(rrn);
+        }
+        if (!responseCode.isEmpty()) {
+            sb.append(" RC=").append(responseCode);
+        }
+        if (latencyMicros >= 0) {
+            sb.append(String.format(Locale.US, " %.1f ms", latencyMicros / 1000.0));
+        }
+        return sb.append(" (").append(payload.length).append(" bytes)").toString();
+    }
+}
@@ -0,0 +1,371 @@
+package com.example.mysoftpos.utils.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One journal segment: {@code yyyyMMdd-NNN.seg} plus, once sealed, its
+ * {@code .idx}.
+ *
+ * Segment layout (big-endian): an 8-byte header ("IJS1", version), then
+ * records back to back. A record is
+ * <pre>
+ *   int    length (whole record; 0 = end of data)
+ *   long   time millis
+ *   byte   direction (0 request, 1 response)
+ *   int    latency micros (-1 = n/a)
+ *   4B     MTI    6B STAN    12B RRN    2B RC   (ASCII, space padded)
+ *   int    payload length, payload
+ * </pre>
+ * The length is written last, so a record torn by a crash reads as end of
+ * data. The file is sized up front and mapped; pages never written stay
+ * sparse.
+ *
+ * Index layout: "IJX1", count, data end, then {@code count} (STAN, offset)
+ * pairs sorted by STAN and {@code count} (RRN, offset) pairs sorted by RRN,
+ * so a look-up is two binary searches over a few KB.
+ *
+ * Not thread-safe; {@link IsoJournal} serializes access.
+ */
+final class IsoJournalSegment {
+
+    static final String SEGMENT_EXT = ".seg";
+    static final String INDEX_EXT = ".idx";
+
+    private static final int MAGIC = 0x494A5331;       // "IJS1"
+    private static final int INDEX_MAGIC = 0x494A5831; // "IJX1"
+    private static final int VERSION = 1;
+    static final int DATA_START = 8;
+
+    static final int MTI_LEN = 4;
+    static final int STAN_LEN = 6;
+    static final int RRN_LEN = 12;
+    static final int RC_LEN = 2;
+    static final int HEADER_LEN = 4 + 8 + 1 + 4 + MTI_LEN + STAN_LEN + RRN_LEN + RC_LEN + 4;
+
+    private static final DateTimeFormatter FMT_DATE = DateTimeFormatter.ofPattern("yyyyMMdd", Locale.US);
+
+    final LocalDate date;
+    final int seq;
+    final File file;
+    final File indexFile;
+
+    // Active (writable) state
+    private RandomAccessFile raf;
+    private MappedByteBuffer map;
+    private int position;
+    private int count;
+    private int[] stans = new int[256];
+    private byte[][] rrns = new byte[256][];
+    private int[] offsets = new int[256];
+
+    private IsoJournalSegment(File dir, LocalDate date, int seq) {
+        this.date = date;
+        this.seq = seq;
+        String base = FMT_DATE.format(date) + "-" + String.format(Locale.US, "%03d", seq);
+        this.file = new File(dir, base + SEGMENT_EXT);
+        this.indexFile = new File(dir, base + INDEX_EXT);
+    }
+
+    /** Creates and maps a new, empty segment of {@code sizeBytes}. */
+    static IsoJournalSegment create(File dir, LocalDate date, int seq, int sizeBytes) throws IOException {
+        IsoJournalSegment s = new IsoJournalSegment(dir, date, seq);
+        s.raf = new RandomAccessFile(s.file, "rw");
+        s.raf.setLength(sizeBytes);
+        s.map = s.raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, sizeBytes);
+        s.map.putInt(0, MAGIC);
+        s.map.putInt(4, VERSION);
+        s.position = DATA_START;
+        return s;
+    }
+
+    /** Date and sequence from a segment file name, or null if it is not one. */
+    static IsoJournalSegment parseName(File dir, String name) {
+        if (name.length() != 12 + SEGMENT_EXT.length() || !name.endsWith(SEGMENT_EXT) || name.charAt(8) != '-') {
+            return null;
+        }
+        try {
+            LocalDate date = LocalDate.parse(name.substring(0, 8), FMT_DATE);
+            int seq = Integer.parseInt(name.substring(9, 12));
+            return new IsoJournalSegment(dir, date, seq);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    static int recordLength(byte[] payload) {
+        return HEADER_LEN + payload.length;
+    }
+
+    /** @return false if the record does not fit in what is left of the segment */
+    boolean append(long timeMillis, int direction, long latencyMicros, String mti, String stan,
+            String rrn, String rc, byte[] payload) {
+        int len = recordLength(payload);
+        if (position + len > map.capacity()) {
+            return false;
+        }
+        int off = position;
+        ByteBuffer b = map.duplicate();
+        b.position(off + 4);
+        b.putLong(timeMillis);
+        b.put((byte) direction);
+        b.putInt((int) Math.max(-1, Math.min(Integer.MAX_VALUE, latencyMicros)));
+        putAscii(b, mti, MTI_LEN);
+        putAscii(b, stan, STAN_LEN);
+        byte[] rrnBytes = ascii(rrn, RRN_LEN);
+        b.put(rrnBytes);
+        putAscii(b, rc, RC_LEN);
+        b.putInt(payload.length);
+        b.put(payload);
+        map.putInt(off, len); // publish last
+        position = off + len;
+        addIndexEntry(stanKey(stan), rrnBytes, off);
+        return true;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    private void addIndexEntry(int stan, byte[] rrn, int offset) {
+        if (count == offsets.length) {
+            int n = count * 2;
+            stans = Arrays.copyOf(stans, n);
+            rrns = Arrays.copyOf(rrns, n);
+            offsets = Arrays.copyOf(offsets, n);
+        }
+        stans[count] = stan;
+        rrns[count] = rrn;
+        offsets[count] = offset;
+        count++;
+    }
+
+    /** Push written records to the file (process-crash safe already; this survives power loss). */
+    void force() {
+        if (map != null) {
+            map.force();
+        }
+    }
+
+    /** Writes the index and releases the mapping; the segment is read-only afterwards. */
+    void seal() throws IOException {
+        force();
+        writeIndex(indexFile, stans, rrns, offsets, count, position);
+        raf.close();
+        raf = null;
+        map = null;
+    }
+
+    // ── Look-ups on the active segment (in-memory index) ──
+
+    List<IsoJournalRecord> findActive(int stan, byte[] rrn) {
+        List<IsoJournalRecord> out = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (rrn != null ? Arrays.equals(rrns[i], rrn) : stans[i] == stan) {
+                out.add(readRecord(map.duplicate(), offsets[i]));
+            }
+        }
+        return out;
+    }
+
+    // ── Sealed segments ──
+
+    /** Records whose STAN (or RRN, if non-null) matches, via the index file. */
+    List<IsoJournalRecord> findSealed(int stan, byte[] rrn) throws IOException {
+        ByteBuffer idx = ByteBuffer.wrap(Files.readAllBytes(indexFile.toPath()));
+        if (idx.getInt(0) != INDEX_MAGIC) {
+            throw new IOException("Bad index " + indexFile.getName());
+        }
+        int n = idx.getInt(4);
+        int stanTable = 12;
+        int rrnTable = stanTable + n * 8;
+        List<Integer> hits = new ArrayList<>();
+        if (rrn == null) {
+            int lo = 0, hi = n;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (idx.getInt(stanTable + mid * 8) < stan) lo = mid + 1; else hi = mid;
+            }
+            for (int i = lo; i < n && idx.getInt(stanTable + i * 8) == stan; i++) {
+                hits.add(idx.getInt(stanTable + i * 8 + 4));
+            }
+        } else {
+            int entry = RRN_LEN + 4;
+            int lo = 0, hi = n;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (compareRrn(idx, rrnTable + mid * entry, rrn) < 0) lo = mid + 1; else hi = mid;
+            }
+            for (int i = lo; i < n && compareRrn(idx, rrnTable + i * entry, rrn) == 0; i++) {
+                hits.add(idx.getInt(rrnTable + i * entry + RRN_LEN));
+            }
+        }
+        List<IsoJournalRecord> out = new ArrayList<>(hits.size());
+        if (hits.isEmpty()) {
+            return out;
+        }
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer data = ch.map(FileChannel.MapMode.READ_ONLY, 0, idx.getInt(8));
+            for (int off : hits) {
+                out.add(readRecord(data, off));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Rebuilds the index of a segment left unsealed by a crash, scanning
+     * records up to the first zero length.
+     */
+    void recoverIndex() throws IOException {
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer data = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            int pos = DATA_START;
+            int n = 0;
+            int[] st = new int[256];
+            byte[][] rr = new byte[256][];
+            int[] of = new int[256];
+            while (pos + HEADER_LEN <= data.capacity()) {
+                int len = data.getInt(pos);
+                if (len < HEADER_LEN || pos + len > data.capacity()) {
+                    break;
+                }
+                if (n == of.length) {
+                    st = Arrays.copyOf(st, n * 2);
+                    rr = Arrays.copyOf(rr, n * 2);
+                    of = Arrays.copyOf(of, n * 2);
+                }
+                byte[] stan = new byte[STAN_LEN];
+                byte[] rrn = new byte[RRN_LEN];
+                ByteBuffer b = data.duplicate();
+                b.position(pos + 4 + 8 + 1 + 4 + MTI_LEN);
+                b.get(stan);
+                b.get(rrn);
+                st[n] = stanKey(new String(stan, StandardCharsets.US_ASCII).trim());
+                rr[n] = rrn;
+                of[n] = pos;
+                n++;
+                pos += len;
+            }
+            writeIndex(indexFile, st, rr, of, n, pos);
+        }
+    }
+
+    private static IsoJournalRecord readRecord(ByteBuffer data, int off) {
+        ByteBuffer b = data.duplicate();
+        b.position(off + 4);
+        long time = b.getLong();
+        int dir = b.get();
+        int latency = b.getInt();
+        String mti = getAscii(b, MTI_LEN);
+        String stan = getAscii(b, STAN_LEN);
+        String rrn = getAscii(b, RRN_LEN);
+        String rc = getAscii(b, RC_LEN);
+        byte[] payload = new byte[b.getInt()];
+        b.get(payload);
+        return new IsoJournalRecord(time,
+                dir == 0 ? IsoJournalRecord.Direction.REQUEST : IsoJournalRecord.Direction.RESPONSE,
+                latency, mti, stan, rrn, rc, payload);
+    }
+
+    private static void writeIndex(File indexFile, int[] stans, byte[][] rrns, int[] offsets,
+            int count, int dataEnd) throws IOException {
+        Integer[] byStan = new Integer[count];
+        Integer[] byRrn = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            byStan[i] = i;
+            byRrn[i] = i;
+        }
+        Arrays.sort(byStan, (a, b) -> stans[a] != stans[b] ? Integer.compare(stans[a], stans[b])
+                : Integer.compare(offsets[a], offsets[b]));
+        Arrays.sort(byRrn, (a, b) -> {
+            int c = compareBytes(rrns[a], rrns[b]);
+            return c != 0 ? c : Integer.compare(offsets[a], offsets[b]);
+        });
+        ByteBuffer out = ByteBuffer.allocate(12 + count * (8 + RRN_LEN + 4));
+        out.putInt(INDEX_MAGIC).putInt(count).putInt(dataEnd);
+        for (Integer i : byStan) {
+            out.putInt(stans[i]).putInt(offsets[i]);
+        }
+        for (Integer i : byRrn) {
+            out.put(rrns[i]).putInt(offsets[i]);
+        }
+        // Write then rename, so a reader never sees a half-written index
+        File tmp = new File(indexFile.getPath() + ".tmp");
+        Files.write(tmp.toPath(), out.array());
+        if (!tmp.renameTo(indexFile)) {
+            throw new IOException("Failed to install " + indexFile.getName());
+        }
+    }
+
+    /** Numeric STAN as an int key; -1 if absent or not numeric. */
+    static int stanKey(String stan) {
+        if (stan == null || stan.isEmpty() || stan.length() > 9) {
+            return -1;
+        }
+        int v = 0;
+        for (int i = 0; i < stan.length(); i++) {
+            char c = stan.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    static byte[] ascii(String s, int len) {
+        byte[] out = new byte[len];
+        Arrays.fill(out, (byte) ' ');
+        if (s != null) {
+            for (int i = 0; i < len && i < s.length(); i++) {
+                char c = s.charAt(i);
+                out[i] = c < 0x80 ? (byte) c : (byte) '?';
+            }
+        }
+        return out;
+    }
+
+    private static void putAscii(ByteBuffer b, String s, int len) {
+        b.put(ascii(s, len));
+    }
+
+    private static String getAscii(ByteBuffer b, int len) {
+        byte[] raw = new byte[len];
+        b.get(raw);
+        return new String(raw, StandardCharsets.US_ASCII).trim();
+    }
+
+    private static int compareRrn(ByteBuffer idx, int at, byte[] rrn) {
+        for (int i = 0; i < RRN_LEN; i++) {
+            int c = (idx.get(at + i) & 0xFF) - (rrn[i] & 0xFF);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    private static int compareBytes(byte[] a, byte[] b) {
+        for (int i = 0; i < a.length; i++) {
+            int c = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+}
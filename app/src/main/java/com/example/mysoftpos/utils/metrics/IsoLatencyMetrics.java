@@ -0,0 +1,219 @@
+package com.example.mysoftpos.utils.metrics;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide latency instrumentation for ISO round trips.
+ *
+ * Every transaction run through {@code TransactionExecutor} records its phase
+ * timings ({@link Phase}) into {@link LatencyHistogram}s keyed by
+ * MTI / scheme / processing code / response code. Failed round trips count
+ * as errors or timeouts under the same key, with response code
+ * {@link #NO_RC}.
+ *
+ * Read with {@link #snapshot()} (per key) or {@link #aggregate()} (all keys),
+ * and clear with {@link #reset()}. Recording is lock-free after the first
+ * transaction for a given key.
+ */
+public final class IsoLatencyMetrics {
+
+    public enum Phase { CONNECT, WRITE, FIRST_BYTE, BODY_READ, PACK, UNPACK, TOTAL }
+
+    /** Response-code component of the key for round trips that got no response. */
+    public static final String NO_RC = "--";
+
+    private static final IsoLatencyMetrics INSTANCE = new IsoLatencyMetrics();
+
+    private final ConcurrentHashMap<Key, Series> series = new ConcurrentHashMap<>();
+
+    public static IsoLatencyMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    public void record(Key key, IsoTimings timings) {
+        Series s = seriesFor(key);
+        for (Phase phase : Phase.values()) {
+            long nanos = timings.get(phase);
+            if (nanos >= 0) {
+                s.phases[phase.ordinal()].recordNanos(nanos);
+            }
+        }
+    }
+
+    /** A round trip that failed before a response was parsed. */
+    public void recordFailure(Key key, IsoTimings timings, boolean timeout) {
+        Series s = seriesFor(key);
+        (timeout ? s.timeouts : s.errors).incrementAndGet();
+        // Phases that did complete (e.g. connect before a read timeout) are still real data
+        for (Phase phase : Phase.values()) {
+            long nanos = timings.get(phase);
+            if (nanos >= 0 && phase != Phase.TOTAL) {
+                s.phases[phase.ordinal()].recordNanos(nanos);
+            }
+        }
+    }
+
+    /** Per-key snapshots, sorted by key. */
+    public Map<Key, SeriesSnapshot> snapshot() {
+        Map<Key, SeriesSnapshot> out = new TreeMap<>();
+        for (Map.Entry<Key, Series> e : series.entrySet()) {
+            out.put(e.getKey(), e.getValue().snapshot());
+        }
+        return out;
+    }
+
+    /** All keys merged into one series. */
+    public SeriesSnapshot aggregate() {
+        SeriesSnapshot total = SeriesSnapshot.empty();
+        for (Series s : series.values()) {
+            total = total.plus(s.snapshot());
+        }
+        return total;
+    }
+
+    public void reset() {
+        series.clear();
+    }
+
+    private Series seriesFor(Key key) {
+        Series s = series.get(key);
+        if (s == null) {
+            Series created = new Series();
+            s = series.putIfAbsent(key, created);
+            if (s == null) {
+                s = created;
+            }
+        }
+        return s;
+    }
+
+    // ── Key ──
+
+    public static final class Key implements Comparable<Key> {
+        public final String mti;
+        public final String scheme;
+        public final String processingCode;
+        public final String responseCode;
+
+        public Key(String mti, String scheme, String processingCode, String responseCode) {
+            this.mti = nz(mti);
+            this.scheme = nz(scheme);
+            this.processingCode = nz(processingCode);
+            this.responseCode = responseCode == null || responseCode.isEmpty() ? NO_RC : responseCode;
+        }
+
+        private static String nz(String s) {
+            return s == null || s.isEmpty() ? "-" : s;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return mti.equals(k.mti) && scheme.equals(k.scheme)
+                    && processingCode.equals(k.processingCode) && responseCode.equals(k.responseCode);
+        }
+
+        @Override
+        public int hashCode() {
+            int h = mti.hashCode();
+            h = 31 * h + scheme.hashCode();
+            h = 31 * h + processingCode.hashCode();
+            return 31 * h + responseCode.hashCode();
+        }
+
+        @Override
+        public int compareTo(Key o) {
+            return toString().compareTo(o.toString());
+        }
+
+        @Override
+        public String toString() {
+            return mti + "/" + scheme + "/" + processingCode + "/" + responseCode;
+        }
+    }
+
+    // ── Series ──
+
+    private static final class Series {
+        final LatencyHistogram[] phases = new LatencyHistogram[Phase.values().length];
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong timeouts = new AtomicLong();
+
+        Series() {
+            for (int i = 0; i < phases.length; i++) {
+                phases[i] = new LatencyHistogram();
+            }
+        }
+
+        SeriesSnapshot snapshot() {
+            LatencyHistogram.Snapshot[] snaps = new LatencyHistogram.Snapshot[phases.length];
+            for (int i = 0; i < phases.length; i++) {
+                snaps[i] = phases[i].snapshot();
+            }
+            return new SeriesSnapshot(snaps, errors.get(), timeouts.get());
+        }
+    }
+
+    public static final class SeriesSnapshot {
+        private final LatencyHistogram.Snapshot[] phases;
+        public final long errors;
+        public final long timeouts;
+
+        SeriesSnapshot(LatencyHistogram.Snapshot[] phases, long errors, long timeouts) {
+            this.phases = phases;
+            this.errors = errors;
+            this.timeouts = timeouts;
+        }
+
+        public LatencyHistogram.Snapshot phase(Phase phase) {
+            return phases[phase.ordinal()];
+        }
+
+        /** Completed round trips (TOTAL samples). */
+        public long count() {
+            return phase(Phase.TOTAL).count();
+        }
+
+        SeriesSnapshot plus(SeriesSnapshot o) {
+            LatencyHistogram.Snapshot[] sum = new LatencyHistogram.Snapshot[phases.length];
+            for (int i = 0; i < sum.length; i++) {
+                sum[i] = phases[i].plus(o.phases[i]);
+            }
+            return new SeriesSnapshot(sum, errors + o.errors, timeouts + o.timeouts);
+        }
+
+        static SeriesSnapshot empty() {
+            LatencyHistogram.Snapshot[] snaps = new LatencyHistogram.Snapshot[Phase.values().length];
+            for (int i = 0; i < snaps.length; i++) {
+                snaps[i] = LatencyHistogram.Snapshot.empty();
+            }
+            return new SeriesSnapshot(snaps, 0, 0);
+        }
+
+        /** "TOTAL n=.. p50=.. p90=.. p99=.. p99.9=.. max=.. ms" for one phase. */
+        public String format(Phase phase) {
+            LatencyHistogram.Snapshot s = phase(phase);
+            return String.format(Locale.US, "%-10s n=%d p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f ms",
+                    phase, s.count(), s.percentileMs(50), s.percentileMs(90), s.percentileMs(99),
+                    s.percentileMs(99.9), s.maxMs());
+        }
+
+        /** Multi-line summary: every measured phase plus error/timeout counts. */
+        public String formatSummary() {
+            StringBuilder sb = new StringBuilder();
+            for (Phase p : Phase.values()) {
+                if (phase(p).count() > 0) {
+                    sb.append(format(p)).append('\n');
+                }
+            }
+            sb.append("errors=").append(errors).append(" timeouts=").append(timeouts).append('\n');
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.mysoftpos.utils.metrics;
+
+/**
+ * Phase timings of one ISO round trip, in nanoseconds (-1 = not measured).
+ *
+ * Filled in by {@code TransactionExecutor} (pack/unpack/total) and
+ * {@code IsoNetworkClient} (connect/write/first byte/body read), then
+ * recorded into {@link IsoLatencyMetrics}. Not thread-safe: one instance per
+ * transaction.
+ */
+public final class IsoTimings {
+
+    public long connectNanos = -1;
+    public long writeNanos = -1;
+    /** From the end of the write until the first response byte arrives (host time). */
+    public long firstByteNanos = -1;
+    /** From the first response byte until the frame is complete. */
+    public long bodyReadNanos = -1;
+    public long packNanos = -1;
+    public long unpackNanos = -1;
+    /** Network round trip as seen by the caller: connect through body read. */
+    public long totalNanos = -1;
+
+    long get(IsoLatencyMetrics.Phase phase) {
+        switch (phase) {
+            case CONNECT: return connectNanos;
+            case WRITE: return writeNanos;
+            case FIRST_BYTE: return firstByteNanos;
+            case BODY_READ: return bodyReadNanos;
+            case PACK: return packNanos;
+            case UNPACK: return unpackNanos;
+            case TOTAL: return totalNanos;
+            default: return -1;
+        }
+    }
+}
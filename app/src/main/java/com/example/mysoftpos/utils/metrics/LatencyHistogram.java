@@ -0,0 +1,153 @@
+package com.example.mysoftpos.utils.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free, fixed-memory latency histogram in the style of HdrHistogram.
+ *
+ * Values are microseconds. Buckets are log-linear: values below
+ * {@link #SUB_BUCKETS} are counted exactly, and every power-of-two range above
+ * that is split into {@link #SUB_BUCKETS}/2 linear sub-buckets, so any recorded
+ * value is reported within 1/64 (~1.6%) of its true value. Values above
+ * {@link #MAX_TRACKABLE_MICROS} (~38 h) are clamped.
+ *
+ * Recording is one atomic increment per value and never allocates; percentiles
+ * are computed from a {@link Snapshot}. {@link #reset()} is not atomic with
+ * respect to concurrent {@link #record} calls (a value racing a reset may be
+ * half-counted), which is acceptable for monitoring.
+ */
+public final class LatencyHistogram {
+
+    static final int SUB_BUCKET_BITS = 7;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;      // 128
+    private static final int HALF = SUB_BUCKETS >> 1;          // 64
+    private static final int MAX_EXPONENT = 30;
+    public static final long MAX_TRACKABLE_MICROS = (1L << (MAX_EXPONENT + SUB_BUCKET_BITS)) - 1;
+    private static final int BUCKET_COUNT = SUB_BUCKETS + MAX_EXPONENT * HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        record(nanos / 1000);
+    }
+
+    /** Record one value in microseconds (negative values count as 0). */
+    public void record(long micros) {
+        if (micros < 0) {
+            micros = 0;
+        } else if (micros > MAX_TRACKABLE_MICROS) {
+            micros = MAX_TRACKABLE_MICROS;
+        }
+        counts.incrementAndGet(indexOf(micros));
+        totalCount.incrementAndGet();
+        totalMicros.addAndGet(micros);
+        long max;
+        while (micros > (max = maxMicros.get()) && !maxMicros.compareAndSet(max, micros)) {
+            // retry
+        }
+    }
+
+    public long count() {
+        return totalCount.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalMicros.set(0);
+        maxMicros.set(0);
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long n = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            n += copy[i];
+        }
+        return new Snapshot(copy, n, totalMicros.get(), maxMicros.get());
+    }
+
+    static int indexOf(long v) {
+        if (v < SUB_BUCKETS) {
+            return (int) v;
+        }
+        // exponent >= 1: v >> exponent lands in [64, 128)
+        int exponent = 64 - Long.numberOfLeadingZeros(v) - SUB_BUCKET_BITS;
+        return SUB_BUCKETS + (exponent - 1) * HALF + (int) ((v >>> exponent) - HALF);
+    }
+
+    /** Highest value that maps to bucket {@code index}. */
+    static long highestEquivalent(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = (index - SUB_BUCKETS) / HALF + 1;
+        long sub = (index - SUB_BUCKETS) % HALF + HALF;
+        return ((sub + 1) << exponent) - 1;
+    }
+
+    /** Immutable copy of a histogram; cheap to query repeatedly. */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long sumMicros;
+        private final long maxMicros;
+
+        Snapshot(long[] counts, long count, long sumMicros, long maxMicros) {
+            this.counts = counts;
+            this.count = count;
+            this.sumMicros = sumMicros;
+            this.maxMicros = maxMicros;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public double meanMs() {
+            return count == 0 ? 0 : sumMicros / 1000.0 / count;
+        }
+
+        public double maxMs() {
+            return maxMicros / 1000.0;
+        }
+
+        /** @param percentile 0..100 (e.g. 99.9) */
+        public double percentileMs(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestEquivalent(i), maxMicros) / 1000.0;
+                }
+            }
+            return maxMs();
+        }
+
+        /** Sum of two snapshots (e.g. to aggregate across keys). */
+        public Snapshot plus(Snapshot other) {
+            long[] sum = new long[counts.length];
+            for (int i = 0; i < sum.length; i++) {
+                sum[i] = counts[i] + other.counts[i];
+            }
+            return new Snapshot(sum, count + other.count, sumMicros + other.sumMicros,
+                    Math.max(maxMicros, other.maxMicros));
+        }
+
+        static Snapshot empty() {
+            return new Snapshot(new long[BUCKET_COUNT], 0, 0, 0);
+        }
+    }
+}
@@ -24,6 +24,7 @@ import com.example.mysoftpos.utils.threading.DispatcherProvider;
 import com.example.mysoftpos.iso8583.util.StandardIsoPacker;
 import com.example.mysoftpos.utils.validation.TransactionValidator;
 import java.net.SocketTimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class PurchaseViewModel extends BaseViewModel {
 
@@ -33,6 +34,34 @@ public class PurchaseViewModel extends BaseViewModel {
     private final IsoNetworkClient isoNetworkClient;
     private final MutableLiveData<TransactionState> state = new MutableLiveData<>();
 
+    // Pipelined mode: context, card-independent fields and TCP connect made at tap time
+    private final AtomicReference<PreparedTransaction> prepared = new AtomicReference<>();
+
+    /** What {@link #prepareTransaction} built while the card was being read. */
+    private static final class PreparedTransaction {
+        final String amount;
+        final String currencyCode;
+        final TxnType txnType;
+        final TransactionContext ctx;
+        final IsoMessage base;
+        final IsoNetworkClient.PreparedConnection connection;
+
+        PreparedTransaction(String amount, String currencyCode, TxnType txnType, TransactionContext ctx,
+                IsoMessage base, IsoNetworkClient.PreparedConnection connection) {
+            this.amount = amount;
+            this.currencyCode = currencyCode;
+            this.txnType = txnType;
+            this.ctx = ctx;
+            this.base = base;
+            this.connection = connection;
+        }
+
+        boolean matches(String amount, String currencyCode, TxnType txnType) {
+            return this.txnType == txnType && java.util.Objects.equals(this.amount, amount)
+                    && java.util.Objects.equals(this.currencyCode, currencyCode);
+        }
+    }
+
     public PurchaseViewModel(Application application, TransactionRepository repository, ConfigManager configManager,
             DispatcherProvider dispatchers, IsoNetworkClient isoNetworkClient) {
         super(application, dispatchers);
@@ -45,18 +74,59 @@ public class PurchaseViewModel extends BaseViewModel {
         return state;
     }
 
+    /**
+     * Called as soon as a card is tapped, before it is read: takes the STAN,
+     * builds everything that does not depend on the card and starts the TCP
+     * connect, so {@link #processTransaction} only fills DE 2/14/22/23/35/55.
+     * No-op when pipelined mode is off. A failed read should call
+     * {@link #cancelPreparedTransaction()}; the STAN is then simply skipped.
+     */
+    public void prepareTransaction(String amount, String currencyCode, TxnType txnType) {
+        if (!configManager.isPipelinedTransactionEnabled()) {
+            return;
+        }
+        TransactionContext ctx = newContext(amount, currencyCode, txnType);
+        IsoMessage base = (txnType == TxnType.BALANCE_INQUIRY)
+                ? Iso8583Builder.buildBalanceBase(ctx)
+                : Iso8583Builder.buildPurchaseBase(ctx);
+        IsoNetworkClient.PreparedConnection connection = isoNetworkClient.prepareConnection(ctx.ip, ctx.port,
+                getDispatchers().io());
+        discard(prepared.getAndSet(
+                new PreparedTransaction(amount, currencyCode, txnType, ctx, base, connection)));
+    }
+
+    /** Drops the work of {@link #prepareTransaction} (card read failed, screen left). */
+    public void cancelPreparedTransaction() {
+        discard(prepared.getAndSet(null));
+    }
+
+    private static void discard(PreparedTransaction p) {
+        if (p != null) {
+            p.connection.close();
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        cancelPreparedTransaction();
+        super.onCleared();
+    }
+
     public void processTransaction(CardInputData card, String amount, String currencyCode, TxnType txnType,
             String username, long userId) {
         state.setValue(TransactionState.loading());
 
         launchIo(() -> {
-            TransactionContext ctx = new TransactionContext();
+            PreparedTransaction early = prepared.getAndSet(null);
+            if (early != null && !early.matches(amount, currencyCode, txnType)) {
+                discard(early);
+                early = null;
+            }
             TransactionEntity entity = new TransactionEntity();
 
             try {
                 // Validation
                 boolean isPurchase = (txnType == TxnType.PURCHASE);
-                String amtF4 = isPurchase ? TransactionContext.formatAmount12(amount, currencyCode) : "000000000000";
 
                 TransactionValidator.ValidationResult v = TransactionValidator.validate(card, amount, isPurchase);
                 if (v != TransactionValidator.ValidationResult.VALID) {
@@ -65,39 +135,10 @@ public class PurchaseViewModel extends BaseViewModel {
                 }
 
                 // Build Context
-                ctx.txnType = txnType;
-                ctx.amount4 = amtF4;
-                ctx.stan11 = configManager.getAndIncrementTrace();
-                ctx.generateDateTime();
-                ctx.rrn37 = TransactionContext.calculateRrn(configManager.getServerId(), ctx.stan11);
-                ctx.processingCode3 = (txnType == TxnType.BALANCE_INQUIRY)
-                        ? configManager.getProcessingCodeBalance()
-                        : configManager.getProcessingCodePurchase();
-                ctx.mcc18 = configManager.getMcc18();
-                ctx.posCondition25 = configManager.getPosConditionCode();
-                ctx.acquirerId32 = configManager.getAcquirerId32();
-                ctx.currency49 = currencyCode != null ? currencyCode : configManager.getCurrencyCode49();
-                ctx.terminalId41 = configManager.getTerminalId();
-                ctx.merchantId42 = configManager.getMerchantId();
-
-                // DE 43 customization for USD
-                String usdCode = configManager.getUsdCurrencyCode();
-                if (usdCode.equals(ctx.currency49)) {
-                    String base43 = configManager.getMerchantName();
-                    String suffix = configManager.getUsdCountrySuffix();
-                    ctx.merchantNameLocation43 = base43.length() >= 3
-                            ? base43.substring(0, base43.length() - 3) + suffix
-                            : base43;
-                } else {
-                    ctx.merchantNameLocation43 = configManager.getMerchantName();
-                }
-
-                ctx.ip = configManager.getServerIp();
-                ctx.port = configManager.getServerPort();
+                TransactionContext ctx = early != null ? early.ctx : newContext(amount, currencyCode, txnType);
 
                 // Populate card-related fields into ctx for reversal
                 ctx.posEntryMode22 = card.getPosEntryMode();
-                ctx.country19 = ctx.currency49; // VN uses same code for country and currency
                 if (card.getTrack2() != null && !card.getTrack2().isEmpty()) {
                     ctx.track2_35 = card.getTrack2().replace('=', 'D');
                 }
@@ -106,9 +147,16 @@ public class PurchaseViewModel extends BaseViewModel {
                 }
 
                 // Build & Pack
-                IsoMessage req = (txnType == TxnType.BALANCE_INQUIRY)
-                        ? Iso8583Builder.buildBalanceMsg(ctx, card)
-                        : Iso8583Builder.buildPurchaseMsg(ctx, card);
+                IsoMessage req;
+                if (early != null) {
+                    req = (txnType == TxnType.BALANCE_INQUIRY)
+                            ? Iso8583Builder.applyBalanceCardFields(early.base, ctx, card)
+                            : Iso8583Builder.applyPurchaseCardFields(early.base, ctx, card);
+                } else {
+                    req = (txnType == TxnType.BALANCE_INQUIRY)
+                            ? Iso8583Builder.buildBalanceMsg(ctx, card)
+                            : Iso8583Builder.buildPurchaseMsg(ctx, card);
+                }
 
                 byte[] packed = StandardIsoPacker.pack(req);
                 String requestHex = StandardIsoPacker.bytesToHex(packed);
@@ -136,6 +184,7 @@ public class PurchaseViewModel extends BaseViewModel {
                         .setUserId(userId)
                         .setProcessingCode(ctx.processingCode3)
                         .setCurrencyCode(ctx.currency49)
+                        .setSpecId(com.example.mysoftpos.iso8583.spec.IsoSpecEngine.STANDARD_ID)
                         .build();
                 repository.saveTransaction(record);
 
@@ -147,8 +196,10 @@ public class PurchaseViewModel extends BaseViewModel {
                 // Network Send
                 byte[] resp;
                 try {
-                    // Use injected client
-                    resp = isoNetworkClient.sendAndReceive(ctx.ip, ctx.port, packed);
+                    // Use injected client; the early connection when pipelined
+                    resp = early != null
+                            ? isoNetworkClient.sendAndReceive(early.connection, packed, null)
+                            : isoNetworkClient.sendAndReceive(ctx.ip, ctx.port, packed);
                 } catch (SocketTimeoutException e) {
                     FileLogger.logString(getApplication(), "ERROR", "Timeout waiting for response");
                     handleAutoReversal(ctx, card, entity);
@@ -178,8 +229,8 @@ public class PurchaseViewModel extends BaseViewModel {
                     repository.updateTransactionRrn(ctx.stan11, respMsg.getField(37).trim());
                 }
 
-                // Sync to backend via WorkManager (reliable, survives process death)
-                com.example.mysoftpos.data.remote.SyncWorker.enqueueOneTime(getApplication());
+                // Debounced backend sync (one unique WorkManager job per window)
+                com.example.mysoftpos.data.remote.SyncScheduler.getInstance(getApplication()).notifyTransaction();
 
                 launchUi(() -> {
                     String msg = ResponseCodeHelper.getMessage(rc);
@@ -193,10 +244,51 @@ public class PurchaseViewModel extends BaseViewModel {
             } catch (Exception e) {
                 Log.e(TAG, "Error", e);
                 postError("Error: " + e.getMessage());
+            } finally {
+                // No-op once the exchange used it; closes it on any earlier exit
+                discard(early);
             }
         });
     }
 
+    /** Card-independent context: STAN, DE 7/12/13, RRN, merchant and host fields. */
+    private TransactionContext newContext(String amount, String currencyCode, TxnType txnType) {
+        TransactionContext ctx = new TransactionContext();
+        ctx.txnType = txnType;
+        ctx.amount4 = (txnType == TxnType.PURCHASE)
+                ? TransactionContext.formatAmount12(amount, currencyCode)
+                : "000000000000";
+        ctx.stan11 = configManager.getAndIncrementTrace();
+        ctx.generateDateTime();
+        ctx.rrn37 = TransactionContext.calculateRrn(configManager.getServerId(), ctx.stan11);
+        ctx.processingCode3 = (txnType == TxnType.BALANCE_INQUIRY)
+                ? configManager.getProcessingCodeBalance()
+                : configManager.getProcessingCodePurchase();
+        ctx.mcc18 = configManager.getMcc18();
+        ctx.posCondition25 = configManager.getPosConditionCode();
+        ctx.acquirerId32 = configManager.getAcquirerId32();
+        ctx.currency49 = currencyCode != null ? currencyCode : configManager.getCurrencyCode49();
+        ctx.terminalId41 = configManager.getTerminalId();
+        ctx.merchantId42 = configManager.getMerchantId();
+
+        // DE 43 customization for USD
+        String usdCode = configManager.getUsdCurrencyCode();
+        if (usdCode.equals(ctx.currency49)) {
+            String base43 = configManager.getMerchantName();
+            String suffix = configManager.getUsdCountrySuffix();
+            ctx.merchantNameLocation43 = base43.length() >= 3
+                    ? base43.substring(0, base43.length() - 3) + suffix
+                    : base43;
+        } else {
+            ctx.merchantNameLocation43 = configManager.getMerchantName();
+        }
+
+        ctx.ip = configManager.getServerIp();
+        ctx.port = configManager.getServerPort();
+        ctx.country19 = ctx.currency49; // VN uses same code for country and currency
+        return ctx;
+    }
+
     private void postError(String message) {
         launchUi(() -> state.setValue(TransactionState.error(message)));
     }
@@ -230,7 +322,7 @@ public class PurchaseViewModel extends BaseViewModel {
 
                 entity.status = "TIMEOUT_REVERSED";
                 repository.updateTransactionStatus(ctx.stan11, entity.status);
-                com.example.mysoftpos.data.remote.SyncWorker.enqueueOneTime(getApplication());
+                com.example.mysoftpos.data.remote.SyncScheduler.getInstance(getApplication()).notifyTransaction();
                 postError(getApplication().getString(R.string.err_timeout_reversed));
 
             } catch (SocketTimeoutException e) {
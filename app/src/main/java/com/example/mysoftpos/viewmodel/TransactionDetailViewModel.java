@@ -18,6 +18,7 @@ import com.example.mysoftpos.data.remote.IsoNetworkClient;
 import com.example.mysoftpos.domain.model.CardInputData;
 import com.example.mysoftpos.iso8583.TxnType;
 import com.example.mysoftpos.iso8583.spec.IsoField;
+import com.example.mysoftpos.iso8583.spec.IsoSpecEngine;
 
 import com.example.mysoftpos.testsuite.storage.SchemeRepository;
 import com.example.mysoftpos.testsuite.model.Scheme;
@@ -67,9 +68,19 @@ public class TransactionDetailViewModel extends BaseViewModel {
                     return;
                 }
 
+                // Admin void from scheme history: the scheme decides the host. The wire
+                // format is the one the row was packed with; older rows fall back to the scheme's
+                Scheme scheme = schemeName != null && !schemeName.isEmpty()
+                        ? schemeRepository.getByName(schemeName) : null;
+                String specId = txnDetails.transaction.specId;
+                if (specId == null && scheme != null) {
+                    specId = scheme.getSpecId();
+                }
+                IsoSpecEngine spec = IsoSpecEngine.forId(specId);
+
                 // 2. Unpack Original Request to Reconstruct Context
                 IsoMessage origMsg = new StandardIsoPacker()
-                        .unpack(StandardIsoPacker.hexToBytes(txnDetails.transaction.requestHex));
+                        .unpack(StandardIsoPacker.hexToBytes(txnDetails.transaction.requestHex), spec);
 
                 TransactionContext ctx = new TransactionContext();
                 ctx.txnType = TxnType.PURCHASE;
@@ -104,7 +115,6 @@ public class TransactionDetailViewModel extends BaseViewModel {
 
                 if (schemeName != null && !schemeName.isEmpty()) {
                     // Admin void: use scheme's server config (injected repository — M-4)
-                    Scheme scheme = schemeRepository.getByName(schemeName);
                     if (scheme != null && scheme.hasConnectionConfig()) {
                         serverIp = scheme.getServerIp();
                         serverPort = scheme.getServerPort();
@@ -136,7 +146,7 @@ public class TransactionDetailViewModel extends BaseViewModel {
                 IsoMessage revMsg = Iso8583Builder.buildReversalAdvice(ctx, card, newTrace);
 
                 // 5. Pack
-                byte[] packed = StandardIsoPacker.pack(revMsg);
+                byte[] packed = StandardIsoPacker.pack(revMsg, spec);
                 String revWithNewTrace = StandardIsoPacker.bytesToHex(packed);
 
                 // Log SEND 0420
@@ -158,11 +168,11 @@ public class TransactionDetailViewModel extends BaseViewModel {
                 }
 
                 // 6. Send
-                byte[] responseBytes = isoNetworkClient.sendAndReceive(ctx.ip, ctx.port, packed);
+                byte[] responseBytes = isoNetworkClient.sendAndReceive(ctx.ip, ctx.port, packed, spec, null);
 
                 // Log RECV 0430
                 com.example.mysoftpos.utils.logging.FileLogger.logPacket(getApplication(), "RECV 0430 (VOID)", responseBytes);
-                IsoMessage respMsg = new StandardIsoPacker().unpack(responseBytes);
+                IsoMessage respMsg = new StandardIsoPacker().unpack(responseBytes, spec);
                 com.example.mysoftpos.utils.logging.FileLogger.logString(getApplication(), "RECV 0430 DETAIL",
                         StandardIsoPacker.logIsoMessage(respMsg));
 
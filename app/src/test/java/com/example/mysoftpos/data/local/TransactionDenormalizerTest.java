@@ -0,0 +1,136 @@
+package com.example.mysoftpos.data.local;
+
+import com.example.mysoftpos.data.local.entity.TransactionEntity;
+import com.example.mysoftpos.iso8583.message.IsoMessage;
+import com.example.mysoftpos.iso8583.parser.IsoUnpacker;
+import com.example.mysoftpos.iso8583.spec.IsoSpecEngine;
+import com.example.mysoftpos.iso8583.util.HexUtil;
+import com.example.mysoftpos.iso8583.util.StandardIsoPacker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TransactionDenormalizerTest {
+
+    private static String requestHex(boolean withPan) throws Exception {
+        IsoMessage m = new IsoMessage("0200");
+        if (withPan) {
+            m.setField(2, "9704180000123456");
+        }
+        m.setField(3, "000000");
+        m.setField(4, "000000005000");
+        m.setField(11, "123456");
+        m.setField(22, "071");
+        if (!withPan) {
+            m.setField(35, "4111111111111111D29121010000000000");
+        }
+        m.setField(41, "TID00001");
+        m.setField(49, "704");
+        return HexUtil.bytesToHex(StandardIsoPacker.pack(m));
+    }
+
+    private static String responseHex() throws Exception {
+        IsoMessage m = new IsoMessage("0210");
+        m.setField(3, "000000");
+        m.setField(11, "123456");
+        m.setField(37, "612345123456");
+        m.setField(39, "05");
+        m.setField(41, "TID00001");
+        return HexUtil.bytesToHex(StandardIsoPacker.pack(m));
+    }
+
+    @Test
+    public void parse_readsRequestAndResponseFields() throws Exception {
+        TransactionDenormalizer.Fields f = TransactionDenormalizer.parse(requestHex(true), responseHex(), null);
+
+        assertEquals("000000", f.processingCode);
+        assertEquals("704", f.currencyCode);
+        assertEquals("071", f.posEntryMode);
+        assertEquals(5000, f.amountValue);
+        assertEquals("970418", f.bin);
+        assertEquals("970418******3456", f.panMasked);
+        assertEquals("Napas", f.scheme);
+        assertEquals("612345123456", f.rrn);
+        assertEquals("05", f.responseCode);
+    }
+
+    @Test
+    public void parse_takesPanFromTrack2WhenDe2Absent() throws Exception {
+        TransactionDenormalizer.Fields f = TransactionDenormalizer.parse(requestHex(false), null, null);
+
+        assertEquals("411111", f.bin);
+        assertEquals("411111******1111", f.panMasked);
+        assertEquals("Visa", f.scheme);
+        assertNull(f.rrn);
+        assertNull(f.responseCode);
+    }
+
+    @Test
+    public void parse_readsRowsPackedWithBcdSpec() throws Exception {
+        IsoSpecEngine bcd = IsoSpecEngine.forId(IsoSpecEngine.BCD_ID);
+        IsoMessage req = IsoUnpacker.unpack(HexUtil.hexToBytes(requestHex(true)));
+        IsoMessage resp = IsoUnpacker.unpack(HexUtil.hexToBytes(responseHex()));
+
+        TransactionDenormalizer.Fields f = TransactionDenormalizer.parse(
+                HexUtil.bytesToHex(StandardIsoPacker.pack(req, bcd)),
+                HexUtil.bytesToHex(StandardIsoPacker.pack(resp, bcd)),
+                IsoSpecEngine.BCD_ID);
+
+        assertEquals("071", f.posEntryMode);
+        assertEquals(5000, f.amountValue);
+        assertEquals("970418", f.bin);
+        assertEquals("612345123456", f.rrn);
+        assertEquals("05", f.responseCode);
+    }
+
+    @Test
+    public void parse_toleratesMissingAndCorruptHex() {
+        TransactionDenormalizer.Fields f = TransactionDenormalizer.parse("ZZ01", "", null);
+
+        assertNull(f.processingCode);
+        assertNull(f.bin);
+        assertEquals(0, f.amountValue);
+        assertNull(TransactionDenormalizer.responseCode("0210", null));
+    }
+
+    @Test
+    public void fillMissing_keepsValuesAlreadySet() throws Exception {
+        TransactionEntity txn = new TransactionEntity();
+        txn.requestHex = requestHex(true);
+        txn.responseHex = responseHex();
+        txn.rrn = "000000000001";
+        txn.scheme = "NAPAS-TEST";
+
+        TransactionDenormalizer.fillMissing(txn);
+
+        assertEquals("000000000001", txn.rrn);
+        assertEquals("NAPAS-TEST", txn.scheme);
+        assertEquals("05", txn.responseCode);
+        assertEquals("071", txn.posEntryMode);
+        assertEquals("970418", txn.bin);
+        assertEquals(5000, txn.amountValue);
+        assertEquals(TransactionDenormalizer.CURRENT_VERSION, txn.denormVersion);
+    }
+
+    @Test
+    public void fillMissing_decodesWithTheRowsSpec() throws Exception {
+        IsoSpecEngine bcd = IsoSpecEngine.forId(IsoSpecEngine.BCD_ID);
+        IsoMessage resp = IsoUnpacker.unpack(HexUtil.hexToBytes(responseHex()));
+        TransactionEntity txn = new TransactionEntity();
+        txn.responseHex = HexUtil.bytesToHex(StandardIsoPacker.pack(resp, bcd));
+
+        txn.specId = IsoSpecEngine.BCD_ID;
+        TransactionDenormalizer.fillMissing(txn);
+
+        assertEquals("05", txn.responseCode);
+        assertEquals("05", TransactionDenormalizer.responseCode(txn.responseHex, IsoSpecEngine.BCD_ID));
+    }
+
+    @Test
+    public void parseAmount_rejectsNonDigits() {
+        assertEquals(123, TransactionDenormalizer.parseAmount("000000000123"));
+        assertEquals(0, TransactionDenormalizer.parseAmount("12A"));
+        assertEquals(0, TransactionDenormalizer.parseAmount(null));
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.mysoftpos.data.remote;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class IsoNetworkClientTest {
+
+    private ServerSocket server;
+    private final AtomicInteger accepts = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        server = new ServerSocket(0);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    /** Closes the first connection right away, answers one request on the next. */
+    private void hangUpThenServe() {
+        Thread t = new Thread(() -> {
+            try {
+                server.accept().close();
+                accepts.incrementAndGet();
+                try (Socket s = server.accept()) {
+                    accepts.incrementAndGet();
+                    DataInputStream in = new DataInputStream(s.getInputStream());
+                    byte[] header = new byte[4];
+                    in.readFully(header);
+                    byte[] body = new byte[Integer.parseInt(new String(header, StandardCharsets.US_ASCII))];
+                    in.readFully(body);
+                    body[2] = '1';
+                    OutputStream out = s.getOutputStream();
+                    out.write(new byte[] { (byte) (body.length >> 8), (byte) body.length });
+                    out.write(body);
+                    out.flush();
+                    in.read(); // until the client closes
+                }
+            } catch (IOException ignored) {
+            }
+        }, "test-host");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    @Test
+    public void preparedConnection_closedByHost_reconnectsBeforeWriting() throws Exception {
+        hangUpThenServe();
+        IsoNetworkClient client = new IsoNetworkClient().setReadTimeout(5_000);
+        IsoNetworkClient.PreparedConnection prepared =
+                client.prepareConnection("127.0.0.1", server.getLocalPort(), Runnable::run);
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (accepts.get() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100); // let the FIN arrive
+
+        byte[] resp = client.sendAndReceive(prepared, "0200HELLO".getBytes(StandardCharsets.US_ASCII), null);
+
+        assertEquals("0210HELLO", new String(resp, StandardCharsets.US_ASCII));
+        assertEquals(2, accepts.get());
+    }
+}
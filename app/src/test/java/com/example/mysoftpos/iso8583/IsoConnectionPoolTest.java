@@ -0,0 +1,155 @@
+package com.example.mysoftpos.iso8583;
+
+import com.example.mysoftpos.data.remote.IsoConnectionPool;
+import com.example.mysoftpos.iso8583.message.IsoMessage;
+import com.example.mysoftpos.iso8583.spec.IsoSpecEngine;
+import com.example.mysoftpos.iso8583.util.StandardIsoPacker;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class IsoConnectionPoolTest {
+
+    private ServerSocket server;
+    private final AtomicInteger accepts = new AtomicInteger();
+    private final List<Socket> accepted = new ArrayList<>();
+    private IsoConnectionPool pool;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new ServerSocket(0, 64);
+        Thread acceptor = new Thread(() -> {
+            try {
+                while (true) {
+                    Socket s = server.accept();
+                    accepts.incrementAndGet();
+                    synchronized (accepted) {
+                        accepted.add(s);
+                    }
+                    Thread t = new Thread(() -> answer(s), "test-host-conn");
+                    t.setDaemon(true);
+                    t.start();
+                }
+            } catch (IOException ignored) {
+            }
+        }, "test-host");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        pool = new IsoConnectionPool().setKeepAliveInterval(0);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        pool.shutdown();
+        server.close();
+        synchronized (accepted) {
+            for (Socket s : accepted) {
+                s.close();
+            }
+        }
+    }
+
+    /** Answers each 4-byte ASCII framed 0200 with the same body as 0210, 2-byte binary header. */
+    private static void answer(Socket s) {
+        try {
+            DataInputStream in = new DataInputStream(s.getInputStream());
+            OutputStream out = s.getOutputStream();
+            while (true) {
+                byte[] header = new byte[4];
+                in.readFully(header);
+                byte[] body = new byte[Integer.parseInt(new String(header, StandardCharsets.US_ASCII))];
+                in.readFully(body);
+                body[2] = '1';
+                synchronized (out) {
+                    out.write(new byte[] { (byte) (body.length >> 8), (byte) body.length });
+                    out.write(body);
+                    out.flush();
+                }
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static byte[] request(String stan) throws Exception {
+        return request(stan, IsoSpecEngine.standard());
+    }
+
+    private static byte[] request(String stan, IsoSpecEngine spec) throws Exception {
+        IsoMessage m = new IsoMessage("0200");
+        m.setField(3, "000000");
+        m.setField(11, stan);
+        m.setField(37, "6123" + stan + "00");
+        m.setField(41, "TID00001");
+        return StandardIsoPacker.pack(m, spec);
+    }
+
+    @Test
+    public void concurrentFirstSends_shareTheConnectionBeingOpened() throws Exception {
+        pool.setMaxConnectionsPerHost(1);
+        int n = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<byte[]>> results = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            String stan = String.format("%06d", i + 1);
+            results.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    start.await();
+                    return pool.sendAndReceive("127.0.0.1", server.getLocalPort(), request(stan),
+                            IsoSpecEngine.standard(), 5_000, 5_000);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+        start.countDown();
+
+        for (int i = 0; i < n; i++) {
+            byte[] resp = results.get(i).get(10, TimeUnit.SECONDS);
+            assertEquals("0210", new String(resp, 0, 4, StandardCharsets.US_ASCII));
+        }
+        assertEquals(1, accepts.get());
+    }
+
+    @Test
+    public void connectFailure_releasesReservedSlot() throws Exception {
+        int port = server.getLocalPort();
+        server.close();
+        pool.setMaxConnectionsPerHost(1);
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try {
+                pool.sendAndReceive("127.0.0.1", port, request("000001"), IsoSpecEngine.standard(),
+                        2_000, 2_000);
+                fail("expected connect failure");
+            } catch (IOException expected) {
+                // a leaked reservation would make the second attempt wait forever
+            }
+        }
+    }
+
+    @Test
+    public void responsesAreMatchedWithTheRequestsSpec() throws Exception {
+        IsoSpecEngine bcd = IsoSpecEngine.forId(IsoSpecEngine.BCD_ID);
+
+        byte[] resp = pool.sendAndReceive("127.0.0.1", server.getLocalPort(), request("000042", bcd), bcd,
+                2_000, 2_000);
+
+        assertEquals("0210", new String(resp, 0, 4, StandardCharsets.US_ASCII));
+    }
+}
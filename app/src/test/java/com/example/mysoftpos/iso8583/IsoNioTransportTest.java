@@ -0,0 +1,209 @@
+package com.example.mysoftpos.iso8583;
+
+import com.example.mysoftpos.data.remote.IsoNetworkClient;
+import com.example.mysoftpos.data.remote.IsoNioTransport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class IsoNioTransportTest {
+
+    private ServerSocket server;
+    private final List<Socket> accepted = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        server = new ServerSocket(0, 512);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+        synchronized (accepted) {
+            for (Socket s : accepted) {
+                s.close();
+            }
+        }
+    }
+
+    /** Reads one 4-byte ASCII framed request. */
+    private static byte[] readRequest(Socket s) throws IOException {
+        DataInputStream in = new DataInputStream(s.getInputStream());
+        byte[] header = new byte[4];
+        in.readFully(header);
+        byte[] body = new byte[Integer.parseInt(new String(header, StandardCharsets.US_ASCII))];
+        in.readFully(body);
+        return body;
+    }
+
+    /** Replies with a 2-byte binary header, split across two writes. */
+    private static void reply(Socket s, byte[] body) throws IOException {
+        OutputStream out = s.getOutputStream();
+        out.write(new byte[] { (byte) (body.length >> 8), (byte) body.length, body[0] });
+        out.flush();
+        out.write(body, 1, body.length - 1);
+        out.flush();
+    }
+
+    /** Accepts {@code n} connections and reads every request before answering any. */
+    private Thread serveAfterAll(int n) {
+        Thread t = new Thread(() -> {
+            try {
+                List<Socket> open = new ArrayList<>();
+                List<byte[]> requests = new ArrayList<>();
+                for (int i = 0; i < n; i++) {
+                    Socket s = server.accept();
+                    synchronized (accepted) {
+                        accepted.add(s);
+                    }
+                    open.add(s);
+                    requests.add(readRequest(s));
+                }
+                for (int i = 0; i < n; i++) {
+                    byte[] req = requests.get(i);
+                    byte[] resp = ("R" + new String(req, StandardCharsets.US_ASCII)).getBytes(StandardCharsets.US_ASCII);
+                    reply(open.get(i), resp);
+                }
+            } catch (IOException ignored) {
+            }
+        }, "test-host");
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    private static int ioThreadCount() {
+        return threadCount("iso-nio-");
+    }
+
+    private static int threadCount(String prefix) {
+        int n = 0;
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.getName().startsWith(prefix) && t.isAlive()) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    @Test
+    public void sendAsync_roundTripsThroughSelector() throws Exception {
+        serveAfterAll(1);
+        IsoNetworkClient client = new IsoNetworkClient().setReadTimeout(5_000);
+        try {
+            byte[] resp = client.sendAsync("127.0.0.1", server.getLocalPort(),
+                    "0200HELLO".getBytes(StandardCharsets.US_ASCII)).get(5, TimeUnit.SECONDS);
+
+            assertEquals("R0200HELLO", new String(resp, StandardCharsets.US_ASCII));
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    @Test
+    public void clientShutdown_stopsIoAndTimerThreads() throws Exception {
+        serveAfterAll(1);
+        int ioBefore = ioThreadCount();
+        int timerBefore = threadCount("iso-timer-wheel");
+        IsoNetworkClient client = new IsoNetworkClient().setReadTimeout(5_000);
+        client.sendAsync("127.0.0.1", server.getLocalPort(),
+                "0200HELLO".getBytes(StandardCharsets.US_ASCII)).get(5, TimeUnit.SECONDS);
+        assertTrue(ioThreadCount() > ioBefore);
+
+        client.shutdown();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((ioThreadCount() > ioBefore || threadCount("iso-timer-wheel") > timerBefore)
+                && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(ioBefore, ioThreadCount());
+        assertTrue(threadCount("iso-timer-wheel") <= timerBefore);
+    }
+
+    @Test
+    public void hundredsOutstanding_onTwoIoThreads() throws Exception {
+        int n = 200;
+        serveAfterAll(n);
+        int threadsBefore = ioThreadCount();
+        IsoNioTransport transport = new IsoNioTransport(2);
+        try {
+            List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                futures.add(transport.send("127.0.0.1", server.getLocalPort(),
+                        String.format("%04d", i).getBytes(StandardCharsets.US_ASCII), 5_000, 10_000));
+            }
+            // The host answers only once all 200 requests are in: all of them are outstanding at once
+            for (int i = 0; i < n; i++) {
+                byte[] resp = futures.get(i).get(10, TimeUnit.SECONDS);
+                assertEquals("R" + String.format("%04d", i), new String(resp, StandardCharsets.US_ASCII));
+            }
+            assertEquals(0, transport.inFlight());
+            assertEquals(2, ioThreadCount() - threadsBefore);
+        } finally {
+            transport.shutdown();
+        }
+    }
+
+    @Test
+    public void readTimeout_firesFromTimerWheel() throws Exception {
+        Thread silent = new Thread(() -> {
+            try {
+                Socket s = server.accept();
+                synchronized (accepted) {
+                    accepted.add(s);
+                }
+                readRequest(s); // and never answer
+            } catch (IOException ignored) {
+            }
+        });
+        silent.setDaemon(true);
+        silent.start();
+        IsoNetworkClient client = new IsoNetworkClient().setReadTimeout(200);
+
+        long start = System.nanoTime();
+        try {
+            client.sendAsync("127.0.0.1", server.getLocalPort(), "0200".getBytes(StandardCharsets.US_ASCII))
+                    .get(5, TimeUnit.SECONDS);
+            fail("expected timeout");
+        } catch (ExecutionException e) {
+            assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof SocketTimeoutException);
+        } finally {
+            client.shutdown();
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("fired after " + elapsedMs + "ms", elapsedMs >= 150 && elapsedMs < 3_000);
+    }
+
+    @Test
+    public void connectionRefused_failsFuture() throws Exception {
+        int port = server.getLocalPort();
+        server.close();
+        IsoNioTransport transport = new IsoNioTransport(1);
+        try {
+            transport.send("127.0.0.1", port, new byte[] { 1 }, 2_000, 2_000).get(5, TimeUnit.SECONDS);
+            fail("expected connect failure");
+        } catch (ExecutionException e) {
+            assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof IOException);
+        } finally {
+            transport.shutdown();
+        }
+        assertEquals(0, transport.inFlight());
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.mysoftpos.iso8583;
+
+import com.example.mysoftpos.utils.metrics.IsoLatencyMetrics;
+import com.example.mysoftpos.utils.metrics.IsoTimings;
+import com.example.mysoftpos.utils.metrics.LatencyHistogram;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void empty_reportsZero() {
+        LatencyHistogram.Snapshot s = new LatencyHistogram().snapshot();
+        assertEquals(0, s.count());
+        assertEquals(0.0, s.percentileMs(99), 0);
+        assertEquals(0.0, s.meanMs(), 0);
+    }
+
+    @Test
+    public void smallValues_areExact() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            h.record(i);
+        }
+        LatencyHistogram.Snapshot s = h.snapshot();
+        assertEquals(100, s.count());
+        assertEquals(0.050, s.percentileMs(50), 1e-9);
+        assertEquals(0.099, s.percentileMs(99), 1e-9);
+        assertEquals(0.100, s.maxMs(), 1e-9);
+        assertEquals(0.0505, s.meanMs(), 1e-9);
+    }
+
+    @Test
+    public void percentiles_withinRelativeError() {
+        LatencyHistogram h = new LatencyHistogram();
+        // 1 ms .. 10 s, uniformly spaced
+        for (long v = 1_000; v <= 10_000_000; v += 1_000) {
+            h.record(v);
+        }
+        LatencyHistogram.Snapshot s = h.snapshot();
+        double[] ps = {50, 90, 99, 99.9};
+        for (double p : ps) {
+            double exactMs = Math.ceil(p / 100.0 * s.count()) * 1.0;
+            assertEquals("p" + p, exactMs, s.percentileMs(p), exactMs / 64);
+        }
+        assertEquals(10_000.0, s.maxMs(), 1e-9);
+        assertEquals(s.maxMs(), s.percentileMs(100), 1e-9);
+    }
+
+    @Test
+    public void outOfRangeValues_areClamped() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(-5);
+        h.record(Long.MAX_VALUE);
+        LatencyHistogram.Snapshot s = h.snapshot();
+        assertEquals(2, s.count());
+        assertEquals(0.0, s.percentileMs(50), 0);
+        assertEquals(LatencyHistogram.MAX_TRACKABLE_MICROS / 1000.0, s.maxMs(), 1e-9);
+    }
+
+    @Test
+    public void concurrentRecording_losesNothing() throws Exception {
+        LatencyHistogram h = new LatencyHistogram();
+        int threads = 8;
+        int perThread = 50_000;
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] ts = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            ts[t] = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    h.recordNanos(i * 1_000L);
+                }
+            });
+            ts[t].start();
+        }
+        go.countDown();
+        for (Thread t : ts) {
+            t.join();
+        }
+        assertEquals((long) threads * perThread, h.count());
+        assertEquals((long) threads * perThread, h.snapshot().count());
+    }
+
+    @Test
+    public void snapshotPlus_mergesCounts() {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        a.record(10);
+        b.record(20);
+        b.record(30);
+        LatencyHistogram.Snapshot sum = a.snapshot().plus(b.snapshot());
+        assertEquals(3, sum.count());
+        assertEquals(0.030, sum.maxMs(), 1e-9);
+        assertEquals(0.020, sum.percentileMs(50), 1e-9);
+    }
+
+    @Test
+    public void reset_clears() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(1_000);
+        h.reset();
+        assertEquals(0, h.count());
+        assertEquals(0.0, h.snapshot().maxMs(), 0);
+    }
+
+    // ── IsoLatencyMetrics ──
+
+    private static IsoTimings timings(long totalMs) {
+        IsoTimings t = new IsoTimings();
+        t.connectNanos = 1_000_000;
+        t.packNanos = 50_000;
+        t.totalNanos = totalMs * 1_000_000;
+        return t;
+    }
+
+    @Test
+    public void metrics_keyedByMtiSchemeProcessingCodeAndRc() {
+        IsoLatencyMetrics m = IsoLatencyMetrics.getInstance();
+        m.reset();
+        IsoLatencyMetrics.Key ok = new IsoLatencyMetrics.Key("0200", "Napas", "000000", "00");
+        IsoLatencyMetrics.Key declined = new IsoLatencyMetrics.Key("0200", "Napas", "000000", "51");
+        m.record(ok, timings(100));
+        m.record(ok, timings(200));
+        m.record(declined, timings(300));
+
+        Map<IsoLatencyMetrics.Key, IsoLatencyMetrics.SeriesSnapshot> snap = m.snapshot();
+        assertEquals(2, snap.size());
+        assertEquals(2, snap.get(ok).count());
+        assertEquals(1, snap.get(new IsoLatencyMetrics.Key("0200", "Napas", "000000", "51")).count());
+        // Unmeasured phases stay empty
+        assertEquals(0, snap.get(ok).phase(IsoLatencyMetrics.Phase.FIRST_BYTE).count());
+        assertEquals(2, snap.get(ok).phase(IsoLatencyMetrics.Phase.CONNECT).count());
+
+        IsoLatencyMetrics.SeriesSnapshot all = m.aggregate();
+        assertEquals(3, all.count());
+        assertEquals(300.0, all.phase(IsoLatencyMetrics.Phase.TOTAL).maxMs(), 1e-9);
+        m.reset();
+    }
+
+    @Test
+    public void metrics_failuresCountedSeparately() {
+        IsoLatencyMetrics m = IsoLatencyMetrics.getInstance();
+        m.reset();
+        IsoLatencyMetrics.Key key = new IsoLatencyMetrics.Key("0200", null, "000000", null);
+        assertEquals(IsoLatencyMetrics.NO_RC, key.responseCode);
+        m.recordFailure(key, timings(30_000), true);
+        m.recordFailure(key, new IsoTimings(), false);
+
+        IsoLatencyMetrics.SeriesSnapshot s = m.aggregate();
+        assertEquals(1, s.timeouts);
+        assertEquals(1, s.errors);
+        // A failed round trip has no TOTAL sample, but the connect that succeeded is kept
+        assertEquals(0, s.count());
+        assertEquals(1, s.phase(IsoLatencyMetrics.Phase.CONNECT).count());
+        assertTrue(s.formatSummary().contains("errors=1 timeouts=1"));
+
+        m.reset();
+        assertTrue(m.snapshot().isEmpty());
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.mysoftpos.iso8583;
+
+import com.example.mysoftpos.testsuite.perf.LoadGenerator;
+import com.example.mysoftpos.testsuite.perf.LoadProfile;
+import com.example.mysoftpos.testsuite.perf.LoadStats;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class LoadGeneratorTest {
+
+    private static final List<String> MIX = Arrays.asList("A", "B");
+
+    private static LoadStats run(LoadProfile profile, LoadGenerator.Driver<String> driver) throws Exception {
+        AtomicReference<LoadStats> last = new AtomicReference<>();
+        LoadGenerator<String> gen = new LoadGenerator<>(profile, MIX, driver);
+        gen.start(new LoadGenerator.Listener() {
+            @Override
+            public void onProgress(LoadStats stats) {}
+
+            @Override
+            public void onFinished(LoadStats stats) {
+                last.set(stats);
+            }
+        });
+        assertTrue(gen.awaitFinished(10_000));
+        return last.get();
+    }
+
+    @Test
+    public void arrivalTime_steadyRate() {
+        LoadProfile p = LoadProfile.openLoop(10).maxTransactions(100).build();
+        assertEquals(0.0, p.arrivalTimeSec(0), 1e-9);
+        assertEquals(1.0, p.arrivalTimeSec(10), 1e-9);
+    }
+
+    @Test
+    public void arrivalTime_followsRamps() {
+        // 2 s ramp-up to 10 TPS → 10 arrivals during the ramp
+        LoadProfile p = LoadProfile.openLoop(10).durationMs(10_000).rampUpMs(2_000).rampDownMs(2_000).build();
+        assertEquals(Math.sqrt(2), p.arrivalTimeSec(5), 1e-9);
+        assertEquals(2.0, p.arrivalTimeSec(10), 1e-9);
+        // 10 (up) + 60 (steady) + 10 (down) = 80 arrivals in total
+        assertTrue(p.arrivalTimeSec(79) > 8.0);
+        assertTrue(p.arrivalTimeSec(79) < 10.0);
+        assertEquals(-1, p.arrivalTimeSec(80), 0);
+        assertEquals(5.0, p.rateAt(1_000), 1e-9);
+        assertEquals(10.0, p.rateAt(5_000), 1e-9);
+        assertEquals(5.0, p.rateAt(9_000), 1e-9);
+    }
+
+    @Test
+    public void openLoop_runsExactCountRoundRobin() throws Exception {
+        AtomicInteger a = new AtomicInteger();
+        LoadStats s = run(LoadProfile.openLoop(2_000).maxTransactions(20).build(), sc -> {
+            if ("A".equals(sc)) {
+                a.incrementAndGet();
+                return true;
+            }
+            return false;
+        });
+        assertTrue(s.finished);
+        assertEquals(20, s.completed);
+        assertEquals(10, s.approved);
+        assertEquals(10, s.declined);
+        assertEquals(10, a.get());
+        assertEquals(0, s.inFlight);
+    }
+
+    @Test
+    public void openLoop_dropsBeyondMaxConcurrency() throws Exception {
+        LoadStats s = run(LoadProfile.openLoop(1_000).maxTransactions(20).maxConcurrency(1).build(), sc -> {
+            Thread.sleep(50);
+            return true;
+        });
+        assertTrue(s.dropped > 0);
+        assertEquals(20, s.issued + s.dropped);
+        assertEquals(s.issued, s.completed);
+    }
+
+    @Test
+    public void closedLoop_boundsConcurrencyByTerminals() throws Exception {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        LoadStats s = run(LoadProfile.closedLoop(4).maxTransactions(100).build(), sc -> {
+            int now = active.incrementAndGet();
+            peak.accumulateAndGet(now, Math::max);
+            Thread.sleep(1);
+            active.decrementAndGet();
+            return true;
+        });
+        assertEquals(100, s.completed);
+        assertEquals(100, s.approved);
+        assertTrue(peak.get() <= 4);
+        assertTrue(s.p50Ms >= 1);
+    }
+
+    @Test
+    public void asyncDriver_holdsNoThreadPerTransaction() throws Exception {
+        ScheduledExecutorService host = Executors.newSingleThreadScheduledExecutor();
+        AtomicInteger peak = new AtomicInteger();
+        AtomicInteger active = new AtomicInteger();
+        try {
+            // 300 requests at once, each answered 200 ms later by a single host thread
+            LoadGenerator<String> gen = LoadGenerator.async(
+                    LoadProfile.openLoop(100_000).maxTransactions(300).maxConcurrency(1_000).build(), MIX, sc -> {
+                        peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+                        CompletableFuture<Boolean> f = new CompletableFuture<>();
+                        host.schedule(() -> {
+                            active.decrementAndGet();
+                            f.complete("A".equals(sc));
+                        }, 200, TimeUnit.MILLISECONDS);
+                        return f;
+                    });
+            AtomicReference<LoadStats> last = new AtomicReference<>();
+            gen.start(new LoadGenerator.Listener() {
+                @Override
+                public void onProgress(LoadStats stats) {}
+
+                @Override
+                public void onFinished(LoadStats stats) {
+                    last.set(stats);
+                }
+            });
+            assertTrue(gen.awaitFinished(10_000));
+            LoadStats s = last.get();
+            assertEquals(300, s.completed);
+            assertEquals(0, s.dropped);
+            assertEquals(150, s.approved);
+            assertTrue("peak in flight " + peak.get(), peak.get() > 100);
+        } finally {
+            host.shutdownNow();
+        }
+    }
+
+    @Test
+    public void asyncDriver_closedLoopChainsWithoutThreads() throws Exception {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        AtomicReference<LoadStats> last = new AtomicReference<>();
+        LoadGenerator<String> gen = LoadGenerator.async(LoadProfile.closedLoop(3).maxTransactions(1_000).build(),
+                MIX, sc -> {
+                    peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+                    active.decrementAndGet();
+                    if ("B".equals(sc)) {
+                        throw new java.io.IOException("refused");
+                    }
+                    return CompletableFuture.completedFuture(true); // completes inline
+                });
+        gen.start(new LoadGenerator.Listener() {
+            @Override
+            public void onProgress(LoadStats stats) {}
+
+            @Override
+            public void onFinished(LoadStats stats) {
+                last.set(stats);
+            }
+        });
+        assertTrue(gen.awaitFinished(10_000));
+        assertEquals(1_000, last.get().completed);
+        assertEquals(500, last.get().errors);
+        assertTrue(peak.get() <= 3);
+    }
+
+    @Test
+    public void driverExceptions_countAsErrors() throws Exception {
+        LoadStats s = run(LoadProfile.closedLoop(2).maxTransactions(10).build(), sc -> {
+            throw new java.net.SocketTimeoutException("timeout");
+        });
+        assertEquals(10, s.errors);
+        assertEquals(0, s.approved);
+    }
+
+    @Test
+    public void stop_endsDurationRunEarly() throws Exception {
+        LoadGenerator<String> gen = new LoadGenerator<>(
+                LoadProfile.closedLoop(2).durationMs(60_000).build(), MIX, sc -> true);
+        AtomicReference<LoadStats> last = new AtomicReference<>();
+        gen.start(new LoadGenerator.Listener() {
+            @Override
+            public void onProgress(LoadStats stats) {}
+
+            @Override
+            public void onFinished(LoadStats stats) {
+                last.set(stats);
+            }
+        });
+        Thread.sleep(50);
+        gen.stop();
+        assertTrue(gen.awaitFinished(5_000));
+        assertTrue(last.get().elapsedMs < 60_000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void build_requiresStopCondition() {
+        LoadProfile.openLoop(10).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void build_rejectsRampsLongerThanDuration() {
+        LoadProfile.closedLoop(2).durationMs(1_000).rampUpMs(800).rampDownMs(800).build();
+    }
+}
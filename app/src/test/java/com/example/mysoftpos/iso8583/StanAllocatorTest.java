@@ -0,0 +1,114 @@
+package com.example.mysoftpos.iso8583;
+
+import com.example.mysoftpos.utils.config.StanAllocator;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class StanAllocatorTest {
+
+    private static File tempFile() throws Exception {
+        File f = File.createTempFile("stan", ".block");
+        f.delete();
+        f.deleteOnExit();
+        return f;
+    }
+
+    @Test
+    public void next_startsAtInitialAndPads() throws Exception {
+        StanAllocator a = new StanAllocator(tempFile(), 10, 42);
+        assertEquals("000042", a.next());
+        assertEquals("000043", a.next());
+        a.close();
+    }
+
+    @Test
+    public void next_wrapsTo000001() throws Exception {
+        StanAllocator a = new StanAllocator(tempFile(), 3, 999998);
+        assertEquals("999998", a.next());
+        assertEquals("999999", a.next());
+        assertEquals("000001", a.next());
+        assertEquals("000002", a.next());
+        a.close();
+    }
+
+    @Test
+    public void restart_neverReusesIssuedStan() throws Exception {
+        File f = tempFile();
+        StanAllocator a = new StanAllocator(f, 100, 1);
+        int last = 0;
+        for (int i = 0; i < 150; i++) {
+            last = a.nextInt();
+        }
+        a.close(); // simulate crash: nothing flushed beyond the reservation
+
+        StanAllocator b = new StanAllocator(f, 100, 1);
+        assertTrue(b.nextInt() > last);
+        b.close();
+    }
+
+    @Test
+    public void reservationListener_seesFirstStanAboveEachCeiling() throws Exception {
+        StanAllocator a = new StanAllocator(tempFile(), 10, 42);
+        java.util.List<Integer> marks = new java.util.ArrayList<>();
+        a.setReservationListener(marks::add);
+        assertEquals(java.util.Collections.singletonList(42), marks);
+
+        for (int i = 0; i < 11; i++) {
+            a.nextInt(); // 42..52: reserves up to 51, then up to 61
+        }
+        assertEquals(java.util.Arrays.asList(42, 52, 62), marks);
+        a.close();
+    }
+
+    @Test
+    public void restart_tornSlot_fallsBackToOtherSlot() throws Exception {
+        File f = tempFile();
+        StanAllocator a = new StanAllocator(f, 10, 1);
+        for (int i = 0; i < 15; i++) {
+            a.nextInt(); // two reservations: slot 0 = 10, slot 1 = 20
+        }
+        a.close();
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.seek(16 + 8);
+            raf.writeLong(0); // corrupt slot 1 check word
+        }
+
+        // A real torn write of slot 1 happens before STAN 11 is handed out
+
+        StanAllocator b = new StanAllocator(f, 10, 1);
+        assertEquals(11, b.nextInt());
+        b.close();
+    }
+
+    @Test
+    public void concurrent_allocationsAreUnique() throws Exception {
+        StanAllocator a = new StanAllocator(tempFile(), 64, 1);
+        int threads = 8;
+        int perThread = 5000;
+        ConcurrentHashMap<Integer, Boolean> seen = new ConcurrentHashMap<>();
+        AtomicInteger dupes = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    if (seen.putIfAbsent(a.nextInt(), Boolean.TRUE) != null) {
+                        dupes.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        assertEquals(0, dupes.get());
+        assertEquals(threads * perThread, seen.size());
+        a.close();
+    }
+}
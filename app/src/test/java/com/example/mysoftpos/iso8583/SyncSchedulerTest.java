@@ -0,0 +1,65 @@
+package com.example.mysoftpos.iso8583;
+
+import com.example.mysoftpos.data.remote.SyncScheduler;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SyncSchedulerTest {
+
+    @Test
+    public void notify_flushesOncePerBatch() {
+        AtomicInteger runs = new AtomicInteger();
+        SyncScheduler s = new SyncScheduler(50, 60_000, runs::incrementAndGet);
+
+        for (int i = 0; i < 500; i++) {
+            s.notifyTransaction();
+        }
+
+        assertEquals(10, runs.get());
+        assertEquals(500, s.getQueuedCount());
+        assertEquals(500, s.getFlushedCount());
+        assertEquals(10, s.getFlushCount());
+        assertEquals(0, s.getPendingCount());
+    }
+
+    @Test
+    public void notify_flushesTailAfterDelay() throws Exception {
+        CountDownLatch flushed = new CountDownLatch(1);
+        SyncScheduler s = new SyncScheduler(50, 50, flushed::countDown);
+
+        s.notifyTransaction();
+        s.notifyTransaction();
+        s.notifyTransaction();
+        assertEquals(3, s.getPendingCount());
+
+        assertTrue(flushed.await(2, TimeUnit.SECONDS));
+        assertEquals(3, s.getFlushedCount());
+        assertEquals(1, s.getFlushCount());
+        assertEquals(0, s.getPendingCount());
+    }
+
+    @Test
+    public void flush_isNoOpWhenNothingPending() {
+        AtomicInteger runs = new AtomicInteger();
+        SyncScheduler s = new SyncScheduler(50, 60_000, runs::incrementAndGet);
+
+        s.flush();
+        s.notifyTransaction();
+        s.flush();
+        s.flush();
+
+        assertEquals(1, runs.get());
+        assertEquals(1, s.getFlushCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void configure_rejectsZeroBatch() {
+        new SyncScheduler(1, 0, () -> {}).configure(0, 100);
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.mysoftpos.iso8583;
+
+import com.example.mysoftpos.testsuite.perf.TestRunScheduler;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TestRunSchedulerTest {
+
+    /** Tracks the peak number of concurrently running tasks. */
+    private static final class Peak {
+        final AtomicInteger now = new AtomicInteger();
+        final AtomicInteger max = new AtomicInteger();
+
+        void enter() {
+            int n = now.incrementAndGet();
+            max.accumulateAndGet(n, Math::max);
+        }
+
+        void exit() {
+            now.decrementAndGet();
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void runsEverything_withinConcurrencyCap() throws Exception {
+        TestRunScheduler scheduler = new TestRunScheduler(4, 4, 16);
+        TestRunScheduler.Run run = scheduler.newRun();
+        Peak peak = new Peak();
+        AtomicInteger done = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(run.submit("h:" + (i % 3), () -> {
+                peak.enter();
+                sleep(2);
+                peak.exit();
+                done.incrementAndGet();
+            }));
+        }
+        assertTrue(run.await(10_000));
+        assertEquals(100, done.get());
+        assertTrue("peak " + peak.max.get(), peak.max.get() <= 4);
+        assertEquals(0, scheduler.getRunningCount());
+        assertEquals(0, scheduler.getQueuedCount());
+    }
+
+    @Test
+    public void submitAsync_holdsSlotUntilFutureCompletes() throws Exception {
+        TestRunScheduler scheduler = new TestRunScheduler(8, 8, 64);
+        TestRunScheduler.Run run = scheduler.newRun();
+        List<CompletableFuture<Void>> pending = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            assertTrue(run.submitAsync("h:1", () -> {
+                CompletableFuture<Void> f = new CompletableFuture<>();
+                pending.add(f);
+                return f;
+            }));
+        }
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (pending.size() < 8 && System.currentTimeMillis() < deadline) {
+            sleep(5);
+        }
+        sleep(50);
+        assertEquals("started only while slots are free", 8, pending.size());
+        assertEquals(8, scheduler.getRunningCount());
+        assertFalse(run.await(50));
+
+        for (int i = 0; i < 20; i++) {
+            while (pending.size() <= i) {
+                sleep(1);
+            }
+            pending.get(i).complete(null);
+        }
+        assertTrue(run.await(5_000));
+        assertEquals(20, pending.size());
+        assertEquals(0, scheduler.getRunningCount());
+    }
+
+    @Test
+    public void perHostLimit_isRespected_andOtherHostsProceed() throws Exception {
+        TestRunScheduler scheduler = new TestRunScheduler(8, 2, 64);
+        TestRunScheduler.Run run = scheduler.newRun();
+        Peak slowHost = new Peak();
+        AtomicInteger slowDone = new AtomicInteger();
+        CountDownLatch fastDone = new CountDownLatch(10);
+        for (int i = 0; i < 10; i++) {
+            run.submit("slow:1", () -> {
+                slowHost.enter();
+                sleep(50);
+                slowHost.exit();
+                slowDone.incrementAndGet();
+            });
+        }
+        for (int i = 0; i < 10; i++) {
+            run.submit("fast:1", fastDone::countDown);
+        }
+        // Fast host work is not stuck behind the slow host's queue
+        assertTrue(fastDone.await(2_000, TimeUnit.MILLISECONDS));
+        assertTrue(slowDone.get() < 10);
+        assertTrue(run.await(10_000));
+        assertEquals(2, slowHost.max.get());
+    }
+
+    @Test
+    public void submit_blocksWhenQueueFull() throws Exception {
+        TestRunScheduler scheduler = new TestRunScheduler(1, 1, 2);
+        TestRunScheduler.Run run = scheduler.newRun();
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocker = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        run.submit("h", blocker);   // running
+        run.submit("h", blocker);   // queued 1
+        run.submit("h", blocker);   // queued 2 = capacity
+
+        CountDownLatch submitted = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            try {
+                run.submit("h", blocker);
+                submitted.countDown();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        producer.start();
+        assertFalse("producer should be blocked", submitted.await(100, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(submitted.await(2_000, TimeUnit.MILLISECONDS));
+        assertTrue(run.await(5_000));
+    }
+
+    @Test
+    public void cancel_dropsQueued_andUnblocksProducer() throws Exception {
+        TestRunScheduler scheduler = new TestRunScheduler(1, 1, 3);
+        TestRunScheduler.Run run = scheduler.newRun();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger ran = new AtomicInteger();
+        run.submit("h", () -> {
+            ran.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(2_000, TimeUnit.MILLISECONDS));
+        for (int i = 0; i < 3; i++) {
+            run.submit("h", ran::incrementAndGet);
+        }
+
+        AtomicInteger producerResult = new AtomicInteger(-1);
+        Thread producer = new Thread(() -> {
+            try {
+                producerResult.set(run.submit("h", ran::incrementAndGet) ? 1 : 0);
+            } catch (InterruptedException ignored) {
+            }
+        });
+        producer.start();
+        sleep(50);
+
+        assertEquals(3, run.cancel());
+        producer.join(2_000);
+        assertEquals("blocked submit returns false after cancel", 0, producerResult.get());
+        assertFalse(run.submit("h", ran::incrementAndGet));
+
+        release.countDown();
+        assertTrue(run.await(2_000));
+        assertEquals(1, ran.get());
+        assertEquals(3, run.getCancelledCount());
+        assertTrue(run.isCancelled());
+    }
+
+    @Test
+    public void cancel_onlyAffectsItsOwnRun() throws Exception {
+        TestRunScheduler scheduler = new TestRunScheduler(1, 1, 10);
+        TestRunScheduler.Run a = scheduler.newRun();
+        TestRunScheduler.Run b = scheduler.newRun();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger bRan = new AtomicInteger();
+        a.submit("h", () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        a.submit("h", () -> { });
+        b.submit("h", bRan::incrementAndGet);
+        b.submit("h", bRan::incrementAndGet);
+
+        assertEquals(1, a.cancel());
+        release.countDown();
+        assertTrue(b.await(2_000));
+        assertTrue(a.await(2_000));
+        assertEquals(2, bRan.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveLimits() {
+        new TestRunScheduler(0, 1, 1);
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.mysoftpos.utils.logging;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class AsyncLogWriterTest {
+
+    private File dir;
+    private AsyncLogWriter writer;
+
+    /** Settable clock so tests control the file date. */
+    private static final class TestClock extends Clock {
+        volatile long millis;
+
+        TestClock(LocalDateTime start) {
+            this.millis = start.toInstant(ZoneOffset.UTC).toEpochMilli();
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("asynclog").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        if (writer != null) {
+            writer.close(2_000);
+        }
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private static String read(File f) throws IOException {
+        try (InputStream in = f.getName().endsWith(".gz")
+                ? new GZIPInputStream(new FileInputStream(f))
+                : new FileInputStream(f)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void flush_writesEntriesInOrderWithPanMasked() throws Exception {
+        TestClock clock = new TestClock(LocalDateTime.of(2026, 3, 5, 9, 7, 1, 42_000_000));
+        writer = AsyncLogWriter.builder(dir).clock(clock).build();
+
+        writer.log("iso_log_", "SEND", "PAN 9704180000123456 sent");
+        writer.log("iso_log_", "RECV", "RC 00");
+        assertTrue(writer.flush(2_000));
+
+        String text = read(new File(dir, "iso_log_20260305.txt"));
+        assertEquals("[09:07:01.042] [SEND] PAN 970418******3456 sent\n"
+                + "[09:07:01.042] [RECV] RC 00\n", text);
+        assertEquals(2, writer.getWrittenCount());
+    }
+
+    @Test
+    public void prefixesGoToSeparateFiles() throws Exception {
+        TestClock clock = new TestClock(LocalDateTime.of(2026, 3, 5, 10, 0));
+        writer = AsyncLogWriter.builder(dir).clock(clock).build();
+
+        writer.log("iso_log_", "A", "one");
+        writer.logPacket("test_suite_log_", "B", new byte[] {0x02, 0x00});
+        assertTrue(writer.flush(2_000));
+
+        assertTrue(read(new File(dir, "iso_log_20260305.txt")).contains("[A] one"));
+        assertTrue(read(new File(dir, "test_suite_log_20260305.txt")).contains("[B] 0200"));
+    }
+
+    @Test
+    public void sizeRotation_compressesFullSegments() throws Exception {
+        TestClock clock = new TestClock(LocalDateTime.of(2026, 3, 5, 10, 0));
+        writer = AsyncLogWriter.builder(dir).clock(clock).maxFileBytes(200).build();
+
+        StringBuilder all = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            writer.log("iso_log_", "T", "line " + i);
+        }
+        assertTrue(writer.flush(2_000));
+
+        File[] segments = dir.listFiles((d, name) -> name.endsWith(".txt.gz"));
+        assertNotNull(segments);
+        assertTrue("expected rolled segments", segments.length >= 2);
+        java.util.Arrays.sort(segments, (a, b) -> Integer.compare(segmentNo(a), segmentNo(b)));
+        for (File seg : segments) {
+            all.append(read(seg));
+        }
+        File current = new File(dir, "iso_log_20260305.txt");
+        assertTrue(current.length() <= 200);
+        all.append(read(current));
+
+        String[] lines = all.toString().split("\n");
+        assertEquals(20, lines.length);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(lines[i], lines[i].endsWith("[T] line " + i));
+        }
+    }
+
+    private static int segmentNo(File f) {
+        String name = f.getName(); // iso_log_20260305.N.txt.gz
+        String n = name.substring("iso_log_20260305.".length(), name.indexOf(".txt.gz"));
+        return Integer.parseInt(n);
+    }
+
+    @Test
+    public void dateRotation_opensNewFileAndCompressesPreviousDay() throws Exception {
+        TestClock clock = new TestClock(LocalDateTime.of(2026, 3, 5, 23, 59, 59));
+        writer = AsyncLogWriter.builder(dir).clock(clock).build();
+
+        writer.log("iso_log_", "T", "before midnight");
+        assertTrue(writer.flush(2_000));
+        clock.millis += 2_000;
+        writer.log("iso_log_", "T", "after midnight");
+        assertTrue(writer.flush(2_000));
+
+        assertFalse(new File(dir, "iso_log_20260305.txt").exists());
+        assertTrue(read(new File(dir, "iso_log_20260305.txt.gz")).contains("before midnight"));
+        String today = read(new File(dir, "iso_log_20260306.txt"));
+        assertTrue(today.startsWith("[00:00:01.000] [T] after midnight"));
+    }
+
+    @Test
+    public void blockPolicy_losesNothingUnderContention() throws Exception {
+        writer = AsyncLogWriter.builder(dir).capacity(16)
+                .overflowPolicy(AsyncLogWriter.OverflowPolicy.BLOCK).build();
+        int threads = 4;
+        int perThread = 2_000;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    assertTrue(writer.log("p_", "T" + id, Integer.toString(i)));
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        assertTrue(writer.flush(5_000));
+
+        assertEquals(0, writer.getDroppedCount());
+        assertEquals(threads * perThread, writer.getWrittenCount());
+    }
+
+    @Test
+    public void dropPolicy_accountsForEveryEntry() throws Exception {
+        writer = AsyncLogWriter.builder(dir).capacity(4).build();
+        int accepted = 0;
+        for (int i = 0; i < 5_000; i++) {
+            if (writer.log("p_", "T", "x" + i)) {
+                accepted++;
+            }
+        }
+        assertTrue(writer.flush(5_000));
+
+        assertEquals(5_000, accepted + writer.getDroppedCount());
+        assertEquals(accepted, writer.getWrittenCount());
+    }
+
+    @Test
+    public void close_rejectsLaterEntries() {
+        writer = AsyncLogWriter.builder(dir).build();
+        writer.close(2_000);
+        assertFalse(writer.log("p_", "T", "late"));
+    }
+}
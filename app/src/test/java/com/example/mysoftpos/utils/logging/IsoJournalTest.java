@@ -0,0 +1,167 @@
+package com.example.mysoftpos.utils.logging;
+
+import com.example.mysoftpos.iso8583.message.IsoMessage;
+import com.example.mysoftpos.iso8583.parser.IsoUnpacker;
+import com.example.mysoftpos.iso8583.message.IsoMessageView;
+import com.example.mysoftpos.iso8583.util.StandardIsoPacker;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class IsoJournalTest {
+
+    private static final long DAY_MS = 24L * 3600 * 1000;
+
+    private File dir;
+    private long now;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("isojournal").toFile();
+        now = LocalDateTime.of(2026, 3, 5, 10, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private IsoJournal open(long atMillis, int segmentBytes) {
+        Clock clock = Clock.fixed(java.time.Instant.ofEpochMilli(atMillis), ZoneOffset.UTC);
+        return new IsoJournal(dir, segmentBytes, 7, clock);
+    }
+
+    private static byte[] request(String stan) throws Exception {
+        IsoMessage m = new IsoMessage("0200");
+        m.setField(2, "9704180000123456");
+        m.setField(3, "000000");
+        m.setField(4, "000000005000");
+        m.setField(11, stan);
+        m.setField(35, "9704180000123456D29121010000000000");
+        m.setField(41, "TID00001");
+        m.setField(55, "5A0897041800001234565F2A020704");
+        return StandardIsoPacker.pack(m);
+    }
+
+    private static byte[] response(String stan, String rrn, String rc) throws Exception {
+        IsoMessage m = new IsoMessage("0210");
+        m.setField(3, "000000");
+        m.setField(11, stan);
+        m.setField(37, rrn);
+        m.setField(39, rc);
+        m.setField(41, "TID00001");
+        return StandardIsoPacker.pack(m);
+    }
+
+    @Test
+    public void findByStanAndRrn_onActiveSegment() throws Exception {
+        IsoJournal j = open(now, IsoJournal.DEFAULT_SEGMENT_BYTES);
+        j.record(request("000123"), response("000123", "612345000123", "00"), now, 85_000_000L);
+        j.record(request("000124"), response("000124", "612345000124", "51"), now + 1000, 40_000_000L);
+        assertTrue(j.flush(2_000));
+
+        List<IsoJournalRecord> byStan = j.findByStan("000124", 1);
+        assertEquals(2, byStan.size());
+        assertEquals(IsoJournalRecord.Direction.REQUEST, byStan.get(0).direction);
+        assertEquals("0200", byStan.get(0).mti);
+        IsoJournalRecord resp = byStan.get(1);
+        assertEquals("0210", resp.mti);
+        assertEquals("51", resp.responseCode);
+        assertEquals("612345000124", resp.rrn);
+        assertEquals(40_000, resp.latencyMicros);
+
+        List<IsoJournalRecord> byRrn = j.findByRrn("612345000123", 1);
+        assertEquals(1, byRrn.size());
+        assertEquals("000123", byRrn.get(0).stan);
+        assertTrue(j.findByStan("999999", 1).isEmpty());
+        j.close(2_000);
+    }
+
+    @Test
+    public void storedRequest_hasCardholderDataRedacted() throws Exception {
+        IsoJournal j = open(now, IsoJournal.DEFAULT_SEGMENT_BYTES);
+        j.record(request("000200"), null, now, 30_000_000_000L);
+        assertTrue(j.flush(2_000));
+
+        List<IsoJournalRecord> found = j.findByStan("200", 1);
+        assertEquals(1, found.size());
+        IsoJournalRecord req = found.get(0);
+        assertEquals(30_000_000, req.latencyMicros); // unanswered: time spent waiting
+
+        IsoMessageView v = IsoUnpacker.unpackView(req.getPayload());
+        assertEquals("970418******3456", v.getField(2));
+        assertEquals("970418****************************", v.getField(35));
+        assertEquals("5A0800000000000000005F2A020704", v.getField(55));
+        assertEquals("000200", v.getField(11));
+        j.close(2_000);
+    }
+
+    @Test
+    public void sealedSegments_areSearchedThroughTheirIndex() throws Exception {
+        IsoJournal j = open(now, 64 * 1024);
+        for (int i = 0; i < 400; i++) {
+            String stan = String.format("%06d", i);
+            j.record(request(stan), response(stan, String.format("6123450%05d", i), "00"), now + i, 1_000_000L);
+        }
+        j.close(5_000);
+        String[] idx = dir.list((d, name) -> name.endsWith(".idx"));
+        assertNotNull(idx);
+        assertTrue("expected several segments", idx.length > 1);
+
+        IsoJournal reopened = open(now, 64 * 1024);
+        assertEquals(2, reopened.findByStan("000007", 1).size());
+        assertEquals(2, reopened.findByStan("000399", 1).size());
+        List<IsoJournalRecord> byRrn = reopened.findByRrn("612345000250", 1);
+        assertEquals(1, byRrn.size());
+        assertEquals("000250", byRrn.get(0).stan);
+        reopened.close(2_000);
+    }
+
+    @Test
+    public void unsealedSegment_isIndexedOnNextStart() throws Exception {
+        IsoJournal crashed = open(now, IsoJournal.DEFAULT_SEGMENT_BYTES);
+        crashed.record(request("000042"), response("000042", "612345000042", "00"), now, 1_000_000L);
+        assertTrue(crashed.flush(2_000)); // never sealed
+
+        IsoJournal restarted = open(now, IsoJournal.DEFAULT_SEGMENT_BYTES);
+        assertTrue(restarted.flush(2_000)); // recovery runs first on the writer
+        assertEquals(2, restarted.findByStan("000042", 1).size());
+        restarted.close(2_000);
+    }
+
+    @Test
+    public void retention_dropsOldSegments_andDaysLimitsTheSearch() throws Exception {
+        IsoJournal j = open(now, IsoJournal.DEFAULT_SEGMENT_BYTES);
+        j.record(request("000001"), response("000001", "612345000001", "00"), now, 1_000_000L);
+        j.close(2_000);
+
+        IsoJournal twoDaysLater = open(now + 2 * DAY_MS, IsoJournal.DEFAULT_SEGMENT_BYTES);
+        assertTrue(twoDaysLater.findByStan("000001", 1).isEmpty());
+        assertEquals(2, twoDaysLater.findByStan("000001", 3).size());
+        twoDaysLater.close(2_000);
+
+        IsoJournal tenDaysLater = open(now + 10 * DAY_MS, IsoJournal.DEFAULT_SEGMENT_BYTES);
+        assertTrue(tenDaysLater.flush(2_000));
+        assertTrue(tenDaysLater.findByStan("000001", 30).isEmpty());
+        String[] left = dir.list((d, name) -> name.endsWith(".seg"));
+        assertEquals(0, left.length);
+        tenDaysLater.close(2_000);
+    }
+}
@@ -0,0 +1,67 @@
+// JMH benchmarks for the ISO 8583 / EMV codecs, run on a desktop JVM.
+//
+//   ./gradlew :benchmark:jmh                       all benchmarks (GC profiler on)
+//   ./gradlew :benchmark:jmh -Pjmh.includes=Iso    only classes matching "Iso"
+//   ./gradlew :benchmark:jmhSaveBaseline           keep the last run as baseline/results.csv
+//   ./gradlew :benchmark:jmhCompare                last run vs baseline (score and B/op)
+//   ./gradlew :benchmark:nfcReadReport             simulated tap: APDUs, radio and CPU time
+//       -Pnfc.apduMs=15 -Pnfc.byteUs=80 -Pnfc.sleep=true
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    implementation(project(":core"))
+    implementation(testFixtures(project(":core")))
+}
+
+val jmhResults = layout.buildDirectory.file("results/jmh/results.csv")
+val baselineResults = layout.projectDirectory.file("baseline/results.csv")
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    profilers.add("gc")
+    resultFormat.set("CSV")
+    resultsFile.set(jmhResults)
+    (findProperty("jmh.includes") as String?)?.let { includes.add(it) }
+}
+
+tasks.register<Copy>("jmhSaveBaseline") {
+    group = "benchmark"
+    description = "Keeps the last JMH run as the baseline for jmhCompare."
+    from(jmhResults)
+    into(baselineResults.asFile.parentFile)
+}
+
+tasks.register<JavaExec>("jmhCompare") {
+    group = "benchmark"
+    description = "Compares the last JMH run against baseline/results.csv."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("com.example.mysoftpos.benchmark.BaselineReport")
+    args(
+        baselineResults.asFile.path,
+        jmhResults.get().asFile.path,
+        (findProperty("jmh.regressionPct") as String?) ?: "10"
+    )
+}
+
+tasks.register<JavaExec>("nfcReadReport") {
+    group = "benchmark"
+    description = "Replays the scripted cards through the NFC read path and prints time per tap."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("com.example.mysoftpos.benchmark.CardReadReport")
+    args(
+        (findProperty("nfc.apduMs") as String?) ?: "15",
+        (findProperty("nfc.byteUs") as String?) ?: "80",
+        (findProperty("nfc.sleep") as String?) ?: "false"
+    )
+}
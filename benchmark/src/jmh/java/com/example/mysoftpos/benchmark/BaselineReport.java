@@ -0,0 +1,168 @@
+package com.example.mysoftpos.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares two JMH CSV result files (baseline, current) and prints time and
+ * allocation per benchmark. Exits with 1 when any benchmark got slower, or
+ * allocates more per op, than the given percentage.
+ *
+ * <p>Usage: {@code BaselineReport <baseline.csv> <current.csv> [regressionPct]}
+ */
+public final class BaselineReport {
+
+    private static final String ALLOC = "gc.alloc.rate.norm";
+
+    /** Score and B/op of one benchmark + params. */
+    static final class Row {
+        double score = Double.NaN;
+        double error = Double.NaN;
+        double allocBytes = Double.NaN;
+    }
+
+    private BaselineReport() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: BaselineReport <baseline.csv> <current.csv> [regressionPct]");
+            System.exit(2);
+        }
+        Path baselinePath = Paths.get(args[0]);
+        if (!Files.exists(baselinePath)) {
+            System.err.println("No baseline at " + baselinePath + "; run jmhSaveBaseline first.");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        Map<String, Row> baseline = read(baselinePath);
+        Map<String, Row> current = read(Paths.get(args[1]));
+
+        List<String> regressions = new ArrayList<>();
+        System.out.println(String.format(Locale.US, "%-58s %12s %12s %8s %10s %10s %8s",
+                "Benchmark", "base", "current", "diff", "base B/op", "B/op", "diff"));
+        for (Map.Entry<String, Row> e : current.entrySet()) {
+            Row now = e.getValue();
+            Row was = baseline.get(e.getKey());
+            if (was == null) {
+                System.out.println(String.format(Locale.US, "%-58s %12s %12.1f %8s %10s %10.0f %8s",
+                        e.getKey(), "-", now.score, "new", "-", now.allocBytes, "new"));
+                continue;
+            }
+            double timePct = pct(was.score, now.score);
+            double allocPct = pct(was.allocBytes, now.allocBytes);
+            boolean slower = timePct > threshold
+                    // inside the baseline's own error bar: noise, not a regression
+                    && now.score - was.score > (Double.isNaN(was.error) ? 0 : was.error);
+            boolean fatter = allocPct > threshold && now.allocBytes - was.allocBytes >= 8;
+            System.out.println(String.format(Locale.US, "%-58s %12.1f %12.1f %+7.1f%% %10.0f %10.0f %+7.1f%%%s",
+                    e.getKey(), was.score, now.score, timePct, was.allocBytes, now.allocBytes, allocPct,
+                    slower || fatter ? "  <-- regression" : ""));
+            if (slower || fatter) {
+                regressions.add(e.getKey());
+            }
+        }
+        for (String name : baseline.keySet()) {
+            if (!current.containsKey(name)) {
+                System.out.println(String.format(Locale.US, "%-58s (not run)", name));
+            }
+        }
+        if (!regressions.isEmpty()) {
+            System.out.println(regressions.size() + " regression(s) above " + threshold + "%: " + regressions);
+            System.exit(1);
+        }
+    }
+
+    private static double pct(double before, double after) {
+        if (Double.isNaN(before) || Double.isNaN(after) || before == 0) {
+            return 0;
+        }
+        return (after - before) * 100.0 / before;
+    }
+
+    /**
+     * Rows keyed by short benchmark name plus params. Secondary metrics come
+     * as {@code name:metric} (older JMH: {@code name:·metric}).
+     */
+    static Map<String, Row> read(Path csv) throws IOException {
+        List<String> lines = Files.readAllLines(csv, StandardCharsets.UTF_8);
+        Map<String, Row> rows = new LinkedHashMap<>();
+        if (lines.isEmpty()) {
+            return rows;
+        }
+        List<String> header = splitCsv(lines.get(0));
+        int benchCol = header.indexOf("Benchmark");
+        int scoreCol = header.indexOf("Score");
+        int errorCol = header.indexOf("Score Error (99.9%)");
+        for (String line : lines.subList(1, lines.size())) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            List<String> cols = splitCsv(line);
+            String bench = cols.get(benchCol);
+            String metric = null;
+            int colon = bench.indexOf(':');
+            if (colon >= 0) {
+                metric = bench.substring(colon + 1).replace("·", "");
+                bench = bench.substring(0, colon);
+            }
+            StringBuilder key = new StringBuilder(shortName(bench));
+            for (int c = 0; c < header.size(); c++) {
+                if (header.get(c).startsWith("Param: ") && c < cols.size() && !cols.get(c).isEmpty()) {
+                    key.append(" ").append(header.get(c).substring(7)).append('=').append(cols.get(c));
+                }
+            }
+            Row row = rows.computeIfAbsent(key.toString(), k -> new Row());
+            double value = number(cols.get(scoreCol));
+            if (metric == null) {
+                row.score = value;
+                row.error = errorCol >= 0 ? number(cols.get(errorCol)) : Double.NaN;
+            } else if (metric.equals(ALLOC)) {
+                row.allocBytes = value;
+            }
+        }
+        return rows;
+    }
+
+    private static String shortName(String bench) {
+        int method = bench.lastIndexOf('.');
+        int cls = method > 0 ? bench.lastIndexOf('.', method - 1) : -1;
+        return bench.substring(cls + 1);
+    }
+
+    private static double number(String s) {
+        try {
+            return Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /** JMH quotes strings and never embeds quotes, so this is enough. */
+    private static List<String> splitCsv(String line) {
+        List<String> out = new ArrayList<>();
+        StringBuilder cur = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                out.add(cur.toString());
+                cur.setLength(0);
+            } else {
+                cur.append(c);
+            }
+        }
+        out.add(cur.toString());
+        return out;
+    }
+}
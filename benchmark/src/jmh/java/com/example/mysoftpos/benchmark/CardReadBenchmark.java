@@ -0,0 +1,57 @@
+package com.example.mysoftpos.benchmark;
+
+import com.example.mysoftpos.domain.model.CardInputData;
+import com.example.mysoftpos.domain.usecase.ReadCardDataUseCase;
+import com.example.mysoftpos.iso8583.log.IsoLog;
+import com.example.mysoftpos.nfc.AidSelector;
+import com.example.mysoftpos.nfc.sim.MemoryAidStatStore;
+import com.example.mysoftpos.nfc.sim.ReplayCardTransceiver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Terminal-side CPU cost of one card read (PPSE through tag 57) against a
+ * scripted card with no radio latency. See {@link CardReadReport} for the
+ * APDU count and simulated tap time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class CardReadBenchmark {
+
+    @Param({ "napas", "visa", "mastercard" })
+    public String profile;
+
+    /** Second tap of a known card: the AID selector already has its history. */
+    @Param({ "false", "true" })
+    public boolean learned;
+
+    private ReplayCardTransceiver card;
+    private AidSelector selector;
+
+    @Setup
+    public void setUp() throws IOException {
+        IsoLog.setSink(IsoLog.SILENT);
+        card = ReplayCardTransceiver.of(profile);
+        if (learned) {
+            selector = new AidSelector(new MemoryAidStatStore(), Runnable::run);
+            new ReadCardDataUseCase(card, selector).execute();
+        }
+    }
+
+    @Benchmark
+    public CardInputData readCard() throws IOException {
+        card.reset();
+        return new ReadCardDataUseCase(card, selector).execute();
+    }
+}
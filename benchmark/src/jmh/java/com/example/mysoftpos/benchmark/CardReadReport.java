@@ -0,0 +1,82 @@
+package com.example.mysoftpos.benchmark;
+
+import com.example.mysoftpos.domain.usecase.ReadCardDataUseCase;
+import com.example.mysoftpos.iso8583.log.IsoLog;
+import com.example.mysoftpos.nfc.AidSelector;
+import com.example.mysoftpos.nfc.sim.MemoryAidStatStore;
+import com.example.mysoftpos.nfc.sim.ReplayCardTransceiver;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Replays each scripted card through {@link ReadCardDataUseCase} and prints,
+ * per card and AID mode, the APDU count, bytes on the air, simulated radio
+ * time and terminal CPU time of one tap.
+ *
+ * <p>Radio time is {@code apduMs} per exchange plus {@code byteUs} per byte.
+ * CPU time is the mean of {@link #TAPS} zero-latency taps after warm-up. With
+ * {@code sleep=true} the radio time is slept for and the total is wall clock.
+ *
+ * <p>Usage: {@code CardReadReport [apduMs] [byteUs] [sleep]}
+ */
+public final class CardReadReport {
+
+    private static final String[] PROFILES = { "napas", "visa", "mastercard" };
+    private static final int WARMUP = 2_000;
+    private static final int TAPS = 5_000;
+
+    private CardReadReport() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        double apduMs = args.length > 0 ? Double.parseDouble(args[0]) : 15;
+        long byteUs = args.length > 1 ? Long.parseLong(args[1]) : 80;
+        boolean sleep = args.length > 2 && Boolean.parseBoolean(args[2]);
+        long apduUs = Math.round(apduMs * 1000);
+        IsoLog.setSink(IsoLog.SILENT);
+
+        System.out.println(String.format(Locale.US, "Radio: %.1f ms/APDU + %d us/byte%s",
+                apduMs, byteUs, sleep ? ", slept" : ""));
+        System.out.println(String.format(Locale.US, "%-12s %-8s %6s %7s %10s %9s %10s",
+                "card", "aid", "APDUs", "bytes", "radio ms", "CPU us", "total ms"));
+        for (String profile : PROFILES) {
+            for (boolean learned : new boolean[] { false, true }) {
+                report(profile, learned, apduUs, byteUs, sleep);
+            }
+        }
+    }
+
+    private static void report(String profile, boolean learned, long apduUs, long byteUs, boolean sleep)
+            throws IOException {
+        ReplayCardTransceiver card = ReplayCardTransceiver.of(profile);
+        AidSelector selector = null;
+        if (learned) {
+            selector = new AidSelector(new MemoryAidStatStore(), Runnable::run);
+            new ReadCardDataUseCase(card, selector).execute();
+        }
+
+        for (int i = 0; i < WARMUP; i++) {
+            card.reset();
+            new ReadCardDataUseCase(card, selector).execute();
+        }
+        long t0 = System.nanoTime();
+        for (int i = 0; i < TAPS; i++) {
+            card.reset();
+            new ReadCardDataUseCase(card, selector).execute();
+        }
+        double cpuUs = (System.nanoTime() - t0) / 1000.0 / TAPS;
+
+        card.reset();
+        card.setLatency(apduUs, byteUs).setRealTime(sleep);
+        long w0 = System.nanoTime();
+        new ReadCardDataUseCase(card, selector).execute();
+        double wallMs = (System.nanoTime() - w0) / 1e6;
+        double radioMs = card.getRadioNanos() / 1e6;
+        double totalMs = sleep ? wallMs : radioMs + cpuUs / 1000.0;
+
+        System.out.println(String.format(Locale.US, "%-12s %-8s %6d %7d %10.1f %9.1f %10.1f",
+                profile, learned ? "learned" : "walk", card.getApduCount(), card.getBytesExchanged(),
+                radioMs, cpuUs, totalMs));
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.mysoftpos.benchmark;
+
+import com.example.mysoftpos.iso8583.emv.EmvTagSet;
+import com.example.mysoftpos.iso8583.emv.EmvTlvCodec;
+import com.example.mysoftpos.iso8583.parser.TlvIndex;
+import com.example.mysoftpos.iso8583.parser.TlvParser;
+import com.example.mysoftpos.iso8583.util.HexUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/** DE 55 build / parse and single-tag lookup. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class EmvCodecBenchmark {
+
+    private EmvTagSet requestTags;
+    private String responseDe55;
+    private byte[] requestDe55;
+    private final TlvIndex tlv = new TlvIndex();
+    private final ByteBuffer de55Out = ByteBuffer.allocate(255);
+
+    @Setup
+    public void setUp() {
+        requestTags = IsoFixtures.requestTags();
+        responseDe55 = IsoFixtures.responseDe55Hex();
+        requestDe55 = EmvTlvCodec.buildDE55Bytes(requestTags);
+    }
+
+    @Benchmark
+    public String buildDE55() {
+        return EmvTlvCodec.buildDE55(requestTags);
+    }
+
+    /** Card tags plus terminal tags, as Iso8583Builder does per chip tap. */
+    @Benchmark
+    public EmvTagSet buildNfcPurchaseTags() {
+        return EmvTlvCodec.buildNfcPurchaseTags(requestTags, "5000", "704", "704", "00", false);
+    }
+
+    /** DE 55 TLV stream into a reused buffer: no allocation. */
+    @Benchmark
+    public int writeDE55() {
+        de55Out.clear();
+        requestTags.writeTo(de55Out);
+        return de55Out.position();
+    }
+
+    @Benchmark
+    public EmvTagSet parseDE55Response() {
+        return EmvTlvCodec.parseDE55Response(responseDe55);
+    }
+
+    /** Tag 57 sits last in the request stream: a full walk. */
+    @Benchmark
+    public byte[] findTagLast() {
+        return TlvParser.findTag(requestDe55, EmvTlvCodec.TAG_TRACK2_EQUIVALENT);
+    }
+
+    @Benchmark
+    public byte[] findTagFirst() {
+        return TlvParser.findTag(requestDe55, EmvTlvCodec.TAG_APP_CRYPTOGRAM);
+    }
+
+    /** One pass over the stream into a reused index; no values copied. */
+    @Benchmark
+    public int indexDE55() {
+        return tlv.wrap(requestDe55, 0, requestDe55.length, TlvIndex.DEFAULT_MAX_DEPTH).size();
+    }
+
+    /** Index once, then the tags the reader looks up on every response. */
+    @Benchmark
+    public int indexThenLookups() {
+        tlv.wrap(requestDe55, 0, requestDe55.length, TlvIndex.DEFAULT_MAX_DEPTH);
+        return tlv.indexOf(EmvTlvCodec.TAG_TRACK2_EQUIVALENT) + tlv.indexOf(EmvTlvCodec.TAG_APP_CRYPTOGRAM)
+                + tlv.indexOf(EmvTlvCodec.TAG_ATC) + tlv.indexOf(0x94);
+    }
+
+    @Benchmark
+    public byte[] hexToBytes() {
+        return HexUtil.hexToBytes(responseDe55);
+    }
+
+    @Benchmark
+    public String bytesToHex() {
+        return HexUtil.bytesToHex(requestDe55);
+    }
+}
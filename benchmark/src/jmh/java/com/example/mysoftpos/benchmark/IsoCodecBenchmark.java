@@ -0,0 +1,63 @@
+package com.example.mysoftpos.benchmark;
+
+import com.example.mysoftpos.iso8583.message.IsoMessage;
+import com.example.mysoftpos.iso8583.message.IsoMessageView;
+import com.example.mysoftpos.iso8583.parser.IsoUnpacker;
+import com.example.mysoftpos.iso8583.util.StandardIsoPacker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/** Pack and unpack of whole messages, per MTI. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class IsoCodecBenchmark {
+
+    @Param({"0200", "0210", "0420"})
+    public String mti;
+
+    private IsoMessage message;
+    private byte[] wire;
+
+    @Setup
+    public void setUp() {
+        message = IsoFixtures.byMti(mti);
+        wire = IsoFixtures.packed(mti);
+    }
+
+    @Benchmark
+    public byte[] pack() throws Exception {
+        return StandardIsoPacker.pack(message);
+    }
+
+    @Benchmark
+    public IsoMessage unpack() {
+        return IsoUnpacker.unpack(wire);
+    }
+
+    /** Lazy view, as the response path reads only a few fields. */
+    @Benchmark
+    public String unpackViewResponseCode() {
+        IsoMessageView view = IsoUnpacker.unpackView(wire);
+        return view.getField(39);
+    }
+
+    @Benchmark
+    public String unpackField() {
+        return StandardIsoPacker.unpackField(wire, 11);
+    }
+
+    @Benchmark
+    public String logIsoMessage() {
+        return StandardIsoPacker.logIsoMessage(message);
+    }
+}
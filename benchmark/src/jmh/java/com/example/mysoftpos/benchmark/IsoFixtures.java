@@ -0,0 +1,152 @@
+package com.example.mysoftpos.benchmark;
+
+import com.example.mysoftpos.iso8583.emv.EmvTagSet;
+import com.example.mysoftpos.iso8583.emv.EmvTlvCodec;
+import com.example.mysoftpos.iso8583.message.IsoMessage;
+import com.example.mysoftpos.iso8583.spec.IsoField;
+import com.example.mysoftpos.iso8583.util.HexUtil;
+import com.example.mysoftpos.iso8583.util.StandardIsoPacker;
+
+/**
+ * NAPAS-shaped messages for the benchmarks: a chip purchase (0200), its
+ * approval with issuer data (0210) and the reversal advice (0420), with the
+ * same field set {@code Iso8583Builder} produces.
+ */
+final class IsoFixtures {
+
+    static final String PAN = "9704189991010867647";
+    static final String PIN = "123456";
+
+    private IsoFixtures() {
+    }
+
+    /** Request DE 55 tags as read from the card, in terminal order. */
+    static EmvTagSet requestTags() {
+        EmvTagSet tags = new EmvTagSet();
+        tags.put(EmvTlvCodec.TAG_APP_CRYPTOGRAM, HexUtil.hexToBytes("8E19ED4C4F2D9C3A"));
+        tags.put(EmvTlvCodec.TAG_CRYPTOGRAM_INFO, HexUtil.hexToBytes("80"));
+        tags.put(EmvTlvCodec.TAG_ISSUER_APP_DATA, HexUtil.hexToBytes("0110A00003220000000000000000000000FF"));
+        tags.put(EmvTlvCodec.TAG_UNPREDICTABLE_NUMBER, HexUtil.hexToBytes("1A2B3C4D"));
+        tags.put(EmvTlvCodec.TAG_ATC, HexUtil.hexToBytes("0042"));
+        tags.put(EmvTlvCodec.TAG_TVR, HexUtil.hexToBytes("0000008000"));
+        tags.put(EmvTlvCodec.TAG_TXN_DATE, HexUtil.hexToBytes("260305"));
+        tags.put(EmvTlvCodec.TAG_TXN_TYPE, HexUtil.hexToBytes("00"));
+        tags.put(EmvTlvCodec.TAG_AMOUNT_AUTHORIZED, HexUtil.hexToBytes("000000005000"));
+        tags.put(EmvTlvCodec.TAG_TXN_CURRENCY_CODE, HexUtil.hexToBytes("0704"));
+        tags.put(EmvTlvCodec.TAG_AIP, HexUtil.hexToBytes("1980"));
+        tags.put(EmvTlvCodec.TAG_TERMINAL_COUNTRY, HexUtil.hexToBytes("0704"));
+        tags.put(EmvTlvCodec.TAG_CVM_RESULTS, HexUtil.hexToBytes("420300"));
+        tags.put(EmvTlvCodec.TAG_TERMINAL_CAPABILITIES, HexUtil.hexToBytes("E0F8C8"));
+        tags.put(EmvTlvCodec.TAG_AMOUNT_OTHER, HexUtil.hexToBytes("000000000000"));
+        tags.put(EmvTlvCodec.TAG_TERMINAL_TYPE, HexUtil.hexToBytes("22"));
+        tags.put(EmvTlvCodec.TAG_DF_NAME, HexUtil.hexToBytes(EmvTlvCodec.NAPAS_DOMESTIC_AID));
+        tags.put(EmvTlvCodec.TAG_CARD_SEQ_NUM, HexUtil.hexToBytes("01"));
+        tags.put(EmvTlvCodec.TAG_TRACK2_EQUIVALENT,
+                EmvTlvCodec.encodeTag57(PAN, "3101", "601", "0000000123"));
+        return tags;
+    }
+
+    /** Response DE 55: issuer authentication data plus an issuer script. */
+    static String responseDe55Hex() {
+        return "910A1A2B3C4D5E6F70810012"
+                + "7216" + "9F180400000001" + "860D8424000008A1B2C3D4E5F60708";
+    }
+
+    static IsoMessage purchase0200() {
+        IsoMessage m = new IsoMessage("0200");
+        m.setField(IsoField.PAN_2, PAN);
+        m.setField(IsoField.PROCESSING_CODE_3, "000000");
+        m.setField(IsoField.AMOUNT_4, "000000005000");
+        m.setField(IsoField.TRANSMISSION_DATETIME_7, "0305090701");
+        m.setField(IsoField.STAN_11, "000123");
+        m.setField(IsoField.LOCAL_TIME_12, "090701");
+        m.setField(IsoField.LOCAL_DATE_13, "0305");
+        m.setField(IsoField.EXPIRATION_DATE_14, "3101");
+        m.setField(IsoField.MERCHANT_TYPE_18, "5999");
+        m.setField(IsoField.COUNTRY_CODE_19, "704");
+        m.setField(IsoField.POS_ENTRY_MODE_22, "071");
+        m.setField(IsoField.CARD_SEQ_23, "001");
+        m.setField(IsoField.POS_CONDITION_CODE_25, "00");
+        m.setField(IsoField.ACQUIRER_ID_32, "970488");
+        m.setField(IsoField.TRACK2_35, PAN + "D31016010000000123");
+        m.setField(IsoField.RRN_37, "606409000123");
+        m.setField(IsoField.TERMINAL_ID_41, "TID00001");
+        m.setField(IsoField.MERCHANT_ID_42, "MID000000000001");
+        m.setField(IsoField.MERCHANT_NAME_LOCATION_43, "MY SOFTPOS TEST        HA NOI       VNM");
+        m.setField(IsoField.CURRENCY_CODE_49, "704");
+        m.setField(IsoField.PIN_BLOCK_52, "A1B2C3D4E5F60718");
+        m.setField(IsoField.ICC_DATA_55, EmvTlvCodec.buildDE55(requestTags()));
+        return m;
+    }
+
+    static IsoMessage approval0210() {
+        IsoMessage m = new IsoMessage("0210");
+        m.setField(IsoField.PAN_2, PAN);
+        m.setField(IsoField.PROCESSING_CODE_3, "000000");
+        m.setField(IsoField.AMOUNT_4, "000000005000");
+        m.setField(IsoField.TRANSMISSION_DATETIME_7, "0305090701");
+        m.setField(IsoField.STAN_11, "000123");
+        m.setField(IsoField.LOCAL_TIME_12, "090701");
+        m.setField(IsoField.LOCAL_DATE_13, "0305");
+        m.setField(IsoField.ACQUIRER_ID_32, "970488");
+        m.setField(IsoField.RRN_37, "606409000123");
+        m.setField(38, "A12345");
+        m.setField(39, "00");
+        m.setField(IsoField.TERMINAL_ID_41, "TID00001");
+        m.setField(IsoField.MERCHANT_ID_42, "MID000000000001");
+        m.setField(IsoField.CURRENCY_CODE_49, "704");
+        m.setField(IsoField.ICC_DATA_55, responseDe55Hex());
+        return m;
+    }
+
+    static IsoMessage reversal0420() {
+        IsoMessage m = new IsoMessage("0420");
+        m.setField(IsoField.PAN_2, PAN);
+        m.setField(IsoField.PROCESSING_CODE_3, "000000");
+        m.setField(IsoField.AMOUNT_4, "000000005000");
+        m.setField(IsoField.TRANSMISSION_DATETIME_7, "0305090731");
+        m.setField(IsoField.STAN_11, "000124");
+        m.setField(IsoField.LOCAL_TIME_12, "090701");
+        m.setField(IsoField.LOCAL_DATE_13, "0305");
+        m.setField(IsoField.EXPIRATION_DATE_14, "3101");
+        m.setField(IsoField.MERCHANT_TYPE_18, "5999");
+        m.setField(IsoField.COUNTRY_CODE_19, "704");
+        m.setField(IsoField.POS_ENTRY_MODE_22, "071");
+        m.setField(IsoField.POS_CONDITION_CODE_25, "00");
+        m.setField(IsoField.ACQUIRER_ID_32, "970488");
+        m.setField(IsoField.RRN_37, "606409000123");
+        m.setField(IsoField.TERMINAL_ID_41, "TID00001");
+        m.setField(IsoField.MERCHANT_ID_42, "MID000000000001");
+        m.setField(IsoField.MERCHANT_NAME_LOCATION_43, "MY SOFTPOS TEST        HA NOI       VNM");
+        m.setField(IsoField.CURRENCY_CODE_49, "704");
+        m.setField(IsoField.ICC_DATA_55, "DF3105000000000095050000008000");
+        m.setField(90, "020000012303050907010000097048800000000000");
+        return m;
+    }
+
+    static IsoMessage byMti(String mti) {
+        switch (mti) {
+            case "0200":
+                return purchase0200();
+            case "0210":
+                return approval0210();
+            case "0420":
+                return reversal0420();
+            default:
+                throw new IllegalArgumentException("No fixture for MTI " + mti);
+        }
+    }
+
+    static byte[] packed(String mti) {
+        try {
+            return StandardIsoPacker.pack(byMti(mti));
+        } catch (Exception e) {
+            throw new IllegalStateException("Fixture " + mti + " does not pack", e);
+        }
+    }
+
+    /** {@code StandardIsoPacker.logIsoMessage} output, the text FileLogger masks most. */
+    static String logDump(String mti) {
+        return StandardIsoPacker.logIsoMessage(byMti(mti));
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.mysoftpos.benchmark;
+
+import com.example.mysoftpos.iso8583.util.HexUtil;
+import com.example.mysoftpos.iso8583.util.PinBlockGenerator;
+import com.example.mysoftpos.utils.security.PanMasker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * PIN block and log masking. The {@code regex*} benchmarks keep the masking
+ * PanMasker used before the single-pass scrubber, as the reference point.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class SecurityBenchmark {
+
+    private static final Pattern PAN_PATTERN = Pattern.compile("\\b(\\d{13,19})\\b");
+    private static final Pattern TRACK2_PATTERN = Pattern.compile("(\\d{13,19})=(\\d{4,})");
+
+    private String logText;
+    private String packetHex;
+
+    @Setup
+    public void setUp() {
+        logText = IsoFixtures.logDump("0200")
+                + "T2 " + IsoFixtures.PAN + "=31016010000000123 sent to " + IsoFixtures.PAN + "\n";
+        packetHex = HexUtil.bytesToHex(IsoFixtures.packed("0200"));
+    }
+
+    @Benchmark
+    public String pinBlock() {
+        return PinBlockGenerator.calculateClearBlock(IsoFixtures.PIN, IsoFixtures.PAN);
+    }
+
+    @Benchmark
+    public String maskText() {
+        return PanMasker.mask(logText);
+    }
+
+    @Benchmark
+    public String maskHex() {
+        return PanMasker.maskHex(packetHex);
+    }
+
+    @Benchmark
+    public String regexMaskText() {
+        String result = replaceAll(TRACK2_PATTERN, logText, true);
+        return replaceAll(PAN_PATTERN, result, false);
+    }
+
+    /** The old maskHex compiled its pattern on every call; so does this. */
+    @Benchmark
+    public String regexMaskHex() {
+        Matcher m = Pattern.compile("([0-9A-Fa-f]{26,38})").matcher(packetHex);
+        StringBuilder sb = new StringBuilder();
+        int last = 0;
+        while (m.find()) {
+            String hex = m.group(1);
+            int len = hex.length();
+            sb.append(packetHex, last, m.start()).append(hex, 0, 12);
+            for (int i = 0; i < len - 20; i++) {
+                sb.append('*');
+            }
+            sb.append(hex, len - 8, len);
+            last = m.end();
+        }
+        return sb.append(packetHex, last, packetHex.length()).toString();
+    }
+
+    private static String replaceAll(Pattern p, String input, boolean track2) {
+        Matcher m = p.matcher(input);
+        StringBuilder sb = new StringBuilder();
+        int last = 0;
+        while (m.find()) {
+            sb.append(input, last, m.start()).append(PanMasker.maskSinglePan(m.group(1)));
+            if (track2) {
+                sb.append("=****");
+            }
+            last = m.end();
+        }
+        return sb.append(input, last, input.length()).toString();
+    }
+}
@@ -0,0 +1,16 @@
+// Plain-JVM ISO 8583 / EMV codec shared by the app, the benchmarks and any
+// desktop tooling. No Android dependencies: logging goes through IsoLog.
+// Test fixtures hold the scripted card simulator (nfc.sim) and its .apdu cards.
+plugins {
+    `java-library`
+    `java-test-fixtures`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
@@ -1,6 +1,6 @@
 package com.example.mysoftpos.domain.model;
 
-import java.util.Map;
+import com.example.mysoftpos.iso8583.emv.EmvTagSet;
 
 /**
  * Standardized Data Model for Card Input.
@@ -22,7 +22,7 @@ public class CardInputData {
     private String pinBlock; // Optional PIN Block (DE 52)
 
     // --- NFC CHIP fields ---
-    private Map<Integer, byte[]> emvTags; // EMV tags read from chip (for DE 55)
+    private EmvTagSet emvTags; // EMV tags read from chip (for DE 55)
     private String cardSequenceNumber; // From tag 5F34, for DE 23 (e.g., "001")
 
     public CardInputData(String pan, String expiryDate, String posEntryMode, String track2) {
@@ -44,11 +44,7 @@ public class CardInputData {
         this.cardSequenceNumber = null;
         // PA-DSS 1.1.1: Clear EMV tag data
         if (this.emvTags != null) {
-            for (byte[] value : this.emvTags.values()) {
-                if (value != null)
-                    java.util.Arrays.fill(value, (byte) 0);
-            }
-            this.emvTags.clear();
+            this.emvTags.wipe();
             this.emvTags = null;
         }
     }
@@ -79,11 +75,11 @@ public class CardInputData {
 
     // --- EMV Tags (NFC CHIP) ---
 
-    public void setEmvTags(Map<Integer, byte[]> emvTags) {
+    public void setEmvTags(EmvTagSet emvTags) {
         this.emvTags = emvTags;
     }
 
-    public Map<Integer, byte[]> getEmvTags() {
+    public EmvTagSet getEmvTags() {
         return emvTags;
     }
 
@@ -1,16 +1,18 @@
 package com.example.mysoftpos.domain.usecase;
 
-import android.util.Log;
-
+import com.example.mysoftpos.iso8583.log.IsoLog;
+import com.example.mysoftpos.nfc.AidSelector;
 import com.example.mysoftpos.nfc.CardTransceiver;
 import com.example.mysoftpos.nfc.ApduCommandBuilder;
 import com.example.mysoftpos.domain.model.CardInputData;
+import com.example.mysoftpos.iso8583.emv.EmvTagSet;
 import com.example.mysoftpos.iso8583.emv.EmvTlvCodec;
+import com.example.mysoftpos.iso8583.parser.TlvIndex;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.List;
 
 /**
  * Read Card Data via NFC — FAST & CRASH-SAFE.
@@ -18,6 +20,10 @@ import java.util.Map;
  * Flow: PPSE → SELECT AID → GPO → READ RECORD → done.
  * No GENERATE AC (skip để giảm thời gian, ARQC sẽ build phía server nếu cần).
  * Total: 3-5 APDU commands, < 800ms.
+ *
+ * With an {@link AidSelector}, a card profile seen before skips PPSE and
+ * SELECTs its learned AID first; the direct-SELECT fallback is tried in
+ * learned order instead of the fixed list.
  */
 public class ReadCardDataUseCase {
 
@@ -32,78 +38,114 @@ public class ReadCardDataUseCase {
     private static final byte[] AID_MC         = hexToBytes("A0000000041010");
     private static final byte[] AID_MC_SHORT   = hexToBytes("A000000004");
 
+    private static final byte[][] FIXED_AIDS = {AID_NAPAS, AID_NAPAS_2, AID_NAPAS_3, AID_VCCS,
+                                                AID_VISA, AID_VISA_SHORT, AID_MC, AID_MC_SHORT};
+
     private final CardTransceiver transceiver;
+    private final AidSelector aidSelector; // null = fixed order, nothing learned
+    private final TlvIndex tlv = new TlvIndex(); // reused for every response of the tap
 
     public ReadCardDataUseCase(CardTransceiver transceiver) {
+        this(transceiver, null);
+    }
+
+    public ReadCardDataUseCase(CardTransceiver transceiver, AidSelector aidSelector) {
         this.transceiver = transceiver;
+        this.aidSelector = aidSelector;
     }
 
     public CardInputData execute() throws IOException {
         long t0 = System.currentTimeMillis();
-        Map<Integer, byte[]> emvTags = new LinkedHashMap<>();
+        EmvTagSet emvTags = new EmvTagSet();
 
-        // ── Step 1: SELECT PPSE → discover AID ──────────────────────────
         byte[] selectedAid = null;
         byte[] selectResp = null;
+        List<byte[]> tried = new ArrayList<>();
+        String profile = aidSelector != null ? transceiver.getCardProfile() : null;
+
+        // ── Step 0: learned AID for this card profile → skip PPSE ──────
+        byte[] learned = aidSelector != null ? aidSelector.preferredAid(profile) : null;
+        if (learned != null) {
+            tried.add(learned);
+            try {
+                byte[] r = send(ApduCommandBuilder.selectAid(learned));
+                if (isSelected(r)) {
+                    selectedAid = learned;
+                    selectResp = r;
+                    IsoLog.d(TAG, "Learned AID matched: " + bytesToHex(learned));
+                } else {
+                    aidSelector.recordMiss(profile, learned);
+                }
+            } catch (IOException e) {
+                if (isTagLost(e)) throw e;
+                aidSelector.recordMiss(profile, learned);
+            }
+        }
 
-        try {
-            byte[] ppse = send(ApduCommandBuilder.selectPpse());
-            if (ppse != null) {
-                byte[] aid = findTag(ppse, 0x4F);
-                if (aid != null && aid.length >= 5) {
-                    Log.d(TAG, "PPSE found AID: " + bytesToHex(aid));
-                    byte[] r = send(ApduCommandBuilder.selectAid(aid));
-                    if (r != null && isOk(r)) {
-                        selectedAid = aid;
-                        selectResp = r;
+        // ── Step 1: SELECT PPSE → discover AID ──────────────────────────
+        if (selectedAid == null) {
+            try {
+                byte[] ppse = send(ApduCommandBuilder.selectPpse());
+                if (ppse != null) {
+                    byte[] aid = findTag(ppse, 0x4F);
+                    if (aid != null && aid.length >= 5) {
+                        IsoLog.d(TAG, "PPSE found AID: " + bytesToHex(aid));
+                        if (!contains(tried, aid)) {
+                            tried.add(aid);
+                            byte[] r = send(ApduCommandBuilder.selectAid(aid));
+                            if (r != null && isOk(r)) {
+                                selectedAid = aid;
+                                selectResp = r;
+                            }
+                        }
+                    } else {
+                        IsoLog.d(TAG, "PPSE ok but no AID found in FCI");
                     }
-                } else {
-                    Log.d(TAG, "PPSE ok but no AID found in FCI");
                 }
+            } catch (IOException e) {
+                if (isTagLost(e)) throw e;
+                IsoLog.d(TAG, "PPSE failed: " + e.getMessage());
             }
-        } catch (IOException e) {
-            if (isTagLost(e)) throw e;
-            Log.d(TAG, "PPSE failed: " + e.getMessage());
         }
 
         // ── Step 2: Fallback — direct SELECT AID ────────────────────────
         if (selectedAid == null) {
-            byte[][] aids = {AID_NAPAS, AID_NAPAS_2, AID_NAPAS_3, AID_VCCS,
-                             AID_VISA, AID_VISA_SHORT, AID_MC, AID_MC_SHORT};
+            List<byte[]> aids = aidSelector != null
+                    ? aidSelector.candidates(profile)
+                    : Arrays.asList(FIXED_AIDS);
             for (byte[] aid : aids) {
+                if (contains(tried, aid)) continue;
                 try {
                     byte[] r = send(ApduCommandBuilder.selectAid(aid));
                     if (r != null && r.length >= 2) {
                         int sw = ((r[r.length-2] & 0xFF) << 8) | (r[r.length-1] & 0xFF);
-                        Log.d(TAG, "SELECT " + bytesToHex(aid) + " → SW=" + String.format("%04X", sw)
+                        IsoLog.d(TAG, "SELECT " + bytesToHex(aid) + " → SW=" + String.format("%04X", sw)
                                 + " len=" + r.length);
-                        // Accept: 9000, 62XX, or any response that has FCI data (len > 2)
-                        // and is not a hard error (6A82=not found, 6A81=not supported, 6999=applet error)
-                        if (isOk(r) || (r.length > 2 && sw != 0x6A82 && sw != 0x6A81 && sw != 0x6999)) {
+                        if (isSelected(r)) {
                             selectedAid = aid;
                             selectResp = r;
-                            Log.d(TAG, "AID matched: " + bytesToHex(aid));
+                            IsoLog.d(TAG, "AID matched: " + bytesToHex(aid));
                             break;
                         }
                     } else {
-                        Log.d(TAG, "SELECT " + bytesToHex(aid) + " → null/empty");
+                        IsoLog.d(TAG, "SELECT " + bytesToHex(aid) + " → null/empty");
                     }
                 } catch (IOException e) {
-                    Log.d(TAG, "SELECT " + bytesToHex(aid) + " → IOException: " + e.getMessage());
+                    IsoLog.d(TAG, "SELECT " + bytesToHex(aid) + " → IOException: " + e.getMessage());
                     if (isTagLost(e)) throw e;
                 }
             }
         }
 
         if (selectedAid == null) {
-            Log.e(TAG, "No AID matched after trying all candidates");
+            IsoLog.e(TAG, "No AID matched after trying all candidates");
             throw new IOException("Thẻ không được hỗ trợ. Vui lòng thử lại.");
         }
 
         emvTags.put(0x84, selectedAid);
         collectTags(selectResp, emvTags);
 
-        Log.d(TAG, "SELECT " + (System.currentTimeMillis() - t0) + "ms");
+        IsoLog.d(TAG, "SELECT " + (System.currentTimeMillis() - t0) + "ms");
 
         // ── Step 3: GET PROCESSING OPTIONS ───────────────────────────────
         byte[] pdol = emvTags.get(0x9F38);
@@ -119,10 +161,10 @@ public class ReadCardDataUseCase {
         }
         collectTags(gpo, emvTags);
 
-        Log.d(TAG, "GPO " + (System.currentTimeMillis() - t0) + "ms");
+        IsoLog.d(TAG, "GPO " + (System.currentTimeMillis() - t0) + "ms");
 
         // ── Step 4: READ RECORD (AFL-based, stop khi có tag 57) ──────────
-        if (!emvTags.containsKey(0x57)) {
+        if (!emvTags.contains(0x57)) {
             byte[] afl = emvTags.get(0x94);
             if (afl != null && afl.length >= 4) {
                 readAfl(afl, emvTags);
@@ -135,7 +177,7 @@ public class ReadCardDataUseCase {
             }
         }
 
-        Log.d(TAG, "READ " + (System.currentTimeMillis() - t0) + "ms");
+        IsoLog.d(TAG, "READ " + (System.currentTimeMillis() - t0) + "ms");
 
         // ── Verify Tag 57 ────────────────────────────────────────────────
         byte[] tag57 = emvTags.get(0x57);
@@ -151,9 +193,12 @@ public class ReadCardDataUseCase {
         // ── Build terminal EMV tags (cho DE 55 sau này) ──────────────────
         setTerminalTags(emvTags);
 
-        Log.d(TAG, "DONE " + (System.currentTimeMillis() - t0) + "ms, tags=" + emvTags.size());
+        IsoLog.d(TAG, "DONE " + (System.currentTimeMillis() - t0) + "ms, tags=" + emvTags.size());
 
         // ── Result ───────────────────────────────────────────────────────
+        if (aidSelector != null) {
+            aidSelector.recordSuccess(profile, t2.pan, selectedAid);
+        }
         CardInputData card = new CardInputData(t2.pan, t2.expiryYYMM, "072",
                 EmvTlvCodec.buildDE35FromTag57(tag57));
         card.setEmvTags(emvTags);
@@ -165,7 +210,7 @@ public class ReadCardDataUseCase {
     // READ RECORD — AFL-based, stop khi có tag 57
     // ─────────────────────────────────────────────────────────────────────
 
-    private void readAfl(byte[] afl, Map<Integer, byte[]> tags) {
+    private void readAfl(byte[] afl, EmvTagSet tags) {
         for (int i = 0; i + 3 < afl.length; i += 4) {
             int sfi = (afl[i] & 0xFF) >> 3;
             int first = afl[i + 1] & 0xFF;
@@ -182,7 +227,7 @@ public class ReadCardDataUseCase {
                     if (isTagLost(e)) return; // thẻ mất → dừng
                 }
                 // Đã có tag 57 → dừng đọc record
-                if (tags.containsKey(0x57)) return;
+                if (tags.contains(0x57)) return;
             }
         }
     }
@@ -191,19 +236,15 @@ public class ReadCardDataUseCase {
     // Terminal tags (set lên cho DE 55 builder dùng sau này)
     // ─────────────────────────────────────────────────────────────────────
 
-    private void setTerminalTags(Map<Integer, byte[]> tags) {
-        putIfAbsent(tags, EmvTlvCodec.TAG_AMOUNT_AUTHORIZED, EmvTlvCodec.encodeBcdFixed("0", 6));
-        putIfAbsent(tags, EmvTlvCodec.TAG_AMOUNT_OTHER, EmvTlvCodec.encodeBcdFixed("0", 6));
-        putIfAbsent(tags, EmvTlvCodec.TAG_TERMINAL_COUNTRY, new byte[]{0x07, 0x04});
-        putIfAbsent(tags, EmvTlvCodec.TAG_TXN_CURRENCY_CODE, new byte[]{0x07, 0x04});
-        putIfAbsent(tags, EmvTlvCodec.TAG_TXN_DATE, EmvTlvCodec.encodeTransactionDate());
-        putIfAbsent(tags, EmvTlvCodec.TAG_TXN_TYPE, new byte[]{0x00});
-        putIfAbsent(tags, EmvTlvCodec.TAG_UNPREDICTABLE_NUMBER, EmvTlvCodec.generateUnpredictableNumber());
-        putIfAbsent(tags, EmvTlvCodec.TAG_TVR, new byte[5]);
-    }
-
-    private void putIfAbsent(Map<Integer, byte[]> map, int key, byte[] val) {
-        if (!map.containsKey(key)) map.put(key, val);
+    private void setTerminalTags(EmvTagSet tags) {
+        tags.putIfAbsent(EmvTlvCodec.TAG_AMOUNT_AUTHORIZED, EmvTlvCodec.encodeBcdFixed("0", 6));
+        tags.putIfAbsent(EmvTlvCodec.TAG_AMOUNT_OTHER, EmvTlvCodec.encodeBcdFixed("0", 6));
+        tags.putIfAbsent(EmvTlvCodec.TAG_TERMINAL_COUNTRY, new byte[]{0x07, 0x04});
+        tags.putIfAbsent(EmvTlvCodec.TAG_TXN_CURRENCY_CODE, new byte[]{0x07, 0x04});
+        tags.putIfAbsent(EmvTlvCodec.TAG_TXN_DATE, EmvTlvCodec.encodeTransactionDate());
+        tags.putIfAbsent(EmvTlvCodec.TAG_TXN_TYPE, new byte[]{0x00});
+        tags.putIfAbsent(EmvTlvCodec.TAG_UNPREDICTABLE_NUMBER, EmvTlvCodec.generateUnpredictableNumber());
+        tags.putIfAbsent(EmvTlvCodec.TAG_TVR, new byte[5]);
     }
 
     // ─────────────────────────────────────────────────────────────────────
@@ -260,6 +301,16 @@ public class ReadCardDataUseCase {
         int sw1 = r[r.length - 2] & 0xFF;
         int sw2 = r[r.length - 1] & 0xFF;
 
+        // SW1=6C → wrong Le, resend the same command with Le=SW2
+        if (sw1 == 0x6C && cmd.length >= 5) {
+            byte[] retry = cmd.clone();
+            retry[retry.length - 1] = (byte) sw2;
+            r = transceiver.transceive(retry);
+            if (r == null || r.length < 2) return null;
+            sw1 = r[r.length - 2] & 0xFF;
+            sw2 = r[r.length - 1] & 0xFF;
+        }
+
         // SW1=61 → GET RESPONSE
         if (sw1 == 0x61) {
             byte[] gr = transceiver.transceive(new byte[]{0x00, (byte)0xC0, 0x00, 0x00, (byte)sw2});
@@ -281,56 +332,36 @@ public class ReadCardDataUseCase {
     /** Find a tag in APDU response (strips SW). Recursive into templates. */
     private byte[] findTag(byte[] resp, int targetTag) {
         if (resp == null || resp.length <= 2) return null;
-        byte[] data = Arrays.copyOfRange(resp, 0, resp.length - 2);
-        return findTagIn(data, targetTag, 0);
-    }
-
-    private byte[] findTagIn(byte[] data, int target, int depth) {
-        if (depth > 5 || data == null || data.length < 2) return null;
-        try {
-            Map<Integer, byte[]> tags = EmvTlvCodec.parseDE55Bytes(data);
-            for (Map.Entry<Integer, byte[]> e : tags.entrySet()) {
-                if (e.getKey() == target) return e.getValue();
-                if (isTemplate(e.getKey()) && e.getValue().length > 2) {
-                    byte[] found = findTagIn(e.getValue(), target, depth + 1);
-                    if (found != null) return found;
-                }
-            }
-        } catch (Exception ignored) {}
-        return null;
+        return tlv.wrap(resp, 0, resp.length - 2, TlvIndex.DEFAULT_MAX_DEPTH).find(targetTag);
     }
 
-    /** Collect all tags from APDU response into map. */
-    private void collectTags(byte[] resp, Map<Integer, byte[]> out) {
+    /** Collect all tags from APDU response into map, templates and their contents. */
+    private void collectTags(byte[] resp, EmvTagSet out) {
         if (resp == null || resp.length <= 2) return;
-        byte[] data = Arrays.copyOfRange(resp, 0, resp.length - 2);
-        if (data.length == 0) return;
-        try {
-            parseInto(data, out, 0);
-        } catch (Exception e) {
-            Log.w(TAG, "TLV parse error: " + e.getMessage());
-        }
-    }
-
-    private void parseInto(byte[] data, Map<Integer, byte[]> out, int depth) {
-        if (depth > 5 || data == null || data.length == 0) return;
-        Map<Integer, byte[]> parsed = EmvTlvCodec.parseDE55Bytes(data);
-        for (Map.Entry<Integer, byte[]> e : parsed.entrySet()) {
-            out.put(e.getKey(), e.getValue());
-            if (isTemplate(e.getKey()) && e.getValue().length > 2) {
-                parseInto(e.getValue(), out, depth + 1);
-            }
-        }
-    }
-
-    private boolean isTemplate(int t) {
-        return t == 0x70 || t == 0x77 || t == 0x6F || t == 0xA5 || t == 0x61 || t == 0xBF0C;
+        out.putAll(tlv.wrap(resp, 0, resp.length - 2, TlvIndex.DEFAULT_MAX_DEPTH));
     }
 
     // ─────────────────────────────────────────────────────────────────────
     // Helpers
     // ─────────────────────────────────────────────────────────────────────
 
+    /**
+     * Accept: 9000, 62XX, or any response that has FCI data (len > 2)
+     * and is not a hard error (6A82=not found, 6A81=not supported, 6999=applet error)
+     */
+    private boolean isSelected(byte[] r) {
+        if (r == null || r.length < 2) return false;
+        int sw = ((r[r.length-2] & 0xFF) << 8) | (r[r.length-1] & 0xFF);
+        return isOk(r) || (r.length > 2 && sw != 0x6A82 && sw != 0x6A81 && sw != 0x6999);
+    }
+
+    private static boolean contains(List<byte[]> aids, byte[] aid) {
+        for (byte[] a : aids) {
+            if (Arrays.equals(a, aid)) return true;
+        }
+        return false;
+    }
+
     private boolean isOk(byte[] r) {
         if (r == null || r.length < 2) return false;
         int sw = ((r[r.length - 2] & 0xFF) << 8) | (r[r.length - 1] & 0xFF);
@@ -338,8 +369,7 @@ public class ReadCardDataUseCase {
     }
 
     private boolean isTagLost(IOException e) {
-        return e instanceof android.nfc.TagLostException
-                || (e.getMessage() != null && e.getMessage().contains("Tag was lost"));
+        return transceiver.isCardLost(e);
     }
 
     private static byte[] hexToBytes(String h) {
@@ -53,6 +53,8 @@ public class TransactionContext {
     // Networking
     public String ip;
     public int port;
+    public String specId; // IsoSpecEngine id; null/empty = standard
+    public String scheme; // Scheme name, for latency metrics only (null = default host)
 
     public boolean encryptPin;
     public String pinBlock52;
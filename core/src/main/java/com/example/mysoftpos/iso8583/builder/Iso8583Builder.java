@@ -4,11 +4,11 @@ import com.example.mysoftpos.iso8583.message.IsoMessage;
 import com.example.mysoftpos.iso8583.spec.IsoField;
 import com.example.mysoftpos.iso8583.TxnType;
 import com.example.mysoftpos.iso8583.TransactionContext;
+import com.example.mysoftpos.iso8583.emv.EmvTagSet;
 import com.example.mysoftpos.iso8583.emv.EmvTlvCodec;
+import com.example.mysoftpos.iso8583.log.IsoLog;
 import com.example.mysoftpos.domain.model.CardInputData;
 
-import java.util.Map;
-
 /**
  * ISO 8583 Message Builder — NAPAS Production Grade.
  *
@@ -37,10 +37,17 @@ public class Iso8583Builder {
     // =====================================================================
 
     public static IsoMessage buildPurchaseMsg(TransactionContext ctx, CardInputData card) {
+        return applyPurchaseCardFields(buildPurchaseBase(ctx), ctx, card);
+    }
+
+    /**
+     * Card-independent part of the purchase request: everything except
+     * DE 2/14/22/23/35/52/55. Pipelined mode builds this at tap time and
+     * finishes it with {@link #applyPurchaseCardFields} once the card is read.
+     */
+    public static IsoMessage buildPurchaseBase(TransactionContext ctx) {
         IsoMessage m = new IsoMessage("0200");
 
-        // Mandatory fields (all entry modes)
-        m.setField(IsoField.PAN_2, card.getPan());
         m.setField(IsoField.PROCESSING_CODE_3, ctx.processingCode3);
         m.setField(IsoField.AMOUNT_4, ctx.amount4);
         m.setField(IsoField.TRANSMISSION_DATETIME_7, ctx.transmissionDt7);
@@ -49,6 +56,25 @@ public class Iso8583Builder {
         m.setField(IsoField.LOCAL_DATE_13, ctx.localDate13);
         m.setField(IsoField.MERCHANT_TYPE_18, ctx.mcc18);
         m.setField(IsoField.COUNTRY_CODE_19, ctx.country19);
+        m.setField(IsoField.POS_CONDITION_CODE_25, ctx.posCondition25);
+        m.setField(IsoField.ACQUIRER_ID_32, ctx.acquirerId32);
+        m.setField(IsoField.RRN_37, ctx.rrn37);
+        m.setField(IsoField.TERMINAL_ID_41, formatTerminalId(ctx.terminalId41));
+        m.setField(IsoField.MERCHANT_ID_42, formatMerchantId(ctx.merchantId42));
+        m.setField(IsoField.MERCHANT_NAME_LOCATION_43, ctx.merchantNameLocation43);
+        m.setField(IsoField.CURRENCY_CODE_49, ctx.currency49);
+
+        // DE 60
+        if (ctx.field60 != null) {
+            m.setField(60, ctx.field60);
+        }
+
+        return m;
+    }
+
+    /** Card fields of the purchase request, on top of {@link #buildPurchaseBase}. */
+    public static IsoMessage applyPurchaseCardFields(IsoMessage m, TransactionContext ctx, CardInputData card) {
+        m.setField(IsoField.PAN_2, card.getPan());
 
         // DE 22: POS Entry Mode
         String de22 = card.getPosEntryMode();
@@ -73,25 +99,11 @@ public class Iso8583Builder {
             }
         }
 
-        // Remaining mandatory fields
-        m.setField(IsoField.POS_CONDITION_CODE_25, ctx.posCondition25);
-        m.setField(IsoField.ACQUIRER_ID_32, ctx.acquirerId32);
-        m.setField(IsoField.RRN_37, ctx.rrn37);
-        m.setField(IsoField.TERMINAL_ID_41, formatTerminalId(ctx.terminalId41));
-        m.setField(IsoField.MERCHANT_ID_42, formatMerchantId(ctx.merchantId42));
-        m.setField(IsoField.MERCHANT_NAME_LOCATION_43, ctx.merchantNameLocation43);
-        m.setField(IsoField.CURRENCY_CODE_49, ctx.currency49);
-
         // PIN Block
         if (ctx.encryptPin && ctx.pinBlock52 != null) {
             m.setField(IsoField.PIN_BLOCK_52, ctx.pinBlock52);
         }
 
-        // DE 60
-        if (ctx.field60 != null) {
-            m.setField(60, ctx.field60);
-        }
-
         return m;
     }
 
@@ -100,15 +112,35 @@ public class Iso8583Builder {
     // =====================================================================
 
     public static IsoMessage buildBalanceMsg(TransactionContext ctx, CardInputData card) {
+        return applyBalanceCardFields(buildBalanceBase(ctx), ctx, card);
+    }
+
+    /** Card-independent part of the balance inquiry, see {@link #buildPurchaseBase}. */
+    public static IsoMessage buildBalanceBase(TransactionContext ctx) {
         IsoMessage m = new IsoMessage("0200");
 
-        m.setField(IsoField.PAN_2, card.getPan());
         m.setField(IsoField.PROCESSING_CODE_3, ctx.processingCode3); // 300000
         m.setField(IsoField.AMOUNT_4, "000000000000");
         m.setField(IsoField.TRANSMISSION_DATETIME_7, ctx.transmissionDt7);
         m.setField(IsoField.STAN_11, ctx.stan11);
         m.setField(IsoField.LOCAL_TIME_12, ctx.localTime12);
         m.setField(IsoField.LOCAL_DATE_13, ctx.localDate13);
+        m.setField(IsoField.MERCHANT_TYPE_18, ctx.mcc18);
+        m.setField(IsoField.COUNTRY_CODE_19, ctx.country19);
+        m.setField(IsoField.POS_CONDITION_CODE_25, ctx.posCondition25);
+        m.setField(IsoField.ACQUIRER_ID_32, ctx.acquirerId32);
+        m.setField(IsoField.RRN_37, ctx.rrn37);
+        m.setField(IsoField.TERMINAL_ID_41, formatTerminalId(ctx.terminalId41));
+        m.setField(IsoField.MERCHANT_ID_42, formatMerchantId(ctx.merchantId42));
+        m.setField(IsoField.MERCHANT_NAME_LOCATION_43, ctx.merchantNameLocation43);
+        m.setField(IsoField.CURRENCY_CODE_49, ctx.currency49);
+
+        return m;
+    }
+
+    /** Card fields of the balance inquiry, on top of {@link #buildBalanceBase}. */
+    public static IsoMessage applyBalanceCardFields(IsoMessage m, TransactionContext ctx, CardInputData card) {
+        m.setField(IsoField.PAN_2, card.getPan());
 
         String de22 = card.getPosEntryMode();
         m.setField(IsoField.POS_ENTRY_MODE_22, de22);
@@ -129,16 +161,6 @@ public class Iso8583Builder {
             }
         }
 
-        m.setField(IsoField.MERCHANT_TYPE_18, ctx.mcc18);
-        m.setField(IsoField.COUNTRY_CODE_19, ctx.country19);
-        m.setField(IsoField.POS_CONDITION_CODE_25, ctx.posCondition25);
-        m.setField(IsoField.ACQUIRER_ID_32, ctx.acquirerId32);
-        m.setField(IsoField.RRN_37, ctx.rrn37);
-        m.setField(IsoField.TERMINAL_ID_41, formatTerminalId(ctx.terminalId41));
-        m.setField(IsoField.MERCHANT_ID_42, formatMerchantId(ctx.merchantId42));
-        m.setField(IsoField.MERCHANT_NAME_LOCATION_43, ctx.merchantNameLocation43);
-        m.setField(IsoField.CURRENCY_CODE_49, ctx.currency49);
-
         if (ctx.encryptPin && ctx.pinBlock52 != null) {
             m.setField(IsoField.PIN_BLOCK_52, ctx.pinBlock52);
         }
@@ -168,7 +190,7 @@ public class Iso8583Builder {
     private static void applyNfcChipFields(IsoMessage m, TransactionContext ctx,
             CardInputData card, String txnType) {
 
-        Map<Integer, byte[]> cardEmvTags = card.getEmvTags();
+        EmvTagSet cardEmvTags = card.getEmvTags();
 
         // --- DE 23: Card Sequence Number ---
         String csn = card.getCardSequenceNumber();
@@ -187,7 +209,7 @@ public class Iso8583Builder {
             boolean pinVerified = "071".equals(card.getPosEntryMode());
 
             // Build complete tag map (terminal-generated + card-read)
-            Map<Integer, byte[]> fullTags = EmvTlvCodec.buildNfcPurchaseTags(
+            EmvTagSet fullTags = EmvTlvCodec.buildNfcPurchaseTags(
                     cardEmvTags,
                     amountForEmv,
                     currencyCode,
@@ -201,7 +223,7 @@ public class Iso8583Builder {
                 de55Hex = EmvTlvCodec.buildDE55Request(fullTags);
             } catch (IllegalArgumentException e) {
                 // Validation failed — build without strict validation
-                android.util.Log.w("Iso8583Builder",
+                IsoLog.w("Iso8583Builder",
                         "DE 55 validation warning: " + e.getMessage());
                 de55Hex = EmvTlvCodec.buildDE55(fullTags);
             }
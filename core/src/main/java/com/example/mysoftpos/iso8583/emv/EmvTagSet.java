@@ -0,0 +1,372 @@
+package com.example.mysoftpos.iso8583.emv;
+
+import com.example.mysoftpos.iso8583.parser.TlvIndex;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Ordered set of EMV tag → value, keyed by primitive int tag.
+ *
+ * <p>Replaces {@code LinkedHashMap<Integer, byte[]>} for card and DE 55 tag
+ * sets: no boxing, no entry per tag. Tags keep insertion order (replacing a
+ * value keeps its position, like {@code LinkedHashMap}); lookups go through
+ * an open-addressing int table; values are packed into one growable byte
+ * buffer. {@link #writeTo(ByteBuffer)} encodes the set as a BER-TLV stream
+ * straight from that buffer.
+ *
+ * <p>Values are copied in on {@code put} and out on {@code get}, so callers
+ * never share the buffer. Bytes freed by replace/remove, and the old buffer on
+ * growth, are zeroed: card data does not linger outside {@link #wipe()}.
+ * Not thread-safe.
+ */
+public final class EmvTagSet {
+
+    private int[] tags;
+    private int[] offsets;
+    private int[] lengths;
+    private int size;
+
+    /** tag -> order index + 1 (0 = empty), linear probing, load <= 1/2. */
+    private int[] slots;
+
+    private byte[] values;
+    private int used;    // end of the last value written
+    private int garbage; // bytes inside [0, used) no longer referenced
+
+    public EmvTagSet() {
+        this(16, 256);
+    }
+
+    public EmvTagSet(int expectedTags, int expectedBytes) {
+        int n = Math.max(4, expectedTags);
+        tags = new int[n];
+        offsets = new int[n];
+        lengths = new int[n];
+        slots = new int[tableSize(n)];
+        values = new byte[Math.max(16, expectedBytes)];
+    }
+
+    // =====================================================================
+    // Lookup
+    // =====================================================================
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int tag) {
+        return indexOf(tag) >= 0;
+    }
+
+    /** Copy of the value of {@code tag}, or null if absent. */
+    public byte[] get(int tag) {
+        int i = indexOf(tag);
+        return i < 0 ? null : valueAt(i);
+    }
+
+    /** Value length of {@code tag}, or -1 if absent. */
+    public int length(int tag) {
+        int i = indexOf(tag);
+        return i < 0 ? -1 : lengths[i];
+    }
+
+    /** Tag at insertion position {@code i}. */
+    public int tagAt(int i) {
+        return tags[check(i)];
+    }
+
+    /** Copy of the value at insertion position {@code i}. */
+    public byte[] valueAt(int i) {
+        check(i);
+        return Arrays.copyOfRange(values, offsets[i], offsets[i] + lengths[i]);
+    }
+
+    /** Insertion position of {@code tag}, or -1. */
+    public int indexOf(int tag) {
+        int mask = slots.length - 1;
+        for (int s = hash(tag) & mask; slots[s] != 0; s = (s + 1) & mask) {
+            int i = slots[s] - 1;
+            if (tags[i] == tag) return i;
+        }
+        return -1;
+    }
+
+    // =====================================================================
+    // Mutation
+    // =====================================================================
+
+    /** Sets {@code tag} to a copy of {@code value}; null removes the tag. */
+    public EmvTagSet put(int tag, byte[] value) {
+        if (value == null) {
+            remove(tag);
+            return this;
+        }
+        return put(tag, value, 0, value.length);
+    }
+
+    public EmvTagSet put(int tag, byte[] src, int offset, int length) {
+        int off = reserve(tag, length);
+        System.arraycopy(src, offset, values, off, length);
+        return this;
+    }
+
+    /**
+     * Sets {@code tag} to {@code digits} as BCD of {@code byteLen} bytes,
+     * left-padded with zeros and truncated from the left, like
+     * {@link EmvTlvCodec#encodeBcdFixed(String, int)}.
+     */
+    public EmvTagSet putBcd(int tag, String digits, int byteLen) {
+        int off = reserve(tag, byteLen);
+        writeBcd(digits, values, off, byteLen);
+        return this;
+    }
+
+    /** Puts {@code value} only when {@code tag} is absent; true if it did. */
+    public boolean putIfAbsent(int tag, byte[] value) {
+        if (contains(tag)) return false;
+        put(tag, value);
+        return true;
+    }
+
+    /** Copies every tag of {@code other}, replacing values of tags already here. */
+    public EmvTagSet putAll(EmvTagSet other) {
+        if (other == null || other == this) return this;
+        for (int i = 0; i < other.size; i++) {
+            put(other.tags[i], other.values, other.offsets[i], other.lengths[i]);
+        }
+        return this;
+    }
+
+    /** Copies every element of {@code tlv}, in document order, straight from its buffer. */
+    public EmvTagSet putAll(TlvIndex tlv) {
+        byte[] buf = tlv.buffer();
+        for (int i = 0; i < tlv.size(); i++) {
+            put(tlv.tag(i), buf, tlv.offset(i), tlv.length(i));
+        }
+        return this;
+    }
+
+    public boolean remove(int tag) {
+        int i = indexOf(tag);
+        if (i < 0) return false;
+        Arrays.fill(values, offsets[i], offsets[i] + lengths[i], (byte) 0);
+        garbage += lengths[i];
+        int tail = size - i - 1;
+        System.arraycopy(tags, i + 1, tags, i, tail);
+        System.arraycopy(offsets, i + 1, offsets, i, tail);
+        System.arraycopy(lengths, i + 1, lengths, i, tail);
+        size--;
+        rehash();
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(values, 0, used, (byte) 0);
+        Arrays.fill(slots, 0);
+        size = 0;
+        used = 0;
+        garbage = 0;
+    }
+
+    /** PA-DSS: zeroes every value byte and empties the set. */
+    public void wipe() {
+        Arrays.fill(values, (byte) 0);
+        Arrays.fill(slots, 0);
+        size = 0;
+        used = 0;
+        garbage = 0;
+    }
+
+    /** Returns the offset in {@link #values} where {@code length} bytes of {@code tag} go. */
+    private int reserve(int tag, int length) {
+        if (length < 0) throw new IllegalArgumentException("Negative length: " + length);
+        int i = indexOf(tag);
+        if (i >= 0) {
+            int old = lengths[i];
+            if (length <= old) {
+                // Shrink in place; zero the freed tail
+                Arrays.fill(values, offsets[i] + length, offsets[i] + old, (byte) 0);
+                garbage += old - length;
+                lengths[i] = length;
+                return offsets[i];
+            }
+            Arrays.fill(values, offsets[i], offsets[i] + old, (byte) 0);
+            garbage += old;
+            lengths[i] = 0;
+            offsets[i] = 0;
+        } else {
+            i = append(tag);
+        }
+        ensureBytes(length);
+        offsets[i] = used;
+        lengths[i] = length;
+        used += length;
+        return offsets[i];
+    }
+
+    private int append(int tag) {
+        if (size == tags.length) {
+            int n = size * 2;
+            tags = Arrays.copyOf(tags, n);
+            offsets = Arrays.copyOf(offsets, n);
+            lengths = Arrays.copyOf(lengths, n);
+            slots = new int[tableSize(n)];
+            rehash();
+        }
+        int i = size++;
+        tags[i] = tag;
+        offsets[i] = 0;
+        lengths[i] = 0;
+        int mask = slots.length - 1;
+        int s = hash(tag) & mask;
+        while (slots[s] != 0) {
+            s = (s + 1) & mask;
+        }
+        slots[s] = i + 1;
+        return i;
+    }
+
+    /** Makes room for {@code length} more bytes, compacting out garbage when it moves. */
+    private void ensureBytes(int length) {
+        if (used + length <= values.length) return;
+        int live = used - garbage;
+        int capacity = values.length;
+        while (capacity < live + length) {
+            capacity *= 2;
+        }
+        byte[] packed = new byte[capacity];
+        int pos = 0;
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(values, offsets[i], packed, pos, lengths[i]);
+            offsets[i] = pos;
+            pos += lengths[i];
+        }
+        Arrays.fill(values, (byte) 0);
+        values = packed;
+        used = pos;
+        garbage = 0;
+    }
+
+    private void rehash() {
+        Arrays.fill(slots, 0);
+        int mask = slots.length - 1;
+        for (int i = 0; i < size; i++) {
+            int s = hash(tags[i]) & mask;
+            while (slots[s] != 0) {
+                s = (s + 1) & mask;
+            }
+            slots[s] = i + 1;
+        }
+    }
+
+    // =====================================================================
+    // Encoding
+    // =====================================================================
+
+    /** Size of the BER-TLV stream {@link #writeTo(ByteBuffer)} produces. */
+    public int encodedLength() {
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            total += tagLength(tags[i]) + lengthLength(lengths[i]) + lengths[i];
+        }
+        return total;
+    }
+
+    /**
+     * Writes all tags as a BER-TLV stream in insertion order.
+     *
+     * @throws java.nio.BufferOverflowException if fewer than
+     *         {@link #encodedLength()} bytes remain
+     */
+    public void writeTo(ByteBuffer out) {
+        for (int i = 0; i < size; i++) {
+            int tag = tags[i];
+            if (tag > 0xFFFF) out.put((byte) (tag >> 16));
+            if (tag > 0xFF) out.put((byte) (tag >> 8));
+            out.put((byte) tag);
+
+            int len = lengths[i];
+            if (len > 255) {
+                out.put((byte) 0x82).put((byte) (len >> 8)).put((byte) len);
+            } else if (len > 127) {
+                out.put((byte) 0x81).put((byte) len);
+            } else {
+                out.put((byte) len);
+            }
+            out.put(values, offsets[i], len);
+        }
+    }
+
+    /** The BER-TLV stream as a new array. */
+    public byte[] toByteArray() {
+        byte[] out = new byte[encodedLength()];
+        writeTo(ByteBuffer.wrap(out));
+        return out;
+    }
+
+    /** Tags and value lengths only; values may hold card data. */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("EmvTagSet[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(Integer.toHexString(tags[i]).toUpperCase(java.util.Locale.US))
+                    .append('(').append(lengths[i]).append(')');
+        }
+        return sb.append(']').toString();
+    }
+
+    // =====================================================================
+    // Internal
+    // =====================================================================
+
+    static int tagLength(int tag) {
+        return tag > 0xFFFF ? 3 : tag > 0xFF ? 2 : 1;
+    }
+
+    static int lengthLength(int len) {
+        return len > 255 ? 3 : len > 127 ? 2 : 1;
+    }
+
+    /**
+     * BCD of the rightmost {@code byteLen * 2} characters of {@code digits},
+     * left-padded with '0'. Hex digits pass through as nibbles.
+     */
+    static void writeBcd(String digits, byte[] dst, int off, int byteLen) {
+        int nibbles = byteLen * 2;
+        int start = (digits == null ? 0 : digits.length()) - nibbles;
+        for (int k = 0; k < byteLen; k++) {
+            dst[off + k] = (byte) ((nibble(digits, start + 2 * k) << 4) | nibble(digits, start + 2 * k + 1));
+        }
+    }
+
+    private static int nibble(String s, int index) {
+        if (index < 0) return 0;
+        int v = Character.digit(s.charAt(index), 16);
+        if (v < 0) {
+            throw new IllegalArgumentException("Invalid BCD digit at index " + index);
+        }
+        return v;
+    }
+
+    private static int tableSize(int capacity) {
+        return Integer.highestOneBit(capacity * 2 - 1) << 1;
+    }
+
+    private static int hash(int tag) {
+        int h = tag * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int check(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("index " + i + ", size " + size);
+        }
+        return i;
+    }
+}
@@ -1,9 +1,8 @@
 package com.example.mysoftpos.iso8583.emv;
 
-import java.io.ByteArrayOutputStream;
-import java.util.Arrays;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import com.example.mysoftpos.iso8583.parser.TlvIndex;
+
+import java.nio.ByteBuffer;
 
 /**
  * EMV TLV Codec for ISO 8583 DE 55 — NAPAS Domestic CHIP (NFC Contactless).
@@ -20,7 +19,7 @@ import java.util.Map;
  *
  * This class provides:
  *   (1) buildDE55Request  — Encode EMV tags → TLV stream (with LLLVAR prefix)
- *   (2) parseDE55Response — Decode TLV stream → EMV tag map
+ *   (2) parseDE55Response — Decode TLV stream → EMV tag set
  *   (3) encodeTag57       — Build Track 2 Equivalent Data for tag 57
  *   (4) buildDE35FromTag57— Convert tag 57 → DE 35 string
  *   (5) Mandatory tag validation before build
@@ -121,12 +120,21 @@ public final class EmvTlvCodec {
             TAG_APP_VERSION_TERMINAL // 9F09
     };
 
+    // Terminal defaults; copied into tag sets, never handed out directly
+    private static final byte[] TERMINAL_CAPABILITIES = {(byte) 0xE0, (byte) 0xF0, (byte) 0xC8};
+    private static final byte[] TERMINAL_TYPE = {0x22};
+    private static final byte[] APP_VERSION_TERMINAL = {0x00, (byte) 0x8C};
+    // Method=02 (Enciphered PIN online) / 1F (No CVM), Condition=00, Result=02 (Successful)
+    private static final byte[] CVM_ONLINE_PIN = {0x02, 0x00, 0x02};
+    private static final byte[] CVM_NO_CVM = {0x1F, 0x00, 0x02};
+    private static final byte[] DEFAULT_TVR = new byte[5];
+
     // =====================================================================
     // (1) buildDE55Request — Encode EMV tags → DE 55 wire bytes
     // =====================================================================
 
     /**
-     * Build DE 55 request content from a map of EMV tags.
+     * Build DE 55 request content from a set of EMV tags.
      *
      * <pre>
      * Steps:
@@ -139,11 +147,11 @@ public final class EmvTlvCodec {
      * when packing DE 55 (FieldType.LLLVAR in SCHEMA).
      * </pre>
      *
-     * @param tags Map of EMV tag number → raw byte[] value
+     * @param tags EMV tag number → raw value
      * @return Hex string of the TLV stream
      * @throws IllegalArgumentException if any mandatory tag is missing
      */
-    public static String buildDE55Request(Map<Integer, byte[]> tags) {
+    public static String buildDE55Request(EmvTagSet tags) {
         validateMandatoryTags(tags);
         return buildTlvStreamHex(tags);
     }
@@ -151,14 +159,14 @@ public final class EmvTlvCodec {
     /**
      * Build DE 55 without mandatory tag validation (for test/reversal scenarios).
      */
-    public static String buildDE55(Map<Integer, byte[]> tags) {
+    public static String buildDE55(EmvTagSet tags) {
         return buildTlvStreamHex(tags);
     }
 
     /**
      * Build DE 55 as raw bytes (for scenarios needing byte[] directly).
      */
-    public static byte[] buildDE55Bytes(Map<Integer, byte[]> tags) {
+    public static byte[] buildDE55Bytes(EmvTagSet tags) {
         return buildTlvStreamBytes(tags);
     }
 
@@ -168,31 +176,31 @@ public final class EmvTlvCodec {
      *
      * Example: TLV stream is 124 bytes → output = "124" (3 ASCII bytes) + 124 TLV bytes.
      *
-     * @param tags Map of EMV tag number → raw byte[] value
+     * @param tags EMV tag number → raw value
      * @return Complete DE 55 wire bytes with LLLVAR prefix
      */
-    public static byte[] buildDE55WithPrefix(Map<Integer, byte[]> tags) {
-        byte[] tlvStream = buildTlvStreamBytes(tags);
-        int len = tlvStream.length;
+    public static byte[] buildDE55WithPrefix(EmvTagSet tags) {
+        int len = tags == null ? 0 : tags.encodedLength();
         if (len > 255) {
             throw new IllegalArgumentException("DE 55 TLV stream exceeds 255 bytes: " + len);
         }
 
-        String prefix = String.format(java.util.Locale.US, "%03d", len);
-        byte[] prefixBytes = prefix.getBytes(java.nio.charset.StandardCharsets.US_ASCII);
-
         byte[] result = new byte[3 + len];
-        System.arraycopy(prefixBytes, 0, result, 0, 3);
-        System.arraycopy(tlvStream, 0, result, 3, len);
+        result[0] = (byte) ('0' + len / 100);
+        result[1] = (byte) ('0' + len / 10 % 10);
+        result[2] = (byte) ('0' + len % 10);
+        if (tags != null) {
+            tags.writeTo(ByteBuffer.wrap(result, 3, len));
+        }
         return result;
     }
 
     // =====================================================================
-    // (2) parseDE55Response — Decode TLV stream → EMV tag map
+    // (2) parseDE55Response — Decode TLV stream → EMV tag set
     // =====================================================================
 
     /**
-     * Parse DE 55 response content (hex string from IsoMessage) into EMV tag map.
+     * Parse DE 55 response content (hex string from IsoMessage) into an EMV tag set.
      *
      * Supports:
      *   - Single-byte tags (57, 82, 91, 95, 9A, 9C, 71, 72)
@@ -202,29 +210,30 @@ public final class EmvTlvCodec {
      *   - Multi-byte BER-TLV length encoding
      *
      * @param de55Hex Hex string of DE 55 TLV stream (without LLLVAR prefix)
-     * @return Map of tag number → raw byte[] value
+     * @return Tag number → raw value, in stream order
      */
-    public static Map<Integer, byte[]> parseDE55Response(String de55Hex) {
+    public static EmvTagSet parseDE55Response(String de55Hex) {
         if (de55Hex == null || de55Hex.isEmpty()) {
-            return new LinkedHashMap<>();
+            return new EmvTagSet();
         }
-        return parseTlvStream(hexToBytes(de55Hex));
+        byte[] data = hexToBytes(de55Hex);
+        return parseTlvStream(data, 0, data.length);
     }
 
     /**
-     * Parse DE 55 raw bytes (without LLLVAR prefix) into EMV tag map.
+     * Parse DE 55 raw bytes (without LLLVAR prefix) into an EMV tag set.
      */
-    public static Map<Integer, byte[]> parseDE55Bytes(byte[] data) {
-        return parseTlvStream(data);
+    public static EmvTagSet parseDE55Bytes(byte[] data) {
+        return parseTlvStream(data, 0, data == null ? 0 : data.length);
     }
 
     /**
      * Parse DE 55 raw wire bytes WITH the 3-byte LLLVAR prefix.
      * Strips the prefix and parses the remaining TLV stream.
      */
-    public static Map<Integer, byte[]> parseDE55WithPrefix(byte[] wireData) {
+    public static EmvTagSet parseDE55WithPrefix(byte[] wireData) {
         if (wireData == null || wireData.length < 3) {
-            return new LinkedHashMap<>();
+            return new EmvTagSet();
         }
 
         // Read 3-byte ASCII length prefix
@@ -241,8 +250,7 @@ public final class EmvTlvCodec {
                     + " but only " + (wireData.length - 3) + " bytes available");
         }
 
-        byte[] tlvData = Arrays.copyOfRange(wireData, 3, 3 + len);
-        return parseTlvStream(tlvData);
+        return parseTlvStream(wireData, 3, len);
     }
 
     // =====================================================================
@@ -429,22 +437,21 @@ public final class EmvTlvCodec {
     // =====================================================================
 
     /**
-     * Validate that all mandatory NAPAS request tags are present in the map.
+     * Validate that all mandatory NAPAS request tags are present in the set.
      *
-     * @param tags Tag map to validate
+     * @param tags Tag set to validate
      * @throws IllegalArgumentException with clear message listing missing tags
      */
-    public static void validateMandatoryTags(Map<Integer, byte[]> tags) {
+    public static void validateMandatoryTags(EmvTagSet tags) {
         if (tags == null || tags.isEmpty()) {
             throw new IllegalArgumentException(
-                    "DE 55 tag map is null or empty — no EMV data available. "
+                    "DE 55 tag set is null or empty — no EMV data available. "
                             + "NFC CHIP transactions require EMV tags from card.");
         }
 
         StringBuilder missing = new StringBuilder();
         for (int reqTag : MANDATORY_REQUEST_TAGS) {
-            byte[] val = tags.get(reqTag);
-            if (val == null || val.length == 0) {
+            if (tags.length(reqTag) <= 0) {
                 if (missing.length() > 0) missing.append(", ");
                 missing.append(String.format("0x%04X (%s)", reqTag, describeTag(reqTag)));
             }
@@ -460,10 +467,10 @@ public final class EmvTlvCodec {
     /**
      * Validate tag 57 service code — first digit must be '2' or '6'.
      *
-     * @param tags Tag map containing tag 57
+     * @param tags Tag set containing tag 57
      * @throws IllegalArgumentException if service code is invalid for CHIP
      */
-    public static void validateTag57ServiceCode(Map<Integer, byte[]> tags) {
+    public static void validateTag57ServiceCode(EmvTagSet tags) {
         byte[] t57 = tags.get(TAG_TRACK2_EQUIVALENT);
         if (t57 == null) return; // Tag 57 is conditional
 
@@ -499,15 +506,9 @@ public final class EmvTlvCodec {
      * Encode BCD with fixed byte length, left-padded with zeros.
      */
     public static byte[] encodeBcdFixed(String numericStr, int byteLen) {
-        if (numericStr == null) numericStr = "";
-        int requiredNibbles = byteLen * 2;
-        while (numericStr.length() < requiredNibbles) {
-            numericStr = "0" + numericStr;
-        }
-        if (numericStr.length() > requiredNibbles) {
-            numericStr = numericStr.substring(numericStr.length() - requiredNibbles);
-        }
-        return hexToBytes(numericStr);
+        byte[] out = new byte[byteLen];
+        EmvTagSet.writeBcd(numericStr, out, 0, byteLen);
+        return out;
     }
 
     /** Decode BCD bytes to numeric string. */
@@ -520,18 +521,25 @@ public final class EmvTlvCodec {
     // Terminal EMV Data Generation
     // =====================================================================
 
+    /** Shared: SecureRandom is thread-safe and costly to seed per tap. */
+    private static final java.security.SecureRandom RANDOM = new java.security.SecureRandom();
+
     /** Generate Unpredictable Number (tag 9F37) — 4 random bytes. */
     public static byte[] generateUnpredictableNumber() {
         byte[] un = new byte[4];
-        new java.security.SecureRandom().nextBytes(un);
+        RANDOM.nextBytes(un);
         return un;
     }
 
     /** Encode Transaction Date for tag 9A (BCD YYMMDD, 3 bytes). */
     public static byte[] encodeTransactionDate() {
-        java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat(
-                "yyMMdd", java.util.Locale.US);
-        return encodeBcdFixed(sdf.format(new java.util.Date()), 3);
+        java.time.LocalDate today = java.time.LocalDate.now();
+        return new byte[]{bcdByte(today.getYear() % 100), bcdByte(today.getMonthValue()),
+                bcdByte(today.getDayOfMonth())};
+    }
+
+    private static byte bcdByte(int twoDigits) {
+        return (byte) ((twoDigits / 10) << 4 | twoDigits % 10);
     }
 
     /** Encode Amount Authorized for tag 9F02 (BCD 6 bytes). */
@@ -557,17 +565,17 @@ public final class EmvTlvCodec {
      * Byte1=E0 (Manual+Magstripe+IC), Byte2=F0 (All CVM), Byte3=C8 (SDA+DDA+CDA).
      */
     public static byte[] getDefaultTerminalCapabilities() {
-        return new byte[]{(byte) 0xE0, (byte) 0xF0, (byte) 0xC8};
+        return TERMINAL_CAPABILITIES.clone();
     }
 
     /** Default Terminal Type (tag 9F35) — 1 byte: 0x22 (Attended, Online, Merchant). */
     public static byte[] getDefaultTerminalType() {
-        return new byte[]{0x22};
+        return TERMINAL_TYPE.clone();
     }
 
     /** Default Application Version Number Terminal (tag 9F09) — 2 bytes. */
     public static byte[] getDefaultAppVersionTerminal() {
-        return new byte[]{0x00, (byte) 0x8C};
+        return APP_VERSION_TERMINAL.clone();
     }
 
     /**
@@ -576,13 +584,7 @@ public final class EmvTlvCodec {
      * @param pinVerified true → Online PIN (DE 22=071); false → No CVM (DE 22=072)
      */
     public static byte[] encodeCvmResults(boolean pinVerified) {
-        if (pinVerified) {
-            // Method=02 (Enciphered PIN online), Condition=00, Result=02 (Successful)
-            return new byte[]{0x02, 0x00, 0x02};
-        } else {
-            // Method=1F (No CVM), Condition=00, Result=02 (Successful)
-            return new byte[]{0x1F, 0x00, 0x02};
-        }
+        return (pinVerified ? CVM_ONLINE_PIN : CVM_NO_CVM).clone();
     }
 
     /**
@@ -590,15 +592,15 @@ public final class EmvTlvCodec {
      * Real terminal should populate based on actual verification results.
      */
     public static byte[] getDefaultTvr() {
-        return new byte[]{0x00, 0x00, 0x00, 0x00, 0x00};
+        return DEFAULT_TVR.clone();
     }
 
     // =====================================================================
-    // Complete Tag Map Builder for NFC Purchase
+    // Complete Tag Set Builder for NFC Purchase
     // =====================================================================
 
     /**
-     * Build a complete EMV tag map for NFC CHIP Purchase request DE 55.
+     * Build a complete EMV tag set for NFC CHIP Purchase request DE 55.
      *
      * <pre>
      * cardTags — Tags read directly from chip via APDU:
@@ -615,41 +617,43 @@ public final class EmvTlvCodec {
      * @param countryCode  ISO country code (e.g., "704")
      * @param txnType      Transaction type: "00"=Purchase, "01"=Cash, "30"=Balance
      * @param pinVerified  true if Online PIN (DE 22=071), false if No CVM (072)
-     * @return Complete tag map ready for buildDE55Request()
+     * @return Complete tag set ready for buildDE55Request()
      */
-    public static Map<Integer, byte[]> buildNfcPurchaseTags(
-            Map<Integer, byte[]> cardTags,
+    public static EmvTagSet buildNfcPurchaseTags(
+            EmvTagSet cardTags,
             String amountStr, String currencyCode, String countryCode,
             String txnType, boolean pinVerified) {
 
-        Map<Integer, byte[]> all = new LinkedHashMap<>();
+        EmvTagSet all = new EmvTagSet(32, 512);
 
-        // Terminal-generated tags (in typical NAPAS field order)
-        all.put(TAG_AMOUNT_AUTHORIZED, encodeAmountAuthorized(amountStr));
-        all.put(TAG_AMOUNT_OTHER, encodeBcdFixed("0", 6));  // Always zeros
-        all.put(TAG_TERMINAL_COUNTRY, encodeCountryCode(countryCode));
-        all.put(TAG_TXN_CURRENCY_CODE, encodeCurrencyCode(currencyCode));
+        // Terminal-generated tags (in typical NAPAS field order), BCD written in place
+        all.putBcd(TAG_AMOUNT_AUTHORIZED, orDefault(amountStr, "0"), 6);
+        all.putBcd(TAG_AMOUNT_OTHER, "0", 6);  // Always zeros
+        all.putBcd(TAG_TERMINAL_COUNTRY, orDefault(countryCode, "704"), 2);
+        all.putBcd(TAG_TXN_CURRENCY_CODE, orDefault(currencyCode, "704"), 2);
         all.put(TAG_TXN_DATE, encodeTransactionDate());
-        all.put(TAG_TXN_TYPE, encodeBcdFixed(txnType != null ? txnType : "00", 1));
+        all.putBcd(TAG_TXN_TYPE, txnType != null ? txnType : "00", 1);
         all.put(TAG_UNPREDICTABLE_NUMBER, generateUnpredictableNumber());
-        all.put(TAG_TERMINAL_CAPABILITIES, getDefaultTerminalCapabilities());
-        all.put(TAG_CVM_RESULTS, encodeCvmResults(pinVerified));
-        all.put(TAG_TERMINAL_TYPE, getDefaultTerminalType());
-        all.put(TAG_APP_VERSION_TERMINAL, getDefaultAppVersionTerminal());
+        all.put(TAG_TERMINAL_CAPABILITIES, TERMINAL_CAPABILITIES);
+        all.put(TAG_CVM_RESULTS, pinVerified ? CVM_ONLINE_PIN : CVM_NO_CVM);
+        all.put(TAG_TERMINAL_TYPE, TERMINAL_TYPE);
+        all.put(TAG_APP_VERSION_TERMINAL, APP_VERSION_TERMINAL);
 
         // If card did not provide TVR, use default
-        if (cardTags == null || !cardTags.containsKey(TAG_TVR)) {
-            all.put(TAG_TVR, getDefaultTvr());
+        if (cardTags == null || !cardTags.contains(TAG_TVR)) {
+            all.put(TAG_TVR, DEFAULT_TVR);
         }
 
         // Card-read tags (override terminal defaults — card data takes priority)
-        if (cardTags != null) {
-            all.putAll(cardTags);
-        }
+        all.putAll(cardTags);
 
         return all;
     }
 
+    private static String orDefault(String value, String fallback) {
+        return value == null || value.isEmpty() ? fallback : value;
+    }
+
     // =====================================================================
     // Card Sequence Number (DE 23) Helper
     // =====================================================================
@@ -662,13 +666,12 @@ public final class EmvTlvCodec {
      * If tag 5F34 absent → DE 23 = "000" per NAPAS spec.
      * </pre>
      *
-     * @param emvTags Map containing (possibly) tag 5F34
+     * @param emvTags Tag set containing (possibly) tag 5F34
      * @return 3-digit DE 23 string with leading zeros (e.g., "001")
      */
-    public static String extractCardSequenceNumber(Map<Integer, byte[]> emvTags) {
-        if (emvTags == null) return "000";
+    public static String extractCardSequenceNumber(EmvTagSet emvTags) {
+        if (emvTags == null || emvTags.length(TAG_CARD_SEQ_NUM) <= 0) return "000";
         byte[] csn = emvTags.get(TAG_CARD_SEQ_NUM);
-        if (csn == null || csn.length == 0) return "000";
 
         // BCD decode: 0x01 → "01" → integer 1 → "001"
         int value = csn[0] & 0xFF;
@@ -680,17 +683,17 @@ public final class EmvTlvCodec {
     // =====================================================================
 
     /** Extract tag 91 (Issuer Authentication Data) from response tags. */
-    public static byte[] getIssuerAuthData(Map<Integer, byte[]> responseTags) {
+    public static byte[] getIssuerAuthData(EmvTagSet responseTags) {
         return responseTags != null ? responseTags.get(TAG_ISSUER_AUTH_DATA) : null;
     }
 
     /** Extract tag 71 (Issuer Script Template 1) from response tags. */
-    public static byte[] getIssuerScript1(Map<Integer, byte[]> responseTags) {
+    public static byte[] getIssuerScript1(EmvTagSet responseTags) {
         return responseTags != null ? responseTags.get(TAG_ISSUER_SCRIPT_1) : null;
     }
 
     /** Extract tag 72 (Issuer Script Template 2) from response tags. */
-    public static byte[] getIssuerScript2(Map<Integer, byte[]> responseTags) {
+    public static byte[] getIssuerScript2(EmvTagSet responseTags) {
         return responseTags != null ? responseTags.get(TAG_ISSUER_SCRIPT_2) : null;
     }
 
@@ -698,108 +701,21 @@ public final class EmvTlvCodec {
     // Internal — TLV Stream Build/Parse
     // =====================================================================
 
-    private static String buildTlvStreamHex(Map<Integer, byte[]> tags) {
+    private static String buildTlvStreamHex(EmvTagSet tags) {
         if (tags == null || tags.isEmpty()) return "";
-        return bytesToHex(buildTlvStreamBytes(tags));
+        return bytesToHex(tags.toByteArray());
     }
 
-    private static byte[] buildTlvStreamBytes(Map<Integer, byte[]> tags) {
+    private static byte[] buildTlvStreamBytes(EmvTagSet tags) {
         if (tags == null || tags.isEmpty()) return new byte[0];
-
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        for (Map.Entry<Integer, byte[]> entry : tags.entrySet()) {
-            int tag = entry.getKey();
-            byte[] value = entry.getValue();
-            if (value == null) continue;
-
-            byte[] tagBytes = encodeTag(tag);
-            baos.write(tagBytes, 0, tagBytes.length);
-
-            byte[] lenBytes = encodeLength(value.length);
-            baos.write(lenBytes, 0, lenBytes.length);
-
-            baos.write(value, 0, value.length);
-        }
-        return baos.toByteArray();
-    }
-
-    private static Map<Integer, byte[]> parseTlvStream(byte[] data) {
-        Map<Integer, byte[]> result = new LinkedHashMap<>();
-        if (data == null || data.length == 0) return result;
-
-        int offset = 0;
-        while (offset < data.length) {
-            // Skip padding bytes
-            if (data[offset] == 0x00 || (data[offset] & 0xFF) == 0xFF) {
-                offset++;
-                continue;
-            }
-
-            // --- Read Tag ---
-            int firstByte = data[offset++] & 0xFF;
-            int tag;
-
-            if ((firstByte & 0x1F) == 0x1F) {
-                // Multi-byte tag
-                tag = firstByte;
-                if (offset >= data.length) break;
-                do {
-                    int nextByte = data[offset++] & 0xFF;
-                    tag = (tag << 8) | nextByte;
-                    if ((nextByte & 0x80) == 0) break;
-                } while (offset < data.length);
-            } else {
-                tag = firstByte;
-            }
-
-            // --- Read Length ---
-            if (offset >= data.length) break;
-            int length = data[offset++] & 0xFF;
-
-            if ((length & 0x80) != 0) {
-                int numLenBytes = length & 0x7F;
-                if (numLenBytes == 0 || numLenBytes > 3) break;
-                length = 0;
-                for (int i = 0; i < numLenBytes; i++) {
-                    if (offset >= data.length) break;
-                    length = (length << 8) | (data[offset++] & 0xFF);
-                }
-            }
-
-            // --- Read Value ---
-            if (length < 0 || offset + length > data.length) break;
-            byte[] value = Arrays.copyOfRange(data, offset, offset + length);
-            offset += length;
-
-            result.put(tag, value);
-        }
-
-        return result;
-    }
-
-    // =====================================================================
-    // Internal — BER-TLV Tag/Length Encoding
-    // =====================================================================
-
-    /** Encode EMV tag number to bytes. Supports 1, 2, and 3-byte tags. */
-    static byte[] encodeTag(int tag) {
-        if (tag <= 0xFF) {
-            return new byte[]{(byte) tag};
-        } else if (tag <= 0xFFFF) {
-            return new byte[]{(byte) (tag >> 8), (byte) (tag & 0xFF)};
-        } else {
-            return new byte[]{
-                    (byte) (tag >> 16), (byte) ((tag >> 8) & 0xFF), (byte) (tag & 0xFF)
-            };
-        }
+        return tags.toByteArray();
     }
 
-    /** Encode BER-TLV length: 0–127 = 1 byte, 128–255 = 0x81+byte, 256+ = 0x82+2 bytes. */
-    static byte[] encodeLength(int length) {
-        if (length < 0) throw new IllegalArgumentException("Negative length: " + length);
-        if (length <= 127) return new byte[]{(byte) length};
-        if (length <= 255) return new byte[]{(byte) 0x81, (byte) length};
-        return new byte[]{(byte) 0x82, (byte) (length >> 8), (byte) (length & 0xFF)};
+    /** Top-level elements only: templates such as 71/72 keep their inner TLVs. */
+    private static EmvTagSet parseTlvStream(byte[] data, int offset, int length) {
+        EmvTagSet result = new EmvTagSet();
+        if (data == null || length == 0) return result;
+        return result.putAll(new TlvIndex().wrap(data, offset, length, 0));
     }
 
     // =====================================================================
@@ -1,12 +1,11 @@
 package com.example.mysoftpos.iso8583.emv;
 
-import android.util.Log;
+import com.example.mysoftpos.iso8583.log.IsoLog;
 
 import com.example.mysoftpos.nfc.CardTransceiver;
 import com.example.mysoftpos.nfc.ApduCommandBuilder;
 
 import java.io.IOException;
-import java.util.Map;
 
 /**
  * NAPAS Domestic CHIP — DE 55 Response Processing.
@@ -73,12 +72,12 @@ public final class NapasEmvProcessor {
      * @return ProcessingResult with status of each step
      */
     public static ProcessingResult processDE55Response(
-            Map<Integer, byte[]> responseTags,
+            EmvTagSet responseTags,
             CardTransceiver transceiver,
             boolean approved) {
 
         if (responseTags == null || responseTags.isEmpty()) {
-            Log.d(TAG, "No response DE 55 tags to process");
+            IsoLog.d(TAG, "No response DE 55 tags to process");
             return new ProcessingResult(true, false, false, null, null);
         }
 
@@ -91,27 +90,27 @@ public final class NapasEmvProcessor {
         // --- Step 1: External Authenticate (Tag 91) ---
         byte[] issuerAuthData = EmvTlvCodec.getIssuerAuthData(responseTags);
         if (issuerAuthData != null && issuerAuthData.length > 0) {
-            Log.d(TAG, "Tag 91 present (" + issuerAuthData.length + " bytes), sending EXTERNAL AUTHENTICATE");
+            IsoLog.d(TAG, "Tag 91 present (" + issuerAuthData.length + " bytes), sending EXTERNAL AUTHENTICATE");
             try {
                 if (transceiver != null && transceiver.isConnected()) {
                     byte[] extAuthCmd = ApduCommandBuilder.externalAuthenticate(issuerAuthData);
                     byte[] response = transceiver.transceive(extAuthCmd);
                     if (isSuccess(response)) {
-                        Log.d(TAG, "EXTERNAL AUTHENTICATE succeeded");
+                        IsoLog.d(TAG, "EXTERNAL AUTHENTICATE succeeded");
                         externalAuthOk = true;
                     } else {
                         String sw = getStatusWord(response);
-                        Log.w(TAG, "EXTERNAL AUTHENTICATE failed: SW=" + sw);
+                        IsoLog.w(TAG, "EXTERNAL AUTHENTICATE failed: SW=" + sw);
                         externalAuthOk = false;
                         errors.append("ExtAuth failed (SW=").append(sw).append("); ");
                     }
                 } else {
-                    Log.w(TAG, "Card not connected for EXTERNAL AUTHENTICATE");
+                    IsoLog.w(TAG, "Card not connected for EXTERNAL AUTHENTICATE");
                     externalAuthOk = false;
                     errors.append("Card disconnected for ExtAuth; ");
                 }
             } catch (IOException e) {
-                Log.e(TAG, "EXTERNAL AUTHENTICATE IOException", e);
+                IsoLog.e(TAG, "EXTERNAL AUTHENTICATE IOException", e);
                 externalAuthOk = false;
                 errors.append("ExtAuth IO error: ").append(e.getMessage()).append("; ");
             }
@@ -120,13 +119,13 @@ public final class NapasEmvProcessor {
         // --- Step 2: Issuer Script Template 1 (Tag 71) — Before 2nd GENERATE AC ---
         byte[] script1 = EmvTlvCodec.getIssuerScript1(responseTags);
         if (script1 != null && script1.length > 0) {
-            Log.d(TAG, "Tag 71 present (" + script1.length + " bytes), executing Script 1");
+            IsoLog.d(TAG, "Tag 71 present (" + script1.length + " bytes), executing Script 1");
             try {
                 scriptResult = executeIssuerScript(script1, transceiver);
                 script1Done = true;
-                Log.d(TAG, "Script 1 execution complete");
+                IsoLog.d(TAG, "Script 1 execution complete");
             } catch (Exception e) {
-                Log.e(TAG, "Script 1 execution error", e);
+                IsoLog.e(TAG, "Script 1 execution error", e);
                 errors.append("Script1 error: ").append(e.getMessage()).append("; ");
             }
         }
@@ -138,7 +137,7 @@ public final class NapasEmvProcessor {
         // --- Step 4: Issuer Script Template 2 (Tag 72) — After 2nd GENERATE AC ---
         byte[] script2 = EmvTlvCodec.getIssuerScript2(responseTags);
         if (script2 != null && script2.length > 0) {
-            Log.d(TAG, "Tag 72 present (" + script2.length + " bytes), executing Script 2");
+            IsoLog.d(TAG, "Tag 72 present (" + script2.length + " bytes), executing Script 2");
             try {
                 byte[] result2 = executeIssuerScript(script2, transceiver);
                 script2Done = true;
@@ -151,9 +150,9 @@ public final class NapasEmvProcessor {
                     System.arraycopy(result2, 0, merged, scriptResult.length, result2.length);
                     scriptResult = merged;
                 }
-                Log.d(TAG, "Script 2 execution complete");
+                IsoLog.d(TAG, "Script 2 execution complete");
             } catch (Exception e) {
-                Log.e(TAG, "Script 2 execution error", e);
+                IsoLog.e(TAG, "Script 2 execution error", e);
                 errors.append("Script2 error: ").append(e.getMessage()).append("; ");
             }
         }
@@ -185,14 +184,14 @@ public final class NapasEmvProcessor {
         }
 
         // Parse inner TLVs to find tag 86 (Issuer Script Command)
-        Map<Integer, byte[]> innerTags = EmvTlvCodec.parseDE55Bytes(scriptData);
+        EmvTagSet innerTags = EmvTlvCodec.parseDE55Bytes(scriptData);
 
         // Tag 86 contains the APDU command to send to the card
         byte[] apduCommand = innerTags.get(0x86);
         if (apduCommand == null) {
             // Some implementations may have multiple 86 tags or different structure.
             // Try executing the whole script data as a sequence of commands.
-            Log.d(TAG, "No tag 86 found in script, attempting raw APDU execution");
+            IsoLog.d(TAG, "No tag 86 found in script, attempting raw APDU execution");
 
             // Fallback: parse as a sequence of TLV where each 86 tag is a command
             java.io.ByteArrayOutputStream resultBaos = new java.io.ByteArrayOutputStream();
@@ -0,0 +1,92 @@
+package com.example.mysoftpos.iso8583.log;
+
+/**
+ * Logging facade for the core codec, so it runs without Android.
+ *
+ * <p>Calls go to the installed {@link Sink}. The default writes warnings and
+ * errors to {@code System.err} and drops debug output; the app installs a
+ * sink backed by {@code android.util.Log}, desktop tools can install their own.
+ */
+public final class IsoLog {
+
+    /** Destination for core log output. Implementations must be thread-safe. */
+    public interface Sink {
+        void debug(String tag, String msg);
+
+        void warn(String tag, String msg, Throwable tr);
+
+        void error(String tag, String msg, Throwable tr);
+    }
+
+    /** Drops everything; for benchmarks and quiet tests. */
+    public static final Sink SILENT = new Sink() {
+        @Override
+        public void debug(String tag, String msg) {
+        }
+
+        @Override
+        public void warn(String tag, String msg, Throwable tr) {
+        }
+
+        @Override
+        public void error(String tag, String msg, Throwable tr) {
+        }
+    };
+
+    /** Warnings and errors to {@code System.err}. */
+    public static final Sink STDERR = new Sink() {
+        @Override
+        public void debug(String tag, String msg) {
+        }
+
+        @Override
+        public void warn(String tag, String msg, Throwable tr) {
+            print("W", tag, msg, tr);
+        }
+
+        @Override
+        public void error(String tag, String msg, Throwable tr) {
+            print("E", tag, msg, tr);
+        }
+
+        private void print(String level, String tag, String msg, Throwable tr) {
+            System.err.println(level + "/" + tag + ": " + msg);
+            if (tr != null) {
+                tr.printStackTrace();
+            }
+        }
+    };
+
+    private static volatile Sink sink = STDERR;
+
+    private IsoLog() {
+    }
+
+    public static void setSink(Sink newSink) {
+        sink = newSink != null ? newSink : SILENT;
+    }
+
+    public static Sink getSink() {
+        return sink;
+    }
+
+    public static void d(String tag, String msg) {
+        sink.debug(tag, msg);
+    }
+
+    public static void w(String tag, String msg) {
+        sink.warn(tag, msg, null);
+    }
+
+    public static void w(String tag, String msg, Throwable tr) {
+        sink.warn(tag, msg, tr);
+    }
+
+    public static void e(String tag, String msg) {
+        sink.error(tag, msg, null);
+    }
+
+    public static void e(String tag, String msg, Throwable tr) {
+        sink.error(tag, msg, tr);
+    }
+}
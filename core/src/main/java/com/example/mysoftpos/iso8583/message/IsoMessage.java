@@ -0,0 +1,219 @@
+package com.example.mysoftpos.iso8583.message;
+import com.example.mysoftpos.iso8583.spec.IsoField;
+import com.example.mysoftpos.iso8583.message.IsoMessage;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Minimal ISO8583 message container for building requests.
+ *
+ * Fields live in a fixed {@code String[129]} slot array indexed by field
+ * number, with presence tracked in two {@code long} words laid out exactly
+ * like the wire bitmaps (bit 63 = DE 1 / DE 65 ... bit 0 = DE 64 / DE 128).
+ * {@link #hasField}, {@link #primaryBitmap()} and {@link #nextField(int)}
+ * are O(1) and allocation-free, so packers can walk present fields without
+ * boxing.
+ *
+ * Note: Packing/unpacking depends on host packager. For now we focus on field presence correctness.
+ */
+public final class IsoMessage {
+    private final String mti;
+    private final String[] values = new String[129];
+    private long lowBits;  // DE 1..64
+    private long highBits; // DE 65..128
+    private Set<Integer> fieldNumbersView;
+
+    public IsoMessage(String mti) {
+        if (mti == null || mti.length() != 4) {
+            throw new IllegalArgumentException("MTI must be 4 chars");
+        }
+        this.mti = mti;
+    }
+
+    public String getMti() {
+        return mti;
+    }
+
+    public IsoMessage setField(int field, String value) {
+        IsoField.checkValid(field);
+        values[field] = value;
+        if (field <= 64) {
+            long bit = 1L << (64 - field);
+            lowBits = value == null ? lowBits & ~bit : lowBits | bit;
+        } else {
+            long bit = 1L << (128 - field);
+            highBits = value == null ? highBits & ~bit : highBits | bit;
+        }
+        return this;
+    }
+
+    public String getField(int field) {
+        return field < 1 || field > 128 ? null : values[field];
+    }
+
+    public boolean hasField(int field) {
+        return field >= 1 && field <= 128 && values[field] != null;
+    }
+
+    /** Number of fields set. */
+    public int fieldCount() {
+        return Long.bitCount(lowBits) + Long.bitCount(highBits);
+    }
+
+    /**
+     * Smallest present field number {@code >= from}, or -1 if none.
+     * Allocation-free iteration: {@code for (int f = m.nextField(1); f > 0; f = m.nextField(f + 1))}.
+     */
+    public int nextField(int from) {
+        if (from < 1) {
+            from = 1;
+        }
+        if (from <= 64) {
+            long bits = lowBits & (-1L >>> (from - 1));
+            if (bits != 0) {
+                return Long.numberOfLeadingZeros(bits) + 1;
+            }
+            from = 65;
+        }
+        if (from <= 128) {
+            long bits = highBits & (-1L >>> (from - 65));
+            if (bits != 0) {
+                return Long.numberOfLeadingZeros(bits) + 65;
+            }
+        }
+        return -1;
+    }
+
+    /** Wire primary bitmap: DE 2..64 presence, bit 63 (DE 1) set iff any of DE 65..128 is present. */
+    public long primaryBitmap() {
+        long bitmap = lowBits & ~(1L << 63);
+        return highBits != 0 ? bitmap | (1L << 63) : bitmap;
+    }
+
+    /** Wire secondary bitmap: DE 65..128 presence (0 if none). */
+    public long secondaryBitmap() {
+        return highBits;
+    }
+
+    /** Ascending, read-only live view of the present field numbers. */
+    public Set<Integer> getFieldNumbers() {
+        if (fieldNumbersView == null) {
+            fieldNumbersView = new FieldNumbers();
+        }
+        return fieldNumbersView;
+    }
+
+    /** Snapshot of the fields, ordered by field number. */
+    public Map<Integer, String> getFields() {
+        Map<Integer, String> copy = new TreeMap<>();
+        for (int f = nextField(1); f > 0; f = nextField(f + 1)) {
+            copy.put(f, values[f]);
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    private final class FieldNumbers extends AbstractSet<Integer> {
+        @Override
+        public int size() {
+            return fieldCount();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Integer && hasField((Integer) o);
+        }
+
+        @Override
+        public Iterator<Integer> iterator() {
+            return new Iterator<Integer>() {
+                private int next = nextField(1);
+
+                @Override
+                public boolean hasNext() {
+                    return next > 0;
+                }
+
+                @Override
+                public Integer next() {
+                    if (next < 0) {
+                        throw new NoSuchElementException();
+                    }
+                    int f = next;
+                    next = nextField(f + 1);
+                    return f;
+                }
+            };
+        }
+    }
+
+    /** Debug string to quickly inspect message content.
+     *  Sensitive fields (PAN, Track2, PIN) are masked to comply with PCI-DSS.
+     *  KHÔNG bao giờ in ra giá trị thực của DE 2, DE 35, DE 52 trong log. */
+    public String toDebugString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("MTI=").append(mti);
+        for (int f = nextField(1); f > 0; f = nextField(f + 1)) {
+            sb.append(" | F").append(f).append('=');
+            sb.append(maskSensitiveField(f, values[f]));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Che giấu dữ liệu nhạy cảm theo PCI-DSS:
+     *  - DE 2  (PAN):        412345xxxxxx2345  (giữ 6 đầu + 4 cuối, che giữa)
+     *  - DE 35 (Track 2):    4123456789012345=2512xxxx (che từ ký tự thứ 7 trở đi)
+     *  - DE 52 (PIN Block):  **************** (ẩn hoàn toàn)
+     */
+    public static String maskSensitiveField(int fieldNumber, String value) {
+        if (value == null) return "null";
+        switch (fieldNumber) {
+            case 2:  // PAN – giữ 6 BIN đầu và 4 số cuối
+                return maskPan(value);
+            case 35: // Track 2 – che phần sau dấu '='
+                return maskTrack2(value);
+            case 52: // PIN Block – ẩn hoàn toàn
+                return "****************";
+            default:
+                return value;
+        }
+    }
+
+    private static String maskPan(String pan) {
+        if (pan == null || pan.length() < 10) return "****";
+        int keep = 6;
+        int tail = 4;
+        int maskLen = pan.length() - keep - tail;
+        if (maskLen <= 0) return "****";
+        return pan.substring(0, keep)
+                + "*".repeat(maskLen)   // requires minSdk >= 26
+                + pan.substring(pan.length() - tail);
+    }
+
+    private static String maskTrack2(String track2) {
+        if (track2 == null) return "null";
+        // Track 2 format: PAN=YYMM…  – che toàn bộ phần sau dấu '='
+        int sep = track2.indexOf('=');
+        if (sep < 0) {
+            // Không có dấu '=', che phần sau BIN 6 số
+            if (track2.length() <= 6) return track2;
+            return track2.substring(0, 6) + "*".repeat(track2.length() - 6); // requires minSdk >= 26
+        }
+        String pan  = track2.substring(0, sep);
+        String rest = track2.substring(sep + 1);
+        return maskPan(pan) + "=" + "*".repeat(rest.length()); // requires minSdk >= 26
+    }
+}
+
+
+
+
+
+
+
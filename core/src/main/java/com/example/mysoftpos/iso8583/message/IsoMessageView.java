@@ -0,0 +1,106 @@
+package com.example.mysoftpos.iso8583.message;
+
+import com.example.mysoftpos.iso8583.spec.IsoSpecEngine;
+
+/**
+ * Read-only, lazily decoded view over a received ISO8583 payload.
+ *
+ * Produced by {@code IsoUnpacker.unpackView}: the unpacker records only the
+ * offset/length of each present field into the original buffer. Nothing is
+ * copied and no String is created until {@link #getField(int)} is called, so
+ * reading DE 39 from a 0210 decodes exactly one 2-byte field.
+ *
+ * Field slots are stored compactly in bitmap order; a field's slot is its
+ * rank among the present bits.
+ *
+ * The view does not copy the buffer — do not reuse it while the view is live.
+ */
+public final class IsoMessageView {
+
+    private final byte[] buf;
+    private final String mti;
+    private final long primary;   // bit 63 = DE 1 ... bit 0 = DE 64 (DE 1 flag cleared)
+    private final long secondary; // bit 63 = DE 65 ... bit 0 = DE 128
+    private final int[] offsets;
+    private final int[] lengths;
+    private final IsoSpecEngine spec;
+
+    /** Built by the unpacker; the arrays are owned by the view (slot order = bitmap order). */
+    public IsoMessageView(byte[] buf, String mti, long primary, long secondary,
+            int[] offsets, int[] lengths, IsoSpecEngine spec) {
+        this.buf = buf;
+        this.mti = mti;
+        this.primary = primary & ~(1L << 63);
+        this.secondary = secondary;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.spec = spec;
+    }
+
+    public String getMti() {
+        return mti;
+    }
+
+    /** The spec the view decodes with. */
+    public IsoSpecEngine getSpec() {
+        return spec;
+    }
+
+    public boolean hasField(int field) {
+        if (field < 2 || field > 128) {
+            return false;
+        }
+        return field <= 64
+                ? (primary & (1L << (64 - field))) != 0
+                : (secondary & (1L << (128 - field))) != 0;
+    }
+
+    /** Decode one field on demand; null if absent. */
+    public String getField(int field) {
+        int slot = slotOf(field);
+        if (slot < 0) {
+            return null;
+        }
+        return spec.decode(field, buf, offsets[slot], lengths[slot]);
+    }
+
+    /** Number of data elements present (DE 1 not counted). */
+    public int fieldCount() {
+        return offsets.length;
+    }
+
+    /** Offset of the field's raw value in the underlying buffer, or -1 if absent. */
+    public int rawOffset(int field) {
+        int slot = slotOf(field);
+        return slot < 0 ? -1 : offsets[slot];
+    }
+
+    /** Raw value length in bytes, or -1 if absent. */
+    public int rawLength(int field) {
+        int slot = slotOf(field);
+        return slot < 0 ? -1 : lengths[slot];
+    }
+
+    /** Materialize every field into a mutable {@link IsoMessage}. */
+    public IsoMessage toIsoMessage() {
+        IsoMessage msg = new IsoMessage(mti);
+        for (int f = 2; f <= 128; f++) {
+            if (hasField(f)) {
+                msg.setField(f, getField(f));
+            }
+        }
+        return msg;
+    }
+
+    private int slotOf(int field) {
+        if (!hasField(field)) {
+            return -1;
+        }
+        if (field <= 64) {
+            // Present bits for fields below this one sit above its bit position
+            return Long.bitCount(primary >>> (65 - field));
+        }
+        int below = field == 65 ? 0 : Long.bitCount(secondary >>> (129 - field));
+        return Long.bitCount(primary) + below;
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.mysoftpos.iso8583.parser;
+import com.example.mysoftpos.iso8583.message.IsoHeader;
+import com.example.mysoftpos.iso8583.parser.IsoUnpacker;
+
+import com.example.mysoftpos.iso8583.message.IsoMessage;
+import com.example.mysoftpos.iso8583.message.IsoMessageView;
+import com.example.mysoftpos.iso8583.spec.IsoSpec;
+import com.example.mysoftpos.iso8583.spec.IsoSpecEngine;
+
+/**
+ * Minimal unpacker for this project's pack format:
+ * MTI (4 ASCII) + bitmap (8/16 binary) + fields encoded per {@link IsoSpecEngine}.
+ *
+ * Single pass, regex-free: the bitmap is walked with
+ * {@link Long#numberOfLeadingZeros(long)}, length prefixes are validated
+ * arithmetically, and each field is recorded as an (offset, length) pair into
+ * the original buffer. {@link #unpackView} returns that lazy view directly;
+ * {@link #unpack} materializes it into an {@link IsoMessage}.
+ *
+ * Notes:
+ * - This is intended for simulator/testing and local debug.
+ * - It does NOT handle character sets beyond US-ASCII.
+ * - It assumes the incoming message uses the given spec ({@link IsoSpecEngine#standard()} by default).
+ */
+public final class IsoUnpacker {
+
+    private IsoUnpacker() {}
+
+    /**
+     * Unpack a message that is framed by {@link IsoHeader#withLengthPrefix2(byte[])}.
+     *
+     * @param framed [lenHi][lenLo] + payload
+     */
+    public static IsoMessage unpackFramed(byte[] framed) {
+        return unpackFramedView(framed).toIsoMessage();
+    }
+
+    /** Like {@link #unpackFramed} but returns the lazy view (no payload copy). */
+    public static IsoMessageView unpackFramedView(byte[] framed) {
+        if (framed == null || framed.length < 2) {
+            throw new IllegalArgumentException("framed too short");
+        }
+        int len = ((framed[0] & 0xFF) << 8) | (framed[1] & 0xFF);
+        if (framed.length - 2 < len) {
+            throw new IllegalArgumentException("framed length mismatch. prefix=" + len + " actualPayload=" + (framed.length - 2));
+        }
+        return unpackView(framed, 2, len);
+    }
+
+    /**
+     * Unpack a raw ISO8583 payload (no length prefix): MTI + bitmap + fields.
+     */
+    public static IsoMessage unpack(byte[] payload) {
+        if (payload == null) {
+            throw new IllegalArgumentException("payload == null");
+        }
+        return unpackView(payload, 0, payload.length).toIsoMessage();
+    }
+
+    /** Lazy view over a raw payload; fields are decoded on {@code getField}. */
+    public static IsoMessageView unpackView(byte[] payload) {
+        if (payload == null) {
+            throw new IllegalArgumentException("payload == null");
+        }
+        return unpackView(payload, 0, payload.length);
+    }
+
+    /**
+     * Lazy view over {@code payload[off, off + len)}.
+     * The buffer is referenced, not copied.
+     */
+    public static IsoMessageView unpackView(byte[] payload, int off, int len) {
+        return unpackView(payload, off, len, IsoSpecEngine.standard());
+    }
+
+    /**
+     * Lazy view over a payload whose spec is unknown: tries each
+     * {@link IsoSpecEngine#registeredSpecs() registered spec} and keeps the
+     * first that consumes the whole payload with a numeric DE 11 (if present).
+     * {@link IsoMessageView#getSpec()} tells which one matched.
+     *
+     * A guess, meant for forensics on frames whose origin is lost (the trace
+     * journal). Code that packed the message knows its spec and should use
+     * {@link #unpackView(byte[], int, int, IsoSpecEngine)}.
+     *
+     * @throws IllegalArgumentException if no registered spec fits
+     */
+    public static IsoMessageView unpackViewAnySpec(byte[] payload, int off, int len) {
+        IllegalArgumentException last = null;
+        for (IsoSpecEngine spec : IsoSpecEngine.registeredSpecs()) {
+            try {
+                IsoMessageView v = unpackView(payload, off, len, spec);
+                String stan = v.getField(11);
+                if (stan == null || isDigits(stan)) {
+                    return v;
+                }
+                last = new IllegalArgumentException("Non-numeric DE 11 under spec " + spec.getId());
+            } catch (IllegalArgumentException e) {
+                last = e;
+            } catch (RuntimeException e) {
+                last = new IllegalArgumentException(e.getMessage(), e);
+            }
+        }
+        throw last != null ? last : new IllegalArgumentException("no spec registered");
+    }
+
+    /** {@link #unpackViewAnySpec(byte[], int, int)} over the whole array. */
+    public static IsoMessageView unpackViewAnySpec(byte[] payload) {
+        if (payload == null) {
+            throw new IllegalArgumentException("payload == null");
+        }
+        return unpackViewAnySpec(payload, 0, payload.length);
+    }
+
+    /** Lazy view over {@code payload[off, off + len)} decoded with {@code spec}. */
+    public static IsoMessageView unpackView(byte[] payload, int off, int len, IsoSpecEngine spec) {
+        if (payload == null) {
+            throw new IllegalArgumentException("payload == null");
+        }
+        if (off < 0 || len < 0 || off + len > payload.length) {
+            throw new IllegalArgumentException("slice out of bounds. off=" + off + " len=" + len);
+        }
+        if (len < 4 + 8) {
+            throw new IllegalArgumentException("payload too short for MTI+bitmap");
+        }
+        final int end = off + len;
+        int pos = off;
+
+        // MTI
+        for (int i = 0; i < 4; i++) {
+            if (!isDigit(payload[pos + i])) {
+                throw new IllegalArgumentException("Invalid MTI: '" + new String(payload, pos, 4, IsoSpec.CHARSET) + "'");
+            }
+        }
+        String mti = new String(payload, pos, 4, IsoSpec.CHARSET);
+        pos += 4;
+
+        // Bitmap primary 8 bytes
+        long primary = readLong(payload, pos);
+        pos += 8;
+
+        long secondary = 0;
+        if (primary < 0) { // bit 1 → secondary bitmap present
+            if (end < pos + 8) {
+                throw new IllegalArgumentException("payload too short for secondary bitmap");
+            }
+            secondary = readLong(payload, pos);
+            pos += 8;
+        }
+
+        // bit 1 indicates secondary bitmap, not a real data element
+        long primaryFields = primary & ~(1L << 63);
+        int count = Long.bitCount(primaryFields) + Long.bitCount(secondary);
+        int[] offsets = new int[count];
+        int[] lengths = new int[count];
+
+        // Parse fields in ascending order, straight off the bitmap words
+        int slot = 0;
+        long bits = primaryFields;
+        while (bits != 0) {
+            int lz = Long.numberOfLeadingZeros(bits);
+            bits &= ~(Long.MIN_VALUE >>> lz);
+            pos = decodeField(spec, payload, pos, end, lz + 1, slot++, offsets, lengths);
+        }
+        bits = secondary;
+        while (bits != 0) {
+            int lz = Long.numberOfLeadingZeros(bits);
+            bits &= ~(Long.MIN_VALUE >>> lz);
+            pos = decodeField(spec, payload, pos, end, 65 + lz, slot++, offsets, lengths);
+        }
+
+        // If extra trailing bytes exist, treat as error (helps catch spec mismatch)
+        if (pos != end) {
+            throw new IllegalArgumentException("Trailing bytes after last field. pos=" + (pos - off) + " len=" + len);
+        }
+
+        return new IsoMessageView(payload, mti, primary, secondary, offsets, lengths, spec);
+    }
+
+    /** Records one field's (offset, length) and returns the position after it. */
+    private static int decodeField(IsoSpecEngine spec, byte[] payload, int pos, int end, int field, int slot,
+            int[] offsets, int[] lengths) {
+        if (!spec.isDefined(field)) {
+            throw new IllegalArgumentException(
+                    "No FieldDef for field " + field + " in spec " + spec.getId() + ".");
+        }
+
+        int dataLen;
+        int prefix = spec.prefixLength(field);
+        if (prefix == 0) {
+            dataLen = spec.fixedWireLength(field);
+        } else {
+            if (end < pos + prefix) {
+                throw new IllegalArgumentException("Field " + field + " missing length prefix");
+            }
+            if (spec.isBinaryLengthPrefix()) {
+                dataLen = prefix == 1
+                        ? payload[pos] & 0xFF
+                        : ((payload[pos] & 0xFF) << 8) | (payload[pos + 1] & 0xFF);
+            } else {
+                dataLen = parseDigits(payload, pos, prefix);
+                if (dataLen < 0) {
+                    throw new IllegalArgumentException("Field " + field + " invalid length prefix: '"
+                            + new String(payload, pos, prefix, IsoSpec.CHARSET) + "'");
+                }
+            }
+            pos += prefix;
+            if (dataLen > spec.length(field)) {
+                throw new IllegalArgumentException("Field " + field + " length out of range: " + dataLen
+                        + " (max=" + spec.length(field) + ")");
+            }
+        }
+
+        if (end < pos + dataLen) {
+            throw new IllegalArgumentException("Field " + field + " truncated. Need " + dataLen + " bytes at pos=" + pos);
+        }
+
+        offsets[slot] = pos;
+        lengths[slot] = dataLen;
+        return pos + dataLen;
+    }
+
+    /** Decimal ASCII digits → int, or -1 if any byte is not a digit. */
+    private static int parseDigits(byte[] b, int pos, int n) {
+        int v = 0;
+        for (int i = 0; i < n; i++) {
+            int d = b[pos + i] - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            v = v * 10 + d;
+        }
+        return v;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isDigits(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long readLong(byte[] b, int pos) {
+        long v = 0;
+        for (int i = 0; i < 8; i++) {
+            v = (v << 8) | (b[pos + i] & 0xFF);
+        }
+        return v;
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.mysoftpos.iso8583.parser;
+
+import java.util.Arrays;
+
+/**
+ * One-pass BER-TLV index over a byte buffer, without copying values.
+ *
+ * <p>{@link #wrap} walks the buffer once and records each element as four ints
+ * (tag, value offset, value length, depth) in document order, descending into
+ * constructed tags (bit 6 of the first tag byte) up to {@code maxDepth}.
+ * Values stay in the caller's buffer; {@link #value(int)} and {@link #find(int)}
+ * copy only what is asked for. Tag lookups after the first go through a small
+ * hash table, so repeated {@link #indexOf(int)} calls are O(1).
+ *
+ * <p>Parsing matches {@code EmvTlvCodec}: 00/FF padding between elements is
+ * skipped, tags may be up to 3 bytes, lengths up to 3 bytes. A malformed
+ * element ends its level; elements already indexed stay valid.
+ *
+ * <p>An instance can be re-wrapped over new buffers and reuses its arrays.
+ * Not thread-safe, and the indexed buffer must not change while in use.
+ */
+public final class TlvIndex {
+
+    /** Nesting levels followed by default; EMV templates go 3-4 deep. */
+    public static final int DEFAULT_MAX_DEPTH = 5;
+
+    private static final int TAG = 0;
+    private static final int OFFSET = 1;
+    private static final int LENGTH = 2;
+    private static final int DEPTH = 3;
+    private static final int STRIDE = 4;
+
+    /** Below this many elements a linear scan beats building the hash table. */
+    private static final int LINEAR_SCAN_MAX = 8;
+
+    private byte[] data;
+    private int maxDepth;
+    private int[] entries = new int[16 * STRIDE];
+    private int count;
+
+    /** Open addressing, tag -> entry index + 1 (0 = empty); built on first lookup. */
+    private int[] slots;
+    private boolean hashed;
+
+    /** Indexes the whole buffer, following nested templates. */
+    public static TlvIndex of(byte[] data) {
+        return new TlvIndex().wrap(data, 0, data == null ? 0 : data.length, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * Indexes {@code data[offset, offset + length)}. {@code maxDepth} 0 keeps
+     * only the top level, the way a DE 55 tag map sees it.
+     */
+    public TlvIndex wrap(byte[] data, int offset, int length, int maxDepth) {
+        this.data = data;
+        this.maxDepth = maxDepth;
+        this.count = 0;
+        this.hashed = false;
+        if (data != null && length > 0) {
+            if (offset < 0 || offset + length > data.length) {
+                throw new IndexOutOfBoundsException("offset=" + offset + " length=" + length
+                        + " buffer=" + data.length);
+            }
+            parse(offset, offset + length, 0);
+        }
+        return this;
+    }
+
+    private void parse(int from, int to, int depth) {
+        int off = from;
+        while (off < to) {
+            int first = data[off] & 0xFF;
+            if (first == 0x00 || first == 0xFF) {
+                off++;
+                continue;
+            }
+            off++;
+
+            // --- Tag ---
+            int tag = first;
+            if ((first & 0x1F) == 0x1F) {
+                int more = 0;
+                int next;
+                do {
+                    if (off >= to || more == 2) return;
+                    next = data[off++] & 0xFF;
+                    tag = (tag << 8) | next;
+                    more++;
+                } while ((next & 0x80) != 0);
+            }
+
+            // --- Length ---
+            if (off >= to) return;
+            int length = data[off++] & 0xFF;
+            if ((length & 0x80) != 0) {
+                int n = length & 0x7F;
+                if (n == 0 || n > 3 || off + n > to) return;
+                length = 0;
+                for (int i = 0; i < n; i++) {
+                    length = (length << 8) | (data[off++] & 0xFF);
+                }
+            }
+            if (off + length > to) return;
+
+            add(tag, off, length, depth);
+            if ((first & 0x20) != 0 && depth < maxDepth && length > 0) {
+                parse(off, off + length, depth + 1);
+            }
+            off += length;
+        }
+    }
+
+    private void add(int tag, int offset, int length, int depth) {
+        int base = count * STRIDE;
+        if (base == entries.length) {
+            entries = Arrays.copyOf(entries, entries.length * 2);
+        }
+        entries[base + TAG] = tag;
+        entries[base + OFFSET] = offset;
+        entries[base + LENGTH] = length;
+        entries[base + DEPTH] = depth;
+        count++;
+    }
+
+    /** Number of indexed elements, nested ones included. */
+    public int size() {
+        return count;
+    }
+
+    public int tag(int i) {
+        return entries[check(i) * STRIDE + TAG];
+    }
+
+    /** Offset of element {@code i}'s value in {@link #buffer()}. */
+    public int offset(int i) {
+        return entries[check(i) * STRIDE + OFFSET];
+    }
+
+    public int length(int i) {
+        return entries[check(i) * STRIDE + LENGTH];
+    }
+
+    /** 0 for top-level elements, 1 inside one template, and so on. */
+    public int depth(int i) {
+        return entries[check(i) * STRIDE + DEPTH];
+    }
+
+    /** The buffer the offsets refer to. */
+    public byte[] buffer() {
+        return data;
+    }
+
+    /** Copy of element {@code i}'s value. */
+    public byte[] value(int i) {
+        int base = check(i) * STRIDE;
+        int off = entries[base + OFFSET];
+        return Arrays.copyOfRange(data, off, off + entries[base + LENGTH]);
+    }
+
+    /** Index of the first element with {@code tag} in document order, or -1. */
+    public int indexOf(int tag) {
+        if (count <= LINEAR_SCAN_MAX) {
+            for (int i = 0; i < count; i++) {
+                if (entries[i * STRIDE + TAG] == tag) return i;
+            }
+            return -1;
+        }
+        if (!hashed) {
+            buildSlots();
+        }
+        int mask = slots.length - 1;
+        for (int s = hash(tag) & mask; slots[s] != 0; s = (s + 1) & mask) {
+            int i = slots[s] - 1;
+            if (entries[i * STRIDE + TAG] == tag) return i;
+        }
+        return -1;
+    }
+
+    public boolean contains(int tag) {
+        return indexOf(tag) >= 0;
+    }
+
+    /** Copy of the first value with {@code tag}, or null. */
+    public byte[] find(int tag) {
+        int i = indexOf(tag);
+        return i < 0 ? null : value(i);
+    }
+
+    private void buildSlots() {
+        int capacity = Integer.highestOneBit(count * 2 - 1) << 1;
+        if (slots == null || slots.length < capacity) {
+            slots = new int[capacity];
+        } else {
+            Arrays.fill(slots, 0);
+        }
+        int mask = slots.length - 1;
+        for (int i = 0; i < count; i++) {
+            int tag = entries[i * STRIDE + TAG];
+            int s = hash(tag) & mask;
+            while (slots[s] != 0 && entries[(slots[s] - 1) * STRIDE + TAG] != tag) {
+                s = (s + 1) & mask;
+            }
+            if (slots[s] == 0) {
+                slots[s] = i + 1; // first occurrence wins
+            }
+        }
+        hashed = true;
+    }
+
+    private static int hash(int tag) {
+        int h = tag * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int check(int i) {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException("index " + i + ", size " + count);
+        }
+        return i;
+    }
+}
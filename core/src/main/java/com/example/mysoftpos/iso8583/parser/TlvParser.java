@@ -0,0 +1,33 @@
+package com.example.mysoftpos.iso8583.parser;
+
+public class TlvParser {
+
+    /**
+     * Search for a specific tag in the TLV data, including inside constructed
+     * templates. Only the matching value is copied; see {@link TlvIndex} for
+     * several lookups over the same buffer.
+     *
+     * @param data The TLV byte array.
+     * @param tag  The tag to search for (e.g., 0x57 for Track2).
+     * @return The value of the first matching tag, or null if not found.
+     */
+    public static byte[] findTag(byte[] data, int tag) {
+        if (data == null) return null;
+        return TlvIndex.of(data).find(tag);
+    }
+
+    public static String bytesToHex(byte[] bytes) {
+        if (bytes == null) return "";
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(String.format("%02X", b));
+        }
+        return sb.toString();
+    }
+}
+
+
+
+
+
+
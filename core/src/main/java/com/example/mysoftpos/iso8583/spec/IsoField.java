@@ -32,6 +32,7 @@ public final class IsoField {
     public static final int PIN_BLOCK_52 = 52;
     public static final int ICC_DATA_55 = 55;
     public static final int RESERVED_PRIVATE_60 = 60;
+    public static final int NETWORK_MGMT_INFO_CODE_70 = 70;
     public static final int ORIGINAL_DATA_ELEMENTS_90 = 90;
     public static final int MAC_128 = 128;
 
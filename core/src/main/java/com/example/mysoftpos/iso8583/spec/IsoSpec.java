@@ -0,0 +1,62 @@
+package com.example.mysoftpos.iso8583.spec;
+import com.example.mysoftpos.iso8583.spec.IsoSpec;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ISO8583 packing rules for this project (default assumptions).
+ *
+ * This is NOT a full WAY4 packager. It's a safe starting point for local testing:
+ * - MTI: ASCII 4
+ * - Bitmap: binary 8 or 16 bytes
+ * - Fields: ASCII, fixed/LLVAR/LLLVAR.
+ *
+ * The per-field table now lives in {@link IsoSpecEngine}; {@link #def(int)}
+ * is a cached view of the standard spec.
+ */
+public final class IsoSpec {
+    private IsoSpec() {}
+
+    public static final Charset CHARSET = StandardCharsets.US_ASCII;
+
+    public enum LenType {
+        FIXED,
+        LLVAR,
+        LLLVAR
+    }
+
+    public enum ContentType {
+        /** Printable ASCII. */
+        ASCII,
+        /** Raw bytes in hex string form ("0A1B...") that will be converted to bytes. */
+        HEX_BYTES
+    }
+
+    public static final class FieldDef {
+        public final int field;
+        public final LenType lenType;
+        public final int maxLen;
+        public final ContentType contentType;
+
+        public FieldDef(int field, LenType lenType, int maxLen, ContentType contentType) {
+            this.field = field;
+            this.lenType = lenType;
+            this.maxLen = maxLen;
+            this.contentType = contentType;
+        }
+    }
+
+    /**
+     * Field definition from {@link IsoSpecEngine#standard()}.
+     * If a field isn't defined there, this throws, forcing us to add it explicitly.
+     */
+    public static FieldDef def(int f) {
+        FieldDef def = IsoSpecEngine.standard().def(f);
+        if (def == null) {
+            throw new IllegalArgumentException(
+                    "No FieldDef for field " + f + ". Add it to IsoSpecEngine.");
+        }
+        return def;
+    }
+}
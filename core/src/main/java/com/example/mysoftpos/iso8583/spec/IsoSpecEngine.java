@@ -0,0 +1,597 @@
+package com.example.mysoftpos.iso8583.spec;
+
+import com.example.mysoftpos.iso8583.log.IsoLog;
+import com.example.mysoftpos.iso8583.util.HexUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single, compiled description of an ISO8583 wire format.
+ *
+ * One table drives everything that used to have its own copy of the spec:
+ * the packer ({@code CompiledIsoPacker}), the unpacker ({@code IsoUnpacker} /
+ * {@code IsoMessageView}) and field validation ({@link #isValid}). Each field
+ * is compiled once into flat arrays indexed by field number — wire encoding,
+ * length, and a regex-free validation rule — so per-message work is table
+ * lookups only.
+ *
+ * Specs are immutable and versioned. {@link #standard()} is the Napas profile
+ * this project has always sent (ASCII numerics, ASCII length prefixes).
+ * Alternates are derived with {@link #builder(IsoSpecEngine)} (in code) or
+ * {@code IsoSpecJsonLoader} (asset JSON), then {@link #register registered}
+ * and selected by id, e.g. from {@code Scheme#getSpecId()}.
+ */
+public final class IsoSpecEngine {
+
+    private static final String TAG = "IsoSpecEngine";
+
+    // Wire encodings (values of the flat encoding table)
+    public static final byte ENC_NONE = 0; // not in spec → skipped by the packer
+    public static final byte ENC_NUMERIC = 1; // fixed, left zero-padded ASCII
+    public static final byte ENC_ALPHA = 2; // fixed, right space-padded ASCII
+    public static final byte ENC_BINARY = 3; // fixed, hex string → raw bytes, zero-padded
+    public static final byte ENC_LLVAR = 4; // 2-digit length prefix + ASCII
+    public static final byte ENC_LLLVAR = 5; // 3-digit length prefix + ASCII
+    public static final byte ENC_LLLVAR_HEX = 6; // 3-digit length prefix (byte count) + raw bytes
+    public static final byte ENC_NUMERIC_BCD = 7; // fixed, packed BCD, left zero-padded
+
+    public static final String STANDARD_ID = "napas-ascii";
+    public static final String BCD_ID = "napas-bcd";
+
+    /** Wire representation of a field (builder / JSON vocabulary). */
+    public enum Wire {
+        NUMERIC, ALPHA, BINARY, LLVAR, LLLVAR, LLLVAR_HEX
+    }
+
+    /** Allowed character class for validation. */
+    public enum Format {
+        /** n: digits. */
+        N("\\d", "0123456789"),
+        /** an: letters and digits. */
+        AN("[a-zA-Z0-9]", "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz"),
+        /** ans: printable ASCII. */
+        ANS("[ -~]", null),
+        /** z: track data. */
+        Z("[0-9=D]", "0123456789=D"),
+        /** Hex digits. */
+        HEX("[0-9A-Fa-f]", "0123456789ABCDEFabcdef");
+
+        /** Regex character class, for callers that still need a Pattern. */
+        public final String regexClass;
+        private final long lo; // chars 0..63
+        private final long hi; // chars 64..127
+
+        Format(String regexClass, String chars) {
+            this.regexClass = regexClass;
+            long l = 0;
+            long h = 0;
+            if (chars == null) {
+                for (int c = ' '; c <= '~'; c++) {
+                    if (c < 64) l |= 1L << c; else h |= 1L << (c - 64);
+                }
+            } else {
+                for (int i = 0; i < chars.length(); i++) {
+                    int c = chars.charAt(i);
+                    if (c < 64) l |= 1L << c; else h |= 1L << (c - 64);
+                }
+            }
+            this.lo = l;
+            this.hi = h;
+        }
+
+        public boolean accepts(char c) {
+            if (c < 64) {
+                return (lo & (1L << c)) != 0;
+            }
+            return c < 128 && (hi & (1L << (c - 64))) != 0;
+        }
+    }
+
+    /** Validation rule for one field (slot 0 = MTI, slot 1 = secondary bitmap). */
+    public static final class Rule {
+        public final int field;
+        public final Format format;
+        public final int minLen;
+        public final int maxLen;
+        public final String errorCode;
+        public final String description;
+
+        public Rule(int field, Format format, int minLen, int maxLen, String errorCode, String description) {
+            this.field = field;
+            this.format = format;
+            this.minLen = minLen;
+            this.maxLen = maxLen;
+            this.errorCode = errorCode;
+            this.description = description;
+        }
+
+        public boolean accepts(String value) {
+            if (value == null) {
+                return false;
+            }
+            int n = value.length();
+            if (n < minLen || n > maxLen) {
+                return false;
+            }
+            for (int i = 0; i < n; i++) {
+                if (!format.accepts(value.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** Equivalent regex (e.g. {@code \d{1,19}}). */
+        public String toRegex() {
+            return format.regexClass + (minLen == maxLen
+                    ? "{" + minLen + "}"
+                    : "{" + minLen + "," + maxLen + "}");
+        }
+    }
+
+    private final String id;
+    private final int version;
+    private final boolean bcdNumerics;
+    private final boolean binaryLengthPrefix;
+    private final byte[] encoding;
+    private final int[] length;
+    private final Rule[] rules;
+    private final IsoSpec.FieldDef[] defs;
+
+    private IsoSpecEngine(Builder b) {
+        this.id = b.id;
+        this.version = b.version;
+        this.bcdNumerics = b.bcdNumerics;
+        this.binaryLengthPrefix = b.binaryLengthPrefix;
+        this.length = b.length.clone();
+        this.rules = b.rules.clone();
+        this.encoding = new byte[129];
+        this.defs = new IsoSpec.FieldDef[129];
+        for (int f = 2; f <= 128; f++) {
+            Wire w = b.wire[f];
+            if (w == null) {
+                continue;
+            }
+            encoding[f] = compile(w, bcdNumerics);
+            defs[f] = new IsoSpec.FieldDef(f, lenType(w), length[f], contentType(w));
+        }
+    }
+
+    private static byte compile(Wire w, boolean bcd) {
+        switch (w) {
+            case NUMERIC:
+                return bcd ? ENC_NUMERIC_BCD : ENC_NUMERIC;
+            case ALPHA:
+                return ENC_ALPHA;
+            case BINARY:
+                return ENC_BINARY;
+            case LLVAR:
+                return ENC_LLVAR;
+            case LLLVAR:
+                return ENC_LLLVAR;
+            case LLLVAR_HEX:
+                return ENC_LLLVAR_HEX;
+            default:
+                throw new IllegalStateException("Unknown wire type " + w);
+        }
+    }
+
+    private static IsoSpec.LenType lenType(Wire w) {
+        switch (w) {
+            case LLVAR:
+                return IsoSpec.LenType.LLVAR;
+            case LLLVAR:
+            case LLLVAR_HEX:
+                return IsoSpec.LenType.LLLVAR;
+            default:
+                return IsoSpec.LenType.FIXED;
+        }
+    }
+
+    private static IsoSpec.ContentType contentType(Wire w) {
+        return w == Wire.BINARY || w == Wire.LLLVAR_HEX
+                ? IsoSpec.ContentType.HEX_BYTES
+                : IsoSpec.ContentType.ASCII;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /** Fixed numerics are packed BCD instead of ASCII digits. */
+    public boolean isBcdNumerics() {
+        return bcdNumerics;
+    }
+
+    /** LL/LLL prefixes are big-endian binary (1 / 2 bytes) instead of ASCII digits. */
+    public boolean isBinaryLengthPrefix() {
+        return binaryLengthPrefix;
+    }
+
+    /** Compiled encoding ({@code ENC_*}) for the field, {@link #ENC_NONE} if undefined. */
+    public byte encoding(int field) {
+        return field < 2 || field > 128 ? ENC_NONE : encoding[field];
+    }
+
+    /** Fixed length (digits/chars/bytes) or max length for variable fields. */
+    public int length(int field) {
+        return field < 2 || field > 128 ? 0 : length[field];
+    }
+
+    /** Copy of the encoding table (129 slots). */
+    public byte[] encodings() {
+        return encoding.clone();
+    }
+
+    /** Copy of the length table (129 slots). */
+    public int[] lengths() {
+        return length.clone();
+    }
+
+    public boolean isDefined(int field) {
+        return encoding(field) != ENC_NONE;
+    }
+
+    /** Length-prefix size in bytes on the wire; 0 for fixed fields. */
+    public int prefixLength(int field) {
+        switch (encoding(field)) {
+            case ENC_LLVAR:
+                return binaryLengthPrefix ? 1 : 2;
+            case ENC_LLLVAR:
+            case ENC_LLLVAR_HEX:
+                return binaryLengthPrefix ? 2 : 3;
+            default:
+                return 0;
+        }
+    }
+
+    /** On-wire byte size of a fixed field. */
+    public int fixedWireLength(int field) {
+        return encoding(field) == ENC_NUMERIC_BCD ? (length[field] + 1) / 2 : length[field];
+    }
+
+    /** Legacy {@link IsoSpec.FieldDef} view, or null if undefined. Cached, no allocation. */
+    public IsoSpec.FieldDef def(int field) {
+        return field < 2 || field > 128 ? null : defs[field];
+    }
+
+    /** Validation rule, or null if the spec has none for the field. */
+    public Rule rule(int field) {
+        return field < 0 || field > 128 ? null : rules[field];
+    }
+
+    /** True if the field has no rule or {@code value} satisfies it. */
+    public boolean isValid(int field, String value) {
+        Rule r = rule(field);
+        return r == null || r.accepts(value);
+    }
+
+    /** Decode a field's raw bytes to the String form carried by {@code IsoMessage}. */
+    public String decode(int field, byte[] buf, int off, int len) {
+        switch (encoding(field)) {
+            case ENC_BINARY:
+            case ENC_LLLVAR_HEX:
+                return HexUtil.bytesToHex(buf, off, len);
+            case ENC_NUMERIC_BCD: {
+                String digits = HexUtil.bytesToHex(buf, off, len);
+                return (length[field] & 1) != 0 ? digits.substring(1) : digits;
+            }
+            default:
+                return new String(buf, off, len, IsoSpec.CHARSET);
+        }
+    }
+
+    // ── Registry ──
+
+    private static final IsoSpecEngine STANDARD = buildStandard();
+    private static final Map<String, IsoSpecEngine> REGISTRY = new ConcurrentHashMap<>();
+
+    static {
+        register(STANDARD);
+        register(builder(STANDARD).id(BCD_ID).bcdNumerics(true).binaryLengthPrefix(true).build());
+    }
+
+    /** The project's default (Napas, ASCII) spec. */
+    public static IsoSpecEngine standard() {
+        return STANDARD;
+    }
+
+    /**
+     * Make a spec selectable by id. A spec replaces an existing registration
+     * only if its version is the same or newer.
+     */
+    public static void register(IsoSpecEngine spec) {
+        REGISTRY.merge(spec.id, spec, (old, neu) -> neu.version >= old.version ? neu : old);
+    }
+
+    /**
+     * Spec by id; null/empty selects {@link #standard()}. An unknown id (a
+     * typo in a scheme, a spec asset that failed to load) is logged and also
+     * falls back to {@link #standard()}, so a transaction never dies on it.
+     */
+    public static IsoSpecEngine forId(String id) {
+        if (id == null || id.isEmpty()) {
+            return STANDARD;
+        }
+        IsoSpecEngine spec = REGISTRY.get(id);
+        if (spec == null) {
+            IsoLog.w(TAG, "Unknown ISO spec '" + id + "', using " + STANDARD_ID);
+            return STANDARD;
+        }
+        return spec;
+    }
+
+    /** True if {@code id} is null/empty (standard) or names a registered spec. */
+    public static boolean isRegistered(String id) {
+        return id == null || id.isEmpty() || REGISTRY.containsKey(id);
+    }
+
+    /** Ids of every registered spec, sorted; for pickers and validation messages. */
+    public static List<String> registeredIds() {
+        List<String> ids = new ArrayList<>(REGISTRY.keySet());
+        Collections.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Every registered spec, {@link #standard()} first, then by id. For
+     * decoding bytes whose spec is not known (journal, pooled responses,
+     * stored history).
+     */
+    public static List<IsoSpecEngine> registeredSpecs() {
+        List<IsoSpecEngine> specs = new ArrayList<>();
+        specs.add(STANDARD);
+        for (String id : registeredIds()) {
+            IsoSpecEngine spec = REGISTRY.get(id);
+            if (spec != null && spec != STANDARD) {
+                specs.add(spec);
+            }
+        }
+        return specs;
+    }
+
+    // ── Builder ──
+
+    public static Builder builder(String id) {
+        return new Builder(id);
+    }
+
+    /** Start from an existing spec (copy of every field, rule and option). */
+    public static Builder builder(IsoSpecEngine base) {
+        Builder b = new Builder(base.id);
+        b.version = base.version;
+        b.bcdNumerics = base.bcdNumerics;
+        b.binaryLengthPrefix = base.binaryLengthPrefix;
+        System.arraycopy(base.length, 0, b.length, 0, 129);
+        System.arraycopy(base.rules, 0, b.rules, 0, 129);
+        for (int f = 2; f <= 128; f++) {
+            b.wire[f] = wireOf(base.encoding[f]);
+        }
+        return b;
+    }
+
+    private static Wire wireOf(byte enc) {
+        switch (enc) {
+            case ENC_NUMERIC:
+            case ENC_NUMERIC_BCD:
+                return Wire.NUMERIC;
+            case ENC_ALPHA:
+                return Wire.ALPHA;
+            case ENC_BINARY:
+                return Wire.BINARY;
+            case ENC_LLVAR:
+                return Wire.LLVAR;
+            case ENC_LLLVAR:
+                return Wire.LLLVAR;
+            case ENC_LLLVAR_HEX:
+                return Wire.LLLVAR_HEX;
+            default:
+                return null;
+        }
+    }
+
+    public static final class Builder {
+        private String id;
+        private int version = 1;
+        private boolean bcdNumerics;
+        private boolean binaryLengthPrefix;
+        private final Wire[] wire = new Wire[129];
+        private final int[] length = new int[129];
+        private final Rule[] rules = new Rule[129];
+
+        private Builder(String id) {
+            this.id = id;
+        }
+
+        public Builder id(String id) {
+            this.id = id;
+            return this;
+        }
+
+        public Builder version(int version) {
+            this.version = version;
+            return this;
+        }
+
+        public Builder bcdNumerics(boolean bcdNumerics) {
+            this.bcdNumerics = bcdNumerics;
+            return this;
+        }
+
+        public Builder binaryLengthPrefix(boolean binaryLengthPrefix) {
+            this.binaryLengthPrefix = binaryLengthPrefix;
+            return this;
+        }
+
+        /** Wire definition only (no validation rule). */
+        public Builder field(int field, Wire w, int len) {
+            checkDataElement(field);
+            if (len <= 0) {
+                throw new IllegalArgumentException("Field " + field + " length must be > 0");
+            }
+            wire[field] = w;
+            length[field] = len;
+            return this;
+        }
+
+        /** Wire definition plus validation rule. */
+        public Builder field(int field, Wire w, int len,
+                Format format, int minLen, int maxLen, String errorCode, String description) {
+            field(field, w, len);
+            return rule(field, format, minLen, maxLen, errorCode, description);
+        }
+
+        /** Validation rule only (also used for slot 0 = MTI and slot 1 = secondary bitmap). */
+        public Builder rule(int field, Format format, int minLen, int maxLen, String errorCode, String description) {
+            if (field < 0 || field > 128) {
+                throw new IllegalArgumentException("Invalid ISO field: " + field);
+            }
+            rules[field] = new Rule(field, format, minLen, maxLen, errorCode, description);
+            return this;
+        }
+
+        /** Drop a field from the wire format and its rule. */
+        public Builder remove(int field) {
+            checkDataElement(field);
+            wire[field] = null;
+            length[field] = 0;
+            rules[field] = null;
+            return this;
+        }
+
+        public IsoSpecEngine build() {
+            if (id == null || id.isEmpty()) {
+                throw new IllegalStateException("Spec id is required");
+            }
+            return new IsoSpecEngine(this);
+        }
+
+        private static void checkDataElement(int field) {
+            if (field < 2 || field > 128) {
+                throw new IllegalArgumentException("Invalid ISO data element: " + field);
+            }
+        }
+    }
+
+    // ── Standard (Napas) definition ──
+
+    private static IsoSpecEngine buildStandard() {
+        Builder b = builder(STANDARD_ID);
+
+        // MTI (Message Type Identifier) - n4
+        b.rule(0, Format.N, 4, 4, "NPS-000", "MTI Error: Must be 4 numeric digits");
+        // Secondary Bitmap - n16 (Hex)
+        b.rule(1, Format.HEX, 16, 16, "NPS-001", "Secondary Bitmap Error: Must be 16 Hex characters");
+
+        b.field(2, Wire.LLVAR, 19, Format.N, 1, 19, "NPS-002",
+                "PAN Error: Must be numeric, length 1-19 (LLVAR)");
+        b.field(3, Wire.NUMERIC, 6, Format.N, 6, 6, "NPS-003",
+                "Processing Code Error: Must be 6 numeric digits");
+        b.field(4, Wire.NUMERIC, 12, Format.N, 12, 12, "NPS-004",
+                "Amount Error: Must be 12 numeric digits");
+        b.field(5, Wire.NUMERIC, 12, Format.N, 12, 12, "NPS-005",
+                "Settlement Amount Error: Must be 12 numeric digits");
+        b.field(6, Wire.NUMERIC, 12, Format.N, 12, 12, "NPS-006",
+                "Billing Amount Error: Must be 12 numeric digits");
+        b.field(7, Wire.NUMERIC, 10, Format.N, 10, 10, "NPS-007",
+                "Transmission Date/Time Error: Must be 10 numeric digits (MMDDhhmmss)");
+        b.field(9, Wire.NUMERIC, 8, Format.N, 8, 8, "NPS-009",
+                "Settlement Rate Error: Must be 8 numeric digits");
+        b.field(10, Wire.NUMERIC, 8, Format.N, 8, 8, "NPS-010",
+                "Billing Rate Error: Must be 8 numeric digits");
+        b.field(11, Wire.NUMERIC, 6, Format.N, 6, 6, "NPS-011",
+                "STAN Error: Must be 6 numeric digits");
+        b.field(12, Wire.NUMERIC, 6, Format.N, 6, 6, "NPS-012",
+                "Local Time Error: Must be 6 numeric digits (hhmmss)");
+        b.field(13, Wire.NUMERIC, 4, Format.N, 4, 4, "NPS-013",
+                "Local Date Error: Must be 4 numeric digits (MMDD)");
+        b.field(14, Wire.NUMERIC, 4, Format.N, 4, 4, "NPS-014",
+                "Expiration Date Error: Must be 4 numeric digits (YYMM)");
+        b.field(15, Wire.NUMERIC, 4, Format.N, 4, 4, "NPS-015",
+                "Settlement Date Error: Must be 4 numeric digits (MMDD)");
+        b.field(18, Wire.NUMERIC, 4, Format.N, 4, 4, "NPS-018",
+                "MCC Error: Must be 4 numeric digits");
+        b.field(19, Wire.NUMERIC, 3, Format.N, 3, 3, "NPS-019",
+                "Country Code Error: Must be 3 numeric digits");
+        b.field(22, Wire.NUMERIC, 3, Format.N, 3, 3, "NPS-022",
+                "POS Entry Mode Error: Must be 3 numeric digits");
+        b.field(23, Wire.NUMERIC, 3, Format.N, 3, 3, "NPS-023",
+                "Card Sequence Number Error: Must be 3 numeric digits");
+        b.field(25, Wire.NUMERIC, 2, Format.N, 2, 2, "NPS-025",
+                "POS Condition Code Error: Must be 2 numeric digits");
+        // DE 32 is always LLVAR (Maestro fix)
+        b.field(32, Wire.LLVAR, 11, Format.N, 1, 11, "NPS-032",
+                "Acquirer ID Error: Must be numeric, max length 11 (LLVAR)");
+        b.field(33, Wire.LLVAR, 11); // Forwarding ID
+        b.field(35, Wire.LLVAR, 37, Format.Z, 1, 37, "NPS-035",
+                "Track 2 Error: Invalid format or length > 37 (LLVAR)");
+        b.field(36, Wire.LLLVAR, 104, Format.Z, 1, 104, "NPS-036",
+                "Track 3 Error: Invalid format or length > 104 (LLVAR)");
+        b.field(37, Wire.ALPHA, 12, Format.AN, 12, 12, "NPS-037",
+                "RRN Error: Must be 12 alphanumeric characters");
+        b.field(38, Wire.ALPHA, 6, Format.ANS, 6, 6, "NPS-038",
+                "Auth Code Error: Must be 6 characters");
+        b.field(39, Wire.ALPHA, 2, Format.AN, 2, 2, "NPS-039",
+                "Response Code Error: Must be 2 alphanumeric characters");
+        b.field(41, Wire.ALPHA, 8, Format.ANS, 8, 8, "NPS-041",
+                "TID Error: Must be 8 characters");
+        b.field(42, Wire.ALPHA, 15, Format.ANS, 15, 15, "NPS-042",
+                "Merchant ID Error: Must be 15 characters");
+        b.field(43, Wire.ALPHA, 40, Format.ANS, 40, 40, "NPS-043",
+                "Location Error: Must be 40 characters");
+        b.field(45, Wire.LLVAR, 79, Format.ANS, 1, 79, "NPS-045",
+                "Track 1 Error: Max length 79 (LLVAR)");
+        b.field(48, Wire.LLLVAR, 999, Format.ANS, 1, 999, "NPS-048",
+                "Private Data Error: Max length 999 (LLLVAR)");
+        b.field(49, Wire.NUMERIC, 3, Format.N, 3, 3, "NPS-049",
+                "Currency Code Error: Must be 3 numeric digits");
+        b.field(50, Wire.NUMERIC, 3, Format.N, 3, 3, "NPS-050",
+                "Settlement Currency Error: Must be 3 numeric digits");
+        b.field(51, Wire.NUMERIC, 3, Format.N, 3, 3, "NPS-051",
+                "Billing Currency Error: Must be 3 numeric digits");
+        // PIN block: 64 bits on the wire, 16 hex chars in the message
+        b.field(52, Wire.BINARY, 8, Format.HEX, 16, 16, "NPS-052",
+                "PIN Block Error: Must be 16 Hex characters");
+        b.field(54, Wire.LLLVAR, 120, Format.ANS, 1, 120, "NPS-054",
+                "Additional Amounts Error: Max length 120 (LLLVAR)");
+        // ICC data: binary LLLVAR, prefix = byte count
+        b.field(55, Wire.LLLVAR_HEX, 510);
+        b.field(60, Wire.LLLVAR, 60, Format.ANS, 1, 60, "NPS-060",
+                "Field 60 Error: Max length 60 (LLLVAR)");
+        b.field(62, Wire.LLLVAR, 999, Format.ANS, 1, 10, "NPS-062",
+                "Service Code Error: Max length 10 (LLVAR)");
+        b.field(63, Wire.LLLVAR, 999, Format.ANS, 1, 16, "NPS-063",
+                "TRN Error: Max length 16 (LLLVAR)");
+
+        // Secondary bitmap fields
+        b.field(70, Wire.NUMERIC, 3, Format.N, 3, 3, "NPS-070",
+                "Net Mgmt Code Error: Must be 3 numeric digits");
+        b.field(90, Wire.NUMERIC, 42, Format.N, 42, 42, "NPS-090",
+                "Original Data Error: Must be 42 numeric digits");
+        b.field(100, Wire.LLVAR, 11, Format.N, 1, 11, "NPS-100",
+                "Receiving Inst. Code Error: Max length 11 (LLVAR)");
+        b.field(102, Wire.LLVAR, 28, Format.AN, 1, 28, "NPS-102",
+                "From Account Error: Alphanumeric, max length 28 (LLVAR)");
+        b.field(103, Wire.LLVAR, 28, Format.AN, 1, 28, "NPS-103",
+                "To Account Error: Alphanumeric, max length 28 (LLVAR)");
+        b.field(104, Wire.LLLVAR, 210, Format.ANS, 1, 210, "NPS-104",
+                "Content Transfer Error: Max length 210 (LLLVAR)");
+        b.field(105, Wire.LLLVAR, 999, Format.ANS, 1, 999, "NPS-105",
+                "New PIN Block Error: Max length 999 (LLLVAR)");
+        b.field(120, Wire.LLLVAR, 70, Format.ANS, 1, 70, "NPS-120",
+                "Beneficial Info Error: Max length 70 (LLLVAR)");
+        // MAC: 64 bits on the wire
+        b.field(128, Wire.BINARY, 8, Format.AN, 16, 16, "NPS-128",
+                "MAC Error: Must be 16 alphanumeric characters");
+
+        return b.build();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.mysoftpos.iso8583.spec;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Napas field validation rules, keyed by field number (0 = MTI, 1 = secondary bitmap).
+ *
+ * Derived from {@link IsoSpecEngine#standard()}; edit the rules there. The
+ * engine validates without regexes ({@link IsoSpecEngine#isValid}); the
+ * {@link FieldSpec#pattern} here is kept for existing callers.
+ */
+public final class NapasFieldSpecConfig {
+
+        private NapasFieldSpecConfig() {
+        }
+
+        public static final class FieldSpec {
+                public final int field;
+                public final int minLen;
+                public final int maxLen;
+                public final Pattern pattern;
+                public final String errorCode;
+                public final String description;
+
+                public FieldSpec(int field, int minLen, int maxLen, String regex, String errorCode,
+                                String description) {
+                        this.field = field;
+                        this.minLen = minLen;
+                        this.maxLen = maxLen;
+                        this.pattern = regex == null ? null : Pattern.compile(regex);
+                        this.errorCode = errorCode;
+                        this.description = description;
+                }
+        }
+
+        public static final Map<Integer, FieldSpec> SPECS = build();
+
+        private static Map<Integer, FieldSpec> build() {
+                Map<Integer, FieldSpec> m = new HashMap<>();
+                IsoSpecEngine spec = IsoSpecEngine.standard();
+                for (int f = 0; f <= 128; f++) {
+                        IsoSpecEngine.Rule r = spec.rule(f);
+                        if (r != null) {
+                                m.put(f, new FieldSpec(f, r.minLen, r.maxLen, r.toRegex(), r.errorCode,
+                                                r.description));
+                        }
+                }
+                return Collections.unmodifiableMap(m);
+        }
+
+        public static FieldSpec get(int field) {
+                return SPECS.get(field);
+        }
+}
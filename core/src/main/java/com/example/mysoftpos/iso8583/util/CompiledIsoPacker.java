@@ -0,0 +1,317 @@
+package com.example.mysoftpos.iso8583.util;
+
+import com.example.mysoftpos.iso8583.message.IsoMessage;
+import com.example.mysoftpos.iso8583.spec.IsoSpecEngine;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.example.mysoftpos.iso8583.spec.IsoSpecEngine.ENC_ALPHA;
+import static com.example.mysoftpos.iso8583.spec.IsoSpecEngine.ENC_BINARY;
+import static com.example.mysoftpos.iso8583.spec.IsoSpecEngine.ENC_LLLVAR;
+import static com.example.mysoftpos.iso8583.spec.IsoSpecEngine.ENC_LLLVAR_HEX;
+import static com.example.mysoftpos.iso8583.spec.IsoSpecEngine.ENC_LLVAR;
+import static com.example.mysoftpos.iso8583.spec.IsoSpecEngine.ENC_NONE;
+import static com.example.mysoftpos.iso8583.spec.IsoSpecEngine.ENC_NUMERIC;
+import static com.example.mysoftpos.iso8583.spec.IsoSpecEngine.ENC_NUMERIC_BCD;
+
+/**
+ * Allocation-free ISO8583 packer driven by a compiled field table.
+ *
+ * The field table comes from an {@link IsoSpecEngine} (DE 32 / DE 55 special
+ * cases are table entries there, not branches in the pack loop). Messages are
+ * written straight into a caller-supplied {@code byte[]} or
+ * {@link ByteBuffer}: length prefixes, zero/space padding, BCD and hex
+ * decoding are hand-encoded, so a steady-state pack allocates nothing.
+ *
+ * {@link #standard()} output is byte-for-byte what this project has always
+ * sent. Instances are immutable and thread-safe; get them from
+ * {@link #standard()} / {@link #forSpec(IsoSpecEngine)}.
+ */
+public final class CompiledIsoPacker {
+
+    /** Hex digit value per char (0–127), -1 if not a hex digit. */
+    private static final byte[] HEX_VALUE = new byte[128];
+
+    static {
+        for (int i = 0; i < HEX_VALUE.length; i++) {
+            HEX_VALUE[i] = -1;
+        }
+        for (int i = 0; i < 10; i++) {
+            HEX_VALUE['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            HEX_VALUE['A' + i] = (byte) (10 + i);
+            HEX_VALUE['a' + i] = (byte) (10 + i);
+        }
+    }
+
+    private static final CompiledIsoPacker STANDARD = new CompiledIsoPacker(IsoSpecEngine.standard());
+    private static final Map<IsoSpecEngine, CompiledIsoPacker> BY_SPEC = new ConcurrentHashMap<>();
+
+    private final byte[] encoding;
+    private final int[] length;
+    private final boolean binaryPrefix;
+
+    public CompiledIsoPacker(IsoSpecEngine spec) {
+        this.encoding = spec.encodings();
+        this.length = spec.lengths();
+        this.binaryPrefix = spec.isBinaryLengthPrefix();
+    }
+
+    /** Packer for the project's standard wire format. */
+    public static CompiledIsoPacker standard() {
+        return STANDARD;
+    }
+
+    /** Packer for {@code spec}, compiled once and cached. */
+    public static CompiledIsoPacker forSpec(IsoSpecEngine spec) {
+        if (spec == IsoSpecEngine.standard()) {
+            return STANDARD;
+        }
+        return BY_SPEC.computeIfAbsent(spec, CompiledIsoPacker::new);
+    }
+
+    /**
+     * Pack into {@code out} starting at {@code offset}.
+     *
+     * @return number of bytes written
+     * @throws BufferOverflowException if {@code out} is too small
+     */
+    public int pack(IsoMessage msg, byte[] out, int offset) {
+        return pack(msg, out, offset, out.length);
+    }
+
+    private int pack(IsoMessage msg, byte[] out, int offset, int limit) {
+        int pos = offset;
+        String mti = msg.getMti();
+
+        // 1. MTI
+        pos = ensure(limit, pos, 4);
+        for (int i = 0; i < 4; i++) {
+            out[pos + i] = ascii(mti.charAt(i));
+        }
+        pos += 4;
+
+        // 2. Bitmaps
+        long primary = msg.primaryBitmap();
+        long secondary = msg.secondaryBitmap();
+        boolean hasSecondary = secondary != 0;
+        pos = writeLong(out, pos, limit, primary);
+        if (hasSecondary) {
+            pos = writeLong(out, pos, limit, secondary);
+        }
+
+        // 3. Fields
+        for (int f = msg.nextField(2); f > 0; f = msg.nextField(f + 1)) {
+            byte enc = encoding[f];
+            if (enc == ENC_NONE) {
+                continue;
+            }
+            pos = writeField(out, pos, limit, f, enc, length[f], msg.getField(f));
+        }
+        return pos - offset;
+    }
+
+    /**
+     * Pack into {@code buf} at its current position; advances the position.
+     *
+     * @return number of bytes written
+     */
+    public int pack(IsoMessage msg, ByteBuffer buf) {
+        if (buf.hasArray()) {
+            int start = buf.arrayOffset() + buf.position();
+            int n = pack(msg, buf.array(), start, buf.arrayOffset() + buf.limit());
+            buf.position(buf.position() + n);
+            return n;
+        }
+        // Direct buffers: stage through a heap array
+        byte[] packed = packToArray(msg);
+        buf.put(packed);
+        return packed.length;
+    }
+
+    private int writeField(byte[] out, int pos, int limit, int field, byte enc, int len, String val) {
+        int vlen = val.length();
+        switch (enc) {
+            case ENC_NUMERIC: {
+                pos = ensure(limit, pos, len);
+                int pad = len - vlen;
+                for (int i = 0; i < pad; i++) {
+                    out[pos++] = '0';
+                }
+                int n = Math.min(vlen, len);
+                for (int i = 0; i < n; i++) {
+                    out[pos++] = ascii(val.charAt(i));
+                }
+                return pos;
+            }
+            case ENC_ALPHA: {
+                pos = ensure(limit, pos, len);
+                int n = Math.min(vlen, len);
+                for (int i = 0; i < n; i++) {
+                    out[pos++] = ascii(val.charAt(i));
+                }
+                for (int i = n; i < len; i++) {
+                    out[pos++] = ' ';
+                }
+                return pos;
+            }
+            case ENC_BINARY: {
+                pos = ensure(limit, pos, len);
+                int n = Math.min(vlen / 2, len);
+                decodeHex(val, out, pos, n, field);
+                for (int i = n; i < len; i++) {
+                    out[pos + i] = 0;
+                }
+                return pos + len;
+            }
+            case ENC_LLVAR:
+                pos = ensure(limit, pos, prefixSize(2) + vlen);
+                pos = writePrefix(out, pos, vlen, 2, field);
+                for (int i = 0; i < vlen; i++) {
+                    out[pos++] = ascii(val.charAt(i));
+                }
+                return pos;
+            case ENC_LLLVAR:
+                pos = ensure(limit, pos, prefixSize(3) + vlen);
+                pos = writePrefix(out, pos, vlen, 3, field);
+                for (int i = 0; i < vlen; i++) {
+                    out[pos++] = ascii(val.charAt(i));
+                }
+                return pos;
+            case ENC_LLLVAR_HEX: {
+                int n = vlen / 2;
+                pos = ensure(limit, pos, prefixSize(3) + n);
+                pos = writePrefix(out, pos, n, 3, field);
+                decodeHex(val, out, pos, n, field);
+                return pos + n;
+            }
+            case ENC_NUMERIC_BCD: {
+                int bytes = (len + 1) / 2;
+                pos = ensure(limit, pos, bytes);
+                writeBcd(out, pos, bytes, len, val, field);
+                return pos + bytes;
+            }
+            default:
+                throw new IllegalStateException("Unknown encoding " + enc + " for field " + field);
+        }
+    }
+
+    /** Prefix bytes for an LL (2) or LLL (3) field. */
+    private int prefixSize(int digits) {
+        return binaryPrefix ? digits - 1 : digits;
+    }
+
+    private int writePrefix(byte[] out, int pos, int value, int digits, int field) {
+        if (value < 0 || (digits == 2 ? value > 99 : value > 999)) {
+            throw new IllegalArgumentException("Field " + field + " length " + value
+                    + " does not fit " + digits + "-digit prefix");
+        }
+        if (binaryPrefix) {
+            if (digits == 3) {
+                out[pos++] = (byte) (value >>> 8);
+            }
+            out[pos++] = (byte) value;
+            return pos;
+        }
+        if (digits == 3) {
+            out[pos++] = (byte) ('0' + value / 100);
+        }
+        out[pos++] = (byte) ('0' + (value / 10) % 10);
+        out[pos++] = (byte) ('0' + value % 10);
+        return pos;
+    }
+
+    /** {@code digits} BCD digits, value left zero-padded (and truncated like ENC_NUMERIC). */
+    private static void writeBcd(byte[] out, int pos, int bytes, int digits, String val, int field) {
+        int vlen = val.length();
+        int pad = Math.max(digits - vlen, 0); // leading zero digits
+        int lead = bytes * 2 - digits; // 1 pad nibble when digits is odd
+        for (int i = 0; i < bytes; i++) {
+            int hi = bcdDigit(val, 2 * i - lead - pad, vlen, field);
+            int lo = bcdDigit(val, 2 * i + 1 - lead - pad, vlen, field);
+            out[pos + i] = (byte) ((hi << 4) | lo);
+        }
+    }
+
+    private static int bcdDigit(String val, int idx, int vlen, int field) {
+        if (idx < 0 || idx >= vlen) {
+            return 0;
+        }
+        int d = val.charAt(idx) - '0';
+        if (d < 0 || d > 9) {
+            throw new IllegalArgumentException("Field " + field + " invalid BCD digit at index " + idx);
+        }
+        return d;
+    }
+
+    private static int writeLong(byte[] out, int pos, int limit, long v) {
+        ensure(limit, pos, 8);
+        for (int i = 7; i >= 0; i--) {
+            out[pos++] = (byte) (v >>> (8 * i));
+        }
+        return pos;
+    }
+
+    private static void decodeHex(String hex, byte[] out, int pos, int byteCount, int field) {
+        for (int i = 0; i < byteCount; i++) {
+            int hi = hexValue(hex.charAt(2 * i));
+            int lo = hexValue(hex.charAt(2 * i + 1));
+            if ((hi | lo) < 0) {
+                throw new IllegalArgumentException("Field " + field + " invalid hex at index " + (2 * i));
+            }
+            out[pos + i] = (byte) ((hi << 4) | lo);
+        }
+    }
+
+    private static int hexValue(char c) {
+        return c < 128 ? HEX_VALUE[c] : -1;
+    }
+
+    /** Same substitution as String.getBytes(US_ASCII): unmappable → '?'. */
+    private static byte ascii(char c) {
+        return c < 0x80 ? (byte) c : (byte) '?';
+    }
+
+    private static int ensure(int limit, int pos, int n) {
+        if (pos + n > limit) {
+            throw new BufferOverflowException();
+        }
+        return pos;
+    }
+
+    /**
+     * Pack into a right-sized array. Only the returned array is allocated; the
+     * message is first written into a per-thread scratch buffer.
+     */
+    public byte[] packToArray(IsoMessage msg) {
+        byte[] scratch = scratch();
+        int n;
+        try {
+            n = pack(msg, scratch, 0);
+        } catch (BufferOverflowException e) {
+            scratch = new byte[MAX_MESSAGE_LENGTH];
+            SCRATCH.set(scratch);
+            n = pack(msg, scratch, 0);
+        }
+        byte[] out = new byte[n];
+        System.arraycopy(scratch, 0, out, 0, n);
+        return out;
+    }
+
+    // ── Per-thread scratch buffer ──
+
+    /** Max ISO body accepted by the framing layer. */
+    static final int MAX_MESSAGE_LENGTH = 65535;
+
+    /** Typical 0200 with DE 55 is well under 1KB; grows to the max on demand. */
+    private static final ThreadLocal<byte[]> SCRATCH =
+            ThreadLocal.withInitial(() -> new byte[4096]);
+
+    static byte[] scratch() {
+        return SCRATCH.get();
+    }
+}
@@ -24,14 +24,20 @@ public final class HexUtil {
         return out;
     }
 
+    private static final char[] HEX_CHARS = "0123456789ABCDEF".toCharArray();
+
     public static String bytesToHex(byte[] data) {
         if (data == null) return "";
-        char[] hexChars = "0123456789ABCDEF".toCharArray();
-        char[] out = new char[data.length * 2];
-        for (int i = 0; i < data.length; i++) {
-            int v = data[i] & 0xFF;
-            out[i * 2] = hexChars[v >>> 4];
-            out[i * 2 + 1] = hexChars[v & 0x0F];
+        return bytesToHex(data, 0, data.length);
+    }
+
+    /** Hex-encode a slice without copying it out first. */
+    public static String bytesToHex(byte[] data, int off, int len) {
+        char[] out = new char[len * 2];
+        for (int i = 0; i < len; i++) {
+            int v = data[off + i] & 0xFF;
+            out[i * 2] = HEX_CHARS[v >>> 4];
+            out[i * 2 + 1] = HEX_CHARS[v & 0x0F];
         }
         return new String(out);
     }
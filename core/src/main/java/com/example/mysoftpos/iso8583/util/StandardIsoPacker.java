@@ -0,0 +1,117 @@
+package com.example.mysoftpos.iso8583.util;
+
+import com.example.mysoftpos.iso8583.log.IsoLog;
+import com.example.mysoftpos.iso8583.message.IsoMessage;
+import com.example.mysoftpos.iso8583.parser.IsoUnpacker;
+import com.example.mysoftpos.iso8583.spec.IsoSpecEngine;
+
+import java.util.Locale;
+
+/**
+ * Standard ISO8583 Packer (Packed BCD Format).
+ * - MTI: 4 chars (ASCII 0200)
+ * - Bitmap: 8 bytes (Primary) + Optional 8 bytes (Secondary)
+ * - Numeric Fields: Packed BCD (n/2 bytes) or ASCII (schema dependent)
+ * - LLVAR/LLLVAR: Length BCD/ASCII, Value BCD/ASCII
+ */
+public class StandardIsoPacker {
+
+    // Field layout lives in IsoSpecEngine (shared with IsoUnpacker and validation)
+
+    /**
+     * Pack to a new byte[]. Delegates to {@link CompiledIsoPacker}, which
+     * writes through a reusable per-thread buffer; use
+     * {@link CompiledIsoPacker#pack(IsoMessage, byte[], int)} directly to avoid
+     * even the result allocation.
+     */
+    public static byte[] pack(IsoMessage msg) throws Exception {
+        return CompiledIsoPacker.standard().packToArray(msg);
+    }
+
+    /** Pack with an alternate spec (e.g. the one selected by a scheme). */
+    public static byte[] pack(IsoMessage msg, IsoSpecEngine spec) throws Exception {
+        return CompiledIsoPacker.forSpec(spec).packToArray(msg);
+    }
+
+    public IsoMessage unpack(byte[] responseData) throws Exception {
+        return unpack(responseData, IsoSpecEngine.standard());
+    }
+
+    /**
+     * Unpack with {@code spec}. Runs the single-pass {@link IsoUnpacker}:
+     * fields missing from the spec or truncated data are rejected instead of
+     * being silently skipped.
+     */
+    public IsoMessage unpack(byte[] responseData, IsoSpecEngine spec) throws Exception {
+        if (responseData == null || responseData.length < 12)
+            throw new Exception("Invalid response length");
+        return IsoUnpacker.unpackView(responseData, 0, responseData.length, spec).toIsoMessage();
+    }
+
+    // --- Helpers ---
+    public static byte[] hexToBytes(String hex) {
+        if (hex == null)
+            return new byte[0];
+        int len = hex.length();
+        byte[] data = new byte[len / 2];
+        for (int i = 0; i < len; i += 2) {
+            data[i / 2] = (byte) ((Character.digit(hex.charAt(i), 16) << 4)
+                    + Character.digit(hex.charAt(i + 1), 16));
+        }
+        return data;
+    }
+
+    public static String bytesToHex(byte[] bytes) {
+        if (bytes == null)
+            return "";
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(String.format("%02X", b));
+        }
+        return sb.toString();
+    }
+
+    // Unpacker logic for Response (BCD Support)
+    public static String unpackField(byte[] responseData, int fieldId) {
+        try {
+            if (responseData == null || responseData.length < 12)
+                return null;
+
+            IsoMessage msg = new StandardIsoPacker().unpack(responseData);
+            return msg.getField(fieldId);
+        } catch (Exception e) {
+            IsoLog.e("IsoPacker", "unpackField", e);
+            return null;
+        }
+    }
+
+    // Kept for compatibility if used elsewhere, but ideally redundant
+    public static String unpackResponseCode(byte[] responseData) {
+        try {
+            return new StandardIsoPacker().unpack(responseData).getField(39);
+        } catch (Exception e) {
+            return "XX";
+        }
+    }
+
+    /**
+     * Tạo chuỗi log của bản tin ISO8583.
+     * Các trường nhạy cảm (DE 2 PAN, DE 35 Track2, DE 52 PIN Block)
+     * được che giấu theo tiêu chuẩn PCI-DSS trước khi ghi log.
+     */
+    public static String logIsoMessage(IsoMessage msg) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("MTI: ").append(msg.getMti()).append("\n");
+
+        // Log Primary Bitmap (DE 001) for visibility
+        sb.append("DE 001: ").append(String.format(Locale.ROOT, "%016X", msg.primaryBitmap())).append("\n");
+
+        for (int field = msg.nextField(1); field > 0; field = msg.nextField(field + 1)) {
+            // Mask sensitive fields before logging (PCI-DSS compliance)
+            String value = IsoMessage.maskSensitiveField(field, msg.getField(field));
+            sb.append("DE ").append(String.format(Locale.ROOT, "%03d", field))
+              .append(": ").append(value).append("\n");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.mysoftpos.nfc;
+
+import com.example.mysoftpos.iso8583.log.IsoLog;
+import com.example.mysoftpos.iso8583.util.HexUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Learns which AID a card answers to, so the read needs as few SELECTs as
+ * possible.
+ *
+ * Hits are counted per card profile (ATS historical bytes, the only thing
+ * known before the first SELECT), per BIN range (after the read) and over
+ * all cards. A known profile goes straight to its AID, skipping PPSE; the
+ * direct-SELECT fallback is ordered by profile, then issuer (the profile's
+ * last BIN), then global score. Scores are hits halved every 30 days, so
+ * the order follows a change of card mix within days.
+ *
+ * Rows live in memory (loaded once from the {@link Store}) and are written
+ * back on {@code writer}, off the NFC thread.
+ */
+public class AidSelector {
+
+    private static final String TAG = "AidSelector";
+
+    /** Direct-SELECT order when nothing has been learned yet. */
+    static final String[] DEFAULT_AIDS = {
+            "F0000007040001", // NAPAS
+            "A000000727",
+            "A0000007271010",
+            "D4100000030001", // VCCS
+            "A0000000031010", // Visa
+            "A000000003",
+            "A0000000041010", // Mastercard
+            "A000000004"
+    };
+
+    static final String GLOBAL = "*";
+    private static final String BIN_PREFIX = "bin:";
+    private static final long HALF_LIFE_MS = TimeUnit.DAYS.toMillis(30);
+    // One row per (scope, AID); a busy terminal sees a few hundred card profiles
+    static final int MAX_ROWS = 512;
+
+    /** Persistence for the stats; the app keeps them in the aid_stats table. */
+    public interface Store {
+        List<AidStat> getAll();
+
+        void upsert(AidStat stat);
+
+        void delete(AidStat stat);
+    }
+
+    private final Store store;
+    private final Executor writer;
+    private final Map<String, Map<String, AidStat>> rows = new HashMap<>();
+    private int rowCount;
+    private boolean loaded;
+
+    public AidSelector(Store store, Executor writer) {
+        this.store = store;
+        this.writer = writer;
+    }
+
+    /** Loads the table now, so the first tap does not pay for it. */
+    public synchronized void warmUp() {
+        ensureLoaded();
+    }
+
+    /**
+     * AID to SELECT before PPSE for this card profile, or null when the
+     * profile is unknown (run PPSE as usual).
+     */
+    public synchronized byte[] preferredAid(String profile) {
+        if (profile == null) {
+            return null;
+        }
+        ensureLoaded();
+        AidStat best = null;
+        long now = System.currentTimeMillis();
+        for (AidStat s : scope(profile).values()) {
+            if (best == null || score(s, now) > score(best, now)) {
+                best = s;
+            }
+        }
+        return best != null ? HexUtil.hexToBytes(best.aid) : null;
+    }
+
+    /** Every AID worth a direct SELECT, most likely first. */
+    public synchronized List<byte[]> candidates(String profile) {
+        ensureLoaded();
+        Set<String> aids = new LinkedHashSet<>();
+        Collections.addAll(aids, DEFAULT_AIDS);
+        aids.addAll(scope(GLOBAL).keySet()); // AIDs learned from PPSE
+
+        String bin = profile != null ? lastBin(profile) : null;
+        long now = System.currentTimeMillis();
+        Map<String, Double> scores = new HashMap<>();
+        for (String aid : aids) {
+            double score = 4 * score(scope(profile).get(aid), now)
+                    + 2 * (bin != null ? score(scope(BIN_PREFIX + bin).get(aid), now) : 0)
+                    + score(scope(GLOBAL).get(aid), now);
+            scores.put(aid, score);
+        }
+        List<String> ordered = new ArrayList<>(aids);
+        // Stable sort: ties keep the default order
+        ordered.sort((a, b) -> Double.compare(scores.get(b), scores.get(a)));
+
+        List<byte[]> out = new ArrayList<>(ordered.size());
+        for (String aid : ordered) {
+            out.add(HexUtil.hexToBytes(aid));
+        }
+        return out;
+    }
+
+    /** The card answered {@code aid}; {@code pan} gives its BIN range. */
+    public synchronized void recordSuccess(String profile, String pan, byte[] aid) {
+        ensureLoaded();
+        String aidHex = HexUtil.bytesToHex(aid);
+        String bin = pan != null && pan.length() >= 6 ? pan.substring(0, 6) : null;
+        long now = System.currentTimeMillis();
+        if (profile != null) {
+            hit(profile, aidHex, bin, now);
+        }
+        if (bin != null) {
+            hit(BIN_PREFIX + bin, aidHex, null, now);
+        }
+        hit(GLOBAL, aidHex, null, now);
+    }
+
+    /** The profile's preferred AID was refused: forget it so PPSE runs next time. */
+    public synchronized void recordMiss(String profile, byte[] aid) {
+        if (profile == null) {
+            return;
+        }
+        ensureLoaded();
+        AidStat s = scope(profile).remove(HexUtil.bytesToHex(aid));
+        if (s != null) {
+            rowCount--;
+            writer.execute(() -> store.delete(s));
+        }
+    }
+
+    // ─────────────────────────────────────────────────────────────────────
+
+    private void hit(String scopeKey, String aid, String bin, long now) {
+        Map<String, AidStat> scope = rows.computeIfAbsent(scopeKey, k -> new HashMap<>());
+        AidStat s = scope.get(aid);
+        if (s == null) {
+            s = new AidStat(scopeKey, aid);
+            scope.put(aid, s);
+            rowCount++;
+        }
+        s.hits++;
+        s.lastUsedAt = now;
+        if (bin != null) {
+            s.bin = bin;
+        }
+        AidStat snapshot = s.copy();
+        writer.execute(() -> store.upsert(snapshot));
+        if (rowCount > MAX_ROWS) {
+            evictOldest();
+        }
+    }
+
+    private void evictOldest() {
+        AidStat oldest = null;
+        for (Map<String, AidStat> scope : rows.values()) {
+            for (AidStat s : scope.values()) {
+                if (!GLOBAL.equals(s.scope) && (oldest == null || s.lastUsedAt < oldest.lastUsedAt)) {
+                    oldest = s;
+                }
+            }
+        }
+        if (oldest != null) {
+            rows.get(oldest.scope).remove(oldest.aid);
+            rowCount--;
+            AidStat victim = oldest;
+            writer.execute(() -> store.delete(victim));
+        }
+    }
+
+    private String lastBin(String profile) {
+        AidStat latest = null;
+        for (AidStat s : scope(profile).values()) {
+            if (s.bin != null && (latest == null || s.lastUsedAt > latest.lastUsedAt)) {
+                latest = s;
+            }
+        }
+        return latest != null ? latest.bin : null;
+    }
+
+    private Map<String, AidStat> scope(String key) {
+        Map<String, AidStat> scope = key != null ? rows.get(key) : null;
+        return scope != null ? scope : Collections.emptyMap();
+    }
+
+    private static double score(AidStat s, long now) {
+        if (s == null) {
+            return 0;
+        }
+        double age = Math.max(0, now - s.lastUsedAt);
+        return s.hits * Math.pow(0.5, age / HALF_LIFE_MS);
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        try {
+            for (AidStat s : store.getAll()) {
+                rows.computeIfAbsent(s.scope, k -> new HashMap<>()).put(s.aid, s);
+                rowCount++;
+            }
+        } catch (RuntimeException e) {
+            // Only costs extra SELECTs: start from the default order
+            IsoLog.w(TAG, "Cannot load AID stats", e);
+        }
+    }
+}
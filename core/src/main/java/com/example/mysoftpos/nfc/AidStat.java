@@ -0,0 +1,27 @@
+package com.example.mysoftpos.nfc;
+
+/**
+ * How often an AID was selected successfully within one scope: a card
+ * profile, a BIN range or all cards. One row of {@link AidSelector.Store}.
+ */
+public final class AidStat {
+    public final String scope;
+    public final String aid;
+    public int hits;
+    public long lastUsedAt;
+    // BIN of the last card read in this scope (card-profile rows only)
+    public String bin;
+
+    public AidStat(String scope, String aid) {
+        this.scope = scope;
+        this.aid = aid;
+    }
+
+    public AidStat copy() {
+        AidStat c = new AidStat(scope, aid);
+        c.hits = hits;
+        c.lastUsedAt = lastUsedAt;
+        c.bin = bin;
+        return c;
+    }
+}
@@ -23,6 +23,24 @@ public interface CardTransceiver {
      * Close the connection.
      */
     void close();
+
+    /**
+     * Stable identifier of the card's chip and issuer profile, known before
+     * any APDU (e.g. ATS historical bytes). Not unique per card.
+     *
+     * @return the profile key, or null if the transport has none.
+     */
+    default String getCardProfile() {
+        return null;
+    }
+
+    /**
+     * Whether an exception from {@link #transceive} means the card has left
+     * the field, so retrying other commands is pointless.
+     */
+    default boolean isCardLost(IOException e) {
+        return e.getMessage() != null && e.getMessage().contains("Tag was lost");
+    }
 }
 
 
@@ -0,0 +1,64 @@
+package com.example.mysoftpos.utils.security;
+
+/**
+ * PA-DSS 1.x / 2.x: PAN masking utility.
+ * Automatically detects and masks Primary Account Numbers in any string.
+ * Shows only first 6 and last 4 digits (PA-DSS compliant).
+ */
+public final class PanMasker {
+
+    private PanMasker() {
+    }
+
+    /** Scrubbers keep a reusable output buffer, so one per calling thread. */
+    private static final ThreadLocal<PanScrubber> SCRUBBER =
+            ThreadLocal.withInitial(PanScrubber::new);
+
+    /**
+     * PA-DSS 1.1.4: Mask PAN — show first 6, last 4 only.
+     * Masks Track 2 data (PAN=EXPIRY... / PAN D EXPIRY...) and any 13-19 digit
+     * sequences in one pass; see {@link PanScrubber#scrubText}.
+     */
+    public static String mask(String input) {
+        if (input == null || input.isEmpty())
+            return input;
+        return SCRUBBER.get().scrubText(input);
+    }
+
+    /**
+     * Mask a single PAN: show first 6 + last 4, rest as asterisks.
+     */
+    public static String maskSinglePan(String pan) {
+        if (pan == null || pan.length() < 13)
+            return pan;
+        int len = pan.length();
+        int maskedLen = len - 10;
+        if (maskedLen <= 0)
+            maskedLen = 1; // Safety: ensure at least 1 asterisk
+        // PA-DSS 2.2: Display only first 6 and last 4
+        return pan.substring(0, 6) + repeat('*', maskedLen) + pan.substring(len - 4);
+    }
+
+    /**
+     * Mask hex-encoded data that may contain PAN bytes (BCD or ASCII digits),
+     * keeping the rest of the dump readable; see {@link PanScrubber#scrubHex}.
+     *
+     * Behaviour change from the old regex, which masked every run of 13-19
+     * hex digits: a run outside Track 2 is now masked only when its digits
+     * pass Luhn. A PAN-length value that fails Luhn stays readable.
+     */
+    public static String maskHex(String hexData) {
+        if (hexData == null || hexData.isEmpty())
+            return hexData;
+        return SCRUBBER.get().scrubHex(hexData);
+    }
+
+    /** Repeat a char n times (Java 8 compat, avoids String.repeat). */
+    private static String repeat(char c, int count) {
+        if (count <= 0)
+            return "";
+        char[] chars = new char[count];
+        java.util.Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
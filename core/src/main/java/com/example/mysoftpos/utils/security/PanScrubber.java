@@ -0,0 +1,314 @@
+package com.example.mysoftpos.utils.security;
+
+/**
+ * PA-DSS 1.1.4 / 2.2: single-pass PAN scrubber for log text and hex dumps.
+ *
+ * <p>Walks the input once, tracking digit runs as it goes, and decides on each
+ * run when it ends. Nothing is allocated unless something is masked; masked
+ * output is built in a buffer owned by the instance, so an instance is
+ * <b>not</b> thread-safe. Keep one per thread ({@link PanMasker} does this) or
+ * confine it to a writer thread.
+ *
+ * <p>Text ({@link #scrubText}):
+ * <ul>
+ * <li>Track 2 — 13+ digits, then {@code '='} or {@code 'D'}, then 4+ digits:
+ * the last 13-19 digits before the separator are masked to 6 + 4 and
+ * everything after it becomes {@code ****}.</li>
+ * <li>A 13-19 digit token on word boundaries is masked to 6 + 4.</li>
+ * <li>A 13-19 digit run glued to letters (e.g. {@code PAN4111...}) is masked
+ * only when it passes Luhn.</li>
+ * </ul>
+ *
+ * <p>Hex ({@link #scrubHex}): PAN digits appear either as BCD nibbles or as
+ * ASCII digit pairs ({@code 30}-{@code 39}); both are tracked at once and
+ * masked hex characters become {@code '*'} (length is preserved).
+ * <ul>
+ * <li>Track 2 — a run ending at a {@code D} nibble / {@code 3D} / {@code 44}
+ * separator: the PAN before it and the digits after it are masked.</li>
+ * <li>A run of exactly 13-19 digits that passes Luhn.</li>
+ * <li>An LLVAR-style window inside a longer numeric run: two digits
+ * {@code 13}-{@code 19} followed by that many digits that pass Luhn.</li>
+ * </ul>
+ * Luhn is what keeps numeric fields (amounts, dates, STAN) in a packed dump
+ * readable; every real PAN satisfies it (ISO/IEC 7812).
+ */
+public final class PanScrubber {
+
+    private static final int MIN_PAN = 13;
+    private static final int MAX_PAN = 19;
+    private static final int TRACK2_MIN_TAIL = 4;
+    private static final String TRACK2_TAIL_MASK = "****";
+
+    private char[] buf = new char[256];
+    private int len;
+    /** Text mode: input index up to which {@link #buf} holds output. */
+    private int copied;
+    private boolean changed;
+
+    // ==================== Text ====================
+
+    /** Masks PANs and Track 2 data in free text; returns the input itself when clean. */
+    public String scrubText(String in) {
+        if (in == null) {
+            return null;
+        }
+        int n = in.length();
+        len = 0;
+        copied = 0;
+        changed = false;
+
+        int runStart = -1;
+        int i = 0;
+        while (i <= n) {
+            char c = i < n ? in.charAt(i) : '\0';
+            if (isDigit(c)) {
+                if (runStart < 0) {
+                    runStart = i;
+                }
+                i++;
+                continue;
+            }
+            if (runStart >= 0) {
+                int runLen = i - runStart;
+                int start = runStart;
+                runStart = -1;
+                if (runLen >= MIN_PAN && isTrack2Separator(c)) {
+                    int tailEnd = digitsFrom(in, i + 1, n);
+                    if (tailEnd - (i + 1) >= TRACK2_MIN_TAIL) {
+                        int panStart = i - Math.min(runLen, MAX_PAN);
+                        appendUpTo(in, panStart);
+                        appendMaskedPan(in, panStart, i);
+                        append(c);
+                        append(TRACK2_TAIL_MASK);
+                        copied = tailEnd;
+                        i = tailEnd;
+                        continue;
+                    }
+                }
+                if (runLen <= MAX_PAN && runLen >= MIN_PAN) {
+                    boolean bounded = (start == 0 || !isWordChar(in.charAt(start - 1)))
+                            && !isWordChar(c);
+                    if (bounded || luhn(in, start, 1, runLen)) {
+                        appendUpTo(in, start);
+                        appendMaskedPan(in, start, i);
+                        copied = i;
+                    }
+                }
+            }
+            i++;
+        }
+        if (!changed) {
+            return in;
+        }
+        appendUpTo(in, n);
+        return new String(buf, 0, len);
+    }
+
+    private static int digitsFrom(String in, int from, int n) {
+        int j = from;
+        while (j < n && isDigit(in.charAt(j))) {
+            j++;
+        }
+        return j;
+    }
+
+    private void appendUpTo(String in, int end) {
+        int count = end - copied;
+        if (count > 0) {
+            ensure(len + count);
+            in.getChars(copied, end, buf, len);
+            len += count;
+        }
+        copied = end;
+    }
+
+    /** First 6 and last 4 of {@code in[start, end)}, the rest as {@code '*'}. */
+    private void appendMaskedPan(String in, int start, int end) {
+        int panLen = end - start;
+        ensure(len + panLen);
+        for (int j = 0; j < panLen; j++) {
+            buf[len++] = j < 6 || j >= panLen - 4 ? in.charAt(start + j) : '*';
+        }
+        changed = true;
+    }
+
+    private void append(char c) {
+        ensure(len + 1);
+        buf[len++] = c;
+    }
+
+    private void append(String s) {
+        ensure(len + s.length());
+        s.getChars(0, s.length(), buf, len);
+        len += s.length();
+    }
+
+    // ==================== Hex ====================
+
+    /** Masks BCD and ASCII-encoded PANs in a hex dump; returns the input itself when clean. */
+    public String scrubHex(String in) {
+        if (in == null) {
+            return null;
+        }
+        int n = in.length();
+        len = 0;
+        changed = false;
+
+        int bcdStart = -1;
+        int asciiStart = -1;
+        for (int i = 0; i <= n; i++) {
+            char c = i < n ? in.charAt(i) : '\0';
+            if (isDigit(c)) {
+                if (bcdStart < 0) {
+                    bcdStart = i;
+                }
+            } else if (bcdStart >= 0) {
+                hexRun(in, bcdStart, i, 1);
+                bcdStart = -1;
+            }
+            // ASCII digits are byte-aligned pairs "3x"
+            if ((i & 1) == 0) {
+                if (isAsciiDigitPair(in, i, n)) {
+                    if (asciiStart < 0) {
+                        asciiStart = i;
+                    }
+                } else if (asciiStart >= 0) {
+                    hexRun(in, asciiStart, i, 2);
+                    asciiStart = -1;
+                }
+            }
+        }
+        return changed ? new String(buf, 0, n) : in;
+    }
+
+    /**
+     * Applies the hex rules to the run {@code in[start, end)}; {@code stride}
+     * is 1 for BCD nibbles, 2 for ASCII pairs. Digit {@code k} of the run is
+     * the character at {@code start + k * stride + stride - 1}.
+     */
+    private void hexRun(String in, int start, int end, int stride) {
+        int digits = (end - start) / stride;
+        if (digits < MIN_PAN) {
+            return;
+        }
+        int n = in.length();
+        int firstDigit = start + stride - 1;
+        if (isHexTrack2Separator(in, end, n, stride)) {
+            int tailStart = end + stride;
+            int tailEnd = tailStart;
+            while (stride == 1 ? tailEnd < n && isDigit(in.charAt(tailEnd))
+                    : isAsciiDigitPair(in, tailEnd, n)) {
+                tailEnd += stride;
+            }
+            if ((tailEnd - tailStart) / stride >= TRACK2_MIN_TAIL) {
+                int panLen = Math.min(digits, MAX_PAN);
+                for (int p = panLen; p >= MIN_PAN; p--) {
+                    if (luhn(in, firstDigit + (digits - p) * stride, stride, p)) {
+                        panLen = p;
+                        break;
+                    }
+                }
+                maskHexPan(in, start + (digits - panLen) * stride, panLen, stride);
+                maskHex(in, tailStart, tailEnd);
+                return;
+            }
+        }
+        if (digits <= MAX_PAN && luhn(in, firstDigit, stride, digits)) {
+            maskHexPan(in, start, digits, stride);
+            return;
+        }
+        // LLVAR window: "LL" in [13, 19] followed by LL digits passing Luhn
+        for (int k = 0; k + 2 + MIN_PAN <= digits; k++) {
+            int ll = digitAt(in, firstDigit, stride, k) * 10 + digitAt(in, firstDigit, stride, k + 1);
+            if (ll < MIN_PAN || ll > MAX_PAN || k + 2 + ll > digits) {
+                continue;
+            }
+            if (luhn(in, firstDigit + (k + 2) * stride, stride, ll)) {
+                maskHexPan(in, start + (k + 2) * stride, ll, stride);
+                k += 1 + ll;
+            }
+        }
+    }
+
+    private void maskHexPan(String in, int panStart, int panLen, int stride) {
+        maskHex(in, panStart + 6 * stride, panStart + (panLen - 4) * stride);
+    }
+
+    private void maskHex(String in, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        if (!changed) {
+            ensure(in.length());
+            in.getChars(0, in.length(), buf, 0);
+            changed = true;
+        }
+        for (int j = from; j < to; j++) {
+            buf[j] = '*';
+        }
+    }
+
+    private static boolean isAsciiDigitPair(String in, int i, int n) {
+        return i + 1 < n && in.charAt(i) == '3' && isDigit(in.charAt(i + 1));
+    }
+
+    private static boolean isHexTrack2Separator(String in, int i, int n, int stride) {
+        if (stride == 1) {
+            return i < n && (in.charAt(i) == 'D' || in.charAt(i) == 'd');
+        }
+        if (i + 1 >= n) {
+            return false;
+        }
+        char hi = in.charAt(i);
+        char lo = in.charAt(i + 1);
+        return (hi == '3' && (lo == 'D' || lo == 'd')) || (hi == '4' && lo == '4');
+    }
+
+    private static int digitAt(String in, int firstDigit, int stride, int k) {
+        return in.charAt(firstDigit + k * stride) - '0';
+    }
+
+    // ==================== Shared ====================
+
+    /**
+     * Luhn (mod 10) over {@code count} digits read at {@code first},
+     * {@code first + stride}, ...
+     */
+    static boolean luhn(String in, int first, int stride, int count) {
+        int sum = 0;
+        boolean dbl = false;
+        for (int k = count - 1; k >= 0; k--) {
+            int d = in.charAt(first + k * stride) - '0';
+            if (dbl) {
+                d <<= 1;
+                if (d > 9) {
+                    d -= 9;
+                }
+            }
+            sum += d;
+            dbl = !dbl;
+        }
+        return sum % 10 == 0;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isTrack2Separator(char c) {
+        return c == '=' || c == 'D' || c == 'd';
+    }
+
+    /** Same notion of "word" as regex {@code \b}. */
+    private static boolean isWordChar(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || c == '_';
+    }
+
+    private void ensure(int capacity) {
+        if (capacity > buf.length) {
+            char[] bigger = new char[Math.max(capacity, buf.length * 2)];
+            System.arraycopy(buf, 0, bigger, 0, len);
+            buf = bigger;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.mysoftpos.iso8583;
+
+import com.example.mysoftpos.domain.model.CardInputData;
+import com.example.mysoftpos.domain.usecase.ReadCardDataUseCase;
+import com.example.mysoftpos.iso8583.emv.EmvTagSet;
+import com.example.mysoftpos.iso8583.emv.EmvTlvCodec;
+import com.example.mysoftpos.iso8583.emv.NapasEmvProcessor;
+import com.example.mysoftpos.nfc.sim.CardScript;
+import com.example.mysoftpos.nfc.sim.ReplayCardTransceiver;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class CardReplayTest {
+
+    @Test
+    public void napas_readsTrack2FromSecondRecordOfMultiRecordAfl() throws Exception {
+        ReplayCardTransceiver card = ReplayCardTransceiver.of("napas");
+
+        CardInputData data = new ReadCardDataUseCase(card).execute();
+
+        assertEquals("9704189991010867647", data.getPan());
+        assertEquals("3101", data.getExpiryDate());
+        assertEquals("001", data.getCardSequenceNumber());
+        assertNotNull(data.getEmvTags().get(0x5F20)); // from SFI 1 record 1
+        // PPSE, SELECT, GPO, READ 1/1, READ 1/2 (stops once tag 57 is in)
+        assertEquals(5, card.getApduCount());
+    }
+
+    @Test
+    public void visa_followsGetResponseChaining() throws Exception {
+        ReplayCardTransceiver card = ReplayCardTransceiver.of("visa");
+
+        CardInputData data = new ReadCardDataUseCase(card).execute();
+
+        assertEquals("4761739001010010", data.getPan());
+        assertNotNull(data.getEmvTags().get(0x9F38)); // PDOL from the GET RESPONSE half
+        // PPSE, SELECT (61 37), GET RESPONSE, GPO with tag 57
+        assertEquals(4, card.getApduCount());
+    }
+
+    @Test
+    public void mastercard_resendsReadRecordWithLeFrom6C() throws Exception {
+        ReplayCardTransceiver card = ReplayCardTransceiver.of("mastercard");
+
+        CardInputData data = new ReadCardDataUseCase(card).execute();
+
+        assertEquals("5413330089010434", data.getPan());
+        assertNotNull(data.getEmvTags().get(0x9F42)); // from the Le=1E retry
+    }
+
+    @Test
+    public void latency_isChargedPerApduAndByte() throws Exception {
+        ReplayCardTransceiver card = ReplayCardTransceiver.of("visa").setLatency(10_000, 100);
+
+        new ReadCardDataUseCase(card).execute();
+
+        long expected = 4 * 10_000_000L + card.getBytesExchanged() * 100_000L;
+        assertEquals(expected, card.getRadioNanos());
+    }
+
+    @Test
+    public void cardLeavingField_failsReadWithoutWalkingRemainingAids() {
+        ReplayCardTransceiver card = ReplayCardTransceiver.of("mastercard").loseCardAfter(3);
+
+        try {
+            new ReadCardDataUseCase(card).execute();
+            fail("read should fail");
+        } catch (IOException expected) {
+            assertTrue(card.isCardLost(expected));
+        }
+        assertEquals(3, card.getApduCount());
+    }
+
+    @Test
+    public void napasProcessor_sendsExternalAuthAndIssuerScript() {
+        ReplayCardTransceiver card = ReplayCardTransceiver.of("napas");
+        EmvTagSet response = EmvTlvCodec.parseDE55Response(
+                "910A1A2B3C4D5E6F70810012" + "7216" + "9F180400000001" + "860D8424000008A1B2C3D4E5F60708");
+
+        NapasEmvProcessor.ProcessingResult result = NapasEmvProcessor.processDE55Response(response, card, true);
+
+        assertTrue(result.isSuccess());
+        assertTrue(result.externalAuthSuccess);
+        assertTrue(result.script2Executed);
+        assertEquals(2, card.getApduCount());
+    }
+
+    @Test
+    public void script_answersInTurnAndFallsBackToDefault() throws Exception {
+        ReplayCardTransceiver card = new ReplayCardTransceiver(CardScript.parse("t",
+                "default 6A82\n> 00B2..0C00\n< 6C10\n< 9000\n"));
+
+        assertArrayEquals(new byte[] { 0x6C, 0x10 }, card.transceive(new byte[] { 0, (byte) 0xB2, 1, 0x0C, 0 }));
+        assertArrayEquals(new byte[] { (byte) 0x90, 0 }, card.transceive(new byte[] { 0, (byte) 0xB2, 2, 0x0C, 0 }));
+        assertArrayEquals(new byte[] { (byte) 0x90, 0 }, card.transceive(new byte[] { 0, (byte) 0xB2, 3, 0x0C, 0 }));
+        assertArrayEquals(new byte[] { 0x6A, (byte) 0x82 }, card.transceive(new byte[] { 0, (byte) 0xCA, 0, 0 }));
+    }
+}
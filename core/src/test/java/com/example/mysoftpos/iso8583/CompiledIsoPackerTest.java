@@ -0,0 +1,75 @@
+package com.example.mysoftpos.iso8583;
+
+import com.example.mysoftpos.iso8583.message.IsoMessage;
+import com.example.mysoftpos.iso8583.util.CompiledIsoPacker;
+import com.example.mysoftpos.iso8583.util.StandardIsoPacker;
+
+import org.junit.Test;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class CompiledIsoPackerTest {
+
+    private static IsoMessage purchase() {
+        IsoMessage m = new IsoMessage("0200");
+        m.setField(2, "9704180000123456");
+        m.setField(3, "000000");
+        m.setField(4, "5000");
+        m.setField(11, "123456");
+        m.setField(32, "970488");
+        m.setField(41, "TID1");
+        m.setField(52, "0123456789ABCDEF");
+        m.setField(55, "9F2608AABBCCDDEEFF0011");
+        return m;
+    }
+
+    @Test
+    public void pack_encodesPaddingPrefixesAndHex() throws Exception {
+        byte[] out = StandardIsoPacker.pack(purchase());
+        String ascii = new String(out, StandardCharsets.ISO_8859_1);
+
+        assertTrue(ascii.startsWith("0200"));
+        assertTrue(ascii.contains("169704180000123456")); // DE 2 LLVAR
+        assertTrue(ascii.contains("000000005000")); // DE 4 zero-padded
+        assertTrue(ascii.contains("06970488")); // DE 32 LLVAR
+        assertTrue(ascii.contains("TID1    ")); // DE 41 space-padded
+        // DE 55 prefix is the binary byte count (11), not the hex char count
+        assertTrue(ascii.contains("011" + new String(StandardIsoPacker.hexToBytes("9F2608AABBCCDDEEFF0011"),
+                StandardCharsets.ISO_8859_1)));
+    }
+
+    @Test
+    public void pack_intoReusedBuffer_matchesPackToArray() throws Exception {
+        byte[] expected = StandardIsoPacker.pack(purchase());
+        byte[] buf = new byte[1024];
+        Arrays.fill(buf, (byte) 0x55);
+
+        int n = CompiledIsoPacker.standard().pack(purchase(), buf, 7);
+
+        assertEquals(expected.length, n);
+        assertArrayEquals(expected, Arrays.copyOfRange(buf, 7, 7 + n));
+        assertEquals(0x55, buf[6]);
+    }
+
+    @Test
+    public void pack_intoByteBuffer_advancesPosition() throws Exception {
+        byte[] expected = StandardIsoPacker.pack(purchase());
+        ByteBuffer bb = ByteBuffer.allocate(512);
+        bb.position(4);
+
+        int n = CompiledIsoPacker.standard().pack(purchase(), bb);
+
+        assertEquals(4 + n, bb.position());
+        assertArrayEquals(expected, Arrays.copyOfRange(bb.array(), 4, 4 + n));
+    }
+
+    @Test(expected = BufferOverflowException.class)
+    public void pack_bufferTooSmall_throws() {
+        CompiledIsoPacker.standard().pack(purchase(), new byte[20], 0);
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.mysoftpos.iso8583;
+
+import com.example.mysoftpos.iso8583.emv.EmvTagSet;
+import com.example.mysoftpos.iso8583.emv.EmvTlvCodec;
+import com.example.mysoftpos.iso8583.util.HexUtil;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class EmvTagSetTest {
+
+    private static byte[] hex(String h) {
+        return HexUtil.hexToBytes(h);
+    }
+
+    @Test
+    public void replace_keepsInsertionPositionLikeLinkedHashMap() {
+        EmvTagSet tags = new EmvTagSet();
+        tags.put(0x9F02, hex("000000005000"));
+        tags.put(0x57, hex("9704"));
+        tags.put(0x95, hex("0000000000"));
+
+        tags.put(0x57, hex("9704189991010867647D31016010000000123F")); // grows: moves in the buffer
+        tags.put(0x9F02, hex("01"));                                     // shrinks in place
+
+        assertEquals(3, tags.size());
+        assertEquals(0x9F02, tags.tagAt(0));
+        assertEquals(0x57, tags.tagAt(1));
+        assertEquals(0x95, tags.tagAt(2));
+        assertArrayEquals(hex("01"), tags.get(0x9F02));
+        assertEquals(19, tags.length(0x57));
+        assertEquals(-1, tags.length(0x9F26));
+        assertNull(tags.get(0x9F26));
+    }
+
+    @Test
+    public void writeTo_encodesBerTlvInInsertionOrder() {
+        byte[] v200 = new byte[200];
+        byte[] v300 = new byte[300];
+        Arrays.fill(v200, (byte) 0xAA);
+        Arrays.fill(v300, (byte) 0xBB);
+        EmvTagSet tags = new EmvTagSet(2, 16)
+                .put(0x9F36, hex("0042"))
+                .put(0xDF8101, hex("01"))
+                .put(0x71, v200)
+                .put(0x72, v300)
+                .put(0x8A, new byte[0]);
+
+        byte[] out = tags.toByteArray();
+
+        assertEquals(tags.encodedLength(), out.length);
+        assertEquals("9F36020042" + "DF81010101" + "7181C8",
+                HexUtil.bytesToHex(Arrays.copyOfRange(out, 0, 13)));
+        assertEquals("7282012C", HexUtil.bytesToHex(Arrays.copyOfRange(out, 213, 217)));
+        assertEquals("8A00", HexUtil.bytesToHex(Arrays.copyOfRange(out, out.length - 2, out.length)));
+
+        ByteBuffer buf = ByteBuffer.allocate(out.length + 4);
+        buf.put((byte) 0x55);
+        tags.writeTo(buf);
+        assertEquals(out.length + 1, buf.position());
+    }
+
+    @Test
+    public void manyTags_growAndSurviveRemove() {
+        EmvTagSet tags = new EmvTagSet(4, 16);
+        for (int t = 0; t < 100; t++) {
+            tags.put(0x9F00 | t, new byte[] { (byte) t, (byte) t });
+        }
+        assertTrue(tags.remove(0x9F00 | 10));
+        assertFalse(tags.remove(0x9F00 | 10));
+
+        assertEquals(99, tags.size());
+        for (int t = 0; t < 100; t++) {
+            if (t == 10) {
+                assertFalse(tags.contains(0x9F00 | t));
+            } else {
+                assertArrayEquals(new byte[] { (byte) t, (byte) t }, tags.get(0x9F00 | t));
+            }
+        }
+        assertEquals(0x9F0B, tags.tagAt(10));
+        assertEquals(99 * 5, tags.encodedLength());
+    }
+
+    @Test
+    public void putBcd_matchesEncodeBcdFixed() {
+        EmvTagSet tags = new EmvTagSet();
+        tags.putBcd(0x9F02, "5000", 6);
+        tags.putBcd(0x5F2A, "704", 2);
+        tags.putBcd(0x9C, "1234", 1); // keeps the rightmost digits
+        tags.putBcd(0x9F03, null, 6);
+
+        assertArrayEquals(EmvTlvCodec.encodeBcdFixed("5000", 6), tags.get(0x9F02));
+        assertArrayEquals(hex("000000005000"), tags.get(0x9F02));
+        assertArrayEquals(hex("0704"), tags.get(0x5F2A));
+        assertArrayEquals(hex("34"), tags.get(0x9C));
+        assertArrayEquals(new byte[6], tags.get(0x9F03));
+        try {
+            tags.putBcd(0x9F02, "12a4x", 3);
+            fail("invalid digit");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void getReturnsCopy_andWipeClearsValues() {
+        EmvTagSet tags = new EmvTagSet().put(0x5A, hex("9704189991010867647F"));
+        tags.get(0x5A)[0] = 0;
+
+        assertArrayEquals(hex("9704189991010867647F"), tags.get(0x5A));
+        assertEquals("EmvTagSet[5A(10)]", tags.toString());
+
+        tags.wipe();
+        assertTrue(tags.isEmpty());
+        assertFalse(tags.contains(0x5A));
+        assertEquals(0, tags.toByteArray().length);
+    }
+
+    @Test
+    public void nfcPurchaseTags_cardValuesOverrideTerminalInPlace() {
+        EmvTagSet card = new EmvTagSet()
+                .put(EmvTlvCodec.TAG_TVR, hex("0000008000"))
+                .put(EmvTlvCodec.TAG_TERMINAL_CAPABILITIES, hex("E0F8C8"));
+
+        EmvTagSet all = EmvTlvCodec.buildNfcPurchaseTags(card, "5000", "704", "704", "00", true);
+
+        assertEquals(EmvTlvCodec.TAG_AMOUNT_AUTHORIZED, all.tagAt(0));
+        assertArrayEquals(hex("000000005000"), all.get(EmvTlvCodec.TAG_AMOUNT_AUTHORIZED));
+        assertArrayEquals(hex("E0F8C8"), all.get(EmvTlvCodec.TAG_TERMINAL_CAPABILITIES));
+        assertEquals(7, all.indexOf(EmvTlvCodec.TAG_TERMINAL_CAPABILITIES));
+        assertArrayEquals(hex("020002"), all.get(EmvTlvCodec.TAG_CVM_RESULTS));
+        assertEquals(all.size() - 1, all.indexOf(EmvTlvCodec.TAG_TVR));
+
+        byte[] wire = EmvTlvCodec.buildDE55WithPrefix(all);
+        String prefix = new String(wire, 0, 3);
+        assertEquals(String.format("%03d", all.encodedLength()), prefix);
+        assertEquals(all.toString(), EmvTlvCodec.parseDE55WithPrefix(wire).toString());
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.mysoftpos.iso8583;
+
+import com.example.mysoftpos.domain.model.CardInputData;
+import com.example.mysoftpos.iso8583.builder.Iso8583Builder;
+import com.example.mysoftpos.iso8583.emv.EmvTagSet;
+import com.example.mysoftpos.iso8583.emv.EmvTlvCodec;
+import com.example.mysoftpos.iso8583.message.IsoMessage;
+import com.example.mysoftpos.iso8583.spec.IsoField;
+import com.example.mysoftpos.iso8583.util.HexUtil;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class Iso8583BuilderTest {
+
+    private static final String PAN = "9704189991010867647";
+
+    private static TransactionContext context(TxnType type) {
+        TransactionContext ctx = new TransactionContext();
+        ctx.txnType = type;
+        ctx.amount4 = "000000005000";
+        ctx.stan11 = "000123";
+        ctx.generateDateTime();
+        ctx.rrn37 = TransactionContext.calculateRrn("01", ctx.stan11);
+        ctx.processingCode3 = type == TxnType.BALANCE_INQUIRY ? "300000" : "000000";
+        ctx.mcc18 = "5411";
+        ctx.country19 = "704";
+        ctx.posCondition25 = "00";
+        ctx.acquirerId32 = "970488";
+        ctx.terminalId41 = "TID00001";
+        ctx.merchantId42 = "MID000000000001";
+        ctx.merchantNameLocation43 = "MY SOFTPOS TEST        HA NOI       VNM";
+        ctx.currency49 = "704";
+        return ctx;
+    }
+
+    private static CardInputData chipCard() {
+        CardInputData card = new CardInputData(PAN, "3101", "072", PAN + "=31016010000000123");
+        EmvTagSet tags = new EmvTagSet();
+        tags.put(EmvTlvCodec.TAG_APP_CRYPTOGRAM, HexUtil.hexToBytes("8E19ED4C4F2D9C3A"));
+        tags.put(EmvTlvCodec.TAG_CRYPTOGRAM_INFO, HexUtil.hexToBytes("80"));
+        tags.put(EmvTlvCodec.TAG_ISSUER_APP_DATA, HexUtil.hexToBytes("0110A00003220000000000000000000000FF"));
+        // Card-supplied, otherwise the terminal draws a random one per build
+        tags.put(EmvTlvCodec.TAG_UNPREDICTABLE_NUMBER, HexUtil.hexToBytes("1A2B3C4D"));
+        tags.put(EmvTlvCodec.TAG_ATC, HexUtil.hexToBytes("0042"));
+        tags.put(EmvTlvCodec.TAG_AIP, HexUtil.hexToBytes("1980"));
+        tags.put(EmvTlvCodec.TAG_TRACK2_EQUIVALENT,
+                EmvTlvCodec.encodeTag57(PAN, "3101", "601", "0000000123"));
+        card.setEmvTags(tags);
+        card.setCardSequenceNumber("001");
+        return card;
+    }
+
+    private static CardInputData magstripeCard(String de22) {
+        return new CardInputData(PAN, "3101", de22, PAN + "=31016010000000123");
+    }
+
+    @Test
+    public void purchaseBase_holdsNoCardFields() {
+        IsoMessage base = Iso8583Builder.buildPurchaseBase(context(TxnType.PURCHASE));
+
+        for (int f : new int[] { IsoField.PAN_2, IsoField.EXPIRATION_DATE_14, IsoField.POS_ENTRY_MODE_22,
+                IsoField.CARD_SEQ_23, IsoField.TRACK2_35, IsoField.ICC_DATA_55 }) {
+            assertFalse("DE " + f, base.hasField(f));
+        }
+        assertEquals("000123", base.getField(IsoField.STAN_11));
+        assertNotNull(base.getField(IsoField.TRANSMISSION_DATETIME_7));
+        assertNotNull(base.getField(IsoField.RRN_37));
+    }
+
+    @Test
+    public void purchaseBasePlusCard_equalsOneShotBuild() {
+        TransactionContext ctx = context(TxnType.PURCHASE);
+        for (CardInputData card : new CardInputData[] { chipCard(), magstripeCard("021"),
+                new CardInputData(PAN, "3101", "012", null) }) {
+            IsoMessage oneShot = Iso8583Builder.buildPurchaseMsg(ctx, card);
+            IsoMessage pipelined = Iso8583Builder.applyPurchaseCardFields(
+                    Iso8583Builder.buildPurchaseBase(ctx), ctx, card);
+
+            assertEquals(card.getPosEntryMode(), oneShot.getFields(), pipelined.getFields());
+        }
+    }
+
+    @Test
+    public void balanceBasePlusCard_equalsOneShotBuild() {
+        TransactionContext ctx = context(TxnType.BALANCE_INQUIRY);
+        for (CardInputData card : new CardInputData[] { chipCard(), magstripeCard("901") }) {
+            IsoMessage oneShot = Iso8583Builder.buildBalanceMsg(ctx, card);
+            IsoMessage pipelined = Iso8583Builder.applyBalanceCardFields(
+                    Iso8583Builder.buildBalanceBase(ctx), ctx, card);
+
+            assertEquals(card.getPosEntryMode(), oneShot.getFields(), pipelined.getFields());
+            assertEquals("000000000000", pipelined.getField(IsoField.AMOUNT_4));
+        }
+    }
+}
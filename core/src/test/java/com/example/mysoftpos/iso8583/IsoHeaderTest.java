@@ -1,5 +1,7 @@
 package com.example.mysoftpos.iso8583;
 
+import com.example.mysoftpos.iso8583.message.IsoHeader;
+
 import org.junit.Test;
 
 import static org.junit.Assert.*;
@@ -15,4 +17,3 @@ public class IsoHeaderTest {
         assertEquals((byte) 0x2C, framed[1]);
     }
 }
-
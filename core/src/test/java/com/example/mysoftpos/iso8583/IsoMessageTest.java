@@ -0,0 +1,70 @@
+package com.example.mysoftpos.iso8583;
+
+import com.example.mysoftpos.iso8583.message.IsoMessage;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class IsoMessageTest {
+
+    @Test
+    public void fieldNumbers_areAscendingRegardlessOfInsertOrder() {
+        IsoMessage m = new IsoMessage("0200")
+                .setField(41, "TID1")
+                .setField(3, "000000")
+                .setField(128, "00")
+                .setField(11, "000001")
+                .setField(65, "0");
+
+        assertEquals(Arrays.asList(3, 11, 41, 65, 128), new ArrayList<>(m.getFieldNumbers()));
+        assertEquals(5, m.getFieldNumbers().size());
+        assertTrue(m.getFieldNumbers().contains(65));
+    }
+
+    @Test
+    public void nextField_walksPresentFieldsWithoutGaps() {
+        IsoMessage m = new IsoMessage("0200")
+                .setField(2, "1")
+                .setField(64, "2")
+                .setField(65, "3")
+                .setField(127, "4");
+
+        List<Integer> seen = new ArrayList<>();
+        for (int f = m.nextField(1); f > 0; f = m.nextField(f + 1)) {
+            seen.add(f);
+        }
+        assertEquals(Arrays.asList(2, 64, 65, 127), seen);
+        assertEquals(-1, m.nextField(128));
+    }
+
+    @Test
+    public void bitmaps_trackPresenceAndSecondaryFlag() {
+        IsoMessage m = new IsoMessage("0800").setField(7, "0101120000").setField(11, "000001");
+        assertEquals((1L << 57) | (1L << 53), m.primaryBitmap());
+        assertEquals(0L, m.secondaryBitmap());
+
+        m.setField(70, "301");
+        assertTrue(m.primaryBitmap() < 0);
+        assertEquals(1L << 58, m.secondaryBitmap());
+
+        m.setField(70, null);
+        assertFalse(m.hasField(70));
+        assertTrue(m.primaryBitmap() > 0);
+    }
+
+    @Test
+    public void setFieldNull_removes() {
+        IsoMessage m = new IsoMessage("0200").setField(4, "100");
+        m.setField(4, null);
+
+        assertFalse(m.hasField(4));
+        assertNull(m.getField(4));
+        assertTrue(m.getFieldNumbers().isEmpty());
+        assertTrue(m.getFields().isEmpty());
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.mysoftpos.iso8583;
+
+import com.example.mysoftpos.iso8583.message.IsoHeader;
+import com.example.mysoftpos.iso8583.message.IsoMessage;
+import com.example.mysoftpos.iso8583.message.IsoMessageView;
+import com.example.mysoftpos.iso8583.parser.IsoUnpacker;
+import com.example.mysoftpos.iso8583.util.StandardIsoPacker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class IsoMessageViewTest {
+
+    private static IsoMessage response() {
+        IsoMessage m = new IsoMessage("0210");
+        m.setField(2, "9704180000123456");
+        m.setField(3, "000000");
+        m.setField(4, "000000005000");
+        m.setField(11, "123456");
+        m.setField(37, "612345123456");
+        m.setField(39, "00");
+        m.setField(41, "TID00001");
+        m.setField(55, "9F3602001A");
+        m.setField(90, "020012345601151234560000097048800000000000");
+        return m;
+    }
+
+    @Test
+    public void unpackView_decodesFieldsLazily() throws Exception {
+        byte[] payload = StandardIsoPacker.pack(response());
+
+        IsoMessageView v = IsoUnpacker.unpackView(payload);
+
+        assertEquals("0210", v.getMti());
+        assertEquals(9, v.fieldCount());
+        assertEquals("00", v.getField(39));
+        assertEquals("612345123456", v.getField(37));
+        assertEquals("9F3602001A", v.getField(55));
+        assertEquals("020012345601151234560000097048800000000000", v.getField(90));
+        assertFalse(v.hasField(1));
+        assertFalse(v.hasField(38));
+        assertNull(v.getField(38));
+        assertEquals(2, v.rawLength(39));
+    }
+
+    @Test
+    public void unpackFramedView_readsInPlace() throws Exception {
+        byte[] framed = IsoHeader.withLengthPrefix2(StandardIsoPacker.pack(response()));
+
+        IsoMessageView v = IsoUnpacker.unpackFramedView(framed);
+
+        assertEquals("123456", v.getField(11));
+        assertEquals('0', (char) framed[v.rawOffset(39)]);
+    }
+
+    @Test
+    public void toIsoMessage_roundTripsAllFields() throws Exception {
+        IsoMessage req = response();
+        IsoMessage unpacked = IsoUnpacker.unpack(StandardIsoPacker.pack(req));
+
+        assertEquals(req.getFieldNumbers(), unpacked.getFieldNumbers());
+        for (int f : req.getFieldNumbers()) {
+            assertEquals("F" + f, req.getField(f), unpacked.getField(f));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unpack_nonDigitMti_shouldThrow() throws Exception {
+        byte[] payload = StandardIsoPacker.pack(response());
+        payload[1] = 'X';
+        IsoUnpacker.unpack(payload);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unpack_badLlvarPrefix_shouldThrow() throws Exception {
+        byte[] payload = StandardIsoPacker.pack(response());
+        payload[4 + 16] = 'A'; // first LLVAR digit of DE 2 (after MTI + both bitmaps)
+        IsoUnpacker.unpack(payload);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.mysoftpos.iso8583;
+
+import com.example.mysoftpos.domain.model.CardInputData;
+import com.example.mysoftpos.iso8583.builder.Iso8583Builder;
+import com.example.mysoftpos.iso8583.message.IsoMessage;
+import com.example.mysoftpos.iso8583.util.StandardIsoPacker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class IsoPackerTest {
+
+    @Test
+    public void pack_purchase_containsMtiAndBitmapAndFields() throws Exception {
+        IsoMessage m = Iso8583Builder.buildPurchaseMsg(purchaseContext(), magstripeCard());
+        byte[] data = StandardIsoPacker.pack(m);
+
+        // MTI must be first 4 bytes
+        assertEquals('0', (char) data[0]);
+        assertEquals('2', (char) data[1]);
+        assertEquals('0', (char) data[2]);
+        assertEquals('0', (char) data[3]);
+
+        // Must have bitmap next (at least 8 bytes)
+        assertTrue(data.length > 12);
+    }
+
+    static TransactionContext purchaseContext() {
+        TransactionContext c = new TransactionContext();
+        c.txnType = TxnType.PURCHASE;
+        c.processingCode3 = "000000";
+        c.amount4 = "000000005000";
+        c.transmissionDt7 = "0115123456";
+        c.stan11 = "123456";
+        c.localTime12 = "123456";
+        c.localDate13 = "0115";
+        c.mcc18 = "5999";
+        c.posCondition25 = "00";
+        c.acquirerId32 = "970403";
+        c.rrn37 = "123456789012";
+        c.terminalId41 = "TID00001";
+        c.merchantId42 = "MID000000000001";
+        c.merchantNameLocation43 = padRight("MY EPOS TEST", 40);
+        c.currency49 = "704";
+        return c;
+    }
+
+    static CardInputData magstripeCard() {
+        return new CardInputData("4111111111111111", "2512", "012", null);
+    }
+
+    private static String padRight(String s, int len) {
+        StringBuilder sb = new StringBuilder(s == null ? "" : s);
+        while (sb.length() < len) sb.append(' ');
+        if (sb.length() > len) return sb.substring(0, len);
+        return sb.toString();
+    }
+}
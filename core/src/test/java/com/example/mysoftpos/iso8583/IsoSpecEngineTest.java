@@ -0,0 +1,146 @@
+package com.example.mysoftpos.iso8583;
+
+import com.example.mysoftpos.iso8583.log.IsoLog;
+import com.example.mysoftpos.iso8583.message.IsoMessage;
+import com.example.mysoftpos.iso8583.message.IsoMessageView;
+import com.example.mysoftpos.iso8583.parser.IsoUnpacker;
+import com.example.mysoftpos.iso8583.spec.IsoSpecEngine;
+import com.example.mysoftpos.iso8583.spec.NapasFieldSpecConfig;
+import com.example.mysoftpos.iso8583.util.CompiledIsoPacker;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class IsoSpecEngineTest {
+
+    private static IsoMessage purchase() {
+        IsoMessage m = new IsoMessage("0200");
+        m.setField(2, "9704180000123456");
+        m.setField(3, "000000");
+        m.setField(4, "5000");
+        m.setField(11, "123456");
+        m.setField(22, "071");
+        m.setField(32, "970488");
+        m.setField(41, "TID00001");
+        m.setField(55, "9F2608AABBCCDDEEFF0011");
+        m.setField(90, "020012345601151234560000097048800000000000");
+        return m;
+    }
+
+    @Test
+    public void bcdSpec_packsNumericsAsBcdAndPrefixesAsBinary() {
+        IsoSpecEngine bcd = IsoSpecEngine.forId(IsoSpecEngine.BCD_ID);
+        byte[] out = CompiledIsoPacker.forSpec(bcd).packToArray(purchase());
+
+        // MTI(4) + 2 bitmaps(16), then DE 2: 1-byte binary length + ASCII
+        assertEquals(16, out[20]);
+        assertEquals('9', out[21]);
+        // DE 3 "000000" → 3 BCD bytes, DE 4 → 6 bytes ending 0x50 0x00
+        int de3 = 21 + 16;
+        assertArrayEquals(new byte[] {0, 0, 0}, java.util.Arrays.copyOfRange(out, de3, de3 + 3));
+        assertEquals(0x50, out[de3 + 3 + 4] & 0xFF);
+        // DE 22 "071" (odd) → 0x00 0x71
+        int de22 = de3 + 3 + 6 + 3;
+        assertEquals(0x00, out[de22]);
+        assertEquals(0x71, out[de22 + 1] & 0xFF);
+    }
+
+    @Test
+    public void bcdSpec_roundTripsThroughUnpacker() {
+        IsoSpecEngine bcd = IsoSpecEngine.forId(IsoSpecEngine.BCD_ID);
+        byte[] out = CompiledIsoPacker.forSpec(bcd).packToArray(purchase());
+
+        IsoMessage back = IsoUnpacker.unpackView(out, 0, out.length, bcd).toIsoMessage();
+
+        assertEquals("000000005000", back.getField(4));
+        assertEquals("071", back.getField(22));
+        assertEquals("970488", back.getField(32));
+        assertEquals("9F2608AABBCCDDEEFF0011", back.getField(55));
+        assertEquals(purchase().getField(90), back.getField(90));
+    }
+
+    @Test
+    public void standardSpec_isValid_isRegexFree() {
+        IsoSpecEngine spec = IsoSpecEngine.standard();
+        assertTrue(spec.isValid(22, "071"));
+        assertFalse(spec.isValid(22, "07A"));
+        assertFalse(spec.isValid(22, "0711"));
+        assertTrue(spec.isValid(35, "9704180000123456=2512"));
+        assertFalse(spec.isValid(52, "0123456789ABCDEG"));
+        assertTrue(spec.isValid(33, "anything")); // no rule
+    }
+
+    @Test
+    public void napasConfig_isDerivedFromEngine() {
+        assertEquals("\\d{1,19}", NapasFieldSpecConfig.get(2).pattern.pattern());
+        assertEquals("[ -~]{8}", NapasFieldSpecConfig.get(41).pattern.pattern());
+        assertEquals("NPS-000", NapasFieldSpecConfig.get(0).errorCode);
+        assertNull(NapasFieldSpecConfig.get(55));
+    }
+
+    @Test
+    public void builder_derivedSpec_overridesOneField() {
+        IsoSpecEngine alt = IsoSpecEngine.builder(IsoSpecEngine.standard())
+                .id("test-alt").version(2)
+                .field(62, IsoSpecEngine.Wire.LLVAR, 10)
+                .build();
+
+        assertEquals(IsoSpecEngine.ENC_LLVAR, alt.encoding(62));
+        assertEquals(IsoSpecEngine.ENC_LLLVAR, IsoSpecEngine.standard().encoding(62));
+        assertEquals(IsoSpecEngine.standard().encoding(55), alt.encoding(55));
+    }
+
+    @Test
+    public void forId_unknown_fallsBackToStandard() {
+        IsoLog.Sink previous = IsoLog.getSink();
+        List<String> warnings = new ArrayList<>();
+        IsoLog.setSink(new IsoLog.Sink() {
+            @Override
+            public void debug(String tag, String msg) {}
+
+            @Override
+            public void warn(String tag, String msg, Throwable tr) {
+                warnings.add(msg);
+            }
+
+            @Override
+            public void error(String tag, String msg, Throwable tr) {}
+        });
+        try {
+            assertSame(IsoSpecEngine.standard(), IsoSpecEngine.forId("napas-bdc"));
+        } finally {
+            IsoLog.setSink(previous);
+        }
+        assertEquals(1, warnings.size());
+        assertTrue(warnings.get(0).contains("napas-bdc"));
+        assertFalse(IsoSpecEngine.isRegistered("napas-bdc"));
+        assertTrue(IsoSpecEngine.isRegistered(IsoSpecEngine.BCD_ID));
+        assertTrue(IsoSpecEngine.isRegistered(""));
+        assertTrue(IsoSpecEngine.registeredIds().contains(IsoSpecEngine.STANDARD_ID));
+    }
+
+    @Test
+    public void unpackViewAnySpec_picksTheSpecThatFits() {
+        IsoSpecEngine bcd = IsoSpecEngine.forId(IsoSpecEngine.BCD_ID);
+        byte[] ascii = CompiledIsoPacker.forSpec(IsoSpecEngine.standard()).packToArray(purchase());
+        byte[] packed = CompiledIsoPacker.forSpec(bcd).packToArray(purchase());
+
+        IsoMessageView a = IsoUnpacker.unpackViewAnySpec(ascii);
+        IsoMessageView b = IsoUnpacker.unpackViewAnySpec(packed);
+
+        assertSame(IsoSpecEngine.standard(), a.getSpec());
+        assertSame(bcd, b.getSpec());
+        assertEquals("123456", b.getField(11));
+        assertEquals("000000005000", b.getField(4));
+        assertEquals(IsoSpecEngine.standard(), IsoSpecEngine.registeredSpecs().get(0));
+        try {
+            IsoUnpacker.unpackViewAnySpec("0200XXXXXXXX".getBytes());
+            fail("no spec fits");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
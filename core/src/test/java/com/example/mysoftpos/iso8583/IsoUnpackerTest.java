@@ -0,0 +1,50 @@
+package com.example.mysoftpos.iso8583;
+
+import com.example.mysoftpos.iso8583.builder.Iso8583Builder;
+import com.example.mysoftpos.iso8583.message.IsoHeader;
+import com.example.mysoftpos.iso8583.message.IsoMessage;
+import com.example.mysoftpos.iso8583.parser.IsoUnpacker;
+import com.example.mysoftpos.iso8583.spec.IsoField;
+import com.example.mysoftpos.iso8583.util.StandardIsoPacker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class IsoUnpackerTest {
+
+    private static IsoMessage purchase() {
+        return Iso8583Builder.buildPurchaseMsg(IsoPackerTest.purchaseContext(), IsoPackerTest.magstripeCard());
+    }
+
+    @Test
+    public void pack_then_unpack_purchase_shouldRoundTrip() throws Exception {
+        IsoMessage req = purchase();
+        byte[] payload = StandardIsoPacker.pack(req);
+
+        IsoMessage unpacked = IsoUnpacker.unpack(payload);
+
+        assertEquals(req.getMti(), unpacked.getMti());
+        for (int f : req.getFieldNumbers()) {
+            assertEquals("F" + f, req.getField(f), unpacked.getField(f));
+        }
+    }
+
+    @Test
+    public void pack_then_unpack_framed_shouldRoundTrip() throws Exception {
+        IsoMessage req = purchase();
+        byte[] payload = StandardIsoPacker.pack(req);
+        byte[] framed = IsoHeader.withLengthPrefix2(payload);
+
+        IsoMessage unpacked = IsoUnpacker.unpackFramed(framed);
+
+        assertEquals(req.getMti(), unpacked.getMti());
+        assertEquals(req.getField(IsoField.AMOUNT_4), unpacked.getField(IsoField.AMOUNT_4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unpackFramed_wrongLength_shouldThrow() {
+        byte[] framed = new byte[] {0x00, 0x10, 0x01, 0x02, 0x03}; // says len=16 but has 3 bytes
+        IsoUnpacker.unpackFramed(framed);
+    }
+}
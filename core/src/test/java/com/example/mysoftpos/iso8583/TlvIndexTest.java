@@ -0,0 +1,129 @@
+package com.example.mysoftpos.iso8583;
+
+import com.example.mysoftpos.iso8583.emv.EmvTagSet;
+import com.example.mysoftpos.iso8583.emv.EmvTlvCodec;
+import com.example.mysoftpos.iso8583.parser.TlvIndex;
+import com.example.mysoftpos.iso8583.parser.TlvParser;
+import com.example.mysoftpos.iso8583.util.HexUtil;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TlvIndexTest {
+
+    // 6F { 84 PPSE name, A5 { BF0C { 61 { 4F AID, 87 priority } } } }
+    private static final byte[] PPSE_FCI = HexUtil.hexToBytes(
+            "6F23" + "840E325041592E5359532E4444463031"
+                    + "A511" + "BF0C0E" + "610C" + "4F07A0000000041010" + "870101");
+
+    @Test
+    public void nestedTemplates_indexedInDocumentOrderWithoutCopying() {
+        TlvIndex tlv = TlvIndex.of(PPSE_FCI);
+
+        assertEquals(7, tlv.size());
+        int[] tags = { 0x6F, 0x84, 0xA5, 0xBF0C, 0x61, 0x4F, 0x87 };
+        int[] depths = { 0, 1, 1, 2, 3, 4, 4 };
+        for (int i = 0; i < tags.length; i++) {
+            assertEquals(tags[i], tlv.tag(i));
+            assertEquals(depths[i], tlv.depth(i));
+        }
+        int aid = tlv.indexOf(0x4F);
+        assertSame(PPSE_FCI, tlv.buffer());
+        assertEquals(7, tlv.length(aid));
+        assertEquals("A0000000041010", HexUtil.bytesToHex(PPSE_FCI).substring(
+                tlv.offset(aid) * 2, (tlv.offset(aid) + 7) * 2));
+        assertArrayEquals(HexUtil.hexToBytes("A0000000041010"), tlv.find(0x4F));
+        assertArrayEquals(tlv.find(0x4F), TlvParser.findTag(PPSE_FCI, 0x4F));
+    }
+
+    @Test
+    public void maxDepthZero_keepsTopLevelOnly() {
+        TlvIndex tlv = new TlvIndex().wrap(PPSE_FCI, 0, PPSE_FCI.length, 0);
+
+        assertEquals(1, tlv.size());
+        assertFalse(tlv.contains(0x4F));
+        assertEquals(PPSE_FCI.length - 2, tlv.length(0));
+    }
+
+    @Test
+    public void wrap_honoursSliceAndSkipsPadding() {
+        byte[] resp = HexUtil.hexToBytes("00FF" + "5A0841111111111111119F3602004200" + "9000");
+
+        TlvIndex tlv = new TlvIndex().wrap(resp, 2, resp.length - 4, 0);
+
+        assertEquals(2, tlv.size());
+        assertEquals(0x9F36, tlv.tag(1));
+        assertArrayEquals(new byte[] { 0x00, 0x42 }, tlv.value(1));
+        assertFalse(tlv.contains(0x90)); // SW outside the slice
+    }
+
+    @Test
+    public void malformedInnerElement_endsOnlyItsLevel() {
+        // 70 claims 6 bytes; inside, 57 claims 9 bytes and overruns the template
+        byte[] data = HexUtil.hexToBytes("7006" + "570941111111" + "5F340101");
+
+        TlvIndex tlv = TlvIndex.of(data);
+
+        assertEquals(2, tlv.size());
+        assertEquals(0x70, tlv.tag(0));
+        assertArrayEquals(new byte[] { 0x01 }, tlv.find(0x5F34));
+        assertNull(tlv.find(0x57));
+    }
+
+    @Test
+    public void longFormLengthAndThreeByteTag() {
+        StringBuilder hex = new StringBuilder("DF810181");
+        hex.append("80");
+        for (int i = 0; i < 0x80; i++) hex.append("AB");
+
+        TlvIndex tlv = TlvIndex.of(HexUtil.hexToBytes(hex.toString()));
+
+        assertEquals(1, tlv.size());
+        assertEquals(0xDF8101, tlv.tag(0));
+        assertEquals(0x80, tlv.length(0));
+    }
+
+    @Test
+    public void hashedLookup_firstOccurrenceWinsAndRewrapResets() {
+        StringBuilder hex = new StringBuilder();
+        for (int t = 0x81; t <= 0x8F; t++) {
+            hex.append(String.format("%02X01%02X", t, t));
+        }
+        hex.append("8101FF"); // duplicate of the first tag
+        TlvIndex tlv = TlvIndex.of(HexUtil.hexToBytes(hex.toString()));
+
+        assertEquals(16, tlv.size());
+        for (int t = 0x81; t <= 0x8F; t++) {
+            assertEquals(t - 0x81, tlv.indexOf(t));
+        }
+        assertEquals(-1, tlv.indexOf(0x9F02));
+
+        byte[] other = HexUtil.hexToBytes("9F02060000000050009F2701800000");
+        tlv.wrap(other, 0, other.length, TlvIndex.DEFAULT_MAX_DEPTH);
+        assertEquals(2, tlv.size());
+        assertEquals(-1, tlv.indexOf(0x81));
+        assertEquals(1, tlv.indexOf(0x9F27));
+    }
+
+    @Test
+    public void de55Parse_matchesIndexTopLevel() {
+        String de55 = "910A1A2B3C4D5E6F70810012" + "7216" + "9F180400000001"
+                + "860D8424000008A1B2C3D4E5F60708";
+
+        EmvTagSet tags = EmvTlvCodec.parseDE55Response(de55);
+        EmvTagSet prefixed = EmvTlvCodec.parseDE55WithPrefix(
+                concat("036".getBytes(), HexUtil.hexToBytes(de55)));
+
+        assertEquals(2, tags.size());
+        assertEquals(0x16, EmvTlvCodec.getIssuerScript2(tags).length);
+        assertEquals(tags.toString(), prefixed.toString());
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] out = new byte[a.length + b.length];
+        System.arraycopy(a, 0, out, 0, a.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+        return out;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.mysoftpos.nfc;
+
+import com.example.mysoftpos.domain.model.CardInputData;
+import com.example.mysoftpos.domain.usecase.ReadCardDataUseCase;
+import com.example.mysoftpos.iso8583.util.HexUtil;
+import com.example.mysoftpos.nfc.sim.MemoryAidStatStore;
+import com.example.mysoftpos.nfc.sim.ReplayCardTransceiver;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AidSelectorTest {
+
+    private static final String PROFILE = "hb:80318065B0850100";
+    private static final String MC_PAN = "5413330089010434";
+    private static final byte[] AID_MC = HexUtil.hexToBytes("A0000000041010");
+    private static final byte[] AID_NAPAS = HexUtil.hexToBytes("F0000007040001");
+
+    @Test
+    public void freshSelector_keepsDefaultOrderAndRunsPpse() {
+        AidSelector selector = new AidSelector(new MemoryAidStatStore(), Runnable::run);
+
+        assertNull(selector.preferredAid(PROFILE));
+        List<byte[]> order = selector.candidates(PROFILE);
+        assertEquals(8, order.size());
+        assertArrayEquals(AID_NAPAS, order.get(0));
+    }
+
+    @Test
+    public void success_isPreferredForProfileAndMovesUpGlobally() {
+        MemoryAidStatStore dao = new MemoryAidStatStore();
+        AidSelector selector = new AidSelector(dao, Runnable::run);
+
+        selector.recordSuccess(PROFILE, MC_PAN, AID_MC);
+
+        assertArrayEquals(AID_MC, selector.preferredAid(PROFILE));
+        assertArrayEquals(AID_MC, selector.candidates(null).get(0));
+        // Profile, BIN range and global rows
+        assertEquals(3, dao.size());
+        assertNotNull(dao.get("bin:541333", "A0000000041010"));
+    }
+
+    @Test
+    public void statsSurviveRestart() {
+        MemoryAidStatStore dao = new MemoryAidStatStore();
+        new AidSelector(dao, Runnable::run).recordSuccess(PROFILE, MC_PAN, AID_MC);
+
+        AidSelector reloaded = new AidSelector(dao, Runnable::run);
+        assertArrayEquals(AID_MC, reloaded.preferredAid(PROFILE));
+    }
+
+    @Test
+    public void miss_dropsProfilePreference() {
+        MemoryAidStatStore dao = new MemoryAidStatStore();
+        AidSelector selector = new AidSelector(dao, Runnable::run);
+        selector.recordSuccess(PROFILE, MC_PAN, AID_MC);
+
+        selector.recordMiss(PROFILE, AID_MC);
+
+        assertNull(selector.preferredAid(PROFILE));
+        assertEquals(2, dao.size());
+    }
+
+    @Test
+    public void ppseAidOutsideDefaults_becomesCandidate() {
+        AidSelector selector = new AidSelector(new MemoryAidStatStore(), Runnable::run);
+        byte[] jcb = HexUtil.hexToBytes("A0000000651010");
+
+        selector.recordSuccess(null, "3566002020360505", jcb);
+
+        List<byte[]> order = selector.candidates(null);
+        assertEquals(9, order.size());
+        assertArrayEquals(jcb, order.get(0));
+    }
+
+    @Test
+    public void readCard_secondTapOfSameProfileSkipsPpseAndAidWalk() throws Exception {
+        AidSelector selector = new AidSelector(new MemoryAidStatStore(), Runnable::run);
+
+        ReplayCardTransceiver first = ReplayCardTransceiver.of("mastercard");
+        CardInputData card = new ReadCardDataUseCase(first, selector).execute();
+        assertEquals(MC_PAN, card.getPan());
+        // PPSE, NAPAS x3, VCCS, Visa x2, Mastercard, GPO, READ (6C + retry), READ
+        assertEquals(12, first.getApduCount());
+
+        ReplayCardTransceiver second = ReplayCardTransceiver.of("mastercard");
+        new ReadCardDataUseCase(second, selector).execute();
+        assertEquals(5, second.getApduCount());
+    }
+
+    @Test
+    public void readCard_withoutSelector_keepsFixedWalk() throws Exception {
+        ReplayCardTransceiver card = ReplayCardTransceiver.of("mastercard");
+        new ReadCardDataUseCase(card).execute();
+        card.reset();
+        new ReadCardDataUseCase(card).execute();
+        assertEquals(12, card.getApduCount());
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.mysoftpos.utils.security;
+
+import com.example.mysoftpos.iso8583.message.IsoMessage;
+import com.example.mysoftpos.iso8583.util.StandardIsoPacker;
+
+import org.junit.Test;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class PanScrubberTest {
+
+    private static final String LUHN_PAN = "9704189991010867647";
+
+    private final PanScrubber scrubber = new PanScrubber();
+
+    /** The regex masking PanMasker used before; the scrubber must agree with it on text. */
+    private static String regexMask(String input) {
+        Matcher t2 = Pattern.compile("(\\d{13,19})=(\\d{4,})").matcher(input);
+        StringBuffer sb = new StringBuffer();
+        while (t2.find()) {
+            t2.appendReplacement(sb, PanMasker.maskSinglePan(t2.group(1)) + "=****");
+        }
+        t2.appendTail(sb);
+        Matcher pan = Pattern.compile("\\b(\\d{13,19})\\b").matcher(sb.toString());
+        StringBuffer out = new StringBuffer();
+        while (pan.find()) {
+            pan.appendReplacement(out, PanMasker.maskSinglePan(pan.group(1)));
+        }
+        pan.appendTail(out);
+        return out.toString();
+    }
+
+    @Test
+    public void text_matchesRegexMasking() {
+        String[] inputs = {
+                "PAN 9704180000123456 sent",
+                "9704180000123456",
+                "T2=9704189991010867647=31016010000000123 end",
+                "short 123456789012 and long 12345678901234567890",
+                "two 4111111111111111,5500000000000004.",
+                "track 12345678901234567890123=2512 tail",
+                "no digits here",
+                "DE 002: 970418******3456\nDE 011: 000123\n",
+        };
+        for (String in : inputs) {
+            assertEquals(in, regexMask(in), scrubber.scrubText(in));
+        }
+    }
+
+    @Test
+    public void text_cleanInputIsReturnedAsIs() {
+        String in = "DE 004: 000000005000 RC=00";
+        assertSame(in, scrubber.scrubText(in));
+    }
+
+    @Test
+    public void text_track2WithDSeparator() {
+        assertEquals("T2 970418*********7647D**** ok",
+                scrubber.scrubText("T2 " + LUHN_PAN + "D3101601000 ok"));
+    }
+
+    @Test
+    public void text_gluedRunIsMaskedOnlyWhenLuhnValid() {
+        assertEquals("PAN411111******1111", scrubber.scrubText("PAN4111111111111111"));
+        assertEquals("ID9704180000123456x", scrubber.scrubText("ID9704180000123456x"));
+    }
+
+    @Test
+    public void hex_bcdPanWithLengthPrefix() {
+        // "19" LL prefix, PAN, 'F' pad, then DE 3 "000000"
+        String hex = "0200" + "19" + LUHN_PAN + "F" + "000000";
+        assertEquals("0200" + "19" + "970418*********7647" + "F" + "000000", scrubber.scrubHex(hex));
+    }
+
+    @Test
+    public void hex_bcdTrack2() {
+        String hex = "37" + LUHN_PAN + "D31016010000000123F";
+        assertEquals("37" + "970418*********7647" + "D*****************F", scrubber.scrubHex(hex));
+    }
+
+    @Test
+    public void hex_asciiPanInsidePackedMessage() throws Exception {
+        IsoMessage m = new IsoMessage("0200");
+        m.setField(2, LUHN_PAN);
+        m.setField(3, "000000");
+        m.setField(4, "000000005000");
+        m.setField(11, "000123");
+        m.setField(41, "TID00001");
+        String hex = StandardIsoPacker.bytesToHex(StandardIsoPacker.pack(m));
+
+        String masked = scrubber.scrubHex(hex);
+        assertEquals(hex.length(), masked.length());
+        String panHex = StandardIsoPacker.bytesToHex(LUHN_PAN.getBytes());
+        assertFalse(masked.contains(panHex));
+        // first 6 / last 4 stay, amount and STAN stay readable
+        assertTrue(masked.contains(panHex.substring(0, 12) + "******************" + panHex.substring(30)));
+        assertTrue(masked.contains(StandardIsoPacker.bytesToHex("000000005000".getBytes())));
+        assertTrue(masked.contains(StandardIsoPacker.bytesToHex("000123".getBytes())));
+    }
+
+    @Test
+    public void hex_numericFieldsFailingLuhnAreLeftAlone() {
+        String hex = "20260305090701" + "0000000050001";
+        assertSame(hex, scrubber.scrubHex(hex));
+        String notAPan = "FF" + "9704180000123456" + "FF";
+        assertSame(notAPan, scrubber.scrubHex(notAPan));
+    }
+
+    @Test
+    public void panMasker_delegatesToScrubber() {
+        assertEquals("PAN 970418******3456 sent", PanMasker.mask("PAN 9704180000123456 sent"));
+        assertEquals("19970418*********7647F", PanMasker.maskHex("19" + LUHN_PAN + "F"));
+        assertNull(PanMasker.mask(null));
+    }
+}
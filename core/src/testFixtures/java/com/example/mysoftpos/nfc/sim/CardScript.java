@@ -0,0 +1,175 @@
+package com.example.mysoftpos.nfc.sim;
+
+import com.example.mysoftpos.iso8583.util.HexUtil;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * APDU exchanges of one card, replayed by {@link ReplayCardTransceiver}.
+ *
+ * <pre>
+ * # comment
+ * ats 4A434F50          ATS historical bytes (the card profile)
+ * default 6D00          answer to commands no rule matches
+ * &gt; 00A4040007A000000003101000
+ * &lt; 6137                 one or more answers, used in turn; the last repeats
+ * &gt; 80A80000*            '*' matches any remainder, '..' any single byte
+ * &lt; 77...9000
+ * </pre>
+ *
+ * Rules are tried top to bottom; the first match answers. Built-in
+ * profiles live under {@code /cards/<name>.apdu} on the classpath.
+ */
+public final class CardScript {
+
+    /** Profiles shipped with the fixtures. */
+    public static final List<String> BUILT_IN =
+            Collections.unmodifiableList(Arrays.asList("napas", "visa", "mastercard"));
+
+    static final class Rule {
+        final byte[] pattern;
+        final boolean[] anyByte;
+        final boolean prefix;
+        final List<byte[]> responses = new ArrayList<>();
+
+        Rule(byte[] pattern, boolean[] anyByte, boolean prefix) {
+            this.pattern = pattern;
+            this.anyByte = anyByte;
+            this.prefix = prefix;
+        }
+
+        boolean matches(byte[] cmd) {
+            if (prefix ? cmd.length < pattern.length : cmd.length != pattern.length) {
+                return false;
+            }
+            for (int i = 0; i < pattern.length; i++) {
+                if (!anyByte[i] && cmd[i] != pattern[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    final String name;
+    final String ats;
+    final byte[] defaultResponse;
+    final List<Rule> rules;
+
+    private CardScript(String name, String ats, byte[] defaultResponse, List<Rule> rules) {
+        this.name = name;
+        this.ats = ats;
+        this.defaultResponse = defaultResponse;
+        this.rules = rules;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** Card profile as {@code IsoDepTransceiver} reports it, or null without an ats line. */
+    public String getCardProfile() {
+        return ats != null ? "hb:" + ats : null;
+    }
+
+    /** A built-in profile, e.g. {@code "napas"}. */
+    public static CardScript load(String name) {
+        String path = "/cards/" + name + ".apdu";
+        try (InputStream in = CardScript.class.getResourceAsStream(path)) {
+            if (in == null) {
+                throw new IllegalArgumentException("No card script " + path);
+            }
+            return parse(name, new InputStreamReader(in, StandardCharsets.US_ASCII));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read " + path, e);
+        }
+    }
+
+    public static CardScript parse(String name, String text) {
+        try {
+            return parse(name, new StringReader(text));
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringReader does not throw
+        }
+    }
+
+    public static CardScript parse(String name, Reader reader) throws IOException {
+        BufferedReader in = new BufferedReader(reader);
+        String ats = null;
+        byte[] defaultResponse = HexUtil.hexToBytes("6D00");
+        List<Rule> rules = new ArrayList<>();
+        Rule current = null;
+        String line;
+        int lineNo = 0;
+        while ((line = in.readLine()) != null) {
+            lineNo++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (line.startsWith(">")) {
+                current = rule(strip(line.substring(1)), name, lineNo);
+                rules.add(current);
+            } else if (line.startsWith("<")) {
+                if (current == null) {
+                    throw new IllegalArgumentException(name + ":" + lineNo + ": response before any command");
+                }
+                current.responses.add(hex(strip(line.substring(1)), name, lineNo));
+            } else if (line.startsWith("ats ")) {
+                ats = strip(line.substring(4)).toUpperCase();
+            } else if (line.startsWith("default ")) {
+                defaultResponse = hex(strip(line.substring(8)), name, lineNo);
+            } else {
+                throw new IllegalArgumentException(name + ":" + lineNo + ": cannot parse '" + line + "'");
+            }
+        }
+        for (Rule r : rules) {
+            if (r.responses.isEmpty()) {
+                throw new IllegalArgumentException(name + ": command without response");
+            }
+        }
+        return new CardScript(name, ats, defaultResponse, rules);
+    }
+
+    private static Rule rule(String p, String name, int lineNo) {
+        boolean prefix = p.endsWith("*");
+        if (prefix) {
+            p = p.substring(0, p.length() - 1);
+        }
+        if (p.length() % 2 != 0) {
+            throw new IllegalArgumentException(name + ":" + lineNo + ": odd hex length");
+        }
+        byte[] pattern = new byte[p.length() / 2];
+        boolean[] any = new boolean[pattern.length];
+        for (int i = 0; i < pattern.length; i++) {
+            String b = p.substring(i * 2, i * 2 + 2);
+            if (b.equals("..")) {
+                any[i] = true;
+            } else {
+                pattern[i] = (byte) Integer.parseInt(b, 16);
+            }
+        }
+        return new Rule(pattern, any, prefix);
+    }
+
+    private static byte[] hex(String s, String name, int lineNo) {
+        if (s.length() % 2 != 0 || !s.matches("[0-9A-Fa-f]*")) {
+            throw new IllegalArgumentException(name + ":" + lineNo + ": bad hex '" + s + "'");
+        }
+        return HexUtil.hexToBytes(s);
+    }
+
+    private static String strip(String s) {
+        return s.replaceAll("\\s+", "");
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.mysoftpos.nfc.sim;
+
+import com.example.mysoftpos.nfc.AidSelector;
+import com.example.mysoftpos.nfc.AidStat;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** {@link AidSelector.Store} kept in a map, standing in for the Room table. */
+public class MemoryAidStatStore implements AidSelector.Store {
+
+    private final Map<String, AidStat> rows = new LinkedHashMap<>();
+
+    @Override
+    public List<AidStat> getAll() {
+        List<AidStat> out = new ArrayList<>();
+        for (AidStat s : rows.values()) {
+            out.add(s.copy());
+        }
+        return out;
+    }
+
+    @Override
+    public void upsert(AidStat stat) {
+        rows.put(stat.scope + "|" + stat.aid, stat.copy());
+    }
+
+    @Override
+    public void delete(AidStat stat) {
+        rows.remove(stat.scope + "|" + stat.aid);
+    }
+
+    public AidStat get(String scope, String aid) {
+        return rows.get(scope + "|" + aid);
+    }
+
+    public int size() {
+        return rows.size();
+    }
+}
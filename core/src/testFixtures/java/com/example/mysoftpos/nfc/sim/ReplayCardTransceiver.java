@@ -0,0 +1,133 @@
+package com.example.mysoftpos.nfc.sim;
+
+import com.example.mysoftpos.nfc.CardTransceiver;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link CardTransceiver} that answers from a {@link CardScript}, so card
+ * reads run on a plain JVM.
+ *
+ * Each exchange costs {@code perApdu + perByte * (command + response bytes)}
+ * of simulated radio time. It is only added up by default; with
+ * {@link #setRealTime(boolean)} the calling thread also sleeps for it.
+ * Not thread-safe: one transceiver per simulated tap.
+ */
+public class ReplayCardTransceiver implements CardTransceiver {
+
+    private final CardScript script;
+    private final int[] cursor;
+    private long perApduNanos;
+    private long perByteNanos;
+    private boolean realTime;
+    private int loseCardAfter = -1;
+
+    private boolean connected = true;
+    private int apduCount;
+    private long bytesExchanged;
+    private long radioNanos;
+
+    public ReplayCardTransceiver(CardScript script) {
+        this.script = script;
+        this.cursor = new int[script.rules.size()];
+    }
+
+    public static ReplayCardTransceiver of(String profile) {
+        return new ReplayCardTransceiver(CardScript.load(profile));
+    }
+
+    /** Radio time per exchange, e.g. (15_000, 80) for a phone at 106 kbit/s. */
+    public ReplayCardTransceiver setLatency(long perApduMicros, long perByteMicros) {
+        this.perApduNanos = TimeUnit.MICROSECONDS.toNanos(perApduMicros);
+        this.perByteNanos = TimeUnit.MICROSECONDS.toNanos(perByteMicros);
+        return this;
+    }
+
+    /** Sleep for the simulated radio time instead of only counting it. */
+    public ReplayCardTransceiver setRealTime(boolean realTime) {
+        this.realTime = realTime;
+        return this;
+    }
+
+    /** The card leaves the field after {@code apdus} exchanges (-1 = never). */
+    public ReplayCardTransceiver loseCardAfter(int apdus) {
+        this.loseCardAfter = apdus;
+        return this;
+    }
+
+    @Override
+    public byte[] transceive(byte[] commandApdu) throws IOException {
+        if (!connected) {
+            throw new IOException("Card not connected");
+        }
+        if (loseCardAfter >= 0 && apduCount >= loseCardAfter) {
+            connected = false;
+            throw new IOException("Tag was lost.");
+        }
+        byte[] response = answer(commandApdu);
+        apduCount++;
+        int bytes = commandApdu.length + response.length;
+        bytesExchanged += bytes;
+        long cost = perApduNanos + perByteNanos * bytes;
+        radioNanos += cost;
+        if (realTime && cost > 0) {
+            LockSupport.parkNanos(cost);
+        }
+        return response.clone();
+    }
+
+    private byte[] answer(byte[] cmd) {
+        for (int i = 0; i < cursor.length; i++) {
+            CardScript.Rule rule = script.rules.get(i);
+            if (rule.matches(cmd)) {
+                int n = Math.min(cursor[i], rule.responses.size() - 1);
+                cursor[i]++;
+                return rule.responses.get(n);
+            }
+        }
+        return script.defaultResponse;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public void close() {
+        connected = false;
+    }
+
+    @Override
+    public String getCardProfile() {
+        return script.getCardProfile();
+    }
+
+    /** Puts the card back in the field with counters and rule cursors cleared. */
+    public void reset() {
+        connected = true;
+        apduCount = 0;
+        bytesExchanged = 0;
+        radioNanos = 0;
+        java.util.Arrays.fill(cursor, 0);
+    }
+
+    public int getApduCount() {
+        return apduCount;
+    }
+
+    public long getBytesExchanged() {
+        return bytesExchanged;
+    }
+
+    /** Simulated radio time of all exchanges so far. */
+    public long getRadioNanos() {
+        return radioNanos;
+    }
+
+    public CardScript getScript() {
+        return script;
+    }
+}
@@ -21,3 +21,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "MySoftPOS"
 include(":app")
+include(":core")
+include(":benchmark")